@@ -0,0 +1,159 @@
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import field.*;
+import vector.Vector;
+
+/**
+ * Benchmarks for field evaluation, one point at a time through getField(Vector) and in batches
+ * through the array overload. The number of points in a batch and the number of charges in the
+ * ChargeArray and ChargeTree cases are varied. Each parameter lives in its own state, so a benchmark
+ * only runs once for every combination of the parameters it actually uses.
+ *
+ * @author Ronen Orland
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ElectrodeBenchmark
+{
+    /**
+     * The fixed electrodes and the point they are evaluated at one at a time
+     */
+    @State(Scope.Thread)
+    public static class Fixed
+    {
+        PointCharge pointCharge;
+        Dipole dipole;
+        Quadrupole quadrupole;
+        Vector coord;
+
+        @Setup
+        public void setup()
+        {
+            pointCharge = new PointCharge(1e-9, new Vector(0, 0, 0));
+            dipole = new Dipole(1e-9, new Vector(-1e-4, 0, 0), new Vector(1e-4, 0, 0));
+            quadrupole = new Quadrupole(dipole, new Dipole(1e-9, new Vector(0, 1e-4, 0), new Vector(0, -1e-4, 0)));
+            coord = new Vector(3e-4, -2e-4, 1e-4);
+        }
+    }
+
+    /**
+     * A batch of points to evaluate at and room for their fields
+     */
+    @State(Scope.Thread)
+    public static class Points
+    {
+        @Param({"1000", "100000"})
+        public int points;      // Points evaluated per batch
+
+        double[] x, y, z;
+        double[] field;
+
+        @Setup
+        public void setup()
+        {
+            SplittableRandom random = new SplittableRandom(1);
+            x = new double[points];
+            y = new double[points];
+            z = new double[points];
+            for (int i = 0; i < points; i++)
+            {
+                x[i] = random.nextDouble(-1e-3, 1e-3);
+                y[i] = random.nextDouble(-1e-3, 1e-3);
+                z[i] = random.nextDouble(1e-5, 5e-4);
+            }
+            field = new double[3 * points];
+        }
+    }
+
+    /**
+     * A ChargeArray and a ChargeTree of the same charges
+     */
+    @State(Scope.Thread)
+    public static class Charges
+    {
+        @Param({"4", "64", "1024"})
+        public int charges;     // Charges in the ChargeArray and ChargeTree
+
+        ChargeArray array;
+        ChargeTree tree;
+
+        @Setup
+        public void setup()
+        {
+            SplittableRandom random = new SplittableRandom(2);
+            ChargeArray.Builder builder = new ChargeArray.Builder();
+            for (int i = 0; i < charges; i++)
+                builder.add((i % 2 == 0 ? 1 : -1) * 1e-9, random.nextDouble(-1e-3, 1e-3),
+                        random.nextDouble(-1e-3, 1e-3), random.nextDouble(-1e-4, 0));
+            array = builder.build();
+            tree = new ChargeTree(array);
+        }
+    }
+
+
+    @Benchmark
+    public Vector pointChargeSingle(Fixed f)
+    {
+        return f.pointCharge.getField(f.coord);
+    }
+
+    @Benchmark
+    public Vector dipoleSingle(Fixed f)
+    {
+        return f.dipole.getField(f.coord);
+    }
+
+    @Benchmark
+    public Vector quadrupoleSingle(Fixed f)
+    {
+        return f.quadrupole.getField(f.coord);
+    }
+
+    @Benchmark
+    public double[] pointChargeBatch(Fixed f, Points p)
+    {
+        f.pointCharge.getField(p.x, p.y, p.z, p.field, p.points);
+
+        return p.field;
+    }
+
+    @Benchmark
+    public double[] dipoleBatch(Fixed f, Points p)
+    {
+        f.dipole.getField(p.x, p.y, p.z, p.field, p.points);
+
+        return p.field;
+    }
+
+    @Benchmark
+    public double[] quadrupoleBatch(Fixed f, Points p)
+    {
+        f.quadrupole.getField(p.x, p.y, p.z, p.field, p.points);
+
+        return p.field;
+    }
+
+    @Benchmark
+    public double[] chargeArrayBatch(Points p, Charges c)
+    {
+        c.array.getField(p.x, p.y, p.z, p.field, p.points);
+
+        return p.field;
+    }
+
+    @Benchmark
+    public double[] chargeTreeBatch(Points p, Charges c)
+    {
+        c.tree.getField(p.x, p.y, p.z, p.field, p.points);
+
+        return p.field;
+    }
+}
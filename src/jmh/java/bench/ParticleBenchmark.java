@@ -0,0 +1,86 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import particles.*;
+import vector.Vector;
+
+/**
+ * Benchmarks for moving and creating particles, as objects and as a ParticleEnsemble, for several
+ * population sizes.
+ *
+ * @author Ronen Orland
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParticleBenchmark
+{
+    @Param({"1000", "100000"})
+    public int population;      // Number of particles moved or created per call
+
+    private Particle[] objects;
+    private ParticleEnsemble ensemble;
+    private double[] force;
+    private Vector forceVector;
+    private Vector min;
+    private Vector max;
+
+
+    @Setup
+    public void setup()
+    {
+        min = new Vector(-1e-3, -1e-3, 0);
+        max = new Vector(1e-3, 1e-3, 5e-4);
+        ensemble = new PopulationGenerator(1).generate(ParticleEnsemble.YEAST, population, min, max);
+        objects = ensemble.toParticles().toArray(new Particle[0]);
+
+        forceVector = new Vector(1e-15, -2e-15, 5e-16);
+        force = new double[3 * population];
+        for (int i = 0; i < population; i++)
+        {
+            force[i] = forceVector.getX();
+            force[population + i] = forceVector.getY();
+            force[2 * population + i] = forceVector.getZ();
+        }
+    }
+
+
+    @Benchmark
+    public Particle[] moveObjects()
+    {
+        for (Particle particle : objects)
+            particle.move(forceVector, 1e-6);
+
+        return objects;
+    }
+
+    @Benchmark
+    public ParticleEnsemble moveEnsemble()
+    {
+        ensemble.move(force, 1e-6);
+
+        return ensemble;
+    }
+
+    @Benchmark
+    public Particle[] constructYeast()
+    {
+        Particle[] created = new Particle[population];
+        for (int i = 0; i < population; i++)
+            created[i] = new Yeast(i, 0, 0);
+
+        return created;
+    }
+
+    @Benchmark
+    public ParticleEnsemble generateEnsemble()
+    {
+        return new PopulationGenerator(2).generate(ParticleEnsemble.YEAST, population, min, max);
+    }
+}
@@ -0,0 +1,75 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import vector.Vector;
+
+/**
+ * Benchmarks for Vector arithmetic. The in-place operations should allocate nothing, unit() allocates
+ * a new Vector each call.
+ *
+ * @author Ronen Orland
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorBenchmark
+{
+    private Vector a;
+    private Vector b;
+
+
+    @Setup
+    public void setup()
+    {
+        a = new Vector(1.5, -2.25, 3.125);
+        b = new Vector(-0.5, 0.75, 2.0);
+    }
+
+
+    @Benchmark
+    public Vector add()
+    {
+        a.add(b);
+        a.sub(b);
+
+        return a;
+    }
+
+    @Benchmark
+    public Vector mult()
+    {
+        a.mult(1.0000001);
+
+        return a;
+    }
+
+    @Benchmark
+    public double magnitude()
+    {
+        return a.magnitude();
+    }
+
+    @Benchmark
+    public double distance()
+    {
+        return a.distance(b);
+    }
+
+    @Benchmark
+    public Vector unit()
+    {
+        return a.unit();
+    }
+
+    @Benchmark
+    public Vector copy()
+    {
+        return new Vector(a);
+    }
+}
@@ -0,0 +1,68 @@
+package field;
+
+import vector.Vector;
+
+/**
+ * A coordinate axis
+ *
+ * @author Ronen Orland
+ */
+public enum Axis
+{
+    X,
+    Y,
+    Z;
+
+    private final static Axis[] AXES = values();    // values() clones the array on every call
+
+
+    /**
+     *
+     * @param v     the Vector to read
+     * @return      the component of v along this axis
+     */
+    public double of(Vector v)
+    {
+        return of(v.getX(), v.getY(), v.getZ());
+    }
+
+    /**
+     *
+     * @param x     x-coordinate
+     * @param y     y-coordinate
+     * @param z     z-coordinate
+     * @return      the coordinate along this axis
+     */
+    public double of(double x, double y, double z)
+    {
+        switch (this)
+        {
+            case X:
+                return x;
+            case Y:
+                return y;
+            default:
+                return z;
+        }
+    }
+
+    /**
+     * The first axis across this one. Together with second() it makes a right-handed set: Y and Z for
+     * X, Z and X for Y, X and Y for Z.
+     *
+     * @return  the first axis perpendicular to this one
+     */
+    public Axis first()
+    {
+        return AXES[(ordinal() + 1) % 3];
+    }
+
+    /**
+     *
+     * @return  the second axis perpendicular to this one
+     */
+    public Axis second()
+    {
+        return AXES[(ordinal() + 2) % 3];
+    }
+}
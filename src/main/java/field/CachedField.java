@@ -0,0 +1,183 @@
+package field;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the field and field gradient of an electrode at a set of numbered slots, usually one per
+ * particle, and hands back the remembered values for as long as they stay valid. A slot is recomputed
+ * when the electrode's version has changed since the slot was filled, or when the point asked for is
+ * further than the tolerance from the point the slot was filled at. Electrodes are static for most of
+ * a run and slow particles barely move between steps, so most lookups skip the field sum altogether.
+ *
+ * Reusing a value within the tolerance radius means the field is taken from up to that far away, so
+ * the tolerance should be small compared to the distance over which the field changes. A tolerance of
+ * 0 only reuses values for points that haven't moved at all, which is exact. If the electrode is
+ * invariant along an axis, movement along that axis doesn't change the field, so only the distance
+ * across it counts; particles drifting along a line electrode keep their slots indefinitely.
+ *
+ * Different slots can be looked up from different threads at the same time, but ensureCapacity() and
+ * update() must not run alongside lookups.
+ *
+ * @author Ronen Orland
+ */
+public class CachedField
+{
+    private final static long EMPTY = Long.MIN_VALUE;     // Version of a slot that was never filled
+
+    private final Electrode electrode;      // Source of the field
+    private final double tolerance;         // Distance a point can move before its slot is recomputed
+    private final double toleranceSquared;
+    private volatile long version;          // Version of the electrode at the last update
+    private double wx, wy, wz;              // 1 for axes movement counts along, 0 for the invariant axis
+    private double[] points = new double[0];    // Coordinates each slot was filled at, 3 per slot
+    private double[] values = new double[0];    // Gradient of each slot, laid out as in FieldGradient
+    private long[] versions = new long[0];      // Electrode version each slot was filled at
+
+
+    /**
+     * Constructor that takes the electrode to cache and how far points can move before being
+     * recomputed
+     *
+     * @param electrode     the electrode creating the field
+     * @param tolerance     distance in meters a point can move and still reuse its slot
+     * @throws IllegalArgumentException     if electrode is null or tolerance is negative or NaN
+     */
+    public CachedField(Electrode electrode, double tolerance)
+    {
+        if (electrode == null)
+            throw new IllegalArgumentException("electrode must not be null");
+        if (!(tolerance >= 0))
+            throw new IllegalArgumentException("Tolerance must not be negative");
+
+        this.electrode = electrode;
+        this.tolerance = tolerance;
+        toleranceSquared = tolerance * tolerance;
+        version = electrode.getVersion();
+        readInvariantAxis();
+    }
+
+
+    /**
+     * Makes sure there are at least a number of slots. New slots start out empty.
+     *
+     * @param slots     the number of slots needed
+     */
+    public void ensureCapacity(int slots)
+    {
+        int old = versions.length;
+        if (slots <= old)
+            return;
+
+        int grown = Math.max(slots, old + (old >> 1) + 1);
+        points = Arrays.copyOf(points, 3 * grown);
+        values = Arrays.copyOf(values, FieldGradient.LENGTH * grown);
+        versions = Arrays.copyOf(versions, grown);
+        Arrays.fill(versions, old, grown, EMPTY);
+    }
+
+    /**
+     * Reads the electrode's current version. Slots filled at any other version are recomputed on
+     * their next lookup. Call this once before each round of lookups, such as once per step.
+     *
+     * @return  true if the electrode changed since the last update
+     */
+    public boolean update()
+    {
+        long current = electrode.getVersion();
+        if (current == version)
+            return false;
+
+        version = current;
+        readInvariantAxis();
+        return true;
+    }
+
+    /**
+     * Empties every slot, for when the electrode changed in a way its version doesn't track
+     */
+    public void invalidate()
+    {
+        Arrays.fill(versions, EMPTY);
+    }
+
+    /**
+     * Writes the field and Jacobian at a point into a gradient array laid out as in FieldGradient,
+     * reusing the slot's values if they are still valid for the point and recomputing them if not
+     *
+     * @param slot      the slot for the point, below the capacity
+     * @param x         x coordinate
+     * @param y         y coordinate
+     * @param z         z coordinate
+     * @param gradient  array of at least FieldGradient.LENGTH values to overwrite
+     * @return          true if the slot's values were reused, false if they were recomputed
+     */
+    public boolean getFieldGradient(int slot, double x, double y, double z, double[] gradient)
+    {
+        int p = 3 * slot;
+        int v = FieldGradient.LENGTH * slot;
+        long current = version;
+
+        if (versions[slot] == current)
+        {
+            double dx = wx * (x - points[p]);
+            double dy = wy * (y - points[p + 1]);
+            double dz = wz * (z - points[p + 2]);
+
+            if (dx*dx + dy*dy + dz*dz <= toleranceSquared)
+            {
+                System.arraycopy(values, v, gradient, 0, FieldGradient.LENGTH);
+                return true;
+            }
+        }
+
+        Arrays.fill(gradient, 0, FieldGradient.LENGTH, 0.0);
+        electrode.addFieldGradient(x, y, z, gradient);
+
+        System.arraycopy(gradient, 0, values, v, FieldGradient.LENGTH);
+        points[p] = x;
+        points[p + 1] = y;
+        points[p + 2] = z;
+        versions[slot] = current;
+
+        return false;
+    }
+
+    /**
+     *
+     * @return  the electrode creating the field
+     */
+    public Electrode getElectrode()
+    {
+        return electrode;
+    }
+
+    /**
+     *
+     * @return  distance in meters a point can move and still reuse its slot
+     */
+    public double getTolerance()
+    {
+        return tolerance;
+    }
+
+    /**
+     *
+     * @return  the number of slots
+     */
+    public int capacity()
+    {
+        return versions.length;
+    }
+
+    /**
+     * Stops movement along the electrode's invariant axis, if it has one, from counting toward the
+     * tolerance
+     */
+    private void readInvariantAxis()
+    {
+        Axis axis = electrode.getInvariantAxis();
+        wx = axis == Axis.X ? 0 : 1;
+        wy = axis == Axis.Y ? 0 : 1;
+        wz = axis == Axis.Z ? 0 : 1;
+    }
+}
@@ -0,0 +1,288 @@
+package field;
+
+import java.util.Arrays;
+
+import vector.Vector;
+
+/**
+ * An electrode made of any number of point charges. The charges are stored in flat primitive arrays
+ * instead of PointCharge objects, and their fields are summed in a single loop. ChargeArrays are
+ * immutable, use a ChargeArray.Builder to create one.
+ *
+ * @author Ronen Orland
+ */
+public class ChargeArray implements Electrode
+{
+    private final double[] x;         // x-coordinates of the charges
+    private final double[] y;         // y-coordinates of the charges
+    private final double[] z;         // z-coordinates of the charges
+    private final double[] charge;    // Charges in C
+    private final double[] kq;        // Coulomb's constant times each charge
+
+
+    /**
+     * Creates a ChargeArray from the charges collected by a Builder
+     *
+     * @param builder   the Builder holding the charges
+     */
+    private ChargeArray(Builder builder)
+    {
+        x = Arrays.copyOf(builder.x, builder.size);
+        y = Arrays.copyOf(builder.y, builder.size);
+        z = Arrays.copyOf(builder.z, builder.size);
+        charge = Arrays.copyOf(builder.charge, builder.size);
+        kq = new double[charge.length];
+        for (int j = 0; j < charge.length; j++)
+            kq[j] = PointCharge.k * charge[j];
+    }
+
+
+    @Override
+    public Vector getField(Vector coord)
+    {
+        Vector field = new Vector();
+        addField(coord.getX(), coord.getY(), coord.getZ(), field);
+
+        return field;
+    }
+
+    @Override
+    public void addField(double px, double py, double pz, Vector field)
+    {
+        FieldKernel.INSTANCE.addCharges(x, y, z, kq, kq.length, px, py, pz, field);
+    }
+
+    @Override
+    public void getField(double[] px, double[] py, double[] pz, double[] field, int count)
+    {
+        Arrays.fill(field, 0, 3*count, 0.0);
+        addField(px, py, pz, field, count);
+    }
+
+    @Override
+    public void addField(double[] px, double[] py, double[] pz, double[] field, int count)
+    {
+        FieldKernel.INSTANCE.addCharges(x, y, z, kq, kq.length, px, py, pz, field, count);
+    }
+
+    @Override
+    public void addFieldGradient(double px, double py, double pz, double[] gradient)
+    {
+        for (int j = 0; j < charge.length; j++)
+            FieldGradient.addPointCharge(kq[j], px - x[j], py - y[j], pz - z[j], gradient, 0);
+    }
+
+    @Override
+    public void getPlanarField(double[] px, double[] py, double pz, double[] field, int count)
+    {
+        Arrays.fill(field, 0, 2*count, 0.0);
+        addPlanarField(px, py, pz, field, count);
+    }
+
+    @Override
+    public void addPlanarField(double[] px, double[] py, double pz, double[] field, int count)
+    {
+        for (int j = 0; j < kq.length; j++)
+            FieldKernel.INSTANCE.addChargePlanar(x[j], y[j], pz - z[j], kq[j], px, py, field, count);
+    }
+
+    @Override
+    public void addPlanarFieldGradient(double px, double py, double pz, double[] gradient)
+    {
+        for (int j = 0; j < kq.length; j++)
+            PlanarGradient.addPointCharge(kq[j], px - x[j], py - y[j], pz - z[j], gradient, 0);
+    }
+
+    /**
+     *
+     * @return  the number of charges in the array
+     */
+    public int size()
+    {
+        return charge.length;
+    }
+
+    /**
+     *
+     * @param index     the index of the charge
+     * @return          the charge in C
+     */
+    public double getCharge(int index)
+    {
+        return charge[index];
+    }
+
+    /**
+     *
+     * @param index     the index of the charge
+     * @return          the x-coordinate of the charge
+     */
+    public double getX(int index)
+    {
+        return x[index];
+    }
+
+    /**
+     *
+     * @param index     the index of the charge
+     * @return          the y-coordinate of the charge
+     */
+    public double getY(int index)
+    {
+        return y[index];
+    }
+
+    /**
+     *
+     * @param index     the index of the charge
+     * @return          the z-coordinate of the charge
+     */
+    public double getZ(int index)
+    {
+        return z[index];
+    }
+
+    /**
+     *
+     * @param index     the index of the charge
+     * @return          a new position Vector of the charge
+     */
+    public Vector getPosition(int index)
+    {
+        return new Vector(x[index], y[index], z[index]);
+    }
+
+    /**
+     *
+     * @param index     the index of the charge
+     * @return          a new PointCharge with the charge and position at index
+     */
+    public PointCharge getPointCharge(int index)
+    {
+        return new PointCharge(charge[index], getPosition(index));
+    }
+
+    /**
+     * Collects charges for a ChargeArray. Existing PointCharges, Dipoles, Quadrupoles and ChargeArrays
+     * can be added, their charges are copied out so later changes to them don't affect the array.
+     */
+    public static class Builder
+    {
+        private double[] x = new double[16];
+        private double[] y = new double[16];
+        private double[] z = new double[16];
+        private double[] charge = new double[16];
+        private int size;
+
+        /**
+         * Adds a charge at a position
+         *
+         * @param q     charge in C
+         * @param px    x-coordinate
+         * @param py    y-coordinate
+         * @param pz    z-coordinate
+         * @return      this Builder
+         */
+        public Builder add(double q, double px, double py, double pz)
+        {
+            if (size == charge.length)
+            {
+                int grown = size * 2;
+                x = Arrays.copyOf(x, grown);
+                y = Arrays.copyOf(y, grown);
+                z = Arrays.copyOf(z, grown);
+                charge = Arrays.copyOf(charge, grown);
+            }
+
+            x[size] = px;
+            y[size] = py;
+            z[size] = pz;
+            charge[size] = q;
+            size++;
+
+            return this;
+        }
+
+        /**
+         * Adds a charge at a position
+         *
+         * @param q     charge in C
+         * @param pos   position Vector
+         * @return      this Builder
+         */
+        public Builder add(double q, Vector pos)
+        {
+            return add(q, pos.getX(), pos.getY(), pos.getZ());
+        }
+
+        /**
+         * Adds a copy of a PointCharge
+         *
+         * @param point     the PointCharge to add
+         * @return          this Builder
+         */
+        public Builder add(PointCharge point)
+        {
+            return add(point.getCharge(), point.getPosition());
+        }
+
+        /**
+         * Adds both charges of a Dipole
+         *
+         * @param dipole    the Dipole to add
+         * @return          this Builder
+         */
+        public Builder add(Dipole dipole)
+        {
+            add(dipole.getPositive());
+
+            return add(dipole.getNegative());
+        }
+
+        /**
+         * Adds all four charges of a Quadrupole
+         *
+         * @param quad      the Quadrupole to add
+         * @return          this Builder
+         */
+        public Builder add(Quadrupole quad)
+        {
+            for (PointCharge point : quad.getPointCharges())
+                add(point);
+
+            return this;
+        }
+
+        /**
+         * Adds every charge of another ChargeArray
+         *
+         * @param array     the ChargeArray to add
+         * @return          this Builder
+         */
+        public Builder add(ChargeArray array)
+        {
+            for (int i = 0; i < array.size(); i++)
+                add(array.charge[i], array.x[i], array.y[i], array.z[i]);
+
+            return this;
+        }
+
+        /**
+         *
+         * @return  the number of charges added so far
+         */
+        public int size()
+        {
+            return size;
+        }
+
+        /**
+         *
+         * @return  a new ChargeArray holding the charges added so far
+         */
+        public ChargeArray build()
+        {
+            return new ChargeArray(this);
+        }
+    }
+}
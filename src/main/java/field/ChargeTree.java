@@ -0,0 +1,444 @@
+package field;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import vector.Vector;
+
+/**
+ * An electrode made of a large set of point charges, evaluated with a Barnes-Hut tree code. The charges
+ * are sorted into an octree, and each node keeps a multipole summary (total charge, dipole moment and
+ * quadrupole moment about its center) of the charges inside it. When evaluating the field, a node that
+ * looks small enough from the evaluation point is replaced by its summary instead of visiting every
+ * charge in it, so each point costs O(log charges) instead of O(charges).
+ *
+ * Accuracy is controlled by the opening angle theta: a node of side s at distance d is summarized when
+ * s/d is less than theta. Smaller values are more accurate and slower, 0 sums every charge directly.
+ * Like ChargeArray, a ChargeTree is immutable and copies the charges it is built from.
+ *
+ * @author Ronen Orland
+ */
+public class ChargeTree implements Electrode
+{
+    public final static double DEFAULT_THETA = 0.5;
+    public final static int LEAF_SIZE = 8;         // Most charges in a leaf before it is split
+    public final static int MAX_DEPTH = 32;        // Deepest level, stops splitting coincident charges
+
+    // Charges, sorted so every node covers a contiguous range
+    private final double[] x, y, z, charge;
+
+    // Nodes, node 0 is the root
+    private int nodes;
+    private double[] centerX, centerY, centerZ, size;   // Geometric center and side length
+    private double[] q;                                 // Total charge
+    private double[] px, py, pz;                        // Dipole moment about the center
+    private double[] qxx, qyy, qzz, qxy, qxz, qyz;      // Traceless quadrupole moment about the center
+    private int[] start, end;                           // Range of charges in the node
+    private int[] firstChild, childCount;               // Children are stored next to each other
+
+    private final double theta;
+
+
+    /**
+     * Builds a tree over the charges of a ChargeArray with the default opening angle
+     *
+     * @param charges   the charges to evaluate
+     */
+    public ChargeTree(ChargeArray charges)
+    {
+        this(charges, DEFAULT_THETA);
+    }
+
+    /**
+     * Builds a tree over a collection of PointCharges
+     *
+     * @param charges   the charges to evaluate
+     * @param theta     the opening angle
+     * @throws IllegalArgumentException     if theta is negative
+     */
+    public ChargeTree(Collection<PointCharge> charges, double theta)
+    {
+        this(toArray(charges), theta);
+    }
+
+    /**
+     * Builds a tree over the charges of a ChargeArray
+     *
+     * @param charges   the charges to evaluate
+     * @param theta     the opening angle
+     * @throws IllegalArgumentException     if theta is negative
+     */
+    public ChargeTree(ChargeArray charges, double theta)
+    {
+        if (theta < 0)
+            throw new IllegalArgumentException("Opening angle can't be negative");
+
+        this.theta = theta;
+
+        int n = charges.size();
+        x = new double[n];
+        y = new double[n];
+        z = new double[n];
+        charge = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            x[i] = charges.getX(i);
+            y[i] = charges.getY(i);
+            z[i] = charges.getZ(i);
+            charge[i] = charges.getCharge(i);
+        }
+
+        allocateNodes(Math.max(16, 2 * n / LEAF_SIZE + 1));
+
+        // Root is the smallest cube holding every charge
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++)
+        {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            minZ = Math.min(minZ, z[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+            maxZ = Math.max(maxZ, z[i]);
+        }
+
+        if (n == 0)
+        {
+            minX = minY = minZ = 0;
+            maxX = maxY = maxZ = 0;
+        }
+
+        double side = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ));
+        int root = newNode((minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2, side);
+        build(root, 0, n, 0, new int[n], new double[4 * n]);
+    }
+
+
+    @Override
+    public Vector getField(Vector coord)
+    {
+        Vector field = new Vector();
+        addField(coord.getX(), coord.getY(), coord.getZ(), field);
+
+        return field;
+    }
+
+    @Override
+    public void addField(double px, double py, double pz, Vector field)
+    {
+        if (charge.length > 0)
+            accumulate(0, px, py, pz, field);
+    }
+
+    @Override
+    public void getField(double[] px, double[] py, double[] pz, double[] field, int count)
+    {
+        Arrays.fill(field, 0, 3*count, 0.0);
+        addField(px, py, pz, field, count);
+    }
+
+    /**
+     *
+     * @return  the opening angle
+     */
+    public double getTheta()
+    {
+        return theta;
+    }
+
+    /**
+     *
+     * @return  the number of charges in the tree
+     */
+    public int size()
+    {
+        return charge.length;
+    }
+
+    /**
+     *
+     * @return  the number of nodes in the tree
+     */
+    public int getNodeCount()
+    {
+        return nodes;
+    }
+
+
+    /**
+     * Adds the field of a node at a point, either from its multipole summary or by visiting its children
+     */
+    private void accumulate(int node, double ex, double ey, double ez, Vector field)
+    {
+        double dx = ex - centerX[node];
+        double dy = ey - centerY[node];
+        double dz = ez - centerZ[node];
+        double r2 = dx*dx + dy*dy + dz*dz;
+
+        // Far enough away, use the summary
+        if (size[node] * size[node] < theta * theta * r2)
+        {
+            addMultipole(node, dx, dy, dz, r2, field);
+            return;
+        }
+
+        if (childCount[node] == 0)
+        {
+            addDirect(start[node], end[node], ex, ey, ez, field);
+            return;
+        }
+
+        for (int c = firstChild[node]; c < firstChild[node] + childCount[node]; c++)
+            accumulate(c, ex, ey, ez, field);
+    }
+
+    /**
+     * Adds the field of a node's multipole summary at an offset from its center
+     */
+    private void addMultipole(int node, double dx, double dy, double dz, double r2, Vector field)
+    {
+        double inv2 = 1 / r2;
+        double inv1 = Math.sqrt(inv2);
+        double inv3 = inv1 * inv2;
+        double inv5 = inv3 * inv2;
+        double inv7 = inv5 * inv2;
+
+        // Monopole: Q R / R^3
+        double fx = q[node] * inv3 * dx;
+        double fy = q[node] * inv3 * dy;
+        double fz = q[node] * inv3 * dz;
+
+        // Dipole: 3 (p.R) R / R^5 - p / R^3
+        double pr = px[node] * dx + py[node] * dy + pz[node] * dz;
+        fx += 3 * pr * inv5 * dx - px[node] * inv3;
+        fy += 3 * pr * inv5 * dy - py[node] * inv3;
+        fz += 3 * pr * inv5 * dz - pz[node] * inv3;
+
+        // Quadrupole: 5/2 (R.Q.R) R / R^7 - Q.R / R^5
+        double qrx = qxx[node] * dx + qxy[node] * dy + qxz[node] * dz;
+        double qry = qxy[node] * dx + qyy[node] * dy + qyz[node] * dz;
+        double qrz = qxz[node] * dx + qyz[node] * dy + qzz[node] * dz;
+        double rqr = dx * qrx + dy * qry + dz * qrz;
+        fx += 2.5 * rqr * inv7 * dx - qrx * inv5;
+        fy += 2.5 * rqr * inv7 * dy - qry * inv5;
+        fz += 2.5 * rqr * inv7 * dz - qrz * inv5;
+
+        field.add(PointCharge.k * fx, PointCharge.k * fy, PointCharge.k * fz);
+    }
+
+    /**
+     * Adds the field of a range of charges by direct summation
+     */
+    private void addDirect(int from, int to, double ex, double ey, double ez, Vector field)
+    {
+        double fx = 0, fy = 0, fz = 0;
+
+        for (int j = from; j < to; j++)
+        {
+            double dx = ex - x[j];
+            double dy = ey - y[j];
+            double dz = ez - z[j];
+            double r2 = dx*dx + dy*dy + dz*dz;
+
+            if (r2 == 0)
+            {
+                double onCharge = PointCharge.fieldOnCharge(charge[j]);
+                fx += onCharge;
+                fy += onCharge;
+                fz += onCharge;
+                continue;
+            }
+
+            double scale = PointCharge.k * charge[j] / (r2 * Math.sqrt(r2));
+            fx += scale * dx;
+            fy += scale * dy;
+            fz += scale * dz;
+        }
+
+        field.add(fx, fy, fz);
+    }
+
+
+    /**
+     * Fills in a node's summary and splits it into children if it holds too many charges
+     *
+     * @param node      the node to build
+     * @param from      first charge in the node
+     * @param to        one past the last charge in the node
+     * @param depth     depth of the node, 0 for the root
+     * @param octant    scratch space for the octant of each charge
+     * @param swap      scratch space for sorting the charges
+     */
+    private void build(int node, int from, int to, int depth, int[] octant, double[] swap)
+    {
+        start[node] = from;
+        end[node] = to;
+        summarize(node);
+
+        if (to - from <= LEAF_SIZE || depth >= MAX_DEPTH || size[node] == 0)
+            return;
+
+        // Sort the charges by octant with a counting sort
+        double cx = centerX[node], cy = centerY[node], cz = centerZ[node];
+        int[] counts = new int[8];
+        for (int i = from; i < to; i++)
+        {
+            int o = (x[i] >= cx ? 1 : 0) | (y[i] >= cy ? 2 : 0) | (z[i] >= cz ? 4 : 0);
+            octant[i] = o;
+            counts[o]++;
+        }
+
+        int[] offsets = new int[8];
+        for (int o = 1; o < 8; o++)
+            offsets[o] = offsets[o - 1] + counts[o - 1];
+
+        int[] next = Arrays.copyOf(offsets, 8);
+        for (int i = from; i < to; i++)
+        {
+            int dest = 4 * next[octant[i]]++;
+            swap[dest] = x[i];
+            swap[dest + 1] = y[i];
+            swap[dest + 2] = z[i];
+            swap[dest + 3] = charge[i];
+        }
+        for (int i = from; i < to; i++)
+        {
+            int src = 4 * (i - from);
+            x[i] = swap[src];
+            y[i] = swap[src + 1];
+            z[i] = swap[src + 2];
+            charge[i] = swap[src + 3];
+        }
+
+        // Children are created together so they sit next to each other
+        double quarter = size[node] / 4;
+        int first = nodes;
+        int children = 0;
+        for (int o = 0; o < 8; o++)
+        {
+            if (counts[o] == 0)
+                continue;
+
+            newNode(cx + ((o & 1) != 0 ? quarter : -quarter), cy + ((o & 2) != 0 ? quarter : -quarter),
+                    cz + ((o & 4) != 0 ? quarter : -quarter), size[node] / 2);
+            children++;
+        }
+        firstChild[node] = first;
+        childCount[node] = children;
+
+        int child = first;
+        for (int o = 0; o < 8; o++)
+        {
+            if (counts[o] == 0)
+                continue;
+
+            build(child++, from + offsets[o], from + offsets[o] + counts[o], depth + 1, octant, swap);
+        }
+    }
+
+    /**
+     * Computes the monopole, dipole and quadrupole moments of a node about its center
+     */
+    private void summarize(int node)
+    {
+        double sq = 0, sx = 0, sy = 0, sz = 0;
+        double sxx = 0, syy = 0, szz = 0, sxy = 0, sxz = 0, syz = 0;
+
+        for (int i = start[node]; i < end[node]; i++)
+        {
+            double dx = x[i] - centerX[node];
+            double dy = y[i] - centerY[node];
+            double dz = z[i] - centerZ[node];
+            double c = charge[i];
+            double r2 = dx*dx + dy*dy + dz*dz;
+
+            sq += c;
+            sx += c * dx;
+            sy += c * dy;
+            sz += c * dz;
+            sxx += c * (3 * dx * dx - r2);
+            syy += c * (3 * dy * dy - r2);
+            szz += c * (3 * dz * dz - r2);
+            sxy += c * 3 * dx * dy;
+            sxz += c * 3 * dx * dz;
+            syz += c * 3 * dy * dz;
+        }
+
+        q[node] = sq;
+        px[node] = sx;
+        py[node] = sy;
+        pz[node] = sz;
+        qxx[node] = sxx;
+        qyy[node] = syy;
+        qzz[node] = szz;
+        qxy[node] = sxy;
+        qxz[node] = sxz;
+        qyz[node] = syz;
+    }
+
+    /**
+     * Adds a node with no charges or children yet
+     *
+     * @return  the index of the new node
+     */
+    private int newNode(double cx, double cy, double cz, double side)
+    {
+        if (nodes == centerX.length)
+            allocateNodes(2 * nodes);
+
+        centerX[nodes] = cx;
+        centerY[nodes] = cy;
+        centerZ[nodes] = cz;
+        size[nodes] = side;
+
+        return nodes++;
+    }
+
+    /**
+     * Grows the node arrays to a new capacity
+     */
+    private void allocateNodes(int capacity)
+    {
+        centerX = grow(centerX, capacity);
+        centerY = grow(centerY, capacity);
+        centerZ = grow(centerZ, capacity);
+        size = grow(size, capacity);
+        q = grow(q, capacity);
+        px = grow(px, capacity);
+        py = grow(py, capacity);
+        pz = grow(pz, capacity);
+        qxx = grow(qxx, capacity);
+        qyy = grow(qyy, capacity);
+        qzz = grow(qzz, capacity);
+        qxy = grow(qxy, capacity);
+        qxz = grow(qxz, capacity);
+        qyz = grow(qyz, capacity);
+        start = grow(start, capacity);
+        end = grow(end, capacity);
+        firstChild = grow(firstChild, capacity);
+        childCount = grow(childCount, capacity);
+    }
+
+    private static double[] grow(double[] array, int capacity)
+    {
+        return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    private static int[] grow(int[] array, int capacity)
+    {
+        return array == null ? new int[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    /**
+     * Copies a collection of PointCharges into a ChargeArray
+     */
+    private static ChargeArray toArray(Collection<PointCharge> charges)
+    {
+        ChargeArray.Builder builder = new ChargeArray.Builder();
+        for (PointCharge point : charges)
+            builder.add(point);
+
+        return builder.build();
+    }
+}
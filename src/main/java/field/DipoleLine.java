@@ -0,0 +1,172 @@
+package field;
+
+import java.util.Arrays;
+
+import vector.Vector;
+
+/**
+ * A pair of parallel infinite line charges of equal and opposite density, the 2D counterpart of a
+ * Dipole. Like LineCharge, the field only depends on the two coordinates across the lines.
+ *
+ * DipoleLines are immutable.
+ *
+ * @author Ronen Orland
+ */
+public class DipoleLine implements Electrode
+{
+    private final LineCharge positive;  // The positive line
+    private final LineCharge negative;  // The negative line
+
+
+    /**
+     * Creates lines along z with densities of 1uC/m, the positive through (0,0,0) and the negative
+     * through (1,0,0)
+     */
+    public DipoleLine()
+    {
+        this(LineCharge.DEFAULT_DENSITY, new Vector(), new Vector(1,0,0), Axis.Z);
+    }
+
+    /**
+     * Creates a pair of lines parallel to an axis
+     *
+     * @param density   the magnitude of the charge per length on each line in C/m
+     * @param pos       a point on the positive line
+     * @param neg       a point on the negative line
+     * @param axis      the axis both lines run along
+     */
+    public DipoleLine(double density, Vector pos, Vector neg, Axis axis)
+    {
+        this(new LineCharge(density, pos, axis), new LineCharge(-density, neg, axis));
+    }
+
+    /**
+     * Creates a pair from two existing lines
+     *
+     * @param pos   the positive line
+     * @param neg   the negative line
+     * @throws IllegalArgumentException     if the lines aren't parallel or their densities aren't equal
+     *                                      and opposite
+     */
+    public DipoleLine(LineCharge pos, LineCharge neg)
+    {
+        if (pos.getAxis() != neg.getAxis())
+            throw new IllegalArgumentException("Lines are not parallel");
+        if (pos.getDensity() != -neg.getDensity())
+            throw new IllegalArgumentException("Densities are not equal and opposite");
+
+        positive = pos;
+        negative = neg;
+    }
+
+
+    @Override
+    public Vector getField(Vector coord)
+    {
+        Vector field = new Vector();
+        addField(coord.getX(), coord.getY(), coord.getZ(), field);
+
+        return field;
+    }
+
+    @Override
+    public void addField(double x, double y, double z, Vector field)
+    {
+        positive.addField(x, y, z, field);
+        negative.addField(x, y, z, field);
+    }
+
+    @Override
+    public void getField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        Arrays.fill(field, 0, 3*count, 0.0);
+        addField(x, y, z, field, count);
+    }
+
+    @Override
+    public void addField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        // Sum each line's contribution straight into the output array
+        positive.addField(x, y, z, field, count);
+        negative.addField(x, y, z, field, count);
+    }
+
+    @Override
+    public void addFieldGradient(double x, double y, double z, double[] gradient)
+    {
+        positive.addFieldGradient(x, y, z, gradient);
+        negative.addFieldGradient(x, y, z, gradient);
+    }
+
+    @Override
+    public void getPlanarField(double[] x, double[] y, double z, double[] field, int count)
+    {
+        Arrays.fill(field, 0, 2*count, 0.0);
+        addPlanarField(x, y, z, field, count);
+    }
+
+    @Override
+    public void addPlanarField(double[] x, double[] y, double z, double[] field, int count)
+    {
+        positive.addPlanarField(x, y, z, field, count);
+        negative.addPlanarField(x, y, z, field, count);
+    }
+
+    @Override
+    public void addPlanarFieldGradient(double x, double y, double z, double[] gradient)
+    {
+        positive.addPlanarFieldGradient(x, y, z, gradient);
+        negative.addPlanarFieldGradient(x, y, z, gradient);
+    }
+
+    @Override
+    public Axis getInvariantAxis()
+    {
+        return positive.getAxis();
+    }
+
+    /**
+     *
+     * @return  the magnitude of the charge per length on each line in C/m
+     */
+    public double getDensity()
+    {
+        return positive.getDensity();
+    }
+
+    /**
+     *
+     * @return  the distance between the lines
+     */
+    public double getDistance()
+    {
+        return positive.getPosition().distance(negative.getPosition());
+    }
+
+    /**
+     *
+     * @return  the axis the lines run along
+     */
+    public Axis getAxis()
+    {
+        return positive.getAxis();
+    }
+
+    /**
+     *
+     * @return  the positive line
+     */
+    public LineCharge getPositive()
+    {
+        return positive;
+    }
+
+    /**
+     *
+     * @return  the negative line
+     */
+    public LineCharge getNegative()
+    {
+        return negative;
+    }
+}
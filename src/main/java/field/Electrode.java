@@ -1,22 +1,250 @@
-/*
- * https://en.wikipedia.org/wiki/Electric_field
- * http://hyperphysics.phy-astr.gsu.edu/hbase/electric/elefie.html#c1
- */
-package field;
-
-import vector.Vector;
-
-/**
- * Electrode interface.
- * 
- * @author Ronen Orland
- */
-public interface Electrode
-{
-    /**
-     * Returns a Vector describing the electric field at a coordinate
-     * 
-     * @return Vector describing the electric field at a coordinate
-     */
-    public Vector getField(Vector coord);
-}
+/*
+ * https://en.wikipedia.org/wiki/Electric_field
+ * http://hyperphysics.phy-astr.gsu.edu/hbase/electric/elefie.html#c1
+ */
+package field;
+
+import java.util.Arrays;
+
+import vector.Vector;
+
+/**
+ * Electrode interface.
+ * 
+ * @author Ronen Orland
+ */
+public interface Electrode
+{
+    /**
+     * Returns a Vector describing the electric field at a coordinate
+     * 
+     * @return Vector describing the electric field at a coordinate
+     */
+    public Vector getField(Vector coord);
+    
+    /**
+     * Calculates the electric field at a batch of coordinates. The coordinates are given as separate 
+     * x, y, and z arrays, and the field is written into a single output array laid out as all of the 
+     * x components, followed by all of the y components, followed by all of the z components: 
+     * field[i] = Ex, field[count + i] = Ey, field[2*count + i] = Ez for point i.
+     * 
+     * The default implementation calls getField(Vector) once per point. Implementations should 
+     * override this with a loop that doesn't allocate per point.
+     * 
+     * @param x         x coordinates of the points
+     * @param y         y coordinates of the points
+     * @param z         z coordinates of the points
+     * @param field     output array, must hold at least 3*count values
+     * @param count     the number of points to evaluate
+     */
+    public default void getField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            Vector point = getField(new Vector(x[i], y[i], z[i]));
+            field[i] = point.getX();
+            field[count + i] = point.getY();
+            field[2*count + i] = point.getZ();
+        }
+    }
+    
+    /**
+     * Adds the electric field at a batch of coordinates to the values already in the output array, 
+     * laid out as in getField(double[], double[], double[], double[], int). Summing several electrodes 
+     * into the same array this way needs no scratch arrays.
+     * 
+     * The default implementation adds each point through addField(double, double, double, Vector), 
+     * reusing one Vector. Implementations with a batch loop should override this.
+     * 
+     * @param x         x coordinates of the points
+     * @param y         y coordinates of the points
+     * @param z         z coordinates of the points
+     * @param field     array to add the field components to, must hold at least 3*count values
+     * @param count     the number of points to evaluate
+     */
+    public default void addField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        Vector point = new Vector();
+        for (int i = 0; i < count; i++)
+        {
+            point.setAll(0, 0, 0);
+            addField(x[i], y[i], z[i], point);
+            field[i] += point.getX();
+            field[count + i] += point.getY();
+            field[2*count + i] += point.getZ();
+        }
+    }
+    
+    /**
+     * Adds the electric field at a coordinate to a caller-supplied Vector. Summing several electrodes 
+     * into the same Vector, and reusing it between calls, avoids allocating any Vectors per evaluation.
+     * 
+     * The default implementation adds the result of getField(Vector). Implementations should 
+     * override this to add their components directly.
+     * 
+     * @param x         x coordinate
+     * @param y         y coordinate
+     * @param z         z coordinate
+     * @param field     the Vector to add the field to
+     */
+    public default void addField(double x, double y, double z, Vector field)
+    {
+        field.add(getField(new Vector(x, y, z)));
+    }
+    
+    /**
+     * Adds the electric field and its Jacobian at a coordinate to a gradient array laid out as 
+     * described in FieldGradient. Summing several electrodes into the same array gives the gradient 
+     * of their combined field.
+     * 
+     * The default implementation uses finite differences of addField. Implementations with a closed 
+     * form should override this and compute it in the same pass as the field.
+     * 
+     * @param x         x coordinate
+     * @param y         y coordinate
+     * @param z         z coordinate
+     * @param gradient  array of at least FieldGradient.LENGTH values to add to
+     */
+    public default void addFieldGradient(double x, double y, double z, double[] gradient)
+    {
+        FieldGradient.addFiniteDifference(this, x, y, z, gradient, 0);
+    }
+    
+    /**
+     * Calculates the field gradient at a batch of coordinates. Value c of the gradient of point i is 
+     * written to gradient[c*count + i], with c following the layout in FieldGradient.
+     * 
+     * @param x         x coordinates of the points
+     * @param y         y coordinates of the points
+     * @param z         z coordinates of the points
+     * @param gradient  output array, must hold at least FieldGradient.LENGTH*count values
+     * @param count     the number of points to evaluate
+     */
+    public default void getFieldGradient(double[] x, double[] y, double[] z, double[] gradient, int count)
+    {
+        double[] point = new double[FieldGradient.LENGTH];
+        
+        for (int i = 0; i < count; i++)
+        {
+            for (int c = 0; c < FieldGradient.LENGTH; c++)
+                point[c] = 0;
+            
+            addFieldGradient(x[i], y[i], z[i], point);
+            
+            for (int c = 0; c < FieldGradient.LENGTH; c++)
+                gradient[c*count + i] = point[c];
+        }
+    }
+    
+    /**
+     * Returns the gradient of the squared magnitude of the field, which the dielectrophoretic force is 
+     * proportional to
+     * 
+     * @param coord     the coordinate to evaluate at
+     * @return          a new Vector with the gradient of |E|^2
+     */
+    public default Vector getFieldSquaredGradient(Vector coord)
+    {
+        double[] gradient = new double[FieldGradient.LENGTH];
+        addFieldGradient(coord.getX(), coord.getY(), coord.getZ(), gradient);
+        
+        Vector ret = new Vector();
+        FieldGradient.addFieldSquaredGradient(gradient, 0, ret);
+        
+        return ret;
+    }
+    
+    /**
+     * Returns the axis the field doesn't change along, if there is one. An infinite line parallel to 
+     * z, for example, has the same field in every plane of constant z, so anything built from it only 
+     * needs to evaluate one such plane. FieldGrid fills one plane and copies it along the axis, and
+     * CachedField ignores movement along it; other callers still evaluate the field in full 3D.
+     * 
+     * @return  the axis the field is constant along, or null if it varies in all three directions
+     */
+    public default Axis getInvariantAxis()
+    {
+        return null;
+    }
+    
+    /**
+     * Returns a number that changes whenever the charges or positions of the electrode change, so 
+     * anything holding on to computed fields, such as CachedField, can tell when they are out of date. 
+     * Only the changes made through the electrode's own setters are tracked.
+     * 
+     * The default implementation returns 0, for electrodes that can't change once created.
+     * 
+     * @return  the current version of the electrode
+     */
+    public default long getVersion()
+    {
+        return 0;
+    }
+    
+    /**
+     * Calculates the in-plane electric field at a batch of points in the plane of constant z, for 2D 
+     * simulations. The field is written as all of the x components followed by all of the y 
+     * components: field[i] = Ex, field[count + i] = Ey for point i. The z component isn't computed.
+     * 
+     * The default implementation evaluates the full field through the 3D batch method and drops z. 
+     * Electrodes with a cheaper way to skip z should override this.
+     * 
+     * @param x         x coordinates of the points
+     * @param y         y coordinates of the points
+     * @param z         z coordinate of the plane
+     * @param field     output array, must hold at least 2*count values
+     * @param count     the number of points to evaluate
+     */
+    public default void getPlanarField(double[] x, double[] y, double z, double[] field, int count)
+    {
+        double[] zs = new double[count];
+        double[] full = new double[3*count];
+        Arrays.fill(zs, z);
+        
+        getField(x, y, zs, full, count);
+        System.arraycopy(full, 0, field, 0, 2*count);
+    }
+    
+    /**
+     * Adds the in-plane electric field at a batch of points in the plane of constant z to the values 
+     * already in the output array, laid out as in getPlanarField.
+     * 
+     * The default implementation adds each point through addField(double, double, double, Vector), 
+     * reusing one Vector. Implementations with a batch loop should override this.
+     * 
+     * @param x         x coordinates of the points
+     * @param y         y coordinates of the points
+     * @param z         z coordinate of the plane
+     * @param field     array to add the field components to, must hold at least 2*count values
+     * @param count     the number of points to evaluate
+     */
+    public default void addPlanarField(double[] x, double[] y, double z, double[] field, int count)
+    {
+        Vector point = new Vector();
+        for (int i = 0; i < count; i++)
+        {
+            point.setAll(0, 0, 0);
+            addField(x[i], y[i], z, point);
+            field[i] += point.getX();
+            field[count + i] += point.getY();
+        }
+    }
+    
+    /**
+     * Adds the field and its derivatives along x and y at a point in the plane of constant z to a 
+     * planar gradient array laid out as described in PlanarGradient.
+     * 
+     * The default implementation computes the full gradient and keeps everything but dEz/dz.
+     * 
+     * @param x         x coordinate
+     * @param y         y coordinate
+     * @param z         z coordinate of the plane
+     * @param gradient  array of at least PlanarGradient.LENGTH values to add to
+     */
+    public default void addPlanarFieldGradient(double x, double y, double z, double[] gradient)
+    {
+        double[] full = new double[FieldGradient.LENGTH];
+        addFieldGradient(x, y, z, full);
+        PlanarGradient.addInPlane(full, 0, gradient, 0);
+    }
+}
@@ -0,0 +1,150 @@
+package field;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import vector.Vector;
+
+/**
+ * A group of electrodes acting together. The field of the set is the sum of the fields of its
+ * electrodes.
+ *
+ * @author Ronen Orland
+ */
+public class ElectrodeSet implements Electrode
+{
+    private final List<Electrode> electrodes;     // The electrodes in the set
+
+
+    /**
+     * Creates a set of electrodes
+     *
+     * @param electrodes    the electrodes in the set
+     */
+    public ElectrodeSet(Electrode... electrodes)
+    {
+        this(Arrays.asList(electrodes));
+    }
+
+    /**
+     * Creates a set of electrodes
+     *
+     * @param electrodes    the electrodes in the set
+     */
+    public ElectrodeSet(Collection<? extends Electrode> electrodes)
+    {
+        this.electrodes = new ArrayList<Electrode>(electrodes);
+    }
+
+
+    @Override
+    public Vector getField(Vector coord)
+    {
+        Vector field = new Vector();
+        addField(coord.getX(), coord.getY(), coord.getZ(), field);
+
+        return field;
+    }
+
+    @Override
+    public void addField(double x, double y, double z, Vector field)
+    {
+        for (Electrode electrode : electrodes)
+            electrode.addField(x, y, z, field);
+    }
+
+    @Override
+    public void getField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        Arrays.fill(field, 0, 3*count, 0.0);
+        addField(x, y, z, field, count);
+    }
+
+    @Override
+    public void addField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        for (Electrode electrode : electrodes)
+            electrode.addField(x, y, z, field, count);
+    }
+
+    @Override
+    public void addFieldGradient(double x, double y, double z, double[] gradient)
+    {
+        for (Electrode electrode : electrodes)
+            electrode.addFieldGradient(x, y, z, gradient);
+    }
+
+    @Override
+    public void getPlanarField(double[] x, double[] y, double z, double[] field, int count)
+    {
+        Arrays.fill(field, 0, 2*count, 0.0);
+        addPlanarField(x, y, z, field, count);
+    }
+
+    @Override
+    public void addPlanarField(double[] x, double[] y, double z, double[] field, int count)
+    {
+        for (Electrode electrode : electrodes)
+            electrode.addPlanarField(x, y, z, field, count);
+    }
+
+    @Override
+    public void addPlanarFieldGradient(double x, double y, double z, double[] gradient)
+    {
+        for (Electrode electrode : electrodes)
+            electrode.addPlanarFieldGradient(x, y, z, gradient);
+    }
+
+    /**
+     * The set is invariant along an axis only if every electrode in it is invariant along that axis
+     */
+    @Override
+    public Axis getInvariantAxis()
+    {
+        Axis axis = null;
+        for (Electrode electrode : electrodes)
+        {
+            Axis inner = electrode.getInvariantAxis();
+            if (inner == null || (axis != null && inner != axis))
+                return null;
+
+            axis = inner;
+        }
+
+        return axis;
+    }
+
+    /**
+     * The version of the set moves whenever the version of any of its electrodes does
+     */
+    @Override
+    public long getVersion()
+    {
+        long version = 0;
+        for (Electrode electrode : electrodes)
+            version += electrode.getVersion();
+
+        return version;
+    }
+
+    /**
+     *
+     * @return  an unmodifiable view of the electrodes in the set
+     */
+    public List<Electrode> getElectrodes()
+    {
+        return Collections.unmodifiableList(electrodes);
+    }
+
+    /**
+     *
+     * @return  the number of electrodes in the set
+     */
+    public int size()
+    {
+        return electrodes.size();
+    }
+}
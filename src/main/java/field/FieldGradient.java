@@ -0,0 +1,196 @@
+package field;
+
+import vector.Vector;
+
+/**
+ * Layout and helpers for electric field gradients. A field gradient is stored as 9 doubles: the three
+ * field components followed by the six independent entries of the field's Jacobian dEi/dxj. The Jacobian
+ * of an electrostatic field is symmetric, so dEx/dy = dEy/dx and so on.
+ *
+ * The dielectrophoretic force is proportional to the gradient of |E|^2, which is 2 J E, so the DEP force
+ * at a point needs the field and its Jacobian at that point, both of which add up linearly over
+ * electrodes.
+ *
+ * @author Ronen Orland
+ */
+public class FieldGradient
+{
+    // Indices into a gradient array
+    public final static int EX = 0;
+    public final static int EY = 1;
+    public final static int EZ = 2;
+    public final static int XX = 3;     // dEx/dx
+    public final static int YY = 4;     // dEy/dy
+    public final static int ZZ = 5;     // dEz/dz
+    public final static int XY = 6;     // dEx/dy = dEy/dx
+    public final static int XZ = 7;     // dEx/dz = dEz/dx
+    public final static int YZ = 8;     // dEy/dz = dEz/dy
+    public final static int LENGTH = 9;
+
+    // Finite difference step, relative to the size of the coordinates but never below MIN_SCALE
+    public final static double RELATIVE_STEP = 1e-5;
+    public final static double MIN_SCALE = 1e-6;
+
+
+    private FieldGradient()
+    {
+    }
+
+
+    /**
+     * Adds the gradient of |E|^2 for a field gradient to a Vector
+     *
+     * @param gradient  the field gradient, in the layout described above
+     * @param offset    index of the first value of the field gradient in the array
+     * @param out       the Vector to add the gradient of |E|^2 to
+     */
+    public static void addFieldSquaredGradient(double[] gradient, int offset, Vector out)
+    {
+        double ex = gradient[offset + EX];
+        double ey = gradient[offset + EY];
+        double ez = gradient[offset + EZ];
+
+        // grad |E|^2 = 2 J E
+        out.add(2 * (gradient[offset + XX] * ex + gradient[offset + XY] * ey + gradient[offset + XZ] * ez),
+                2 * (gradient[offset + XY] * ex + gradient[offset + YY] * ey + gradient[offset + YZ] * ez),
+                2 * (gradient[offset + XZ] * ex + gradient[offset + YZ] * ey + gradient[offset + ZZ] * ez));
+    }
+
+    /**
+     * Adds the field and Jacobian of a point charge at an offset from it to a gradient array
+     *
+     * @param kq        Coulomb's constant times the charge
+     * @param dx        x offset from the charge
+     * @param dy        y offset from the charge
+     * @param dz        z offset from the charge
+     * @param gradient  the array to add to
+     * @param offset    index of the first value of the field gradient in the array
+     */
+    static void addPointCharge(double kq, double dx, double dy, double dz, double[] gradient, int offset)
+    {
+        double r2 = dx*dx + dy*dy + dz*dz;
+
+        if (r2 == 0)
+        {
+            double onCharge = PointCharge.fieldOnCharge(kq);
+            for (int c = 0; c < LENGTH; c++)
+                gradient[offset + c] += onCharge;
+            return;
+        }
+
+        // E = kq d / r^3, dEi/dxj = kq (delta_ij / r^3 - 3 di dj / r^5)
+        double inv3 = kq / (r2 * Math.sqrt(r2));
+        double inv5 = 3 * inv3 / r2;
+
+        gradient[offset + EX] += inv3 * dx;
+        gradient[offset + EY] += inv3 * dy;
+        gradient[offset + EZ] += inv3 * dz;
+        gradient[offset + XX] += inv3 - inv5 * dx * dx;
+        gradient[offset + YY] += inv3 - inv5 * dy * dy;
+        gradient[offset + ZZ] += inv3 - inv5 * dz * dz;
+        gradient[offset + XY] -= inv5 * dx * dy;
+        gradient[offset + XZ] -= inv5 * dx * dz;
+        gradient[offset + YZ] -= inv5 * dy * dz;
+    }
+
+    /**
+     * Adds the field and Jacobian of an infinite line charge at an offset from it to a gradient array.
+     * Nothing changes along the line, so every derivative along it is 0.
+     *
+     * @param scale     2k times the charge per length
+     * @param axis      the axis the line runs along
+     * @param du        offset from the line along axis.first()
+     * @param dv        offset from the line along axis.second()
+     * @param gradient  the array to add to
+     * @param offset    index of the first value of the field gradient in the array
+     */
+    static void addLineCharge(double scale, Axis axis, double du, double dv, double[] gradient, int offset)
+    {
+        int a = axis.first().ordinal();
+        int b = axis.second().ordinal();
+        int across = offset + 5 + a + b;    // XY, XZ or YZ for the pair of axes
+        double rho2 = du*du + dv*dv;
+
+        if (rho2 == 0)
+        {
+            double onLine = PointCharge.fieldOnCharge(scale);
+            gradient[offset + a] += onLine;
+            gradient[offset + b] += onLine;
+            gradient[offset + XX + a] += onLine;
+            gradient[offset + XX + b] += onLine;
+            gradient[across] += onLine;
+            return;
+        }
+
+        // E = s d / rho^2, dEu/du = s (dv^2 - du^2) / rho^4 = -dEv/dv, dEu/dv = -2 s du dv / rho^4
+        double inv2 = scale / rho2;
+        double inv4 = inv2 / rho2;
+
+        gradient[offset + a] += inv2 * du;
+        gradient[offset + b] += inv2 * dv;
+        gradient[offset + XX + a] += inv4 * (dv*dv - du*du);
+        gradient[offset + XX + b] += inv4 * (du*du - dv*dv);
+        gradient[across] -= 2 * inv4 * du * dv;
+    }
+
+    /**
+     * Adds the field and Jacobian of an electrode at a point to a gradient array using central finite
+     * differences of its field. Costs 7 field evaluations, for electrodes without a closed form.
+     *
+     * @param electrode     the electrode to differentiate
+     * @param x             x coordinate
+     * @param y             y coordinate
+     * @param z             z coordinate
+     * @param gradient      the array to add to
+     * @param offset        index of the first value of the field gradient in the array
+     */
+    public static void addFiniteDifference(Electrode electrode, double x, double y, double z,
+            double[] gradient, int offset)
+    {
+        double scale = Math.max(MIN_SCALE, Math.max(Math.abs(x), Math.max(Math.abs(y), Math.abs(z))));
+        double h = RELATIVE_STEP * scale;
+        Vector plus = new Vector();
+        Vector minus = new Vector();
+
+        plus.setAll(0, 0, 0);
+        electrode.addField(x, y, z, plus);
+        gradient[offset + EX] += plus.getX();
+        gradient[offset + EY] += plus.getY();
+        gradient[offset + EZ] += plus.getZ();
+
+        // d/dx
+        plus.setAll(0, 0, 0);
+        minus.setAll(0, 0, 0);
+        electrode.addField(x + h, y, z, plus);
+        electrode.addField(x - h, y, z, minus);
+        double xx = (plus.getX() - minus.getX()) / (2 * h);
+        double yx = (plus.getY() - minus.getY()) / (2 * h);
+        double zx = (plus.getZ() - minus.getZ()) / (2 * h);
+
+        // d/dy
+        plus.setAll(0, 0, 0);
+        minus.setAll(0, 0, 0);
+        electrode.addField(x, y + h, z, plus);
+        electrode.addField(x, y - h, z, minus);
+        double xy = (plus.getX() - minus.getX()) / (2 * h);
+        double yy = (plus.getY() - minus.getY()) / (2 * h);
+        double zy = (plus.getZ() - minus.getZ()) / (2 * h);
+
+        // d/dz
+        plus.setAll(0, 0, 0);
+        minus.setAll(0, 0, 0);
+        electrode.addField(x, y, z + h, plus);
+        electrode.addField(x, y, z - h, minus);
+        double xz = (plus.getX() - minus.getX()) / (2 * h);
+        double yz = (plus.getY() - minus.getY()) / (2 * h);
+        double zz = (plus.getZ() - minus.getZ()) / (2 * h);
+
+        // Average the off-diagonal pairs, which should be equal
+        gradient[offset + XX] += xx;
+        gradient[offset + YY] += yy;
+        gradient[offset + ZZ] += zz;
+        gradient[offset + XY] += (xy + yx) / 2;
+        gradient[offset + XZ] += (xz + zx) / 2;
+        gradient[offset + YZ] += (yz + zy) / 2;
+    }
+}
@@ -0,0 +1,633 @@
+package field;
+
+import java.util.stream.IntStream;
+
+import vector.Vector;
+
+/**
+ * An electric field precomputed on a regular 3D grid of nodes. The field between nodes is interpolated,
+ * either trilinearly or with tricubic (Catmull-Rom) interpolation. Coordinates outside the grid are
+ * clamped to its bounds.
+ *
+ * The nodes are stored flat, with the three field components of each node next to each other and x
+ * varying fastest, then y, then z. Grids built in memory keep them in a double array, grids opened
+ * with FieldGridFile read them straight out of the mapped file. A FieldGrid is an Electrode, so it can
+ * stand in for an expensive analytic electrode during long runs.
+ *
+ * @author Ronen Orland
+ */
+public class FieldGrid implements Electrode
+{
+    /**
+     * How the field is interpolated between grid nodes
+     */
+    public enum Interpolation
+    {
+        TRILINEAR,
+        TRICUBIC
+    }
+
+    // Per-thread working space for interpolation, so lookups don't allocate
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final double minX, minY, minZ;              // Lower corner of the grid
+    private final double spacingX, spacingY, spacingZ;  // Distance between nodes along each axis
+    private final int nx, ny, nz;                       // Number of nodes along each axis
+    private final GridStorage data;                     // Field components of every node
+    private Interpolation interpolation;                // How to interpolate between nodes
+    private long version;                               // Incremented whenever nodes or interpolation change
+
+
+    /**
+     * Creates a grid with a zero field covering a box, with the same spacing along every axis
+     *
+     * @param min       the lower corner of the box
+     * @param max       the upper corner of the box
+     * @param spacing   the distance between nodes
+     * @throws IllegalArgumentException     if the spacing isn't positive or max is below min
+     */
+    public FieldGrid(Vector min, Vector max, double spacing)
+    {
+        this(min, max, new Vector(spacing));
+    }
+
+    /**
+     * Creates a grid with a zero field covering a box. The number of nodes along each axis is rounded
+     * down, so the upper corner of the grid can fall slightly short of max.
+     *
+     * @param min       the lower corner of the box
+     * @param max       the upper corner of the box
+     * @param spacing   the distance between nodes along each axis
+     * @throws IllegalArgumentException     if any spacing isn't positive or max is below min
+     */
+    public FieldGrid(Vector min, Vector max, Vector spacing)
+    {
+        this(min, spacing, nodes(min.getX(), max.getX(), spacing.getX()),
+                nodes(min.getY(), max.getY(), spacing.getY()), nodes(min.getZ(), max.getZ(), spacing.getZ()));
+    }
+
+    /**
+     * Creates a grid with a zero field from a lower corner, spacing and number of nodes
+     *
+     * @param min       the lower corner of the grid
+     * @param spacing   the distance between nodes along each axis
+     * @param nx        number of nodes along x
+     * @param ny        number of nodes along y
+     * @param nz        number of nodes along z
+     * @throws IllegalArgumentException     if any spacing or node count isn't positive, or the grid is too big
+     */
+    public FieldGrid(Vector min, Vector spacing, int nx, int ny, int nz)
+    {
+        this(min, spacing, nx, ny, nz, new double[checkedLength(nx, ny, nz)]);
+    }
+
+    /**
+     * Creates a grid from a lower corner, spacing, number of nodes and existing node data. The data array
+     * is used directly, not copied.
+     *
+     * @param min       the lower corner of the grid
+     * @param spacing   the distance between nodes along each axis
+     * @param nx        number of nodes along x
+     * @param ny        number of nodes along y
+     * @param nz        number of nodes along z
+     * @param data      the field components of every node, 3*nx*ny*nz values
+     * @throws IllegalArgumentException     if any spacing or node count isn't positive, or data is the wrong length
+     */
+    public FieldGrid(Vector min, Vector spacing, int nx, int ny, int nz, double[] data)
+    {
+        this(min, spacing, nx, ny, nz, new GridStorage.Heap(data));
+    }
+
+    /**
+     * Creates a grid from a lower corner, spacing, number of nodes and storage for the node data
+     *
+     * @param min       the lower corner of the grid
+     * @param spacing   the distance between nodes along each axis
+     * @param nx        number of nodes along x
+     * @param ny        number of nodes along y
+     * @param nz        number of nodes along z
+     * @param data      storage holding 3*nx*ny*nz values
+     * @throws IllegalArgumentException     if any spacing or node count isn't positive, or data is the wrong length
+     */
+    FieldGrid(Vector min, Vector spacing, int nx, int ny, int nz, GridStorage data)
+    {
+        if (spacing.getX() <= 0 || spacing.getY() <= 0 || spacing.getZ() <= 0)
+            throw new IllegalArgumentException("Spacing must be positive");
+        if (nx < 1 || ny < 1 || nz < 1)
+            throw new IllegalArgumentException("Grid needs at least one node along each axis");
+        if (data.length() != 3L * nx * ny * nz)
+            throw new IllegalArgumentException("Data doesn't match the number of nodes");
+
+        minX = min.getX();
+        minY = min.getY();
+        minZ = min.getZ();
+        spacingX = spacing.getX();
+        spacingY = spacing.getY();
+        spacingZ = spacing.getZ();
+        this.nx = nx;
+        this.ny = ny;
+        this.nz = nz;
+        this.data = data;
+        interpolation = Interpolation.TRILINEAR;
+    }
+
+
+    /**
+     * Creates a grid covering a box by sampling an electrode at every node. Rows of nodes are sampled in
+     * parallel on the common fork-join pool, so the electrode must be safe to read from several threads.
+     * If the electrode's field doesn't change along an axis, the grid gets a single node along that
+     * axis, and every coordinate along it reads that node.
+     *
+     * @param electrode     the electrode to sample
+     * @param min           the lower corner of the box
+     * @param max           the upper corner of the box
+     * @param spacing       the distance between nodes
+     * @return              the sampled grid
+     */
+    public static FieldGrid sample(Electrode electrode, Vector min, Vector max, double spacing)
+    {
+        Axis axis = electrode.getInvariantAxis();
+        int nx = nodes(min.getX(), max.getX(), spacing);
+        int ny = nodes(min.getY(), max.getY(), spacing);
+        int nz = nodes(min.getZ(), max.getZ(), spacing);
+
+        FieldGrid grid = new FieldGrid(min, new Vector(spacing), axis == Axis.X ? 1 : nx,
+                axis == Axis.Y ? 1 : ny, axis == Axis.Z ? 1 : nz);
+        grid.fill(electrode);
+
+        return grid;
+    }
+
+    /**
+     * Overwrites every node with the field of an electrode, sampling rows of nodes in parallel. If the
+     * electrode's field doesn't change along an axis, only the first plane of nodes across that axis is
+     * sampled and copied to the rest.
+     *
+     * @param electrode     the electrode to sample
+     * @throws IllegalStateException    if the grid is read-only, like a file opened with FieldGridFile.open()
+     */
+    public void fill(Electrode electrode)
+    {
+        checkWritable();
+
+        Axis axis = electrode.getInvariantAxis();
+        int sx = axis == Axis.X ? 1 : nx;       // Nodes sampled along each axis
+        int sy = axis == Axis.Y ? 1 : ny;
+        int sz = axis == Axis.Z ? 1 : nz;
+        int copies = axis == Axis.Y ? ny : axis == Axis.Z ? nz : 1;     // Rows each sampled row fills
+
+        IntStream.range(0, sy * sz).parallel().forEach(row ->
+        {
+            int j = row % sy;
+            int k = row / sy;
+            double[] x = new double[sx];
+            double[] y = new double[sx];
+            double[] z = new double[sx];
+            double[] field = new double[3 * sx];
+
+            for (int i = 0; i < sx; i++)
+            {
+                x[i] = minX + i * spacingX;
+                y[i] = minY + j * spacingY;
+                z[i] = minZ + k * spacingZ;
+            }
+
+            electrode.getField(x, y, z, field, sx);
+
+            for (int c = 0; c < copies; c++)
+            {
+                long base = node(0, axis == Axis.Y ? c : j, axis == Axis.Z ? c : k);
+                for (int i = 0; i < nx; i++)
+                {
+                    int sampled = axis == Axis.X ? 0 : i;
+                    data.set(base + 3*i, field[sampled]);
+                    data.set(base + 3*i + 1, field[sx + sampled]);
+                    data.set(base + 3*i + 2, field[2*sx + sampled]);
+                }
+            }
+        });
+
+        version++;
+    }
+
+
+    @Override
+    public Vector getField(Vector coord)
+    {
+        Vector field = new Vector();
+        addField(coord.getX(), coord.getY(), coord.getZ(), field);
+
+        return field;
+    }
+
+    @Override
+    public void addField(double x, double y, double z, Vector field)
+    {
+        Scratch s = SCRATCH.get();
+        interpolate(x, y, z, s);
+        field.add(s.ex, s.ey, s.ez);
+    }
+
+    @Override
+    public void getField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        Scratch s = SCRATCH.get();
+
+        for (int i = 0; i < count; i++)
+        {
+            interpolate(x[i], y[i], z[i], s);
+            field[i] = s.ex;
+            field[count + i] = s.ey;
+            field[2*count + i] = s.ez;
+        }
+    }
+
+    @Override
+    public void addField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        Scratch s = SCRATCH.get();
+
+        for (int i = 0; i < count; i++)
+        {
+            interpolate(x[i], y[i], z[i], s);
+            field[i] += s.ex;
+            field[count + i] += s.ey;
+            field[2*count + i] += s.ez;
+        }
+    }
+
+    /**
+     * A grid with a single node along an axis reads the same field at every coordinate along it
+     */
+    @Override
+    public Axis getInvariantAxis()
+    {
+        if (nz == 1)
+            return Axis.Z;
+        if (nx == 1)
+            return Axis.X;
+        if (ny == 1)
+            return Axis.Y;
+
+        return null;
+    }
+
+    /**
+     * Writes made directly to the array from getData() aren't tracked
+     */
+    @Override
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Returns the field stored at a node
+     *
+     * @param i     node index along x
+     * @param j     node index along y
+     * @param k     node index along z
+     * @return      a new Vector with the field at the node
+     */
+    public Vector getNode(int i, int j, int k)
+    {
+        long n = node(i, j, k);
+
+        return new Vector(data.get(n), data.get(n + 1), data.get(n + 2));
+    }
+
+    /**
+     * Sets the field stored at a node
+     *
+     * @param i         node index along x
+     * @param j         node index along y
+     * @param k         node index along z
+     * @param field     the field at the node
+     * @throws IllegalStateException    if the grid is read-only, like a file opened with FieldGridFile.open()
+     */
+    public void setNode(int i, int j, int k, Vector field)
+    {
+        checkWritable();
+        long n = node(i, j, k);
+
+        data.set(n, field.getX());
+        data.set(n + 1, field.getY());
+        data.set(n + 2, field.getZ());
+        version++;
+    }
+
+
+    /**
+     *
+     * @return  how the field is interpolated between nodes
+     */
+    public Interpolation getInterpolation()
+    {
+        return interpolation;
+    }
+
+    /**
+     * Changes how the field is interpolated between nodes
+     *
+     * @param interpolation     the new interpolation
+     */
+    public void setInterpolation(Interpolation interpolation)
+    {
+        this.interpolation = interpolation;
+        version++;
+    }
+
+    /**
+     *
+     * @return  a new Vector with the lower corner of the grid
+     */
+    public Vector getMin()
+    {
+        return new Vector(minX, minY, minZ);
+    }
+
+    /**
+     *
+     * @return  a new Vector with the upper corner of the grid
+     */
+    public Vector getMax()
+    {
+        return new Vector(minX + (nx - 1) * spacingX, minY + (ny - 1) * spacingY, minZ + (nz - 1) * spacingZ);
+    }
+
+    /**
+     *
+     * @return  a new Vector with the distance between nodes along each axis
+     */
+    public Vector getSpacing()
+    {
+        return new Vector(spacingX, spacingY, spacingZ);
+    }
+
+    /**
+     *
+     * @return  the number of nodes along x
+     */
+    public int getNodesX()
+    {
+        return nx;
+    }
+
+    /**
+     *
+     * @return  the number of nodes along y
+     */
+    public int getNodesY()
+    {
+        return ny;
+    }
+
+    /**
+     *
+     * @return  the number of nodes along z
+     */
+    public int getNodesZ()
+    {
+        return nz;
+    }
+
+    /**
+     *
+     * @return  the backing array of node data, 3 components per node with x varying fastest
+     * @throws UnsupportedOperationException    if the grid isn't stored in an array, like a mapped file
+     */
+    public double[] getData()
+    {
+        if (!(data instanceof GridStorage.Heap))
+            throw new UnsupportedOperationException("Grid isn't stored in an array");
+
+        return ((GridStorage.Heap) data).data;
+    }
+
+    /**
+     * Makes sure changes to the nodes have been written through to the grid's storage. Only does
+     * anything for grids backed by a file.
+     */
+    public void force()
+    {
+        data.force();
+    }
+
+    /**
+     *
+     * @return  the storage holding the node data
+     */
+    GridStorage getStorage()
+    {
+        return data;
+    }
+
+    /**
+     * Stops changes to node data that can't be written, rather than failing part way through
+     */
+    private void checkWritable()
+    {
+        if (data.isReadOnly())
+            throw new IllegalStateException("Grid is read-only");
+    }
+
+
+    /**
+     * Interpolates the field at a coordinate into the scratch space
+     *
+     * @param x     x coordinate
+     * @param y     y coordinate
+     * @param z     z coordinate
+     * @param s     scratch space to write the field to
+     */
+    private void interpolate(double x, double y, double z, Scratch s)
+    {
+        // Position in grid units, clamped to the grid
+        double u = clamp((x - minX) / spacingX, nx - 1);
+        double v = clamp((y - minY) / spacingY, ny - 1);
+        double w = clamp((z - minZ) / spacingZ, nz - 1);
+
+        // Cell the position falls in, the last node belongs to the cell before it
+        int i = Math.min((int) u, Math.max(nx - 2, 0));
+        int j = Math.min((int) v, Math.max(ny - 2, 0));
+        int k = Math.min((int) w, Math.max(nz - 2, 0));
+
+        if (interpolation == Interpolation.TRICUBIC)
+            tricubic(i, j, k, u - i, v - j, w - k, s);
+        else
+            trilinear(i, j, k, u - i, v - j, w - k, s);
+    }
+
+    /**
+     * Trilinear interpolation inside a cell
+     */
+    private void trilinear(int i, int j, int k, double tx, double ty, double tz, Scratch s)
+    {
+        // Offsets to the next node along each axis, 0 along axes with a single node
+        long sx = nx > 1 ? 3 : 0;
+        long sy = ny > 1 ? 3L * nx : 0;
+        long sz = nz > 1 ? 3L * nx * ny : 0;
+        long n = node(i, j, k);
+
+        // Weights of the 8 corners of the cell
+        double w000 = (1 - tx) * (1 - ty) * (1 - tz);
+        double w100 = tx * (1 - ty) * (1 - tz);
+        double w010 = (1 - tx) * ty * (1 - tz);
+        double w110 = tx * ty * (1 - tz);
+        double w001 = (1 - tx) * (1 - ty) * tz;
+        double w101 = tx * (1 - ty) * tz;
+        double w011 = (1 - tx) * ty * tz;
+        double w111 = tx * ty * tz;
+
+        double ex = 0, ey = 0, ez = 0;
+        for (int c = 0; c < 3; c++)
+        {
+            long o = n + c;
+            double sum = w000 * data.get(o) + w100 * data.get(o + sx)
+                    + w010 * data.get(o + sy) + w110 * data.get(o + sx + sy)
+                    + w001 * data.get(o + sz) + w101 * data.get(o + sx + sz)
+                    + w011 * data.get(o + sy + sz) + w111 * data.get(o + sx + sy + sz);
+
+            if (c == 0)
+                ex = sum;
+            else if (c == 1)
+                ey = sum;
+            else
+                ez = sum;
+        }
+
+        s.ex = ex;
+        s.ey = ey;
+        s.ez = ez;
+    }
+
+    /**
+     * Tricubic Catmull-Rom interpolation over the 4x4x4 nodes around a cell. Nodes past the edge of the
+     * grid are clamped to the edge.
+     */
+    private void tricubic(int i, int j, int k, double tx, double ty, double tz, Scratch s)
+    {
+        double[] wx = s.wx, wy = s.wy, wz = s.wz;
+        long[] ox = s.ox, oy = s.oy, oz = s.oz;
+
+        catmullRom(tx, wx);
+        catmullRom(ty, wy);
+        catmullRom(tz, wz);
+
+        for (int a = 0; a < 4; a++)
+        {
+            ox[a] = 3 * clampIndex(i - 1 + a, nx);
+            oy[a] = 3L * nx * clampIndex(j - 1 + a, ny);
+            oz[a] = 3L * nx * ny * clampIndex(k - 1 + a, nz);
+        }
+
+        double ex = 0, ey = 0, ez = 0;
+        for (int c = 0; c < 4; c++)
+        {
+            for (int b = 0; b < 4; b++)
+            {
+                double wyz = wy[b] * wz[c];
+                long row = oy[b] + oz[c];
+
+                for (int a = 0; a < 4; a++)
+                {
+                    double weight = wx[a] * wyz;
+                    long offset = row + ox[a];
+
+                    ex += weight * data.get(offset);
+                    ey += weight * data.get(offset + 1);
+                    ez += weight * data.get(offset + 2);
+                }
+            }
+        }
+
+        s.ex = ex;
+        s.ey = ey;
+        s.ez = ez;
+    }
+
+    /**
+     * Fills the four Catmull-Rom weights for a position t between the middle two nodes
+     */
+    private static void catmullRom(double t, double[] weights)
+    {
+        double t2 = t * t;
+        double t3 = t2 * t;
+
+        weights[0] = 0.5 * (-t3 + 2*t2 - t);
+        weights[1] = 0.5 * (3*t3 - 5*t2 + 2);
+        weights[2] = 0.5 * (-3*t3 + 4*t2 + t);
+        weights[3] = 0.5 * (t3 - t2);
+    }
+
+    /**
+     * Returns the index of the first component of a node in the data array
+     */
+    private long node(int i, int j, int k)
+    {
+        return 3 * (((long) k * ny + j) * nx + i);
+    }
+
+    /**
+     * Clamps a position in grid units to [0, max]
+     */
+    private static double clamp(double u, int max)
+    {
+        if (u > max)
+            return max;
+        if (u > 0)
+            return u;
+
+        return 0;   // Also catches NaN
+    }
+
+    /**
+     * Clamps a node index to [0, n - 1]
+     */
+    private static int clampIndex(int i, int n)
+    {
+        return Math.max(0, Math.min(i, n - 1));
+    }
+
+    /**
+     * Returns the number of nodes needed to cover [min, max] with a given spacing
+     */
+    private static int nodes(double min, double max, double spacing)
+    {
+        if (spacing <= 0)
+            throw new IllegalArgumentException("Spacing must be positive");
+        if (max < min)
+            throw new IllegalArgumentException("Upper corner is below the lower corner");
+
+        // Small tolerance so rounding error doesn't drop the last node
+        return (int) Math.floor((max - min) / spacing + 1e-9) + 1;
+    }
+
+    /**
+     * Returns the length of the data array for a number of nodes
+     *
+     * @throws IllegalArgumentException     if a count isn't positive or the grid is too big for an array
+     */
+    private static int checkedLength(int nx, int ny, int nz)
+    {
+        if (nx < 1 || ny < 1 || nz < 1)
+            throw new IllegalArgumentException("Grid needs at least one node along each axis");
+
+        long length = 3L * nx * ny * nz;
+        if (length > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Grid has too many nodes to store in an array");
+
+        return (int) length;
+    }
+
+
+    /**
+     * Working space for one thread's interpolation
+     */
+    private static class Scratch
+    {
+        final double[] wx = new double[4], wy = new double[4], wz = new double[4];
+        final long[] ox = new long[4], oy = new long[4], oz = new long[4];
+        double ex, ey, ez;
+    }
+}
@@ -0,0 +1,232 @@
+package field;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import vector.Vector;
+
+/**
+ * Reads and writes FieldGrids in a binary file format. Grids are opened by memory mapping the file, so
+ * lookups read the mapped pages directly and opening even a very large grid is nearly instant.
+ *
+ * The file starts with a 128 byte little-endian header:
+ *   0   magic "DEPGRID" followed by a 0 byte
+ *   8   int     format version, currently 1
+ *   12  int     bytes per value, 4 for floats or 8 for doubles
+ *   16  int     components per node, always 3
+ *   20  int     component layout, 0 = components of each node together, x varying fastest, then y, then z
+ *   24  int     nodes along x, y and z
+ *   36  int     reserved
+ *   40  double  lower corner x, y and z
+ *   64  double  spacing along x, y and z
+ * followed by the node values in the given layout.
+ *
+ * @author Ronen Orland
+ */
+public class FieldGridFile
+{
+    public final static int HEADER_BYTES = 128;
+    public final static int VERSION = 1;
+    public final static int LAYOUT_INTERLEAVED = 0;
+
+    private final static byte[] MAGIC = "DEPGRID\0".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * How many bytes each stored value takes
+     */
+    public enum Precision
+    {
+        SINGLE(4),
+        DOUBLE(8);
+
+        private final int bytes;
+
+        private Precision(int bytes)
+        {
+            this.bytes = bytes;
+        }
+
+        /**
+         *
+         * @return  bytes per value
+         */
+        public int getBytes()
+        {
+            return bytes;
+        }
+    }
+
+
+    private FieldGridFile()
+    {
+    }
+
+
+    /**
+     * Writes a grid to a file, replacing anything already there
+     *
+     * @param grid          the grid to write
+     * @param path          the file to write to
+     * @param precision     how precisely to store the values
+     * @throws IOException  if the file can't be written
+     */
+    public static void write(FieldGrid grid, Path path, Precision precision) throws IOException
+    {
+        FieldGrid out = create(path, grid.getMin(), grid.getSpacing(),
+                grid.getNodesX(), grid.getNodesY(), grid.getNodesZ(), precision);
+
+        GridStorage from = grid.getStorage();
+        GridStorage to = out.getStorage();
+        for (long i = 0; i < from.length(); i++)
+            to.set(i, from.get(i));
+
+        out.force();
+    }
+
+    /**
+     * Creates a new grid file with a zero field and maps it for reading and writing. Filling the returned
+     * grid writes straight into the file, so grids too big for the heap can be sampled. Call force() on
+     * the grid once it's filled.
+     *
+     * @param path          the file to create, replacing anything already there
+     * @param min           the lower corner of the grid
+     * @param spacing       the distance between nodes along each axis
+     * @param nx            number of nodes along x
+     * @param ny            number of nodes along y
+     * @param nz            number of nodes along z
+     * @param precision     how precisely to store the values
+     * @return              a grid backed by the mapped file
+     * @throws IOException  if the file can't be created
+     * @throws IllegalArgumentException     if any spacing or node count isn't positive
+     */
+    public static FieldGrid create(Path path, Vector min, Vector spacing, int nx, int ny, int nz,
+            Precision precision) throws IOException
+    {
+        if (nx < 1 || ny < 1 || nz < 1)
+            throw new IllegalArgumentException("Grid needs at least one node along each axis");
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(precision.getBytes());
+        header.putInt(3);
+        header.putInt(LAYOUT_INTERLEAVED);
+        header.putInt(nx).putInt(ny).putInt(nz).putInt(0);
+        header.putDouble(min.getX()).putDouble(min.getY()).putDouble(min.getZ());
+        header.putDouble(spacing.getX()).putDouble(spacing.getY()).putDouble(spacing.getZ());
+        header.rewind();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while (header.hasRemaining())
+                channel.write(header, header.position());
+
+            long length = 3L * nx * ny * nz;
+            GridStorage data = map(channel, FileChannel.MapMode.READ_WRITE, length, precision);
+
+            return new FieldGrid(min, spacing, nx, ny, nz, data);
+        }
+    }
+
+    /**
+     * Opens a grid file read-only by mapping it into memory. Nothing is copied onto the heap. The nodes of
+     * the returned grid can't be changed, so setNode() and fill() throw IllegalStateException; the
+     * interpolation can still be changed. Use create() to write a grid into a file.
+     *
+     * @param path          the file to open
+     * @return              a grid backed by the mapped file
+     * @throws IOException  if the file can't be read or isn't a valid grid file
+     */
+    public static FieldGrid open(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining())
+            {
+                if (channel.read(header, header.position()) < 0)
+                    throw new IOException("File is too short to be a field grid");
+            }
+            header.rewind();
+
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            for (int i = 0; i < MAGIC.length; i++)
+            {
+                if (magic[i] != MAGIC[i])
+                    throw new IOException("Not a field grid file");
+            }
+
+            int version = header.getInt();
+            int bytes = header.getInt();
+            int components = header.getInt();
+            int layout = header.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported field grid version " + version);
+            if (components != 3 || layout != LAYOUT_INTERLEAVED)
+                throw new IOException("Unsupported field grid layout");
+
+            Precision precision;
+            if (bytes == 4)
+                precision = Precision.SINGLE;
+            else if (bytes == 8)
+                precision = Precision.DOUBLE;
+            else
+                throw new IOException("Unsupported field grid value size " + bytes);
+
+            int nx = header.getInt();
+            int ny = header.getInt();
+            int nz = header.getInt();
+            header.getInt();
+            Vector min = new Vector(header.getDouble(), header.getDouble(), header.getDouble());
+            Vector spacing = new Vector(header.getDouble(), header.getDouble(), header.getDouble());
+
+            if (nx < 1 || ny < 1 || nz < 1)
+                throw new IOException("Field grid has no nodes");
+            if (!(spacing.getX() > 0 && spacing.getY() > 0 && spacing.getZ() > 0))
+                throw new IOException("Field grid spacing isn't positive, the file is damaged");
+
+            long length = 3L * nx * ny * nz;
+            if (channel.size() < HEADER_BYTES + length * bytes)
+                throw new IOException("Field grid file is truncated");
+
+            GridStorage data = map(channel, FileChannel.MapMode.READ_ONLY, length, precision);
+
+            return new FieldGrid(min, spacing, nx, ny, nz, data);
+        }
+    }
+
+    /**
+     * Maps the node values after the header in segments
+     *
+     * @param channel       the open file
+     * @param mode          how to map it
+     * @param length        the number of values
+     * @param precision     how the values are stored
+     * @return              storage reading the mapped segments
+     * @throws IOException  if the file can't be mapped
+     */
+    private static GridStorage map(FileChannel channel, FileChannel.MapMode mode, long length,
+            Precision precision) throws IOException
+    {
+        long total = length * precision.getBytes();
+        int count = (int) ((total + GridStorage.Mapped.SEGMENT_BYTES - 1) / GridStorage.Mapped.SEGMENT_BYTES);
+        MappedByteBuffer[] segments = new MappedByteBuffer[count];
+
+        for (int s = 0; s < count; s++)
+        {
+            long start = s * GridStorage.Mapped.SEGMENT_BYTES;
+            long size = Math.min(GridStorage.Mapped.SEGMENT_BYTES, total - start);
+            segments[s] = channel.map(mode, HEADER_BYTES + start, size);
+        }
+
+        return new GridStorage.Mapped(segments, length, precision == Precision.SINGLE);
+    }
+}
@@ -0,0 +1,147 @@
+package field;
+
+import vector.Vector;
+
+/**
+ * Sums the fields of point charges, the innermost loop of every charge based electrode. Two versions
+ * exist: a plain scalar loop, and one using the incubating Java Vector API that evaluates several
+ * points, or several charges, per instruction. The vector version is kept in the separate
+ * src/simd/java source root so the rest of the tree compiles without the module. It's only loaded
+ * when it was compiled and the jdk.incubator.vector module is present at run time, which means
+ * running with --add-modules jdk.incubator.vector; otherwise, or when run with -Ddep.simd=false, the
+ * scalar version is used.
+ *
+ * Charges are given as kq, Coulomb's constant times the charge. Batch results use the layout of
+ * Electrode.getField(double[], double[], double[], double[], int) and are added to the values already
+ * in the array. Infinite line charges are handled the same way in two dimensions. A point exactly on
+ * a charge gets the value of PointCharge.fieldOnCharge in every component, matching getField(Vector).
+ *
+ * @author Ronen Orland
+ */
+public abstract class FieldKernel
+{
+    public final static String PROPERTY = "dep.simd";                  // Set to false to force scalar
+    final static String VECTOR_MODULE = "jdk.incubator.vector";
+    final static String VECTOR_KERNEL = "field.VectorFieldKernel";
+
+    final static FieldKernel INSTANCE = load();     // Kernel used by the electrodes
+
+
+    /**
+     *
+     * @return  true if fields are summed with the Vector API, false if with scalar code
+     */
+    public static boolean isVectorized()
+    {
+        return INSTANCE.vectorized();
+    }
+
+    /**
+     * Adds the field of one charge at a batch of points
+     *
+     * @param qx        x-coordinate of the charge
+     * @param qy        y-coordinate of the charge
+     * @param qz        z-coordinate of the charge
+     * @param kq        Coulomb's constant times the charge
+     * @param x         x-coordinates of the points
+     * @param y         y-coordinates of the points
+     * @param z         z-coordinates of the points
+     * @param field     array to add the field components to
+     * @param count     number of points
+     */
+    abstract void addCharge(double qx, double qy, double qz, double kq, double[] x, double[] y, double[] z,
+            double[] field, int count);
+
+    /**
+     * Adds the field of many charges at a batch of points
+     *
+     * @param qx        x-coordinates of the charges
+     * @param qy        y-coordinates of the charges
+     * @param qz        z-coordinates of the charges
+     * @param kq        Coulomb's constant times each charge
+     * @param charges   number of charges
+     * @param x         x-coordinates of the points
+     * @param y         y-coordinates of the points
+     * @param z         z-coordinates of the points
+     * @param field     array to add the field components to
+     * @param count     number of points
+     */
+    abstract void addCharges(double[] qx, double[] qy, double[] qz, double[] kq, int charges,
+            double[] x, double[] y, double[] z, double[] field, int count);
+
+    /**
+     * Adds the field of many charges at one point
+     *
+     * @param qx        x-coordinates of the charges
+     * @param qy        y-coordinates of the charges
+     * @param qz        z-coordinates of the charges
+     * @param kq        Coulomb's constant times each charge
+     * @param charges   number of charges
+     * @param px        x-coordinate of the point
+     * @param py        y-coordinate of the point
+     * @param pz        z-coordinate of the point
+     * @param field     Vector to add the field to
+     */
+    abstract void addCharges(double[] qx, double[] qy, double[] qz, double[] kq, int charges,
+            double px, double py, double pz, Vector field);
+
+    /**
+     * Adds the in-plane field of one charge at a batch of points in a plane of constant z. The field
+     * is laid out as in Electrode.getPlanarField, x components then y components.
+     *
+     * @param qx        x-coordinate of the charge
+     * @param qy        y-coordinate of the charge
+     * @param dz        z offset of the plane from the charge
+     * @param kq        Coulomb's constant times the charge
+     * @param x         x-coordinates of the points
+     * @param y         y-coordinates of the points
+     * @param field     array to add the field components to
+     * @param count     number of points
+     */
+    abstract void addChargePlanar(double qx, double qy, double dz, double kq, double[] x, double[] y,
+            double[] field, int count);
+
+    /**
+     * Adds the field of an infinite line charge at a batch of points. Only the two coordinates across
+     * the line are given, and only the two matching field components are added to.
+     *
+     * @param u         first coordinate across the line of each point
+     * @param v         second coordinate across the line of each point
+     * @param u0        first coordinate of the line
+     * @param v0        second coordinate of the line
+     * @param scale     2k times the charge per length
+     * @param field     array to add the field components to
+     * @param uOffset   index in field of the first point's component along u
+     * @param vOffset   index in field of the first point's component along v
+     * @param count     number of points
+     */
+    abstract void addLine(double[] u, double[] v, double u0, double v0, double scale, double[] field,
+            int uOffset, int vOffset, int count);
+
+    /**
+     *
+     * @return  true for the Vector API kernel
+     */
+    abstract boolean vectorized();
+
+    /**
+     * Picks the vector kernel if it's allowed and its module is present, the scalar one otherwise
+     */
+    private static FieldKernel load()
+    {
+        if (!Boolean.parseBoolean(System.getProperty(PROPERTY, "true")))
+            return new ScalarFieldKernel();
+        if (!ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent())
+            return new ScalarFieldKernel();
+
+        try
+        {
+            // Loaded by name so nothing links against the module unless it's there
+            return (FieldKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError | RuntimeException e)
+        {
+            return new ScalarFieldKernel();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package field;
+
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Where a FieldGrid keeps its node data. Values are addressed with long indices so grids stored in files
+ * can be bigger than a Java array.
+ *
+ * @author Ronen Orland
+ */
+abstract class GridStorage
+{
+    /**
+     *
+     * @return  the number of values stored
+     */
+    abstract long length();
+
+    /**
+     *
+     * @param index     index of the value
+     * @return          the value at index
+     */
+    abstract double get(long index);
+
+    /**
+     * Changes a stored value
+     *
+     * @param index     index of the value
+     * @param value     the new value
+     */
+    abstract void set(long index, double value);
+
+    /**
+     *
+     * @return  true if the values can't be changed, like a file mapped read-only
+     */
+    boolean isReadOnly()
+    {
+        return false;
+    }
+
+    /**
+     * Makes sure any changes have been written to the underlying storage
+     */
+    void force()
+    {
+    }
+
+
+    /**
+     * Node data stored in a double array on the heap
+     */
+    static final class Heap extends GridStorage
+    {
+        final double[] data;
+
+        Heap(double[] data)
+        {
+            this.data = data;
+        }
+
+        @Override
+        long length()
+        {
+            return data.length;
+        }
+
+        @Override
+        double get(long index)
+        {
+            return data[(int) index];
+        }
+
+        @Override
+        void set(long index, double value)
+        {
+            data[(int) index] = value;
+        }
+    }
+
+
+    /**
+     * Node data read straight out of memory-mapped file segments. Each segment maps SEGMENT_BYTES of
+     * the file, so values never straddle two segments.
+     */
+    static final class Mapped extends GridStorage
+    {
+        static final int SEGMENT_SHIFT = 30;                    // 1GB segments
+        static final long SEGMENT_BYTES = 1L << SEGMENT_SHIFT;
+        static final long SEGMENT_MASK = SEGMENT_BYTES - 1;
+
+        private final MappedByteBuffer[] segments;
+        private final long length;          // Number of values
+        private final boolean single;       // True for 4 byte floats, false for 8 byte doubles
+        private final int shift;            // log2 of the value size
+        private final boolean readOnly;     // True if the segments were mapped read-only
+
+        /**
+         * @param segments  the mapped segments, all but the last exactly SEGMENT_BYTES long
+         * @param length    the number of values
+         * @param single    true if values are stored as floats, false for doubles
+         */
+        Mapped(MappedByteBuffer[] segments, long length, boolean single)
+        {
+            this.segments = segments;
+            this.length = length;
+            this.single = single;
+            shift = single ? 2 : 3;
+            readOnly = segments[0].isReadOnly();
+
+            for (MappedByteBuffer segment : segments)
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        @Override
+        long length()
+        {
+            return length;
+        }
+
+        @Override
+        double get(long index)
+        {
+            long bytes = index << shift;
+            MappedByteBuffer segment = segments[(int) (bytes >>> SEGMENT_SHIFT)];
+            int offset = (int) (bytes & SEGMENT_MASK);
+
+            return single ? segment.getFloat(offset) : segment.getDouble(offset);
+        }
+
+        @Override
+        void set(long index, double value)
+        {
+            long bytes = index << shift;
+            MappedByteBuffer segment = segments[(int) (bytes >>> SEGMENT_SHIFT)];
+            int offset = (int) (bytes & SEGMENT_MASK);
+
+            if (single)
+                segment.putFloat(offset, (float) value);
+            else
+                segment.putDouble(offset, value);
+        }
+
+        @Override
+        boolean isReadOnly()
+        {
+            return readOnly;
+        }
+
+        @Override
+        void force()
+        {
+            for (MappedByteBuffer segment : segments)
+                segment.force();
+        }
+    }
+}
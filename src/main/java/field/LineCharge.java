@@ -0,0 +1,231 @@
+package field;
+
+import java.util.Arrays;
+
+import vector.Vector;
+
+/**
+ * An infinitely long, uniformly charged line parallel to a coordinate axis. Its field points straight
+ * away from the line and falls off as 1/r:
+ *
+ *   E = 2k lambda d / |d|^2
+ *
+ * where d is the perpendicular offset from the line. The field has no component along the line and
+ * doesn't change along it, so only the two coordinates across the line are ever read.
+ *
+ * LineCharges are immutable.
+ *
+ * @author Ronen Orland
+ */
+public class LineCharge implements Electrode
+{
+    public final static double DEFAULT_DENSITY = 1e-6;  // 1uC/m
+
+    private final double density;   // Charge per length in C/m
+    private final Axis axis;        // Axis the line runs along
+    private final double u, v;      // Coordinates of the line along axis.first() and axis.second()
+
+
+    /**
+     * Creates a line with a charge density of 1uC/m along z through the origin
+     */
+    public LineCharge()
+    {
+        this(DEFAULT_DENSITY, new Vector(), Axis.Z);
+    }
+
+    /**
+     * Creates a line through a point, parallel to an axis
+     *
+     * @param density   charge per length in C/m
+     * @param point     any point on the line
+     * @param axis      the axis the line runs along
+     */
+    public LineCharge(double density, Vector point, Axis axis)
+    {
+        this.density = density;
+        this.axis = axis;
+        u = axis.first().of(point);
+        v = axis.second().of(point);
+    }
+
+
+    @Override
+    public Vector getField(Vector coord)
+    {
+        Vector field = new Vector();
+        addField(coord.getX(), coord.getY(), coord.getZ(), field);
+
+        return field;
+    }
+
+    @Override
+    public void addField(double x, double y, double z, Vector field)
+    {
+        double du = axis.first().of(x, y, z) - u;
+        double dv = axis.second().of(x, y, z) - v;
+        double rho2 = du*du + dv*dv;
+
+        if (rho2 == 0)
+        {
+            double onLine = PointCharge.fieldOnCharge(density);
+            add(onLine, onLine, field);
+            return;
+        }
+
+        // E = 2k lambda d / rho^2
+        double scale = 2 * PointCharge.k * density / rho2;
+        add(scale * du, scale * dv, field);
+    }
+
+    @Override
+    public void getField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        Arrays.fill(field, 0, 3*count, 0.0);
+        addField(x, y, z, field, count);
+    }
+
+    /**
+     * Adds the field of this line at a batch of coordinates to the values already in the output array,
+     * using the layout of getField(double[], double[], double[], double[], int). The coordinate along
+     * the line isn't read.
+     *
+     * @param x         x coordinates of the points
+     * @param y         y coordinates of the points
+     * @param z         z coordinates of the points
+     * @param field     array to add the field components to
+     * @param count     the number of points to evaluate
+     */
+    @Override
+    public void addField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        double[][] coords = {x, y, z};
+        int first = axis.first().ordinal();
+        int second = axis.second().ordinal();
+
+        FieldKernel.INSTANCE.addLine(coords[first], coords[second], u, v, 2 * PointCharge.k * density,
+                field, first * count, second * count, count);
+    }
+
+    @Override
+    public void addFieldGradient(double x, double y, double z, double[] gradient)
+    {
+        FieldGradient.addLineCharge(2 * PointCharge.k * density, axis, axis.first().of(x, y, z) - u,
+                axis.second().of(x, y, z) - v, gradient, 0);
+    }
+
+    @Override
+    public void getPlanarField(double[] x, double[] y, double z, double[] field, int count)
+    {
+        Arrays.fill(field, 0, 2*count, 0.0);
+        addPlanarField(x, y, z, field, count);
+    }
+
+    /**
+     * Adds the in-plane field of this line at a batch of points in a plane of constant z to the values
+     * already in the output array, laid out as in getPlanarField. A line along z never reads z at all.
+     *
+     * @param x         x coordinates of the points
+     * @param y         y coordinates of the points
+     * @param z         z coordinate of the plane
+     * @param field     array to add the field components to
+     * @param count     the number of points to evaluate
+     */
+    @Override
+    public void addPlanarField(double[] x, double[] y, double z, double[] field, int count)
+    {
+        if (axis == Axis.Z)
+        {
+            FieldKernel.INSTANCE.addLine(x, y, u, v, 2 * PointCharge.k * density, field, 0, count, count);
+            return;
+        }
+
+        // Across a line along x or y the field only depends on the other in-plane coordinate and z
+        double[] zs = new double[count];
+        double[] full = new double[3*count];
+        Arrays.fill(zs, z);
+        addField(x, y, zs, full, count);
+        for (int i = 0; i < 2*count; i++)
+            field[i] += full[i];
+    }
+
+    @Override
+    public void addPlanarFieldGradient(double x, double y, double z, double[] gradient)
+    {
+        if (axis == Axis.Z)
+        {
+            PlanarGradient.addLineCharge(2 * PointCharge.k * density, x - u, y - v, gradient, 0);
+            return;
+        }
+
+        double[] full = new double[FieldGradient.LENGTH];
+        addFieldGradient(x, y, z, full);
+        PlanarGradient.addInPlane(full, 0, gradient, 0);
+    }
+
+    @Override
+    public Axis getInvariantAxis()
+    {
+        return axis;
+    }
+
+    /**
+     *
+     * @return  the charge per length in C/m
+     */
+    public double getDensity()
+    {
+        return density;
+    }
+
+    /**
+     *
+     * @return  the axis the line runs along
+     */
+    public Axis getAxis()
+    {
+        return axis;
+    }
+
+    /**
+     *
+     * @return  a new Vector with the point where the line crosses the plane through the origin
+     *          perpendicular to it
+     */
+    public Vector getPosition()
+    {
+        double[] p = new double[3];
+        p[axis.first().ordinal()] = u;
+        p[axis.second().ordinal()] = v;
+
+        return new Vector(p[0], p[1], p[2]);
+    }
+
+    /**
+     *
+     * @param density   the new charge per length in C/m
+     * @return          a new LineCharge in the same place with a different density
+     */
+    public LineCharge withDensity(double density)
+    {
+        return new LineCharge(density, getPosition(), axis);
+    }
+
+    /**
+     * Adds field components across the line to the matching components of a Vector
+     */
+    private void add(double eu, double ev, Vector field)
+    {
+        switch (axis)
+        {
+            case X:
+                field.add(0, eu, ev);
+                break;
+            case Y:
+                field.add(ev, 0, eu);
+                break;
+            default:
+                field.add(eu, ev, 0);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package field;
+
+import java.util.Arrays;
+import java.util.List;
+
+import vector.Vector;
+
+/**
+ * Fast sweeps over the charges of a set of electrodes. The field is linear in charge, so the field of
+ * each electrode at unit charge only has to be computed once, at a fixed set of sample points or grid
+ * nodes. The field for any combination of charges is then the weighted sum of these basis fields,
+ * which costs a few multiply-adds per point and electrode instead of a full superposition.
+ *
+ * The weights are the charge of each electrode in the same units as its own setters: the charge of a
+ * PointCharge, the charge magnitude of a Dipole or Quadrupole, and the charge per length of a
+ * LineCharge, DipoleLine or QuadrupoleLine. Any other electrode is sampled as it is, and its weight
+ * scales that field, so a weight of 1 reproduces it.
+ *
+ * @author Ronen Orland
+ */
+public class LinearSweep
+{
+    private final Electrode[] electrodes;   // The electrodes being swept
+    private final double[][] basis;         // Field of each electrode at unit weight, laid out as the output
+    private final int count;                // Number of sample points or grid nodes
+    private final FieldGrid grid;           // Grid the basis was sampled on, null for sample points
+
+
+    /**
+     * Samples the unit fields of a set of electrodes at a batch of points. Fields come out in the
+     * layout of Electrode.getField(double[], double[], double[], double[], int).
+     *
+     * @param electrodes    the electrodes to sweep
+     * @param x             x coordinates of the points
+     * @param y             y coordinates of the points
+     * @param z             z coordinates of the points
+     * @param count         the number of points
+     * @throws IllegalArgumentException     if there are no electrodes or count is negative
+     */
+    public LinearSweep(List<? extends Electrode> electrodes, double[] x, double[] y, double[] z, int count)
+    {
+        this(electrodes, count, null);
+
+        for (int e = 0; e < basis.length; e++)
+        {
+            basis[e] = new double[3 * count];
+            unit(this.electrodes[e]).getField(x, y, z, basis[e], count);
+        }
+    }
+
+    /**
+     * Samples the unit fields of a set of electrodes at every node of a grid. Fields come out in the
+     * layout of FieldGrid.getData(), and getGrid(double[]) wraps them in grids of the same shape.
+     *
+     * @param electrodes    the electrodes to sweep
+     * @param grid          grid giving the nodes to sample at, its own data isn't used
+     * @throws IllegalArgumentException     if there are no electrodes or the grid is too big for an array
+     */
+    public LinearSweep(List<? extends Electrode> electrodes, FieldGrid grid)
+    {
+        this(electrodes, nodeCount(grid), grid);
+
+        for (int e = 0; e < basis.length; e++)
+        {
+            FieldGrid sampled = new FieldGrid(grid.getMin(), grid.getSpacing(), grid.getNodesX(),
+                    grid.getNodesY(), grid.getNodesZ());
+            sampled.fill(unit(this.electrodes[e]));
+            basis[e] = sampled.getData();
+        }
+    }
+
+    /**
+     * Checks the arguments and sets up everything except the basis fields
+     */
+    private LinearSweep(List<? extends Electrode> electrodes, int count, FieldGrid grid)
+    {
+        if (electrodes == null || electrodes.isEmpty())
+            throw new IllegalArgumentException("Need at least one electrode to sweep");
+        if (count < 0)
+            throw new IllegalArgumentException("Count can't be negative");
+
+        this.electrodes = electrodes.toArray(new Electrode[0]);
+        basis = new double[this.electrodes.length][];
+        this.count = count;
+        this.grid = grid;
+    }
+
+
+    /**
+     * Writes the field for one combination of weights into an array, laid out like the basis fields
+     *
+     * @param weights   the weight of each electrode, in the order they were given
+     * @param field     output array of at least 3*getCount() values
+     * @throws IllegalArgumentException     if there isn't one weight per electrode
+     */
+    public void getField(double[] weights, double[] field)
+    {
+        if (weights.length != basis.length)
+            throw new IllegalArgumentException("Need one weight per electrode");
+
+        int length = 3 * count;
+        Arrays.fill(field, 0, length, 0.0);
+
+        for (int e = 0; e < basis.length; e++)
+        {
+            double w = weights[e];
+            if (w == 0)
+                continue;
+
+            double[] b = basis[e];
+            for (int i = 0; i < length; i++)
+                field[i] += w * b[i];
+        }
+    }
+
+    /**
+     * Returns the field for one combination of weights as a new grid with the shape of the sampled one
+     *
+     * @param weights   the weight of each electrode, in the order they were given
+     * @return          a new FieldGrid holding the combined field
+     * @throws IllegalStateException    if the basis was sampled at points instead of on a grid
+     */
+    public FieldGrid getGrid(double[] weights)
+    {
+        if (grid == null)
+            throw new IllegalStateException("Sweep wasn't sampled on a grid");
+
+        double[] data = new double[3 * count];
+        getField(weights, data);
+
+        return new FieldGrid(grid.getMin(), grid.getSpacing(), grid.getNodesX(), grid.getNodesY(),
+                grid.getNodesZ(), data);
+    }
+
+    /**
+     * Returns the weights that reproduce the electrodes as they are now
+     *
+     * @return  the current weight of each electrode
+     */
+    public double[] getWeights()
+    {
+        double[] weights = new double[electrodes.length];
+        for (int e = 0; e < electrodes.length; e++)
+            weights[e] = weight(electrodes[e]);
+
+        return weights;
+    }
+
+    /**
+     *
+     * @return  the number of sample points or grid nodes
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     *
+     * @return  the number of electrodes being swept
+     */
+    public int size()
+    {
+        return electrodes.length;
+    }
+
+
+    /**
+     * Returns a copy of an electrode at unit weight, or the electrode itself if its charge isn't known
+     *
+     * @param electrode     the electrode to copy
+     * @return              the electrode with a weight of 1
+     */
+    static Electrode unit(Electrode electrode)
+    {
+        if (electrode instanceof PointCharge)
+            return new PointCharge(1, ((PointCharge) electrode).getPosition());
+
+        if (electrode instanceof Dipole)
+        {
+            Dipole dipole = (Dipole) electrode;
+            return new Dipole(1, dipole.getPositivePosition(), dipole.getNegativePosition());
+        }
+
+        if (electrode instanceof Quadrupole)
+        {
+            Vector[] pos = ((Quadrupole) electrode).getPositions();
+            return new Quadrupole(new PointCharge(1, pos[0]), new PointCharge(1, pos[1]),
+                    new PointCharge(-1, pos[2]), new PointCharge(-1, pos[3]));
+        }
+
+        if (electrode instanceof LineCharge)
+            return ((LineCharge) electrode).withDensity(1);
+
+        if (electrode instanceof DipoleLine)
+        {
+            DipoleLine dipole = (DipoleLine) electrode;
+            return new DipoleLine(dipole.getPositive().withDensity(1), dipole.getNegative().withDensity(-1));
+        }
+
+        if (electrode instanceof QuadrupoleLine)
+        {
+            LineCharge[] lines = ((QuadrupoleLine) electrode).getLineCharges();
+            return new QuadrupoleLine(lines[0].withDensity(1), lines[1].withDensity(1),
+                    lines[2].withDensity(-1), lines[3].withDensity(-1));
+        }
+
+        return electrode;
+    }
+
+    /**
+     * Returns the weight of an electrode as it is now, matching unit(Electrode)
+     */
+    private static double weight(Electrode electrode)
+    {
+        if (electrode instanceof PointCharge)
+            return ((PointCharge) electrode).getCharge();
+        if (electrode instanceof Dipole)
+            return ((Dipole) electrode).getCharge();
+        if (electrode instanceof Quadrupole)
+            return ((Quadrupole) electrode).getCharge();
+        if (electrode instanceof LineCharge)
+            return ((LineCharge) electrode).getDensity();
+        if (electrode instanceof DipoleLine)
+            return ((DipoleLine) electrode).getDensity();
+        if (electrode instanceof QuadrupoleLine)
+            return ((QuadrupoleLine) electrode).getDensity();
+
+        return 1;
+    }
+
+    /**
+     * Returns the number of nodes in a grid, if their fields fit in one array
+     */
+    private static int nodeCount(FieldGrid grid)
+    {
+        long nodes = (long) grid.getNodesX() * grid.getNodesY() * grid.getNodesZ();
+        if (3 * nodes > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Grid is too big to sweep in memory");
+
+        return (int) nodes;
+    }
+}
@@ -0,0 +1,116 @@
+package field;
+
+/**
+ * Layout and helpers for field gradients in a plane of constant z, the 2D counterpart of
+ * FieldGradient. A planar gradient is stored as 8 doubles: all three field components followed by the
+ * derivatives of the field along x and y. Particles in the plane only move along x and y, so only
+ * those derivatives are needed, but the field out of the plane still pulls them through
+ * Ez grad Ez. Only dEz/dz is left out.
+ *
+ * @author Ronen Orland
+ */
+public class PlanarGradient
+{
+    public final static int EX = 0;
+    public final static int EY = 1;
+    public final static int EZ = 2;
+    public final static int XX = 3;     // dEx/dx
+    public final static int YY = 4;     // dEy/dy
+    public final static int XY = 5;     // dEx/dy = dEy/dx
+    public final static int XZ = 6;     // dEz/dx = dEx/dz
+    public final static int YZ = 7;     // dEz/dy = dEy/dz
+    public final static int LENGTH = 8;
+
+
+    /**
+     * Adds a full field gradient to a planar gradient, dropping dEz/dz
+     *
+     * @param gradient      the full gradient, laid out as in FieldGradient
+     * @param offset        index of the first value of the full gradient
+     * @param planar        the planar gradient to add to
+     * @param planarOffset  index of the first value of the planar gradient
+     */
+    public static void addInPlane(double[] gradient, int offset, double[] planar, int planarOffset)
+    {
+        planar[planarOffset + EX] += gradient[offset + FieldGradient.EX];
+        planar[planarOffset + EY] += gradient[offset + FieldGradient.EY];
+        planar[planarOffset + EZ] += gradient[offset + FieldGradient.EZ];
+        planar[planarOffset + XX] += gradient[offset + FieldGradient.XX];
+        planar[planarOffset + YY] += gradient[offset + FieldGradient.YY];
+        planar[planarOffset + XY] += gradient[offset + FieldGradient.XY];
+        planar[planarOffset + XZ] += gradient[offset + FieldGradient.XZ];
+        planar[planarOffset + YZ] += gradient[offset + FieldGradient.YZ];
+    }
+
+    /**
+     * Adds the field and in-plane derivatives of a point charge at an offset from it
+     *
+     * @param kq        Coulomb's constant times the charge
+     * @param dx        x offset from the charge
+     * @param dy        y offset from the charge
+     * @param dz        z offset from the charge
+     * @param gradient  the planar gradient to add to
+     * @param offset    index of the first value of the planar gradient
+     */
+    static void addPointCharge(double kq, double dx, double dy, double dz, double[] gradient, int offset)
+    {
+        double r2 = dx*dx + dy*dy + dz*dz;
+
+        if (r2 == 0)
+        {
+            double onCharge = PointCharge.fieldOnCharge(kq);
+            for (int c = 0; c < LENGTH; c++)
+                gradient[offset + c] += onCharge;
+            return;
+        }
+
+        // Same as FieldGradient.addPointCharge without dEz/dz
+        double inv3 = kq / (r2 * Math.sqrt(r2));
+        double inv5 = 3 * inv3 / r2;
+
+        gradient[offset + EX] += inv3 * dx;
+        gradient[offset + EY] += inv3 * dy;
+        gradient[offset + EZ] += inv3 * dz;
+        gradient[offset + XX] += inv3 - inv5 * dx * dx;
+        gradient[offset + YY] += inv3 - inv5 * dy * dy;
+        gradient[offset + XY] -= inv5 * dx * dy;
+        gradient[offset + XZ] -= inv5 * dx * dz;
+        gradient[offset + YZ] -= inv5 * dy * dz;
+    }
+
+    /**
+     * Adds the field and Jacobian of an infinite line charge parallel to z, which has no z component
+     *
+     * @param scale     2k times the charge per length
+     * @param dx        x offset from the line
+     * @param dy        y offset from the line
+     * @param gradient  the planar gradient to add to
+     * @param offset    index of the first value of the planar gradient
+     */
+    static void addLineCharge(double scale, double dx, double dy, double[] gradient, int offset)
+    {
+        double rho2 = dx*dx + dy*dy;
+
+        if (rho2 == 0)
+        {
+            // Only the components across the line, as in FieldGradient.addLineCharge
+            double onLine = PointCharge.fieldOnCharge(scale);
+            gradient[offset + EX] += onLine;
+            gradient[offset + EY] += onLine;
+            gradient[offset + XX] += onLine;
+            gradient[offset + YY] += onLine;
+            gradient[offset + XY] += onLine;
+            return;
+        }
+
+        // Same as FieldGradient.addLineCharge for a line along z
+        double inv2 = scale / rho2;
+        double inv4 = inv2 / rho2;
+
+        gradient[offset + EX] += inv2 * dx;
+        gradient[offset + EY] += inv2 * dy;
+        gradient[offset + XX] += inv4 * (dy*dy - dx*dx);
+        gradient[offset + YY] += inv4 * (dx*dx - dy*dy);
+        gradient[offset + XY] -= 2 * inv4 * dx * dy;
+    }
+}
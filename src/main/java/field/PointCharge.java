@@ -1,173 +1,280 @@
-package field;
-
-import field.Electrode;
-import vector.Vector;
-
-/**
- * Represents a simple point charge creating an electric field
- * 
- * @author Ronen Orland
- */
-public class PointCharge implements Electrode
-{
-    public final static double k = 8987552000.0;        // Coulomb's constant
-    public final static double DEFAULT_CHARGE = 1e-6;   // 1uC
-    
-    private double charge;      // Charge in C
-    private Vector position;    // Position of the PointCharge
-    
-    /**
-     * Creates a new PointCharge with a charge of 0C and position of (0,0,0)
-     */
-    public PointCharge()
-    {
-        this(DEFAULT_CHARGE, new Vector());
-    }
-    
-    /**
-     * Creates a new PointCharge with a specified charge and position of (0,0,0)
-     * 
-     * @param charge    the charge of the PointCharge in C
-     */
-    public PointCharge(double charge)
-    {
-        this(charge, new Vector());
-    }
-    
-    /**
-     * Creates a new PointCharge with a specified position
-     * 
-     * @param pos   position Vector
-     */
-    public PointCharge(Vector pos)
-    {
-        this(DEFAULT_CHARGE, pos);
-    }
-    
-    /**
-     * Creates a new PointCharge with a specified charge and position
-     * 
-     * @param charge    charge of the PointCharge in C
-     * @param pos       position Vector
-     */
-    public PointCharge(double charge, Vector pos)
-    {
-        this.charge = charge;
-        position = new Vector(pos);
-    }
-    
-    /**
-     * Copies a different PointCharge
-     * 
-     * @param copy  the PointCharge to copy
-     */
-    public PointCharge(PointCharge copy)
-    {
-        charge = copy.getCharge();
-        position = new Vector(copy.getPosition());
-    }
-    
-    @Override
-    public Vector getField(Vector coord)
-    {
-        // If on the point charge, field is infinite
-        if (coord.equals(position))
-        {
-            if (charge == 0)        // Zero charge
-                return new Vector();
-            else if (charge > 0)    // Positive charge
-                return new Vector(Double.POSITIVE_INFINITY);
-            else                    // Negative charge
-                return new Vector(Double.NEGATIVE_INFINITY);
-        }
-        
-        double radius = position.distance(coord);   // Radius from the charge
-        
-        double field = k * charge / (radius * radius);  // Calculate field
-        
-        Vector ret = new Vector(coord);
-        ret.sub(position);      // Get vector pointing from point charge to given coordinate
-        ret = ret.unit();       // Get unit vector
-        ret.mult(field);        // Multiply unit vector by field
-        
-        return ret;
-    }
-    
-    /**
-     * Returns a Vector describing the electric field at a coordinate
-     * @param x x coordinate
-     * @param y y coordinate
-     * @param z z coordinate
-     * @return  Vector describing the field at a coordinate
-     */
-    public Vector getField(double x, double y, double z)
-    {
-        return this.getField(new Vector(x,y,z));
-    }
-    
-    /**
-     * Checks if the PointCharge is equal to another PointCharge
-     * 
-     * @param check     the PointCharge to check against
-     * @return          true if the PointCharges are the same,
-     *                  false otherwise
-     */
-    public boolean equals(PointCharge check)
-    {
-        if (charge != check.getCharge())
-            return false;
-        
-        if (!position.equals(check.getPosition()))
-            return false;
-        
-        return true;
-    }
-    
-    /**
-     * Changes the charge of the PointCharge
-     * 
-     * @param charge    the new charge
-     */
-    public void setCharge(double charge)
-    {
-        this.charge = charge;
-    }
-    
-    /**
-     * 
-     * @return the charge of the PointCharge
-     */
-    public double getCharge()
-    {
-        return charge;
-    }
-    
-    /**
-     * Updates the position of the PointCharge
-     * 
-     * @param pos   the new position Vector
-     */
-    public void setPosition(Vector pos)
-    {
-        position = new Vector(pos);
-    }
-    
-    /**
-     * 
-     * @return  the position Vector of the pointCharge
-     */
-    public Vector getPosition()
-    {
-        return position;
-    }
-    
-    /**
-     * 
-     * @return true if the charge is greater than or equal to 0,
-     *         false if not
-     */
-    public boolean isPositive()
-    {
-        return charge >= 0;
-    }
-}
+package field;
+
+import java.util.Arrays;
+
+import field.Electrode;
+import vector.Vector;
+
+/**
+ * Represents a simple point charge creating an electric field
+ * 
+ * @author Ronen Orland
+ */
+public class PointCharge implements Electrode
+{
+    public final static double k = 8987552000.0;        // Coulomb's constant
+    public final static double DEFAULT_CHARGE = 1e-6;   // 1uC
+    
+    private double charge;      // Charge in C
+    private Vector position;    // Position of the PointCharge
+    private long version;       // Incremented whenever the charge or position changes
+    
+    /**
+     * Creates a new PointCharge with a charge of 0C and position of (0,0,0)
+     */
+    public PointCharge()
+    {
+        this(DEFAULT_CHARGE, new Vector());
+    }
+    
+    /**
+     * Creates a new PointCharge with a specified charge and position of (0,0,0)
+     * 
+     * @param charge    the charge of the PointCharge in C
+     */
+    public PointCharge(double charge)
+    {
+        this(charge, new Vector());
+    }
+    
+    /**
+     * Creates a new PointCharge with a specified position
+     * 
+     * @param pos   position Vector
+     */
+    public PointCharge(Vector pos)
+    {
+        this(DEFAULT_CHARGE, pos);
+    }
+    
+    /**
+     * Creates a new PointCharge with a specified charge and position
+     * 
+     * @param charge    charge of the PointCharge in C
+     * @param pos       position Vector
+     */
+    public PointCharge(double charge, Vector pos)
+    {
+        this.charge = charge;
+        position = new Vector(pos);
+    }
+    
+    /**
+     * Copies a different PointCharge
+     * 
+     * @param copy  the PointCharge to copy
+     */
+    public PointCharge(PointCharge copy)
+    {
+        charge = copy.getCharge();
+        position = new Vector(copy.getPosition());
+    }
+    
+    @Override
+    public Vector getField(Vector coord)
+    {
+        // If on the point charge, field is infinite
+        if (coord.equals(position))
+        {
+            if (charge == 0)        // Zero charge
+                return new Vector();
+            else if (charge > 0)    // Positive charge
+                return new Vector(Double.POSITIVE_INFINITY);
+            else                    // Negative charge
+                return new Vector(Double.NEGATIVE_INFINITY);
+        }
+        
+        Vector ret = new Vector();
+        ret.setDifference(coord, position);     // Get vector pointing from point charge to given coordinate
+        
+        // E = kq * d / r^3, with a single square root and no intermediate Vectors
+        ret.mult(k * charge * Vector.inverseCube(ret.getX(), ret.getY(), ret.getZ()));
+        
+        return ret;
+    }
+    
+    @Override
+    public void getField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        Arrays.fill(field, 0, 3*count, 0.0);
+        addField(x, y, z, field, count);
+    }
+    
+    /**
+     * Adds the field of this PointCharge at a batch of coordinates to the values already in the 
+     * output array. Uses the same layout as getField(double[], double[], double[], double[], int), 
+     * so composite electrodes can sum their charges into one array without allocating.
+     * 
+     * @param x         x coordinates of the points
+     * @param y         y coordinates of the points
+     * @param z         z coordinates of the points
+     * @param field     array to add the field components to
+     * @param count     the number of points to evaluate
+     */
+    @Override
+    public void addField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        FieldKernel.INSTANCE.addCharge(position.getX(), position.getY(), position.getZ(), k * charge, 
+                x, y, z, field, count);
+    }
+    
+    @Override
+    public void addField(double x, double y, double z, Vector field)
+    {
+        double dx = x - position.getX();
+        double dy = y - position.getY();
+        double dz = z - position.getZ();
+        double r2 = dx*dx + dy*dy + dz*dz;
+        
+        if (r2 == 0)
+        {
+            double onCharge = fieldOnCharge(charge);
+            field.add(onCharge, onCharge, onCharge);
+            return;
+        }
+        
+        // E = kq * d / r^3
+        double scale = k * charge / (r2 * Math.sqrt(r2));
+        field.add(scale * dx, scale * dy, scale * dz);
+    }
+    
+    @Override
+    public long getVersion()
+    {
+        return version;
+    }
+    
+    @Override
+    public void addFieldGradient(double x, double y, double z, double[] gradient)
+    {
+        FieldGradient.addPointCharge(k * charge, x - position.getX(), y - position.getY(), 
+                z - position.getZ(), gradient, 0);
+    }
+    
+    @Override
+    public void getPlanarField(double[] x, double[] y, double z, double[] field, int count)
+    {
+        Arrays.fill(field, 0, 2*count, 0.0);
+        addPlanarField(x, y, z, field, count);
+    }
+    
+    /**
+     * Adds the in-plane field of this PointCharge at a batch of points in a plane of constant z to the 
+     * values already in the output array, laid out as in getPlanarField.
+     * 
+     * @param x         x coordinates of the points
+     * @param y         y coordinates of the points
+     * @param z         z coordinate of the plane
+     * @param field     array to add the field components to
+     * @param count     the number of points to evaluate
+     */
+    @Override
+    public void addPlanarField(double[] x, double[] y, double z, double[] field, int count)
+    {
+        FieldKernel.INSTANCE.addChargePlanar(position.getX(), position.getY(), z - position.getZ(), 
+                k * charge, x, y, field, count);
+    }
+    
+    @Override
+    public void addPlanarFieldGradient(double x, double y, double z, double[] gradient)
+    {
+        PlanarGradient.addPointCharge(k * charge, x - position.getX(), y - position.getY(), 
+                z - position.getZ(), gradient, 0);
+    }
+    
+    /**
+     * Returns the value of each field component on top of a charge, matching getField(Vector)
+     * 
+     * @param charge    the charge in C
+     * @return          0 for no charge, otherwise infinity with the sign of the charge
+     */
+    static double fieldOnCharge(double charge)
+    {
+        if (charge > 0)
+            return Double.POSITIVE_INFINITY;
+        else if (charge < 0)
+            return Double.NEGATIVE_INFINITY;
+        
+        return 0;
+    }
+    
+    /**
+     * Returns a Vector describing the electric field at a coordinate
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param z z coordinate
+     * @return  Vector describing the field at a coordinate
+     */
+    public Vector getField(double x, double y, double z)
+    {
+        return this.getField(new Vector(x,y,z));
+    }
+    
+    /**
+     * Checks if the PointCharge is equal to another PointCharge
+     * 
+     * @param check     the PointCharge to check against
+     * @return          true if the PointCharges are the same,
+     *                  false otherwise
+     */
+    public boolean equals(PointCharge check)
+    {
+        if (charge != check.getCharge())
+            return false;
+        
+        if (!position.equals(check.getPosition()))
+            return false;
+        
+        return true;
+    }
+    
+    /**
+     * Changes the charge of the PointCharge
+     * 
+     * @param charge    the new charge
+     */
+    public void setCharge(double charge)
+    {
+        this.charge = charge;
+        version++;
+    }
+    
+    /**
+     * 
+     * @return the charge of the PointCharge
+     */
+    public double getCharge()
+    {
+        return charge;
+    }
+    
+    /**
+     * Updates the position of the PointCharge
+     * 
+     * @param pos   the new position Vector
+     */
+    public void setPosition(Vector pos)
+    {
+        position = new Vector(pos);
+        version++;
+    }
+    
+    /**
+     * 
+     * @return  the position Vector of the pointCharge
+     */
+    public Vector getPosition()
+    {
+        return position;
+    }
+    
+    /**
+     * 
+     * @return true if the charge is greater than or equal to 0,
+     *         false if not
+     */
+    public boolean isPositive()
+    {
+        return charge >= 0;
+    }
+}
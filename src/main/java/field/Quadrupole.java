@@ -1,116 +1,202 @@
-package field;
-
-import vector.Vector;
-
-/**
- * Represents a quadrupole, or four charged particles, 2 positive and 2 negative, 
- * of equal charge magnitudes.
- * 
- * @author Ronen Orland
- *
- */
-public class Quadrupole implements Electrode
-{
-    public final static double DEFAULT_CHARGE = 1e-6;   // 1uC
-    private PointCharge positive1;  // The first positive charge
-    private PointCharge positive2;  // The second positive charge
-    private PointCharge negative1;  // The first negative charge
-    private PointCharge negative2;  // The second negative charge
-
-    
-    /**
-     * Default constructor. Sets charges to be of magnitude 1uC. Sets positions of 
-     * the charges to be the corners of a square from (0,0,0) to (1,1,0).
-     */
-    public Quadrupole()
-    {
-        positive1 = new PointCharge(DEFAULT_CHARGE, new Vector(0,0,0));
-        positive2 = new PointCharge(DEFAULT_CHARGE, new Vector(1,1,0));
-        negative1 = new PointCharge(-DEFAULT_CHARGE, new Vector(1,0,0));
-        negative2 = new PointCharge(-DEFAULT_CHARGE, new Vector(0,1,0));
-    }
-    
-    /**
-     * Constructor that takes four PointCharges to create the individual charges in the Quadrupole.
-     * 
-     * @param   pos1    the first positive PointCharge
-     * @param   pos2    the second positive PointCharge
-     * @param   neg1    the first negative PointCharge
-     * @param   neg2    the second negative PointCharge
-     * @throws IllegalArgumentException     if all charges are not equal magnitude or if signs are wrong
-     */
-    public Quadrupole(PointCharge pos1, PointCharge pos2, PointCharge neg1, PointCharge neg2)
-    {
-        // Check if all charges are equal magnitude and that signs are correct
-        if (pos1.getCharge() == pos2.getCharge() && neg1.getCharge() == neg2.getCharge() 
-                && pos1.getCharge() == -neg1.getCharge() && pos2.getCharge() == -neg2.getCharge()
-                && pos1.getCharge() >= 0)
-        {
-            positive1 = new PointCharge(pos1);
-            positive2 = new PointCharge(pos2);
-            negative1 = new PointCharge(neg1);
-            negative2 = new PointCharge(neg2);
-        }
-        else throw new IllegalArgumentException("Invalid charges, either unequal magnitudes or bad signs");
-    }
-    
-    /**
-     * Constructor that takes two Dipoles to create the charges in the Quadrupole
-     * 
-     * @param  one   the first Dipole
-     * @param  two   the second Dipole
-     * @throws IllegalArgumentException     if charges are not equal magnitude between the Dipoles
-     */
-    public Quadrupole(Dipole one, Dipole two)
-    {
-        // Check if charges are equal magnitude
-        if (one.getPositive().getCharge() == two.getPositive().getCharge())
-        {
-            positive1 = new PointCharge(one.getPositive());
-            positive2 = new PointCharge(two.getPositive());
-            negative1 = new PointCharge(one.getNegative());
-            negative2 = new PointCharge(two.getNegative());
-        }
-        else throw new IllegalArgumentException("Invalid charges, magnitudes unequal");
-    }
-
-    @Override
-    public Vector getField(Vector coord)
-    {
-        Vector field = positive1.getField(coord);
-        field.add(positive2.getField(coord));
-        field.add(negative1.getField(coord));
-        field.add(negative2.getField(coord));
-        
-        return field;
-    }
-
-    /**
-     * 
-     * @return an array of the PointCharges in the Quadrupole. The charges are in the following order:
-     * positive1, positive2, negative1, negative2.
-     */
-    public PointCharge[] getPointCharges()
-    {
-        return new PointCharge[] {positive1, positive2, negative1, negative2};
-    }
-    
-    /**
-     * 
-     * @return an array of the positions of the PointCharges in the Quadrupole. The positions are in the 
-     * order of positive1, positive2, negative1, negative2.
-     */
-    public Vector[] getPositions()
-    {
-        return new Vector[] {positive1.getPosition(), positive2.getPosition(), negative1.getPosition(), negative2.getPosition()};
-    }
-    
-    /**
-     * 
-     * @return  the magnitude of charge on each PointCharge in the Quadrupole
-     */
-    public double getCharge()
-    {
-        return positive1.getCharge();
-    }
-}
+package field;
+
+import java.util.Arrays;
+
+import vector.Vector;
+
+/**
+ * Represents a quadrupole, or four charged particles, 2 positive and 2 negative, 
+ * of equal charge magnitudes.
+ * 
+ * @author Ronen Orland
+ *
+ */
+public class Quadrupole implements Electrode
+{
+    public final static double DEFAULT_CHARGE = 1e-6;   // 1uC
+    private PointCharge positive1;  // The first positive charge
+    private PointCharge positive2;  // The second positive charge
+    private PointCharge negative1;  // The first negative charge
+    private PointCharge negative2;  // The second negative charge
+
+    
+    /**
+     * Default constructor. Sets charges to be of magnitude 1uC. Sets positions of 
+     * the charges to be the corners of a square from (0,0,0) to (1,1,0).
+     */
+    public Quadrupole()
+    {
+        positive1 = new PointCharge(DEFAULT_CHARGE, new Vector(0,0,0));
+        positive2 = new PointCharge(DEFAULT_CHARGE, new Vector(1,1,0));
+        negative1 = new PointCharge(-DEFAULT_CHARGE, new Vector(1,0,0));
+        negative2 = new PointCharge(-DEFAULT_CHARGE, new Vector(0,1,0));
+    }
+    
+    /**
+     * Constructor that takes four PointCharges to create the individual charges in the Quadrupole.
+     * 
+     * @param   pos1    the first positive PointCharge
+     * @param   pos2    the second positive PointCharge
+     * @param   neg1    the first negative PointCharge
+     * @param   neg2    the second negative PointCharge
+     * @throws IllegalArgumentException     if all charges are not equal magnitude or if signs are wrong
+     */
+    public Quadrupole(PointCharge pos1, PointCharge pos2, PointCharge neg1, PointCharge neg2)
+    {
+        // Check if all charges are equal magnitude and that signs are correct
+        if (pos1.getCharge() == pos2.getCharge() && neg1.getCharge() == neg2.getCharge() 
+                && pos1.getCharge() == -neg1.getCharge() && pos2.getCharge() == -neg2.getCharge()
+                && pos1.getCharge() >= 0)
+        {
+            positive1 = new PointCharge(pos1);
+            positive2 = new PointCharge(pos2);
+            negative1 = new PointCharge(neg1);
+            negative2 = new PointCharge(neg2);
+        }
+        else throw new IllegalArgumentException("Invalid charges, either unequal magnitudes or bad signs");
+    }
+    
+    /**
+     * Constructor that takes two Dipoles to create the charges in the Quadrupole
+     * 
+     * @param  one   the first Dipole
+     * @param  two   the second Dipole
+     * @throws IllegalArgumentException     if charges are not equal magnitude between the Dipoles
+     */
+    public Quadrupole(Dipole one, Dipole two)
+    {
+        // Check if charges are equal magnitude
+        if (one.getPositive().getCharge() == two.getPositive().getCharge())
+        {
+            positive1 = new PointCharge(one.getPositive());
+            positive2 = new PointCharge(two.getPositive());
+            negative1 = new PointCharge(one.getNegative());
+            negative2 = new PointCharge(two.getNegative());
+        }
+        else throw new IllegalArgumentException("Invalid charges, magnitudes unequal");
+    }
+
+    @Override
+    public Vector getField(Vector coord)
+    {
+        Vector field = positive1.getField(coord);
+        field.add(positive2.getField(coord));
+        field.add(negative1.getField(coord));
+        field.add(negative2.getField(coord));
+        
+        return field;
+    }
+    
+    @Override
+    public void getField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        Arrays.fill(field, 0, 3*count, 0.0);
+        addField(x, y, z, field, count);
+    }
+    
+    @Override
+    public void addField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        // Sum each charge's contribution straight into the output array
+        positive1.addField(x, y, z, field, count);
+        positive2.addField(x, y, z, field, count);
+        negative1.addField(x, y, z, field, count);
+        negative2.addField(x, y, z, field, count);
+    }
+    
+    @Override
+    public void addField(double x, double y, double z, Vector field)
+    {
+        positive1.addField(x, y, z, field);
+        positive2.addField(x, y, z, field);
+        negative1.addField(x, y, z, field);
+        negative2.addField(x, y, z, field);
+    }
+    
+    @Override
+    public void addFieldGradient(double x, double y, double z, double[] gradient)
+    {
+        positive1.addFieldGradient(x, y, z, gradient);
+        positive2.addFieldGradient(x, y, z, gradient);
+        negative1.addFieldGradient(x, y, z, gradient);
+        negative2.addFieldGradient(x, y, z, gradient);
+    }
+    
+    @Override
+    public void getPlanarField(double[] x, double[] y, double z, double[] field, int count)
+    {
+        Arrays.fill(field, 0, 2*count, 0.0);
+        addPlanarField(x, y, z, field, count);
+    }
+    
+    @Override
+    public void addPlanarField(double[] x, double[] y, double z, double[] field, int count)
+    {
+        positive1.addPlanarField(x, y, z, field, count);
+        positive2.addPlanarField(x, y, z, field, count);
+        negative1.addPlanarField(x, y, z, field, count);
+        negative2.addPlanarField(x, y, z, field, count);
+    }
+    
+    @Override
+    public void addPlanarFieldGradient(double x, double y, double z, double[] gradient)
+    {
+        positive1.addPlanarFieldGradient(x, y, z, gradient);
+        positive2.addPlanarFieldGradient(x, y, z, gradient);
+        negative1.addPlanarFieldGradient(x, y, z, gradient);
+        negative2.addPlanarFieldGradient(x, y, z, gradient);
+    }
+    
+    /**
+     * The version of a Quadrupole moves with the versions of its four charges, which also covers 
+     * changes made through the PointCharges returned by getPointCharges()
+     */
+    @Override
+    public long getVersion()
+    {
+        return positive1.getVersion() + positive2.getVersion() + negative1.getVersion() 
+                + negative2.getVersion();
+    }
+
+    /**
+     * 
+     * @return an array of the PointCharges in the Quadrupole. The charges are in the following order:
+     * positive1, positive2, negative1, negative2.
+     */
+    public PointCharge[] getPointCharges()
+    {
+        return new PointCharge[] {positive1, positive2, negative1, negative2};
+    }
+    
+    /**
+     * 
+     * @return an array of the positions of the PointCharges in the Quadrupole. The positions are in the 
+     * order of positive1, positive2, negative1, negative2.
+     */
+    public Vector[] getPositions()
+    {
+        return new Vector[] {positive1.getPosition(), positive2.getPosition(), negative1.getPosition(), negative2.getPosition()};
+    }
+    
+    /**
+     * 
+     * @return  the magnitude of charge on each PointCharge in the Quadrupole
+     */
+    public double getCharge()
+    {
+        return positive1.getCharge();
+    }
+    
+    /**
+     * Sets the charges of the quadrupole particles to be of the given magnitude
+     * 
+     * @param charge    magnitude of the charge to set the quadrupole to
+     */
+    public void setCharge(double charge)
+    {
+        positive1.setCharge(charge);
+        positive2.setCharge(charge);
+        negative1.setCharge(-charge);
+        negative2.setCharge(-charge);
+    }
+}
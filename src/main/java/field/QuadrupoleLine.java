@@ -0,0 +1,175 @@
+package field;
+
+import java.util.Arrays;
+
+import vector.Vector;
+
+/**
+ * Four parallel infinite line charges of equal density magnitude, two positive and two negative, the
+ * 2D counterpart of a Quadrupole. Like LineCharge, the field only depends on the two coordinates
+ * across the lines.
+ *
+ * QuadrupoleLines are immutable.
+ *
+ * @author Ronen Orland
+ */
+public class QuadrupoleLine implements Electrode
+{
+    private final LineCharge positive1;     // The first positive line
+    private final LineCharge positive2;     // The second positive line
+    private final LineCharge negative1;     // The first negative line
+    private final LineCharge negative2;     // The second negative line
+
+
+    /**
+     * Creates lines along z with densities of 1uC/m through the corners of a square from (0,0,0) to
+     * (1,1,0), positive at opposite corners
+     */
+    public QuadrupoleLine()
+    {
+        this(new DipoleLine(LineCharge.DEFAULT_DENSITY, new Vector(0,0,0), new Vector(1,0,0), Axis.Z),
+                new DipoleLine(LineCharge.DEFAULT_DENSITY, new Vector(1,1,0), new Vector(0,1,0), Axis.Z));
+    }
+
+    /**
+     * Creates a quadrupole from four lines
+     *
+     * @param pos1  the first positive line
+     * @param pos2  the second positive line
+     * @param neg1  the first negative line
+     * @param neg2  the second negative line
+     * @throws IllegalArgumentException     if the lines aren't parallel, the densities aren't equal in
+     *                                      magnitude or the signs are wrong
+     */
+    public QuadrupoleLine(LineCharge pos1, LineCharge pos2, LineCharge neg1, LineCharge neg2)
+    {
+        Axis axis = pos1.getAxis();
+        if (pos2.getAxis() != axis || neg1.getAxis() != axis || neg2.getAxis() != axis)
+            throw new IllegalArgumentException("Lines are not parallel");
+
+        double density = pos1.getDensity();
+        if (density < 0 || pos2.getDensity() != density || neg1.getDensity() != -density
+                || neg2.getDensity() != -density)
+            throw new IllegalArgumentException("Invalid densities, either unequal magnitudes or bad signs");
+
+        positive1 = pos1;
+        positive2 = pos2;
+        negative1 = neg1;
+        negative2 = neg2;
+    }
+
+    /**
+     * Creates a quadrupole from two pairs of lines
+     *
+     * @param one   the first pair
+     * @param two   the second pair
+     * @throws IllegalArgumentException     if the pairs aren't parallel or their densities differ
+     */
+    public QuadrupoleLine(DipoleLine one, DipoleLine two)
+    {
+        this(one.getPositive(), two.getPositive(), one.getNegative(), two.getNegative());
+    }
+
+
+    @Override
+    public Vector getField(Vector coord)
+    {
+        Vector field = new Vector();
+        addField(coord.getX(), coord.getY(), coord.getZ(), field);
+
+        return field;
+    }
+
+    @Override
+    public void addField(double x, double y, double z, Vector field)
+    {
+        positive1.addField(x, y, z, field);
+        positive2.addField(x, y, z, field);
+        negative1.addField(x, y, z, field);
+        negative2.addField(x, y, z, field);
+    }
+
+    @Override
+    public void getField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        Arrays.fill(field, 0, 3*count, 0.0);
+        addField(x, y, z, field, count);
+    }
+
+    @Override
+    public void addField(double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        // Sum each line's contribution straight into the output array
+        positive1.addField(x, y, z, field, count);
+        positive2.addField(x, y, z, field, count);
+        negative1.addField(x, y, z, field, count);
+        negative2.addField(x, y, z, field, count);
+    }
+
+    @Override
+    public void addFieldGradient(double x, double y, double z, double[] gradient)
+    {
+        positive1.addFieldGradient(x, y, z, gradient);
+        positive2.addFieldGradient(x, y, z, gradient);
+        negative1.addFieldGradient(x, y, z, gradient);
+        negative2.addFieldGradient(x, y, z, gradient);
+    }
+
+    @Override
+    public void getPlanarField(double[] x, double[] y, double z, double[] field, int count)
+    {
+        Arrays.fill(field, 0, 2*count, 0.0);
+        addPlanarField(x, y, z, field, count);
+    }
+
+    @Override
+    public void addPlanarField(double[] x, double[] y, double z, double[] field, int count)
+    {
+        positive1.addPlanarField(x, y, z, field, count);
+        positive2.addPlanarField(x, y, z, field, count);
+        negative1.addPlanarField(x, y, z, field, count);
+        negative2.addPlanarField(x, y, z, field, count);
+    }
+
+    @Override
+    public void addPlanarFieldGradient(double x, double y, double z, double[] gradient)
+    {
+        positive1.addPlanarFieldGradient(x, y, z, gradient);
+        positive2.addPlanarFieldGradient(x, y, z, gradient);
+        negative1.addPlanarFieldGradient(x, y, z, gradient);
+        negative2.addPlanarFieldGradient(x, y, z, gradient);
+    }
+
+    @Override
+    public Axis getInvariantAxis()
+    {
+        return positive1.getAxis();
+    }
+
+    /**
+     *
+     * @return  the magnitude of the charge per length on each line in C/m
+     */
+    public double getDensity()
+    {
+        return positive1.getDensity();
+    }
+
+    /**
+     *
+     * @return  the axis the lines run along
+     */
+    public Axis getAxis()
+    {
+        return positive1.getAxis();
+    }
+
+    /**
+     *
+     * @return  the four lines, the two positive followed by the two negative
+     */
+    public LineCharge[] getLineCharges()
+    {
+        return new LineCharge[] {positive1, positive2, negative1, negative2};
+    }
+}
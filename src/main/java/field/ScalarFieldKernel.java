@@ -0,0 +1,204 @@
+package field;
+
+import vector.Vector;
+
+/**
+ * Sums point charge fields one point and one charge at a time. Used when the Vector API isn't
+ * available, and by the vector kernel for the points left over after its last full vector.
+ *
+ * @author Ronen Orland
+ */
+class ScalarFieldKernel extends FieldKernel
+{
+    @Override
+    void addCharge(double qx, double qy, double qz, double kq, double[] x, double[] y, double[] z,
+            double[] field, int count)
+    {
+        addCharge(qx, qy, qz, kq, x, y, z, field, 0, count, count);
+    }
+
+    @Override
+    void addCharges(double[] qx, double[] qy, double[] qz, double[] kq, int charges,
+            double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        addCharges(qx, qy, qz, kq, charges, x, y, z, field, 0, count, count);
+    }
+
+    @Override
+    void addCharges(double[] qx, double[] qy, double[] qz, double[] kq, int charges,
+            double px, double py, double pz, Vector field)
+    {
+        double ex = 0, ey = 0, ez = 0;
+
+        for (int j = 0; j < charges; j++)
+        {
+            double dx = px - qx[j];
+            double dy = py - qy[j];
+            double dz = pz - qz[j];
+            double r2 = dx*dx + dy*dy + dz*dz;
+
+            if (r2 == 0)
+            {
+                double onCharge = PointCharge.fieldOnCharge(kq[j]);
+                ex += onCharge;
+                ey += onCharge;
+                ez += onCharge;
+                continue;
+            }
+
+            // E = kq * d / r^3
+            double scale = kq[j] / (r2 * Math.sqrt(r2));
+            ex += scale * dx;
+            ey += scale * dy;
+            ez += scale * dz;
+        }
+
+        field.add(ex, ey, ez);
+    }
+
+    @Override
+    void addChargePlanar(double qx, double qy, double dz, double kq, double[] x, double[] y,
+            double[] field, int count)
+    {
+        addChargePlanar(qx, qy, dz, kq, x, y, field, 0, count, count);
+    }
+
+    @Override
+    void addLine(double[] u, double[] v, double u0, double v0, double scale, double[] field,
+            int uOffset, int vOffset, int count)
+    {
+        addLine(u, v, u0, v0, scale, field, uOffset, vOffset, 0, count);
+    }
+
+    @Override
+    boolean vectorized()
+    {
+        return false;
+    }
+
+    /**
+     * Adds the field of one charge at the points in [from, to) of a batch of count points
+     */
+    static void addCharge(double qx, double qy, double qz, double kq, double[] x, double[] y, double[] z,
+            double[] field, int from, int to, int count)
+    {
+        double onCharge = PointCharge.fieldOnCharge(kq);
+
+        for (int i = from; i < to; i++)
+        {
+            double dx = x[i] - qx;
+            double dy = y[i] - qy;
+            double dz = z[i] - qz;
+            double r2 = dx*dx + dy*dy + dz*dz;
+
+            if (r2 == 0)
+            {
+                field[i] += onCharge;
+                field[count + i] += onCharge;
+                field[2*count + i] += onCharge;
+                continue;
+            }
+
+            // E = kq * d / r^3
+            double scale = kq / (r2 * Math.sqrt(r2));
+            field[i] += scale * dx;
+            field[count + i] += scale * dy;
+            field[2*count + i] += scale * dz;
+        }
+    }
+
+    /**
+     * Adds the field of many charges at the points in [from, to) of a batch of count points
+     */
+    static void addCharges(double[] qx, double[] qy, double[] qz, double[] kq, int charges,
+            double[] x, double[] y, double[] z, double[] field, int from, int to, int count)
+    {
+        for (int i = from; i < to; i++)
+        {
+            double ex = 0, ey = 0, ez = 0;
+            double xi = x[i], yi = y[i], zi = z[i];
+
+            for (int j = 0; j < charges; j++)
+            {
+                double dx = xi - qx[j];
+                double dy = yi - qy[j];
+                double dz = zi - qz[j];
+                double r2 = dx*dx + dy*dy + dz*dz;
+
+                if (r2 == 0)
+                {
+                    double onCharge = PointCharge.fieldOnCharge(kq[j]);
+                    ex += onCharge;
+                    ey += onCharge;
+                    ez += onCharge;
+                    continue;
+                }
+
+                double scale = kq[j] / (r2 * Math.sqrt(r2));
+                ex += scale * dx;
+                ey += scale * dy;
+                ez += scale * dz;
+            }
+
+            field[i] += ex;
+            field[count + i] += ey;
+            field[2*count + i] += ez;
+        }
+    }
+
+    /**
+     * Adds the in-plane field of one charge at the points in [from, to) of a planar batch of count points
+     */
+    static void addChargePlanar(double qx, double qy, double dz, double kq, double[] x, double[] y,
+            double[] field, int from, int to, int count)
+    {
+        double onCharge = PointCharge.fieldOnCharge(kq);
+        double dz2 = dz * dz;
+
+        for (int i = from; i < to; i++)
+        {
+            double dx = x[i] - qx;
+            double dy = y[i] - qy;
+            double r2 = dx*dx + dy*dy + dz2;
+
+            if (r2 == 0)
+            {
+                field[i] += onCharge;
+                field[count + i] += onCharge;
+                continue;
+            }
+
+            double scale = kq / (r2 * Math.sqrt(r2));
+            field[i] += scale * dx;
+            field[count + i] += scale * dy;
+        }
+    }
+
+    /**
+     * Adds the field of an infinite line charge at the points in [from, to)
+     */
+    static void addLine(double[] u, double[] v, double u0, double v0, double scale, double[] field,
+            int uOffset, int vOffset, int from, int to)
+    {
+        double onLine = PointCharge.fieldOnCharge(scale);
+
+        for (int i = from; i < to; i++)
+        {
+            double du = u[i] - u0;
+            double dv = v[i] - v0;
+            double rho2 = du*du + dv*dv;
+
+            if (rho2 == 0)
+            {
+                field[uOffset + i] += onLine;
+                field[vOffset + i] += onLine;
+                continue;
+            }
+
+            // E = 2k lambda d / rho^2
+            double s = scale / rho2;
+            field[uOffset + i] += s * du;
+            field[vOffset + i] += s * dv;
+        }
+    }
+}
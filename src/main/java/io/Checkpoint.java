@@ -0,0 +1,668 @@
+package io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import field.Axis;
+import field.ChargeArray;
+import field.Dipole;
+import field.DipoleLine;
+import field.Electrode;
+import field.ElectrodeSet;
+import field.LineCharge;
+import field.PointCharge;
+import field.Quadrupole;
+import field.QuadrupoleLine;
+import particles.ParticleEnsemble;
+import simulation.Simulation;
+import vector.Vector;
+
+/**
+ * The complete state of a simulation at one moment: every particle's position, velocity, mass, radius
+ * and kind, the electrodes, and the clock. Capturing only copies arrays, so it is quick enough to do
+ * between steps; writing can then happen on another thread while the simulation carries on.
+ *
+ * Files are written to a temporary file next to the target and renamed over it once complete, so a
+ * crash mid-write leaves the previous checkpoint intact.
+ *
+ * The file is little-endian:
+ *   0   magic "DEPCKPT" followed by a 0 byte
+ *   8   int     format version, currently 1
+ *   12  int     length of the electrode section in bytes
+ *   16  double  simulated time in seconds
+ *   24  long    steps taken
+ *   32  int     number of particles, n
+ *   36  int     reserved
+ *   40  the electrode section, one record per electrode
+ *       n bytes of particle kinds
+ *       n doubles each of x, y, z, vx, vy, vz, mass and radius
+ *       long    CRC-32 of everything before it
+ * Electrode records start with a tag byte followed by charges as (q, x, y, z) doubles:
+ *   1   PointCharge, one charge
+ *   2   Dipole, the positive then the negative charge
+ *   3   Quadrupole, its four charges in getPointCharges() order
+ *   4   ChargeArray, an int count then that many charges
+ *   5   ElectrodeSet, an int count then that many records
+ * Line electrodes store each line as (density, x, y, z) doubles, a point on the line, followed by the
+ * ordinal of its axis as a byte:
+ *   6   LineCharge, one line
+ *   7   DipoleLine, the positive then the negative line
+ *   8   QuadrupoleLine, its four lines in getLineCharges() order
+ *
+ * @author Ronen Orland
+ */
+public class Checkpoint
+{
+    public final static int HEADER_BYTES = 40;
+    public final static int VERSION = 1;
+
+    private final static byte[] MAGIC = "DEPCKPT\0".getBytes(StandardCharsets.US_ASCII);
+    private final static int CHUNK = 1 << 16;
+
+    private final static byte POINT_CHARGE = 1;
+    private final static byte DIPOLE = 2;
+    private final static byte QUADRUPOLE = 3;
+    private final static byte CHARGE_ARRAY = 4;
+    private final static byte SET = 5;
+    private final static byte LINE_CHARGE = 6;
+    private final static byte DIPOLE_LINE = 7;
+    private final static byte QUADRUPOLE_LINE = 8;
+
+    private final double time;                  // Simulated time in seconds
+    private final long steps;                   // Steps taken
+    private final ParticleEnsemble particles;   // Private copy of the particles
+    private final byte[] electrodes;            // Encoded electrode section
+
+
+    private Checkpoint(double time, long steps, ParticleEnsemble particles, byte[] electrodes)
+    {
+        this.time = time;
+        this.steps = steps;
+        this.particles = particles;
+        this.electrodes = electrodes;
+    }
+
+
+    /**
+     * Copies the state of a simulation. Call between steps.
+     *
+     * @param simulation    the simulation to copy
+     * @param electrodes    the electrodes creating the field
+     * @return              a checkpoint independent of the simulation
+     * @throws IllegalArgumentException     if an electrode isn't a type checkpoints can store
+     */
+    public static Checkpoint capture(Simulation simulation, Collection<? extends Electrode> electrodes)
+    {
+        ByteBuffer section = ByteBuffer.allocate(encodedSize(electrodes)).order(ByteOrder.LITTLE_ENDIAN);
+        for (Electrode electrode : electrodes)
+            encode(electrode, section);
+
+        return new Checkpoint(simulation.getTime(), simulation.getStepCount(),
+                new ParticleEnsemble(simulation.getParticles()), section.array());
+    }
+
+    /**
+     * Writes the checkpoint, replacing the file only once the new one is complete
+     *
+     * @param path  the file to write
+     * @throws IOException  if the file can't be written
+     */
+    public void write(Path path) throws IOException
+    {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        int n = particles.size();
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            Output out = new Output(channel);
+            out.bytes(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(electrodes.length);
+            out.putDouble(time);
+            out.putLong(steps);
+            out.putInt(n);
+            out.putInt(0);
+            out.bytes(electrodes);
+
+            for (int i = 0; i < n; i++)
+                out.put(particles.getKind(i));
+            out.doubles(particles.getXArray(), n);
+            out.doubles(particles.getYArray(), n);
+            out.doubles(particles.getZArray(), n);
+            out.doubles(particles.getVelocityXArray(), n);
+            out.doubles(particles.getVelocityYArray(), n);
+            out.doubles(particles.getVelocityZArray(), n);
+            out.doubles(particles.getMassArray(), n);
+            out.doubles(particles.getRadiusArray(), n);
+            out.finish();
+
+            channel.force(true);
+        }
+
+        try
+        {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a checkpoint file
+     *
+     * @param path  the file to read
+     * @return      the checkpoint
+     * @throws IOException  if the file can't be read, isn't a checkpoint or is damaged
+     */
+    public static Checkpoint read(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            Input in = new Input(channel);
+
+            byte[] magic = new byte[MAGIC.length];
+            in.bytes(magic);
+            if (!Arrays.equals(magic, MAGIC))
+                throw new IOException("Not a checkpoint file");
+
+            int version = in.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported checkpoint version " + version);
+
+            int electrodeBytes = in.getInt();
+            double time = in.getDouble();
+            long steps = in.getLong();
+            int n = in.getInt();
+            in.getInt();
+            if (electrodeBytes < 0 || n < 0 || steps < 0
+                    || HEADER_BYTES + electrodeBytes + 65L * n + 8 != channel.size())
+                throw new IOException("Checkpoint file is damaged");
+
+            byte[] electrodes = new byte[electrodeBytes];
+            in.bytes(electrodes);
+
+            ParticleEnsemble particles = new ParticleEnsemble(n);
+            for (int i = 0; i < n; i++)
+                particles.add(0, 0, 0, 0, 0, in.get());
+            in.doubles(particles.getXArray(), n);
+            in.doubles(particles.getYArray(), n);
+            in.doubles(particles.getZArray(), n);
+            in.doubles(particles.getVelocityXArray(), n);
+            in.doubles(particles.getVelocityYArray(), n);
+            in.doubles(particles.getVelocityZArray(), n);
+            in.doubles(particles.getMassArray(), n);
+            in.doubles(particles.getRadiusArray(), n);
+
+            long expected = in.checksum();
+            if (in.getLong() != expected)
+                throw new IOException("Checkpoint file is damaged");
+
+            Checkpoint checkpoint = new Checkpoint(time, steps, particles, electrodes);
+            try
+            {
+                checkpoint.getElectrodes();     // Fail now rather than on restore if the section is corrupt
+            }
+            catch (IllegalStateException e)
+            {
+                throw new IOException("Checkpoint file is damaged", e);
+            }
+
+            return checkpoint;
+        }
+    }
+
+    /**
+     * Puts the simulation back in the saved state: its particles are replaced with the saved ones and
+     * its clock is set back. The electrodes aren't part of a Simulation, rebuild its forces from
+     * getElectrodes() if they could have changed.
+     *
+     * @param simulation    the simulation to restore
+     */
+    public void restore(Simulation simulation)
+    {
+        simulation.getParticles().copyFrom(particles);
+        simulation.setClock(time, steps);
+        simulation.getIntegrator().reset();
+    }
+
+    /**
+     *
+     * @return  the simulated time in seconds
+     */
+    public double getTime()
+    {
+        return time;
+    }
+
+    /**
+     *
+     * @return  the number of steps taken
+     */
+    public long getStepCount()
+    {
+        return steps;
+    }
+
+    /**
+     *
+     * @return  a new copy of the saved particles
+     */
+    public ParticleEnsemble getParticles()
+    {
+        return new ParticleEnsemble(particles);
+    }
+
+    /**
+     *
+     * @return  new copies of the saved electrodes, in the order they were captured
+     * @throws IllegalStateException    if the electrode section is corrupt
+     */
+    public List<Electrode> getElectrodes()
+    {
+        ByteBuffer section = ByteBuffer.wrap(electrodes).order(ByteOrder.LITTLE_ENDIAN);
+        List<Electrode> decoded = new ArrayList<Electrode>();
+
+        try
+        {
+            while (section.hasRemaining())
+                decoded.add(decode(section));
+        }
+        catch (RuntimeException e)
+        {
+            throw new IllegalStateException("Corrupt electrode section", e);
+        }
+
+        return decoded;
+    }
+
+    /**
+     * Bytes needed to store a collection of electrodes
+     *
+     * @throws IllegalArgumentException     if an electrode isn't a type checkpoints can store
+     */
+    static int encodedSize(Collection<? extends Electrode> electrodes)
+    {
+        int bytes = 0;
+        for (Electrode electrode : electrodes)
+            bytes += encodedSize(electrode);
+
+        return bytes;
+    }
+
+    /**
+     * Bytes needed to store an electrode
+     */
+    private static int encodedSize(Electrode electrode)
+    {
+        if (electrode instanceof PointCharge)
+            return 1 + 32;
+        if (electrode instanceof Dipole)
+            return 1 + 2 * 32;
+        if (electrode instanceof Quadrupole)
+            return 1 + 4 * 32;
+        if (electrode instanceof ChargeArray)
+            return 1 + 4 + ((ChargeArray) electrode).size() * 32;
+        if (electrode instanceof ElectrodeSet)
+        {
+            int bytes = 1 + 4;
+            for (Electrode inner : ((ElectrodeSet) electrode).getElectrodes())
+                bytes += encodedSize(inner);
+
+            return bytes;
+        }
+        if (electrode instanceof LineCharge)
+            return 1 + 33;
+        if (electrode instanceof DipoleLine)
+            return 1 + 2 * 33;
+        if (electrode instanceof QuadrupoleLine)
+            return 1 + 4 * 33;
+
+        throw new IllegalArgumentException("Can't checkpoint a " + electrode.getClass().getSimpleName());
+    }
+
+    private static void encode(Electrode electrode, ByteBuffer out)
+    {
+        if (electrode instanceof PointCharge)
+        {
+            out.put(POINT_CHARGE);
+            encode((PointCharge) electrode, out);
+        }
+        else if (electrode instanceof Dipole)
+        {
+            Dipole dipole = (Dipole) electrode;
+            out.put(DIPOLE);
+            encode(dipole.getPositive(), out);
+            encode(dipole.getNegative(), out);
+        }
+        else if (electrode instanceof Quadrupole)
+        {
+            out.put(QUADRUPOLE);
+            for (PointCharge charge : ((Quadrupole) electrode).getPointCharges())
+                encode(charge, out);
+        }
+        else if (electrode instanceof ChargeArray)
+        {
+            ChargeArray array = (ChargeArray) electrode;
+            out.put(CHARGE_ARRAY);
+            out.putInt(array.size());
+            for (int i = 0; i < array.size(); i++)
+            {
+                out.putDouble(array.getCharge(i));
+                out.putDouble(array.getX(i));
+                out.putDouble(array.getY(i));
+                out.putDouble(array.getZ(i));
+            }
+        }
+        else if (electrode instanceof LineCharge)
+        {
+            out.put(LINE_CHARGE);
+            encode((LineCharge) electrode, out);
+        }
+        else if (electrode instanceof DipoleLine)
+        {
+            DipoleLine dipole = (DipoleLine) electrode;
+            out.put(DIPOLE_LINE);
+            encode(dipole.getPositive(), out);
+            encode(dipole.getNegative(), out);
+        }
+        else if (electrode instanceof QuadrupoleLine)
+        {
+            out.put(QUADRUPOLE_LINE);
+            for (LineCharge line : ((QuadrupoleLine) electrode).getLineCharges())
+                encode(line, out);
+        }
+        else
+        {
+            List<Electrode> inner = ((ElectrodeSet) electrode).getElectrodes();
+            out.put(SET);
+            out.putInt(inner.size());
+            for (Electrode e : inner)
+                encode(e, out);
+        }
+    }
+
+    private static void encode(PointCharge charge, ByteBuffer out)
+    {
+        Vector pos = charge.getPosition();
+        out.putDouble(charge.getCharge());
+        out.putDouble(pos.getX());
+        out.putDouble(pos.getY());
+        out.putDouble(pos.getZ());
+    }
+
+    private static void encode(LineCharge line, ByteBuffer out)
+    {
+        Vector pos = line.getPosition();
+        out.putDouble(line.getDensity());
+        out.putDouble(pos.getX());
+        out.putDouble(pos.getY());
+        out.putDouble(pos.getZ());
+        out.put((byte) line.getAxis().ordinal());
+    }
+
+    private static Electrode decode(ByteBuffer in)
+    {
+        byte tag = in.get();
+        switch (tag)
+        {
+            case POINT_CHARGE:
+                return decodeCharge(in);
+            case DIPOLE:
+                return new Dipole(decodeCharge(in), decodeCharge(in));
+            case QUADRUPOLE:
+            {
+                // Paired into dipoles, which take either sign, so negative quadrupoles read back too
+                PointCharge pos1 = decodeCharge(in);
+                PointCharge pos2 = decodeCharge(in);
+                PointCharge neg1 = decodeCharge(in);
+                PointCharge neg2 = decodeCharge(in);
+
+                return new Quadrupole(new Dipole(pos1, neg1), new Dipole(pos2, neg2));
+            }
+            case CHARGE_ARRAY:
+            {
+                int count = in.getInt();
+                ChargeArray.Builder builder = new ChargeArray.Builder();
+                for (int i = 0; i < count; i++)
+                    builder.add(in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble());
+
+                return builder.build();
+            }
+            case SET:
+            {
+                int count = in.getInt();
+                List<Electrode> inner = new ArrayList<Electrode>();
+                for (int i = 0; i < count; i++)
+                    inner.add(decode(in));
+
+                return new ElectrodeSet(inner);
+            }
+            case LINE_CHARGE:
+                return decodeLine(in);
+            case DIPOLE_LINE:
+                return new DipoleLine(decodeLine(in), decodeLine(in));
+            case QUADRUPOLE_LINE:
+                return new QuadrupoleLine(decodeLine(in), decodeLine(in), decodeLine(in), decodeLine(in));
+            default:
+                throw new IllegalArgumentException("Unknown electrode tag " + tag);
+        }
+    }
+
+    private static PointCharge decodeCharge(ByteBuffer in)
+    {
+        double q = in.getDouble();
+
+        return new PointCharge(q, new Vector(in.getDouble(), in.getDouble(), in.getDouble()));
+    }
+
+    private static LineCharge decodeLine(ByteBuffer in)
+    {
+        double density = in.getDouble();
+        Vector point = new Vector(in.getDouble(), in.getDouble(), in.getDouble());
+
+        return new LineCharge(density, point, Axis.values()[in.get()]);
+    }
+
+    /**
+     * Writes to a channel through a fixed size buffer, keeping a running CRC of everything written
+     */
+    private static class Output
+    {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+
+        Output(FileChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        void put(byte b) throws IOException
+        {
+            room(1);
+            buffer.put(b);
+        }
+
+        void putInt(int i) throws IOException
+        {
+            room(4);
+            buffer.putInt(i);
+        }
+
+        void putLong(long l) throws IOException
+        {
+            room(8);
+            buffer.putLong(l);
+        }
+
+        void putDouble(double d) throws IOException
+        {
+            room(8);
+            buffer.putDouble(d);
+        }
+
+        void bytes(byte[] bytes) throws IOException
+        {
+            for (int pos = 0; pos < bytes.length; )
+            {
+                room(1);
+                int length = Math.min(buffer.remaining(), bytes.length - pos);
+                buffer.put(bytes, pos, length);
+                pos += length;
+            }
+        }
+
+        void doubles(double[] values, int count) throws IOException
+        {
+            for (int pos = 0; pos < count; )
+            {
+                room(8);
+                int length = Math.min(buffer.remaining() / 8, count - pos);
+                buffer.asDoubleBuffer().put(values, pos, length);
+                buffer.position(buffer.position() + 8 * length);
+                pos += length;
+            }
+        }
+
+        /**
+         * Writes the checksum and everything still buffered
+         */
+        void finish() throws IOException
+        {
+            drain();
+            buffer.putLong(crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        private void room(int bytes) throws IOException
+        {
+            if (buffer.remaining() < bytes)
+                drain();
+        }
+
+        private void drain() throws IOException
+        {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Reads from a channel through a fixed size buffer, keeping a running CRC of everything read
+     */
+    private static class Input
+    {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+
+        Input(FileChannel channel)
+        {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        byte get() throws IOException
+        {
+            need(1);
+            return buffer.get();
+        }
+
+        int getInt() throws IOException
+        {
+            need(4);
+            return buffer.getInt();
+        }
+
+        long getLong() throws IOException
+        {
+            need(8);
+            return buffer.getLong();
+        }
+
+        double getDouble() throws IOException
+        {
+            need(8);
+            return buffer.getDouble();
+        }
+
+        void bytes(byte[] bytes) throws IOException
+        {
+            for (int pos = 0; pos < bytes.length; )
+            {
+                need(1);
+                int length = Math.min(buffer.remaining(), bytes.length - pos);
+                buffer.get(bytes, pos, length);
+                pos += length;
+            }
+        }
+
+        void doubles(double[] values, int count) throws IOException
+        {
+            for (int pos = 0; pos < count; )
+            {
+                need(8);
+                int length = Math.min(buffer.remaining() / 8, count - pos);
+                buffer.asDoubleBuffer().get(values, pos, length);
+                buffer.position(buffer.position() + 8 * length);
+                pos += length;
+            }
+        }
+
+        /**
+         *
+         * @return  the CRC of everything read so far
+         */
+        long checksum()
+        {
+            ByteBuffer consumed = buffer.duplicate();
+            consumed.flip();
+            crc.update(consumed);
+            buffer.compact().flip();
+
+            return crc.getValue();
+        }
+
+        /**
+         * Makes sure at least bytes are buffered, checksumming whatever has been consumed
+         */
+        private void need(int bytes) throws IOException
+        {
+            if (buffer.remaining() >= bytes)
+                return;
+
+            ByteBuffer consumed = buffer.duplicate();
+            consumed.flip();
+            crc.update(consumed);
+            buffer.compact();
+
+            while (buffer.position() < bytes)
+                if (channel.read(buffer) < 0)
+                    throw new EOFException("Checkpoint file is truncated");
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import field.Electrode;
+import simulation.Simulation;
+import simulation.StepListener;
+
+/**
+ * Saves a checkpoint of a simulation every so many steps. The state is copied between steps on the
+ * simulation thread, which only costs a few array copies, and written to disk on a background thread
+ * while the simulation carries on. If the previous checkpoint is still being written when the next is
+ * due, the new one is skipped rather than making the simulation wait.
+ *
+ * @author Ronen Orland
+ */
+public class CheckpointWriter implements StepListener, Closeable
+{
+    private final Path path;                    // File to write, replaced each time
+    private final int interval;                 // Steps between checkpoints
+    private final List<Electrode> electrodes;   // Electrodes saved with each checkpoint
+    private final ExecutorService executor;     // Background writing thread
+    private Future<?> pending;                  // Checkpoint being written
+    private long written;                       // Checkpoints handed to the writer
+    private long skipped;                       // Checkpoints skipped because a write was in progress
+    private IOException failure;                // First error from the writer
+
+
+    /**
+     * Creates a writer
+     *
+     * @param path          the file to write, replaced by each new checkpoint
+     * @param interval      number of steps between checkpoints
+     * @param electrodes    the electrodes creating the field, saved with each checkpoint
+     * @throws IllegalArgumentException     if interval isn't positive or an electrode isn't a type
+     *                                      checkpoints can store
+     */
+    public CheckpointWriter(Path path, int interval, Collection<? extends Electrode> electrodes)
+    {
+        if (interval < 1)
+            throw new IllegalArgumentException("Interval must be positive");
+        Checkpoint.encodedSize(electrodes);     // Fail now rather than part way through a run
+
+        this.path = path;
+        this.interval = interval;
+        this.electrodes = new ArrayList<Electrode>(electrodes);
+        this.executor = Executors.newSingleThreadExecutor(r ->
+        {
+            Thread thread = new Thread(r, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Saves a checkpoint if the step just taken is a multiple of the interval
+     */
+    @Override
+    public void stepped(Simulation simulation)
+    {
+        if (simulation.getStepCount() % interval == 0)
+            checkpoint(simulation);
+    }
+
+    /**
+     * Copies the simulation's state now and writes it in the background
+     *
+     * @param simulation    the simulation to save
+     * @return              true if started, false if skipped because the last one is still being written
+     * @throws IllegalStateException    if the writer is closed
+     */
+    public boolean checkpoint(Simulation simulation)
+    {
+        if (executor.isShutdown())
+            throw new IllegalStateException("Checkpoint writer is closed");
+
+        if (pending != null)
+        {
+            if (!pending.isDone())
+            {
+                skipped++;
+                return false;
+            }
+            collect();
+        }
+
+        Checkpoint checkpoint = Checkpoint.capture(simulation, electrodes);
+        pending = executor.submit(() ->
+        {
+            checkpoint.write(path);
+            return null;
+        });
+        written++;
+
+        return true;
+    }
+
+    /**
+     * Waits for the checkpoint being written, if any, to finish
+     *
+     * @throws IOException  if any checkpoint failed to write
+     */
+    public void flush() throws IOException
+    {
+        if (pending != null)
+            collect();
+
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * Finishes the checkpoint being written and stops the background thread
+     *
+     * @throws IOException  if any checkpoint failed to write
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     *
+     * @return  the number of checkpoints started
+     */
+    public long getWrittenCount()
+    {
+        return written;
+    }
+
+    /**
+     *
+     * @return  the number of checkpoints skipped because the previous one was still being written
+     */
+    public long getSkippedCount()
+    {
+        return skipped;
+    }
+
+    /**
+     *
+     * @return  the file checkpoints are written to
+     */
+    public Path getPath()
+    {
+        return path;
+    }
+
+    /**
+     * Waits for the pending write and keeps its error, if any
+     */
+    private void collect()
+    {
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                pending.get();
+                break;
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+            catch (ExecutionException e)
+            {
+                if (failure == null)
+                    failure = e.getCause() instanceof IOException ? (IOException) e.getCause()
+                            : new IOException("Checkpoint failed", e.getCause());
+                break;
+            }
+        }
+
+        pending = null;
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+}
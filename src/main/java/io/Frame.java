@@ -0,0 +1,116 @@
+package io;
+
+import particles.ParticleEnsemble;
+
+/**
+ * A snapshot of the particle positions at one step of a simulation
+ *
+ * @author Ronen Orland
+ */
+public class Frame
+{
+    private long step;                      // Step the snapshot was taken after
+    private double time;                    // Simulated time in seconds
+    private int count;                      // Number of particles
+    private double[] x = new double[0];     // Positions
+    private double[] y = new double[0];
+    private double[] z = new double[0];
+
+
+    /**
+     * Copies the positions of an ensemble into this frame, reusing its arrays when they are large enough
+     *
+     * @param particles     the ensemble to copy
+     * @param step          the step number
+     * @param time          the simulated time in seconds
+     */
+    void capture(ParticleEnsemble particles, long step, double time)
+    {
+        resize(particles.size());
+        System.arraycopy(particles.getXArray(), 0, x, 0, count);
+        System.arraycopy(particles.getYArray(), 0, y, 0, count);
+        System.arraycopy(particles.getZArray(), 0, z, 0, count);
+
+        this.step = step;
+        this.time = time;
+    }
+
+    /**
+     * Sets the number of particles, growing the arrays if needed
+     */
+    void resize(int count)
+    {
+        if (x.length < count)
+        {
+            x = new double[count];
+            y = new double[count];
+            z = new double[count];
+        }
+
+        this.count = count;
+    }
+
+    void setStep(long step)
+    {
+        this.step = step;
+    }
+
+    void setTime(double time)
+    {
+        this.time = time;
+    }
+
+    /**
+     *
+     * @return  the step the snapshot was taken after
+     */
+    public long getStep()
+    {
+        return step;
+    }
+
+    /**
+     *
+     * @return  the simulated time in seconds
+     */
+    public double getTime()
+    {
+        return time;
+    }
+
+    /**
+     *
+     * @return  the number of particles
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     *
+     * @return  the x-coordinates, only the first size() entries are used
+     */
+    public double[] getXArray()
+    {
+        return x;
+    }
+
+    /**
+     *
+     * @return  the y-coordinates, only the first size() entries are used
+     */
+    public double[] getYArray()
+    {
+        return y;
+    }
+
+    /**
+     *
+     * @return  the z-coordinates, only the first size() entries are used
+     */
+    public double[] getZArray()
+    {
+        return z;
+    }
+}
@@ -0,0 +1,101 @@
+package io;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free queue for exactly one producer thread and one consumer thread. Neither side
+ * ever blocks: offer() fails when the queue is full and poll() returns null when it is empty.
+ *
+ * The producer only writes the tail and the consumer only writes the head, each with a release store
+ * the other side reads with an acquire load, so no compare-and-set is needed.
+ *
+ * @author Ronen Orland
+ */
+public class SpscRingBuffer<T>
+{
+    private final Object[] slots;           // Power of two sized storage
+    private final int mask;                 // slots.length - 1
+    private final AtomicLong head = new AtomicLong();   // Next slot to take, written by the consumer
+    private final AtomicLong tail = new AtomicLong();   // Next slot to fill, written by the producer
+
+
+    /**
+     * Creates an empty queue
+     *
+     * @param capacity  the minimum number of elements the queue can hold, rounded up to a power of two
+     * @throws IllegalArgumentException     if capacity isn't positive or is too large
+     */
+    public SpscRingBuffer(int capacity)
+    {
+        if (capacity < 1 || capacity > (1 << 30))
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+
+        slots = new Object[size];
+        mask = size - 1;
+    }
+
+
+    /**
+     * Adds an element. Only call from the producer thread.
+     *
+     * @param element   the element to add
+     * @return          true if added, false if the queue was full
+     * @throws IllegalArgumentException     if element is null
+     */
+    public boolean offer(T element)
+    {
+        if (element == null)
+            throw new IllegalArgumentException("Can't queue null");
+
+        long t = tail.get();
+        if (t - head.get() == slots.length)
+            return false;
+
+        slots[(int) t & mask] = element;
+        tail.lazySet(t + 1);
+
+        return true;
+    }
+
+    /**
+     * Takes the oldest element. Only call from the consumer thread.
+     *
+     * @return  the oldest element, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll()
+    {
+        long h = head.get();
+        if (h == tail.get())
+            return null;
+
+        int slot = (int) h & mask;
+        T element = (T) slots[slot];
+        slots[slot] = null;
+        head.lazySet(h + 1);
+
+        return element;
+    }
+
+    /**
+     *
+     * @return  the number of elements queued, exact only when neither side is running
+     */
+    public int size()
+    {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     *
+     * @return  the number of elements the queue can hold
+     */
+    public int capacity()
+    {
+        return slots.length;
+    }
+}
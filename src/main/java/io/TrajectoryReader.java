@@ -0,0 +1,185 @@
+package io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads trajectory files written by TrajectoryRecorder, one frame at a time. A file cut short, for
+ * example by a crash, reads up to its last complete frame.
+ *
+ * @author Ronen Orland
+ */
+public class TrajectoryReader implements Closeable
+{
+    private final InputStream in;           // Decompressed frame stream
+    private final int interval;             // Steps between frames
+    private final double quantum;           // Rounding step for positions in meters
+    private long[] previous = new long[0];  // Rounded positions in the last frame, x then y then z
+    private boolean finished;               // Reached the end of the trajectory
+
+
+    /**
+     * Opens a trajectory file
+     *
+     * @param path  the file to read
+     * @throws IOException  if the file can't be read or isn't a trajectory file
+     */
+    public TrajectoryReader(Path path) throws IOException
+    {
+        InputStream file = Files.newInputStream(path);
+        try
+        {
+            byte[] raw = new byte[TrajectoryRecorder.HEADER_BYTES];
+            int read = 0;
+            while (read < raw.length)
+            {
+                int n = file.read(raw, read, raw.length - read);
+                if (n < 0)
+                    throw new IOException("File is too short to be a trajectory");
+                read += n;
+            }
+
+            ByteBuffer header = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+            byte[] magic = new byte[TrajectoryRecorder.MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, TrajectoryRecorder.MAGIC))
+                throw new IOException("Not a trajectory file");
+
+            int version = header.getInt();
+            if (version != TrajectoryRecorder.VERSION)
+                throw new IOException("Unsupported trajectory version " + version);
+
+            interval = header.getInt();
+            quantum = header.getDouble();
+        }
+        catch (IOException e)
+        {
+            file.close();
+            throw e;
+        }
+
+        in = new BufferedInputStream(new InflaterInputStream(file, new Inflater(), 1 << 16), 1 << 16);
+    }
+
+
+    /**
+     * Reads the next frame
+     *
+     * @return  the next frame, or null at the end of the trajectory
+     * @throws IOException  if the file can't be read or is corrupt
+     */
+    public Frame next() throws IOException
+    {
+        return next(new Frame());
+    }
+
+    /**
+     * Reads the next frame into an existing frame, reusing its arrays
+     *
+     * @param frame     the frame to fill
+     * @return          frame, or null at the end of the trajectory
+     * @throws IOException  if the file can't be read or is corrupt
+     */
+    public Frame next(Frame frame) throws IOException
+    {
+        if (finished)
+            return null;
+
+        try
+        {
+            int tag = in.read();
+            if (tag < 0 || tag == TrajectoryRecorder.END)
+            {
+                finished = true;
+                return null;
+            }
+            if (tag != TrajectoryRecorder.KEY_FRAME && tag != TrajectoryRecorder.DELTA_FRAME)
+                throw new IOException("Corrupt trajectory frame");
+
+            boolean key = tag == TrajectoryRecorder.KEY_FRAME;
+            long step = VarInt.readUnsigned(in);
+            long time = 0;
+            for (int b = 0; b < 8; b++)
+            {
+                int next = in.read();
+                if (next < 0)
+                    throw new EOFException();
+                time |= (long) next << (8 * b);
+            }
+
+            long count = VarInt.readUnsigned(in);
+            if (count > Integer.MAX_VALUE / 3)
+                throw new IOException("Corrupt trajectory frame");
+            int n = (int) count;
+            if (!key && previous.length < 3 * n)
+                throw new IOException("Delta frame without a key frame");
+            if (previous.length < 3 * n)
+                previous = new long[3 * n];
+
+            frame.resize(n);
+            frame.setStep(step);
+            frame.setTime(Double.longBitsToDouble(time));
+            decodeAxis(frame.getXArray(), n, 0, key);
+            decodeAxis(frame.getYArray(), n, n, key);
+            decodeAxis(frame.getZArray(), n, 2 * n, key);
+
+            return frame;
+        }
+        catch (EOFException e)
+        {
+            // Cut off partway through a frame
+            finished = true;
+            return null;
+        }
+    }
+
+    /**
+     *
+     * @return  the number of steps between frames
+     */
+    public int getInterval()
+    {
+        return interval;
+    }
+
+    /**
+     *
+     * @return  the rounding step for positions in meters
+     */
+    public double getQuantum()
+    {
+        return quantum;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        in.close();
+    }
+
+    /**
+     * Reads one coordinate of every particle
+     */
+    private void decodeAxis(double[] values, int count, int offset, boolean key) throws IOException
+    {
+        for (int i = 0; i < count; i++)
+        {
+            long rounded = VarInt.readSigned(in);
+            if (!key)
+                rounded += previous[offset + i];
+
+            previous[offset + i] = rounded;
+            values[i] = rounded * quantum;
+        }
+    }
+}
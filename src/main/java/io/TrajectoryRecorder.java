@@ -0,0 +1,354 @@
+package io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import particles.ParticleEnsemble;
+import simulation.Simulation;
+import simulation.StepListener;
+
+/**
+ * Records particle trajectories to a compact binary file without slowing the simulation down. The
+ * simulation thread copies positions into a pooled frame and hands it to a background writer through
+ * a lock-free queue; it never waits on the disk. If the writer falls so far behind that every pooled
+ * frame is queued, new frames are dropped and counted rather than blocking.
+ *
+ * Positions are rounded to a multiple of a quantum (1 nm by default) and each particle's position is
+ * stored as the difference from its position in the previous frame, as a zigzag variable length
+ * integer, so a particle that moved a few microns takes a few bytes per axis. Differences are taken
+ * between the rounded values, so rounding errors don't accumulate. The frames are then compressed.
+ *
+ * The file starts with a 32 byte little-endian header:
+ *   0   magic "DEPTRAJ" followed by a 0 byte
+ *   8   int     format version, currently 1
+ *   12  int     steps between frames
+ *   16  double  quantum in meters
+ *   24  long    reserved
+ * followed by a Deflate (zlib) stream of frames:
+ *   byte        1 for a key frame, 0 for a delta frame, 2 for the end of the trajectory
+ *   varint      step number
+ *   8 bytes     simulated time, a little-endian double
+ *   varint      number of particles
+ *   varints     x of every particle, then y, then z, zigzag coded
+ * Key frames store rounded positions directly and are written first and whenever the number of
+ * particles changes. Delta frames store the change since the previous frame.
+ *
+ * @author Ronen Orland
+ */
+public class TrajectoryRecorder implements StepListener, Closeable
+{
+    public final static int HEADER_BYTES = 32;
+    public final static int VERSION = 1;
+    public final static double DEFAULT_QUANTUM = 1e-9;     // 1 nm
+    public final static int DEFAULT_BUFFER = 64;           // Frames in flight
+
+    final static byte[] MAGIC = "DEPTRAJ\0".getBytes(StandardCharsets.US_ASCII);
+    final static int DELTA_FRAME = 0;
+    final static int KEY_FRAME = 1;
+    final static int END = 2;
+
+    private final int interval;                 // Steps between frames
+    private final double quantum;               // Rounding step for positions in meters
+    private final int bufferFrames;             // Most frames that can exist at once
+    private final SpscRingBuffer<Frame> filled; // Frames waiting to be written
+    private final SpscRingBuffer<Frame> free;   // Written frames ready for reuse
+    private final OutputStream out;             // Compressed frame stream
+    private final Thread writer;                // Background writing thread
+
+    // Touched only by the simulation thread
+    private int allocated;                      // Frames created so far
+    private long recorded;                      // Frames handed to the writer
+    private long dropped;                       // Frames dropped because the writer fell behind
+
+    // Touched only by the writer thread
+    private long[] previous = new long[0];      // Rounded positions in the last frame, x then y then z
+    private int previousCount = -1;             // Particles in the last frame, -1 before the first
+    private byte[] buffer = new byte[256];      // Encoded frame
+
+    private volatile boolean closed;            // No more frames will be queued
+    private volatile IOException failure;       // Error that stopped the writer
+
+
+    /**
+     * Creates a recorder writing every interval steps, with positions rounded to 1 nm
+     *
+     * @param path      the file to write, replaced if it exists
+     * @param interval  number of steps between frames
+     * @throws IOException  if the file can't be created
+     */
+    public TrajectoryRecorder(Path path, int interval) throws IOException
+    {
+        this(path, interval, DEFAULT_QUANTUM, DEFAULT_BUFFER);
+    }
+
+    /**
+     * Creates a recorder
+     *
+     * @param path          the file to write, replaced if it exists
+     * @param interval      number of steps between frames
+     * @param quantum       positions are rounded to a multiple of this many meters
+     * @param bufferFrames  most frames queued or being written at once before new frames are dropped
+     * @throws IOException  if the file can't be created
+     * @throws IllegalArgumentException     if interval, quantum or bufferFrames isn't positive
+     */
+    public TrajectoryRecorder(Path path, int interval, double quantum, int bufferFrames) throws IOException
+    {
+        if (interval < 1)
+            throw new IllegalArgumentException("Interval must be positive");
+        if (!(quantum > 0) || Double.isInfinite(quantum))
+            throw new IllegalArgumentException("Quantum must be positive");
+        if (bufferFrames < 1)
+            throw new IllegalArgumentException("Buffer must hold at least one frame");
+
+        this.interval = interval;
+        this.quantum = quantum;
+        this.bufferFrames = bufferFrames;
+        filled = new SpscRingBuffer<Frame>(bufferFrames);
+        free = new SpscRingBuffer<Frame>(bufferFrames);
+
+        OutputStream file = Files.newOutputStream(path);
+        try
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(interval);
+            header.putDouble(quantum);
+            header.putLong(0);
+            file.write(header.array());
+        }
+        catch (IOException e)
+        {
+            file.close();
+            throw e;
+        }
+
+        out = new DeflaterOutputStream(new BufferedOutputStream(file, 1 << 16),
+                new Deflater(Deflater.BEST_SPEED), 1 << 16);
+
+        writer = new Thread(this::write, "trajectory-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+
+    /**
+     * Records a frame if the step just taken is a multiple of the interval
+     */
+    @Override
+    public void stepped(Simulation simulation)
+    {
+        long step = simulation.getStepCount();
+        if (step % interval == 0)
+            record(simulation.getParticles(), step, simulation.getTime());
+    }
+
+    /**
+     * Queues a frame of the current positions for writing. Call from a single thread only. Never blocks.
+     *
+     * @param particles     the particles to record
+     * @param step          the step number
+     * @param time          the simulated time in seconds
+     * @return              true if queued, false if dropped because the writer is behind or has failed
+     */
+    public boolean record(ParticleEnsemble particles, long step, double time)
+    {
+        if (closed)
+            throw new IllegalStateException("Recorder is closed");
+
+        if (failure != null)
+        {
+            dropped++;
+            return false;
+        }
+
+        Frame frame = free.poll();
+        if (frame == null)
+        {
+            if (allocated == bufferFrames)
+            {
+                dropped++;
+                return false;
+            }
+
+            frame = new Frame();
+            allocated++;
+        }
+
+        frame.capture(particles, step, time);
+        filled.offer(frame);        // Never full, there are only bufferFrames frames
+        recorded++;
+        LockSupport.unpark(writer);
+
+        return true;
+    }
+
+    /**
+     * Waits for every queued frame to be written, then closes the file
+     *
+     * @throws IOException  if writing failed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (closed)
+            return;
+
+        closed = true;
+        LockSupport.unpark(writer);
+
+        boolean interrupted = false;
+        while (writer.isAlive())
+        {
+            try
+            {
+                writer.join();
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     *
+     * @return  the number of frames handed to the writer
+     */
+    public long getRecordedFrames()
+    {
+        return recorded;
+    }
+
+    /**
+     *
+     * @return  the number of frames dropped because the writer fell behind
+     */
+    public long getDroppedFrames()
+    {
+        return dropped;
+    }
+
+    /**
+     *
+     * @return  the number of steps between frames
+     */
+    public int getInterval()
+    {
+        return interval;
+    }
+
+    /**
+     *
+     * @return  the rounding step for positions in meters
+     */
+    public double getQuantum()
+    {
+        return quantum;
+    }
+
+    /**
+     * Body of the writer thread
+     */
+    private void write()
+    {
+        try
+        {
+            while (true)
+            {
+                Frame frame = filled.poll();
+                if (frame == null)
+                {
+                    if (!closed)
+                    {
+                        LockSupport.parkNanos(this, 1000000);
+                        continue;
+                    }
+
+                    // Everything queued before close() is visible once closed is seen
+                    frame = filled.poll();
+                    if (frame == null)
+                        break;
+                }
+
+                encode(frame);
+                free.offer(frame);
+            }
+
+            out.write(END);
+            out.close();
+        }
+        catch (IOException e)
+        {
+            failure = e;
+            try
+            {
+                out.close();
+            }
+            catch (IOException ignored)
+            {
+
+            }
+        }
+    }
+
+    /**
+     * Writes one frame to the compressed stream
+     */
+    private void encode(Frame frame) throws IOException
+    {
+        int count = frame.size();
+        boolean key = count != previousCount;
+        if (key && previous.length < 3 * count)
+            previous = new long[3 * count];
+
+        int needed = 32 + 3 * count * VarInt.MAX_BYTES;
+        if (buffer.length < needed)
+            buffer = new byte[needed];
+
+        int pos = 0;
+        buffer[pos++] = (byte) (key ? KEY_FRAME : DELTA_FRAME);
+        pos = VarInt.writeUnsigned(frame.getStep(), buffer, pos);
+        long time = Double.doubleToRawLongBits(frame.getTime());
+        for (int b = 0; b < 8; b++)
+            buffer[pos++] = (byte) (time >>> (8 * b));
+        pos = VarInt.writeUnsigned(count, buffer, pos);
+
+        pos = encodeAxis(frame.getXArray(), count, 0, key, pos);
+        pos = encodeAxis(frame.getYArray(), count, count, key, pos);
+        pos = encodeAxis(frame.getZArray(), count, 2 * count, key, pos);
+
+        out.write(buffer, 0, pos);
+        previousCount = count;
+    }
+
+    /**
+     * Writes one coordinate of every particle, as differences from the last frame unless key is set
+     */
+    private int encodeAxis(double[] values, int count, int offset, boolean key, int pos)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            long rounded = Math.round(values[i] / quantum);
+            pos = VarInt.writeSigned(key ? rounded : rounded - previous[offset + i], buffer, pos);
+            previous[offset + i] = rounded;
+        }
+
+        return pos;
+    }
+}
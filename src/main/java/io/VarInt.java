@@ -0,0 +1,94 @@
+package io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Variable length integer coding. Values are zigzag mapped so small negative numbers stay small, then
+ * written 7 bits per byte, low bits first, with the high bit set on every byte but the last.
+ *
+ * @author Ronen Orland
+ */
+final class VarInt
+{
+    final static int MAX_BYTES = 10;       // Longest encoding of a long
+
+
+    private VarInt()
+    {
+
+    }
+
+
+    /**
+     * Writes a signed value
+     *
+     * @param value     the value to write
+     * @param out       the buffer to write into, with at least MAX_BYTES free from pos
+     * @param pos       where to start writing
+     * @return          the position after the value
+     */
+    static int writeSigned(long value, byte[] out, int pos)
+    {
+        return writeUnsigned((value << 1) ^ (value >> 63), out, pos);
+    }
+
+    /**
+     * Writes a value as unsigned
+     *
+     * @param value     the value to write
+     * @param out       the buffer to write into, with at least MAX_BYTES free from pos
+     * @param pos       where to start writing
+     * @return          the position after the value
+     */
+    static int writeUnsigned(long value, byte[] out, int pos)
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+
+        return pos;
+    }
+
+    /**
+     * Reads a value written by writeSigned
+     *
+     * @param in    the stream to read from
+     * @return      the value
+     * @throws IOException  if the stream ends or the value is malformed
+     */
+    static long readSigned(InputStream in) throws IOException
+    {
+        long raw = readUnsigned(in);
+
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    /**
+     * Reads a value written by writeUnsigned
+     *
+     * @param in    the stream to read from
+     * @return      the value
+     * @throws IOException  if the stream ends or the value is malformed
+     */
+    static long readUnsigned(InputStream in) throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            int b = in.read();
+            if (b < 0)
+                throw new EOFException();
+
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+
+        throw new IOException("Malformed variable length integer");
+    }
+}
@@ -0,0 +1,315 @@
+package particles;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A spatial index over the particles of an ensemble for neighbor and contact queries. Space is cut
+ * into cubic cells at least as wide as the largest possible contact distance (twice the largest
+ * radius), so every contact of a particle lies in its own cell or one of the 26 around it, and finding
+ * all contacts takes time linear in the number of particles.
+ *
+ * Cells are hashed into a table rather than stored as a dense grid, so particles can spread over any
+ * volume. Each bucket holds a doubly linked list of the particles in it, which lets update() move only
+ * the particles that crossed into another cell since the last call.
+ *
+ * Indices match the ensemble's. Call rebuild() after particles are removed or added, update() is
+ * enough after they only move. A change in the number of particles is picked up automatically.
+ *
+ * @author Ronen Orland
+ */
+public class CellList
+{
+    private static final int EMPTY = -1;
+
+    /**
+     * Action taken on a pair of particles
+     */
+    @FunctionalInterface
+    public static interface PairAction
+    {
+        /**
+         * @param i     index of the first particle
+         * @param j     index of the second particle, always greater than i
+         */
+        public void accept(int i, int j);
+    }
+
+    private final ParticleEnsemble particles;   // The particles being indexed
+    private final double fixedSize;             // Cell size given by the user, 0 to track the radii
+    private double cellSize;                    // Width of a cell
+    private int[] head = new int[0];            // First particle in each bucket
+    private int[] next = new int[0];            // Next particle in the same bucket
+    private int[] prev = new int[0];            // Previous particle in the same bucket
+    private int[] cx = new int[0];              // Cell coordinates of each particle
+    private int[] cy = new int[0];
+    private int[] cz = new int[0];
+    private int indexed;                        // Number of particles in the index
+    private int mask;                           // Table size - 1
+
+
+    /**
+     * Creates an index with cells twice as wide as the largest particle radius
+     *
+     * @param particles     the particles to index
+     */
+    public CellList(ParticleEnsemble particles)
+    {
+        this.particles = particles;
+        this.fixedSize = 0;
+        rebuild();
+    }
+
+    /**
+     * Creates an index with a given cell size. Neighbor queries work for any range, but are fastest
+     * when the range is no more than the cell size.
+     *
+     * @param particles     the particles to index
+     * @param cellSize      width of a cell
+     * @throws IllegalArgumentException     if cellSize is not positive
+     */
+    public CellList(ParticleEnsemble particles, double cellSize)
+    {
+        if (!(cellSize > 0) || Double.isInfinite(cellSize))
+            throw new IllegalArgumentException("Cell size must be positive");
+
+        this.particles = particles;
+        this.fixedSize = cellSize;
+        rebuild();
+    }
+
+
+    /**
+     * Indexes every particle from scratch
+     */
+    public void rebuild()
+    {
+        int n = particles.size();
+        cellSize = fixedSize > 0 ? fixedSize : naturalSize();
+
+        int tableSize = Integer.highestOneBit(Math.max(16, 2 * n - 1)) << 1;
+        if (head.length != tableSize)
+            head = new int[tableSize];
+        Arrays.fill(head, EMPTY);
+        mask = tableSize - 1;
+
+        if (next.length < n)
+        {
+            int capacity = Math.max(n, next.length + (next.length >> 1));
+            next = new int[capacity];
+            prev = new int[capacity];
+            cx = new int[capacity];
+            cy = new int[capacity];
+            cz = new int[capacity];
+        }
+
+        double[] x = particles.getXArray();
+        double[] y = particles.getYArray();
+        double[] z = particles.getZArray();
+        for (int i = 0; i < n; i++)
+        {
+            cx[i] = cell(x[i]);
+            cy[i] = cell(y[i]);
+            cz[i] = cell(z[i]);
+            link(i);
+        }
+        indexed = n;
+    }
+
+    /**
+     * Brings the index up to date with the particles' current positions. Only particles that moved
+     * to another cell are touched. Falls back to a full rebuild if the number of particles changed or a
+     * particle grew too large for the cells.
+     */
+    public void update()
+    {
+        int n = particles.size();
+        if (n != indexed || (fixedSize == 0 && naturalSize() > cellSize))
+        {
+            rebuild();
+            return;
+        }
+
+        double[] x = particles.getXArray();
+        double[] y = particles.getYArray();
+        double[] z = particles.getZArray();
+        for (int i = 0; i < n; i++)
+        {
+            int ix = cell(x[i]);
+            int iy = cell(y[i]);
+            int iz = cell(z[i]);
+            if (ix == cx[i] && iy == cy[i] && iz == cz[i])
+                continue;
+
+            unlink(i);
+            cx[i] = ix;
+            cy[i] = iy;
+            cz[i] = iz;
+            link(i);
+        }
+    }
+
+    /**
+     * Visits every particle within a distance of a point
+     *
+     * @param x         x-coordinate of the point
+     * @param y         y-coordinate of the point
+     * @param z         z-coordinate of the point
+     * @param range     distance to search
+     * @param action    called with the index of each particle found
+     */
+    public void forEachWithin(double x, double y, double z, double range, IntConsumer action)
+    {
+        double[] px = particles.getXArray();
+        double[] py = particles.getYArray();
+        double[] pz = particles.getZArray();
+        double range2 = range * range;
+        int reach = (int) Math.ceil(range / cellSize);
+        int ix = cell(x);
+        int iy = cell(y);
+        int iz = cell(z);
+
+        for (int a = ix - reach; a <= ix + reach; a++)
+            for (int b = iy - reach; b <= iy + reach; b++)
+                for (int c = iz - reach; c <= iz + reach; c++)
+                    for (int j = head[hash(a, b, c)]; j != EMPTY; j = next[j])
+                    {
+                        // Other cells can share the bucket
+                        if (cx[j] != a || cy[j] != b || cz[j] != c)
+                            continue;
+
+                        double dx = px[j] - x;
+                        double dy = py[j] - y;
+                        double dz = pz[j] - z;
+                        if (dx * dx + dy * dy + dz * dz <= range2)
+                            action.accept(j);
+                    }
+    }
+
+    /**
+     * Visits every other particle within a distance of a particle
+     *
+     * @param index     index of the particle
+     * @param range     distance to search, measured between centers
+     * @param action    called with the index of each neighbor
+     */
+    public void forEachNeighbor(int index, double range, IntConsumer action)
+    {
+        forEachWithin(particles.getX(index), particles.getY(index), particles.getZ(index), range, j ->
+        {
+            if (j != index)
+                action.accept(j);
+        });
+    }
+
+    /**
+     * Visits every pair of particles that touch or overlap, that is whose centers are closer than the
+     * sum of their radii. Each pair is visited once. Only valid while cells are at least as wide as
+     * twice the largest radius, which is always true unless a smaller cell size was given.
+     *
+     * @param action    called with each touching pair
+     */
+    public void forEachContact(PairAction action)
+    {
+        double[] x = particles.getXArray();
+        double[] y = particles.getYArray();
+        double[] z = particles.getZArray();
+        double[] radius = particles.getRadiusArray();
+
+        for (int i = 0; i < indexed; i++)
+        {
+            for (int a = cx[i] - 1; a <= cx[i] + 1; a++)
+                for (int b = cy[i] - 1; b <= cy[i] + 1; b++)
+                    for (int c = cz[i] - 1; c <= cz[i] + 1; c++)
+                        for (int j = head[hash(a, b, c)]; j != EMPTY; j = next[j])
+                        {
+                            if (j <= i || cx[j] != a || cy[j] != b || cz[j] != c)
+                                continue;
+
+                            double dx = x[j] - x[i];
+                            double dy = y[j] - y[i];
+                            double dz = z[j] - z[i];
+                            double reach = radius[i] + radius[j];
+                            if (dx * dx + dy * dy + dz * dz < reach * reach)
+                                action.accept(i, j);
+                        }
+        }
+    }
+
+    /**
+     *
+     * @return  the width of a cell
+     */
+    public double getCellSize()
+    {
+        return cellSize;
+    }
+
+    /**
+     *
+     * @return  the number of particles in the index
+     */
+    public int size()
+    {
+        return indexed;
+    }
+
+    /**
+     * Cell size needed to catch contacts between the current particles
+     */
+    private double naturalSize()
+    {
+        double[] radius = particles.getRadiusArray();
+        double max = 0;
+        for (int i = 0; i < particles.size(); i++)
+            max = Math.max(max, radius[i]);
+
+        // Any positive size works when nothing can touch
+        return max > 0 ? 2 * max : 1;
+    }
+
+    /**
+     * Cell coordinate of a position along one axis
+     */
+    private int cell(double position)
+    {
+        return (int) Math.floor(position / cellSize);
+    }
+
+    /**
+     * Bucket holding a cell
+     */
+    private int hash(int a, int b, int c)
+    {
+        return ((a * 73856093) ^ (b * 19349663) ^ (c * 83492791)) & mask;
+    }
+
+    /**
+     * Puts a particle at the front of its cell's bucket
+     */
+    private void link(int i)
+    {
+        int bucket = hash(cx[i], cy[i], cz[i]);
+        int first = head[bucket];
+
+        prev[i] = EMPTY;
+        next[i] = first;
+        if (first != EMPTY)
+            prev[first] = i;
+        head[bucket] = i;
+    }
+
+    /**
+     * Takes a particle out of its cell's bucket
+     */
+    private void unlink(int i)
+    {
+        if (prev[i] != EMPTY)
+            next[prev[i]] = next[i];
+        else
+            head[hash(cx[i], cy[i], cz[i])] = next[i];
+
+        if (next[i] != EMPTY)
+            prev[next[i]] = prev[i];
+    }
+}
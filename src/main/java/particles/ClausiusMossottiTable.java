@@ -0,0 +1,181 @@
+package particles;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import vector.Complex;
+
+/**
+ * The Clausius-Mossotti factor K = (e_p - e_m) / (e_p + 2 e_m) of a particle model in a medium,
+ * precomputed at log-spaced frequencies. Re[K] sets the strength and direction of the DEP force, so
+ * stepping a particle only needs a table lookup instead of complex arithmetic.
+ *
+ * Tables are immutable. get() shares one table per particle model and medium, so every particle of
+ * the same type uses the same table.
+ *
+ * @author Ronen Orland
+ */
+public class ClausiusMossottiTable
+{
+    public final static double DEFAULT_MIN_FREQUENCY = 1e3;    // 1kHz
+    public final static double DEFAULT_MAX_FREQUENCY = 1e9;    // 1GHz
+    public final static int DEFAULT_POINTS = 601;              // 100 per decade
+
+    // Shared tables, keyed on model and medium
+    private final static ConcurrentHashMap<Key, ClausiusMossottiTable> TABLES = new ConcurrentHashMap<>();
+
+    private final double logMin;        // log10 of the lowest frequency
+    private final double logStep;       // log10 spacing between frequencies
+    private final double[] real;        // Re[K] at each frequency
+    private final double[] imaginary;   // Im[K] at each frequency
+
+
+    /**
+     * Builds a table for a particle model and medium
+     *
+     * @param model         the particle's dielectric model
+     * @param medium        the medium the particle is in
+     * @param minFrequency  lowest frequency in Hz
+     * @param maxFrequency  highest frequency in Hz
+     * @param points        number of frequencies in the table
+     * @throws IllegalArgumentException     if the frequency range or number of points is invalid
+     */
+    public ClausiusMossottiTable(DielectricModel model, Medium medium, double minFrequency, double maxFrequency,
+            int points)
+    {
+        if (minFrequency <= 0 || maxFrequency <= minFrequency)
+            throw new IllegalArgumentException("Invalid frequency range");
+        if (points < 2)
+            throw new IllegalArgumentException("Table needs at least 2 points");
+
+        logMin = Math.log10(minFrequency);
+        logStep = (Math.log10(maxFrequency) - logMin) / (points - 1);
+        real = new double[points];
+        imaginary = new double[points];
+
+        for (int i = 0; i < points; i++)
+        {
+            Complex k = factor(model, medium, Math.pow(10, logMin + i * logStep));
+            real[i] = k.getReal();
+            imaginary[i] = k.getImaginary();
+        }
+    }
+
+
+    /**
+     * Returns the shared table for a particle model and medium over the default frequency range,
+     * building it the first time it's asked for
+     *
+     * @param model     the particle's dielectric model
+     * @param medium    the medium the particle is in
+     * @return          the shared table
+     */
+    public static ClausiusMossottiTable get(DielectricModel model, Medium medium)
+    {
+        return TABLES.computeIfAbsent(new Key(model, medium), key -> new ClausiusMossottiTable(model, medium,
+                DEFAULT_MIN_FREQUENCY, DEFAULT_MAX_FREQUENCY, DEFAULT_POINTS));
+    }
+
+    /**
+     * Computes the Clausius-Mossotti factor directly, without a table
+     *
+     * @param model         the particle's dielectric model
+     * @param medium        the medium the particle is in
+     * @param frequency     frequency of the field in Hz
+     * @return              the complex Clausius-Mossotti factor
+     */
+    public static Complex factor(DielectricModel model, Medium medium, double frequency)
+    {
+        double omega = 2 * Math.PI * frequency;
+        Complex particle = model.getPermittivity(omega);
+        Complex surrounding = medium.getPermittivity(omega);
+
+        return particle.sub(surrounding).div(particle.add(surrounding.mult(2)));
+    }
+
+
+    /**
+     * Looks up Re[K], interpolating between tabulated frequencies. Frequencies outside the table are
+     * clamped to its ends.
+     *
+     * @param frequency     frequency of the field in Hz
+     * @return              the real part of the Clausius-Mossotti factor
+     */
+    public double getReal(double frequency)
+    {
+        return lookup(real, frequency);
+    }
+
+    /**
+     * Looks up Im[K], interpolating between tabulated frequencies. Frequencies outside the table are
+     * clamped to its ends.
+     *
+     * @param frequency     frequency of the field in Hz
+     * @return              the imaginary part of the Clausius-Mossotti factor
+     */
+    public double getImaginary(double frequency)
+    {
+        return lookup(imaginary, frequency);
+    }
+
+    /**
+     *
+     * @return  the number of frequencies in the table
+     */
+    public int size()
+    {
+        return real.length;
+    }
+
+    /**
+     * Linearly interpolates a table in log frequency
+     */
+    private double lookup(double[] table, double frequency)
+    {
+        double u = (Math.log10(frequency) - logMin) / logStep;
+        int last = table.length - 1;
+
+        if (!(u > 0))
+            return table[0];
+        if (u >= last)
+            return table[last];
+
+        int i = (int) u;
+        double t = u - i;
+
+        return table[i] + t * (table[i + 1] - table[i]);
+    }
+
+
+    /**
+     * Key for the shared tables. Shelled models are compared by identity, so share one model instance
+     * between particles of the same type.
+     */
+    private static class Key
+    {
+        private final DielectricModel model;
+        private final Medium medium;
+
+        Key(DielectricModel model, Medium medium)
+        {
+            this.model = model;
+            this.medium = medium;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key))
+                return false;
+
+            Key check = (Key) o;
+
+            return model.equals(check.model) && medium.equals(check.medium);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return model.hashCode() * 31 + medium.hashCode();
+        }
+    }
+}
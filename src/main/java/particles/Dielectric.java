@@ -0,0 +1,76 @@
+package particles;
+
+import vector.Complex;
+
+/**
+ * A homogeneous material with a relative permittivity and a conductivity. Used for solid particles,
+ * for the layers of shelled particles, and for the suspending medium.
+ *
+ * @author Ronen Orland
+ */
+public class Dielectric implements DielectricModel
+{
+    private final double permittivity;     // Relative permittivity
+    private final double conductivity;     // Conductivity in S/m
+
+
+    /**
+     * Constructor that takes the material's properties
+     *
+     * @param permittivity  relative permittivity
+     * @param conductivity  conductivity in S/m
+     * @throws IllegalArgumentException     if the permittivity isn't positive or the conductivity is negative
+     */
+    public Dielectric(double permittivity, double conductivity)
+    {
+        if (permittivity <= 0)
+            throw new IllegalArgumentException("Permittivity must be positive");
+        if (conductivity < 0)
+            throw new IllegalArgumentException("Conductivity can't be negative");
+
+        this.permittivity = permittivity;
+        this.conductivity = conductivity;
+    }
+
+
+    @Override
+    public Complex getPermittivity(double omega)
+    {
+        return new Complex(EPSILON_0 * permittivity, -conductivity / omega);
+    }
+
+    /**
+     *
+     * @return  the relative permittivity
+     */
+    public double getRelativePermittivity()
+    {
+        return permittivity;
+    }
+
+    /**
+     *
+     * @return  the conductivity in S/m
+     */
+    public double getConductivity()
+    {
+        return conductivity;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (o == null || o.getClass() != getClass())
+            return false;
+
+        Dielectric check = (Dielectric) o;
+
+        return permittivity == check.permittivity && conductivity == check.conductivity;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Double.hashCode(permittivity) * 31 + Double.hashCode(conductivity);
+    }
+}
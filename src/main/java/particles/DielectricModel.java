@@ -0,0 +1,21 @@
+package particles;
+
+import vector.Complex;
+
+/**
+ * Describes the electrical properties of a particle through its complex permittivity
+ *
+ * @author Ronen Orland
+ */
+public interface DielectricModel
+{
+    public final static double EPSILON_0 = 8.8541878128e-12;   // Vacuum permittivity in F/m
+
+    /**
+     * Returns the complex permittivity of the particle, e = e0*er - j*sigma/w
+     *
+     * @param omega     angular frequency in rad/s
+     * @return          the complex permittivity in F/m
+     */
+    public Complex getPermittivity(double omega);
+}
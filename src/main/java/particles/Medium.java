@@ -0,0 +1,114 @@
+package particles;
+
+/**
+ * The liquid the particles are suspended in
+ *
+ * @author Ronen Orland
+ */
+public class Medium extends Dielectric
+{
+    public final static double BOLTZMANN = 1.380649e-23;       // Boltzmann constant in J/K
+
+    public final static double WATER_VISCOSITY = 0.00089;      // Dynamic viscosity of water at 25 C in Pa*s
+    public final static double ROOM_TEMPERATURE = 298.15;      // 25 C in kelvin
+
+    // Low conductivity aqueous buffer typical for DEP experiments
+    public final static Medium DEP_BUFFER = new Medium(78, 0.001);
+
+    private final double viscosity;     // Dynamic viscosity in Pa*s
+    private final double temperature;   // Temperature in kelvin
+
+
+    /**
+     * Constructor that takes the medium's electrical properties, for a watery medium at room temperature
+     *
+     * @param permittivity  relative permittivity
+     * @param conductivity  conductivity in S/m
+     * @throws IllegalArgumentException     if the permittivity isn't positive or the conductivity is negative
+     */
+    public Medium(double permittivity, double conductivity)
+    {
+        this(permittivity, conductivity, WATER_VISCOSITY, ROOM_TEMPERATURE);
+    }
+
+    /**
+     * Constructor that takes the medium's electrical and thermal properties
+     *
+     * @param permittivity  relative permittivity
+     * @param conductivity  conductivity in S/m
+     * @param viscosity     dynamic viscosity in Pa*s
+     * @param temperature   temperature in kelvin
+     * @throws IllegalArgumentException     if the permittivity or viscosity isn't positive, or the
+     *                                      conductivity or temperature is negative
+     */
+    public Medium(double permittivity, double conductivity, double viscosity, double temperature)
+    {
+        super(permittivity, conductivity);
+
+        if (!(viscosity > 0))
+            throw new IllegalArgumentException("Viscosity must be positive");
+        if (!(temperature >= 0))
+            throw new IllegalArgumentException("Temperature can't be negative");
+
+        this.viscosity = viscosity;
+        this.temperature = temperature;
+    }
+
+
+    /**
+     *
+     * @return  the dynamic viscosity in Pa*s
+     */
+    public double getViscosity()
+    {
+        return viscosity;
+    }
+
+    /**
+     *
+     * @return  the temperature in kelvin
+     */
+    public double getTemperature()
+    {
+        return temperature;
+    }
+
+    /**
+     * Stokes drag coefficient of a sphere moving slowly through the medium, 6 pi eta r
+     *
+     * @param radius    radius of the sphere in meters
+     * @return          drag force per unit velocity in kg/s
+     */
+    public double getDragCoefficient(double radius)
+    {
+        return 6 * Math.PI * viscosity * radius;
+    }
+
+    /**
+     * Stokes-Einstein diffusion coefficient of a sphere in the medium, kT / (6 pi eta r)
+     *
+     * @param radius    radius of the sphere in meters
+     * @return          diffusion coefficient in m^2/s
+     */
+    public double getDiffusivity(double radius)
+    {
+        return BOLTZMANN * temperature / getDragCoefficient(radius);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!super.equals(o))
+            return false;
+
+        Medium check = (Medium) o;
+
+        return viscosity == check.viscosity && temperature == check.temperature;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return (super.hashCode() * 31 + Double.hashCode(viscosity)) * 31 + Double.hashCode(temperature);
+    }
+}
@@ -0,0 +1,661 @@
+package particles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+import vector.Vector;
+
+/**
+ * A population of particles stored as parallel primitive arrays (structure of arrays) instead of one
+ * object per particle. Particle i is described by the i-th entry of each array. Removing particles
+ * compacts the arrays, so indices are only stable between removals.
+ *
+ * @author Ronen Orland
+ */
+public class ParticleEnsemble
+{
+    public final static int DEFAULT_CAPACITY = 16;
+
+    // Kinds of particles, used to rebuild Particle objects from the arrays
+    public final static byte OTHER = 0;
+    public final static byte YEAST = 1;
+    public final static byte TEST_PARTICLE = 2;
+
+    // Dielectric model of each kind, indexed by kind
+    private final static DielectricModel[] DIELECTRICS = {Particle.dielectric, Yeast.dielectric,
+            TestParticle.dielectric};
+
+    private double[] x, y, z;       // Positions
+    private double[] vx, vy, vz;    // Velocities
+    private double[] mass;          // Masses
+    private double[] radius;        // Radii
+    private byte[] kind;            // Kind of each particle
+    private int size;               // Number of particles in the ensemble
+
+
+    /**
+     * Creates an empty ensemble with the default capacity
+     */
+    public ParticleEnsemble()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty ensemble that can hold a given number of particles before growing
+     *
+     * @param capacity  the initial capacity
+     * @throws IllegalArgumentException     if capacity is negative
+     */
+    public ParticleEnsemble(int capacity)
+    {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Capacity can't be negative");
+
+        x = new double[capacity];
+        y = new double[capacity];
+        z = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        vz = new double[capacity];
+        mass = new double[capacity];
+        radius = new double[capacity];
+        kind = new byte[capacity];
+    }
+
+    /**
+     * Creates an ensemble holding copies of the given particles
+     *
+     * @param particles     the particles to load
+     */
+    public ParticleEnsemble(Collection<? extends Particle> particles)
+    {
+        this(Math.max(particles.size(), DEFAULT_CAPACITY));
+        addAll(particles);
+    }
+
+    /**
+     * Creates a copy of another ensemble, velocities included
+     *
+     * @param copy  the ensemble to copy
+     */
+    public ParticleEnsemble(ParticleEnsemble copy)
+    {
+        this(Math.max(copy.size, DEFAULT_CAPACITY));
+        copyFrom(copy);
+    }
+
+
+    /**
+     *
+     * @return  the number of particles in the ensemble
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     *
+     * @return  the number of particles the ensemble can hold before its arrays grow
+     */
+    public int capacity()
+    {
+        return x.length;
+    }
+
+    /**
+     * Makes sure the ensemble can hold a number of particles without growing again
+     *
+     * @param capacity  the number of particles to make room for
+     */
+    public void ensureCapacity(int capacity)
+    {
+        if (capacity <= x.length)
+            return;
+
+        int grown = Math.max(capacity, x.length + (x.length >> 1) + 1);
+        x = Arrays.copyOf(x, grown);
+        y = Arrays.copyOf(y, grown);
+        z = Arrays.copyOf(z, grown);
+        vx = Arrays.copyOf(vx, grown);
+        vy = Arrays.copyOf(vy, grown);
+        vz = Arrays.copyOf(vz, grown);
+        mass = Arrays.copyOf(mass, grown);
+        radius = Arrays.copyOf(radius, grown);
+        kind = Arrays.copyOf(kind, grown);
+    }
+
+
+    /**
+     * Adds a particle at rest
+     *
+     * @param x         x-coordinate
+     * @param y         y-coordinate
+     * @param z         z-coordinate
+     * @param mass      mass in kilograms
+     * @param radius    radius in meters
+     * @param kind      kind of particle, one of OTHER, YEAST or TEST_PARTICLE
+     * @return          the index of the new particle
+     */
+    public int add(double x, double y, double z, double mass, double radius, byte kind)
+    {
+        ensureCapacity(size + 1);
+
+        int i = size++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.z[i] = z;
+        vx[i] = 0;
+        vy[i] = 0;
+        vz[i] = 0;
+        this.mass[i] = mass;
+        this.radius[i] = radius;
+        this.kind[i] = kind;
+
+        return i;
+    }
+
+    /**
+     * Adds a copy of a particle
+     *
+     * @param particle  the particle to copy into the ensemble
+     * @return          the index of the new particle
+     * @throws IllegalArgumentException     if no kind has the particle's dielectric model
+     */
+    public int add(Particle particle)
+    {
+        Vector pos = particle.getPosition();
+
+        return add(pos.getX(), pos.getY(), pos.getZ(), particle.getMass(), particle.getRadius(), kindOf(particle));
+    }
+
+    /**
+     * Adds copies of a collection of particles
+     *
+     * @param particles     the particles to copy into the ensemble
+     */
+    public void addAll(Collection<? extends Particle> particles)
+    {
+        ensureCapacity(size + particles.size());
+
+        for (Particle particle : particles)
+            add(particle);
+    }
+
+    /**
+     * Removes a particle. Particles after it shift down by one index.
+     *
+     * @param index     the index of the particle to remove
+     * @throws IndexOutOfBoundsException    if index isn't in the ensemble
+     */
+    public void remove(int index)
+    {
+        checkIndex(index);
+
+        int moved = size - index - 1;
+        System.arraycopy(x, index + 1, x, index, moved);
+        System.arraycopy(y, index + 1, y, index, moved);
+        System.arraycopy(z, index + 1, z, index, moved);
+        System.arraycopy(vx, index + 1, vx, index, moved);
+        System.arraycopy(vy, index + 1, vy, index, moved);
+        System.arraycopy(vz, index + 1, vz, index, moved);
+        System.arraycopy(mass, index + 1, mass, index, moved);
+        System.arraycopy(radius, index + 1, radius, index, moved);
+        System.arraycopy(kind, index + 1, kind, index, moved);
+        size--;
+    }
+
+    /**
+     * Removes every particle whose index matches a filter, keeping the rest in their original order.
+     * The filter sees the indices from before any particles were removed.
+     *
+     * @param filter    returns true for the indices of particles to remove
+     * @return          the number of particles removed
+     */
+    public int removeIf(IntPredicate filter)
+    {
+        int kept = 0;
+
+        for (int i = 0; i < size; i++)
+        {
+            if (filter.test(i))
+                continue;
+
+            if (kept != i)
+            {
+                x[kept] = x[i];
+                y[kept] = y[i];
+                z[kept] = z[i];
+                vx[kept] = vx[i];
+                vy[kept] = vy[i];
+                vz[kept] = vz[i];
+                mass[kept] = mass[i];
+                radius[kept] = radius[i];
+                kind[kept] = kind[i];
+            }
+            kept++;
+        }
+
+        int removed = size - kept;
+        size = kept;
+
+        return removed;
+    }
+
+    /**
+     * Replaces every particle in this ensemble with copies of the particles in another
+     *
+     * @param other     the ensemble to copy
+     */
+    public void copyFrom(ParticleEnsemble other)
+    {
+        if (other == this)
+            return;
+
+        ensureCapacity(other.size);
+        int n = other.size;
+        System.arraycopy(other.x, 0, x, 0, n);
+        System.arraycopy(other.y, 0, y, 0, n);
+        System.arraycopy(other.z, 0, z, 0, n);
+        System.arraycopy(other.vx, 0, vx, 0, n);
+        System.arraycopy(other.vy, 0, vy, 0, n);
+        System.arraycopy(other.vz, 0, vz, 0, n);
+        System.arraycopy(other.mass, 0, mass, 0, n);
+        System.arraycopy(other.radius, 0, radius, 0, n);
+        System.arraycopy(other.kind, 0, kind, 0, n);
+        size = n;
+    }
+
+    /**
+     * Removes all particles from the ensemble
+     */
+    public void clear()
+    {
+        size = 0;
+    }
+
+    /**
+     * Calls an action with the index of every particle in the ensemble, in order
+     *
+     * @param action    the action to run for each index
+     */
+    public void forEach(IntConsumer action)
+    {
+        for (int i = 0; i < size; i++)
+            action.accept(i);
+    }
+
+
+    /**
+     * Moves every particle based on a batch of forces, using the same update as Particle.move. The forces
+     * use the layout of Electrode.getField(double[], double[], double[], double[], int) with count equal
+     * to size(): all x components, then all y components, then all z components.
+     *
+     * @param force     the force acting on each particle
+     * @param time      the time spent moving due to the forces
+     */
+    public void move(double[] force, double time)
+    {
+        double t2 = 1.5 * (time * time);
+        int n = size;
+
+        for (int i = 0; i < n; i++)
+        {
+            x[i] += (t2 * force[i]) / mass[i];
+            y[i] += (t2 * force[n + i]) / mass[i];
+            z[i] += (t2 * force[2*n + i]) / mass[i];
+        }
+    }
+
+    /**
+     * Moves every particle based on separate arrays of force components, using the same update as
+     * Particle.move
+     *
+     * @param fx        x component of the force on each particle
+     * @param fy        y component of the force on each particle
+     * @param fz        z component of the force on each particle
+     * @param time      the time spent moving due to the forces
+     */
+    public void move(double[] fx, double[] fy, double[] fz, double time)
+    {
+        double t2 = 1.5 * (time * time);
+
+        for (int i = 0; i < size; i++)
+        {
+            x[i] += (t2 * fx[i]) / mass[i];
+            y[i] += (t2 * fy[i]) / mass[i];
+            z[i] += (t2 * fz[i]) / mass[i];
+        }
+    }
+
+    /**
+     * Moves every particle based on the same force, using the same update as Particle.move
+     *
+     * @param force     the force acting on every particle
+     * @param time      the time spent moving due to the force
+     */
+    public void move(Vector force, double time)
+    {
+        double t2 = 1.5 * (time * time);
+        double fx = t2 * force.getX();
+        double fy = t2 * force.getY();
+        double fz = t2 * force.getZ();
+
+        for (int i = 0; i < size; i++)
+        {
+            x[i] += fx / mass[i];
+            y[i] += fy / mass[i];
+            z[i] += fz / mass[i];
+        }
+    }
+
+
+    /**
+     * Creates a Particle object from an entry in the ensemble. Yeast and TestParticle entries come back
+     * as their own class, other kinds come back as a plain Particle.
+     *
+     * @param index     the index of the particle
+     * @return          a new Particle with the position, mass and radius of the entry
+     */
+    public Particle toParticle(int index)
+    {
+        checkIndex(index);
+
+        Vector pos = new Vector(x[index], y[index], z[index]);
+        switch (kind[index])
+        {
+            case YEAST:
+                return new Yeast(pos, mass[index], radius[index]);
+            case TEST_PARTICLE:
+                Particle particle = new TestParticle(pos);
+                copyTo(index, particle);
+                return particle;
+            default:
+                return new Particle(pos, mass[index], radius[index]) {};
+        }
+    }
+
+    /**
+     *
+     * @return  a list of new Particle objects for every entry, in index order
+     */
+    public List<Particle> toParticles()
+    {
+        List<Particle> particles = new ArrayList<Particle>(size);
+
+        for (int i = 0; i < size; i++)
+            particles.add(toParticle(i));
+
+        return particles;
+    }
+
+    /**
+     * Writes the position, mass and radius of an entry into an existing Particle
+     *
+     * @param index     the index of the particle
+     * @param particle  the Particle to update
+     */
+    public void copyTo(int index, Particle particle)
+    {
+        checkIndex(index);
+
+        particle.setPosition(x[index], y[index], z[index]);
+        particle.mass = mass[index];
+        particle.radius = radius[index];
+    }
+
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the x-coordinate of the particle
+     */
+    public double getX(int index)
+    {
+        return x[index];
+    }
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the y-coordinate of the particle
+     */
+    public double getY(int index)
+    {
+        return y[index];
+    }
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the z-coordinate of the particle
+     */
+    public double getZ(int index)
+    {
+        return z[index];
+    }
+
+    /**
+     * Sets the position of a particle
+     *
+     * @param index     the index of the particle
+     * @param x         x-coordinate
+     * @param y         y-coordinate
+     * @param z         z-coordinate
+     */
+    public void setPosition(int index, double x, double y, double z)
+    {
+        this.x[index] = x;
+        this.y[index] = y;
+        this.z[index] = z;
+    }
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the x component of the particle's velocity
+     */
+    public double getVelocityX(int index)
+    {
+        return vx[index];
+    }
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the y component of the particle's velocity
+     */
+    public double getVelocityY(int index)
+    {
+        return vy[index];
+    }
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the z component of the particle's velocity
+     */
+    public double getVelocityZ(int index)
+    {
+        return vz[index];
+    }
+
+    /**
+     * Sets the velocity of a particle
+     *
+     * @param index     the index of the particle
+     * @param vx        x component of the velocity
+     * @param vy        y component of the velocity
+     * @param vz        z component of the velocity
+     */
+    public void setVelocity(int index, double vx, double vy, double vz)
+    {
+        this.vx[index] = vx;
+        this.vy[index] = vy;
+        this.vz[index] = vz;
+    }
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the mass of the particle
+     */
+    public double getMass(int index)
+    {
+        return mass[index];
+    }
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the radius of the particle
+     */
+    public double getRadius(int index)
+    {
+        return radius[index];
+    }
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the kind of the particle, one of OTHER, YEAST or TEST_PARTICLE
+     */
+    public byte getKind(int index)
+    {
+        return kind[index];
+    }
+
+
+    /*
+     * The backing arrays, for bulk kernels. Only the first size() entries are meaningful, and the arrays
+     * are replaced when the ensemble grows, so don't hold on to them across adds.
+     */
+
+    /**
+     *
+     * @return  the backing array of x-coordinates
+     */
+    public double[] getXArray()
+    {
+        return x;
+    }
+
+    /**
+     *
+     * @return  the backing array of y-coordinates
+     */
+    public double[] getYArray()
+    {
+        return y;
+    }
+
+    /**
+     *
+     * @return  the backing array of z-coordinates
+     */
+    public double[] getZArray()
+    {
+        return z;
+    }
+
+    /**
+     *
+     * @return  the backing array of x velocity components
+     */
+    public double[] getVelocityXArray()
+    {
+        return vx;
+    }
+
+    /**
+     *
+     * @return  the backing array of y velocity components
+     */
+    public double[] getVelocityYArray()
+    {
+        return vy;
+    }
+
+    /**
+     *
+     * @return  the backing array of z velocity components
+     */
+    public double[] getVelocityZArray()
+    {
+        return vz;
+    }
+
+    /**
+     *
+     * @return  the backing array of masses
+     */
+    public double[] getMassArray()
+    {
+        return mass;
+    }
+
+    /**
+     *
+     * @return  the backing array of radii
+     */
+    public double[] getRadiusArray()
+    {
+        return radius;
+    }
+
+
+    /**
+     * Returns the dielectric model shared by every particle of a kind, the same model the matching
+     * Particle class returns from getDielectric(). Unknown kinds are treated as OTHER.
+     *
+     * @param kind      kind of particle, one of OTHER, YEAST or TEST_PARTICLE
+     * @return          the dielectric model of that kind
+     */
+    public static DielectricModel getDielectric(byte kind)
+    {
+        if (kind < 0 || kind >= DIELECTRICS.length)
+            return DIELECTRICS[OTHER];
+
+        return DIELECTRICS[kind];
+    }
+
+    /**
+     * Returns the kind constant for a particle
+     *
+     * @param particle  the particle to check
+     * @return          YEAST, TEST_PARTICLE, or OTHER
+     * @throws IllegalArgumentException     if the particle's dielectric model isn't the one of its kind,
+     *                                      which the arrays would silently lose
+     */
+    static byte kindOf(Particle particle)
+    {
+        byte kind = OTHER;
+        if (particle instanceof Yeast)
+            kind = YEAST;
+        else if (particle instanceof TestParticle)
+            kind = TEST_PARTICLE;
+
+        if (particle.getDielectric() != DIELECTRICS[kind])
+            throw new IllegalArgumentException("No particle kind has the dielectric model of a "
+                    + particle.getClass().getSimpleName());
+
+        return kind;
+    }
+
+    /**
+     * Checks that an index refers to a particle in the ensemble
+     *
+     * @param index     the index to check
+     * @throws IndexOutOfBoundsException    if index isn't in the ensemble
+     */
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+    }
+}
@@ -0,0 +1,358 @@
+package particles;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import vector.Vector;
+
+/**
+ * A population of particles confined to a plane of constant z, for 2D simulations of channels that are
+ * effectively planar. Like ParticleEnsemble it stores each property in its own primitive array, but
+ * there are no z positions or velocities, so each particle takes two fewer doubles and kernels never
+ * touch z. The height of the plane is shared by every particle.
+ *
+ * @author Ronen Orland
+ */
+public class PlanarEnsemble
+{
+    private final double z;         // Height of the plane
+    private double[] x, y;          // Positions
+    private double[] vx, vy;        // Velocities
+    private double[] mass;          // Masses
+    private double[] radius;        // Radii
+    private byte[] kind;            // Kind of each particle, as in ParticleEnsemble
+    private int size;               // Number of particles in the ensemble
+
+
+    /**
+     * Creates an empty ensemble in a plane with the default capacity
+     *
+     * @param z     height of the plane
+     */
+    public PlanarEnsemble(double z)
+    {
+        this(z, ParticleEnsemble.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty ensemble in a plane that can hold a given number of particles before growing
+     *
+     * @param z         height of the plane
+     * @param capacity  the initial capacity
+     * @throws IllegalArgumentException     if capacity is negative
+     */
+    public PlanarEnsemble(double z, int capacity)
+    {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Capacity can't be negative");
+
+        this.z = z;
+        x = new double[capacity];
+        y = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        mass = new double[capacity];
+        radius = new double[capacity];
+        kind = new byte[capacity];
+    }
+
+    /**
+     * Creates an ensemble holding copies of the given particles, projected onto a plane
+     *
+     * @param z             height of the plane
+     * @param particles     the particles to load
+     */
+    public PlanarEnsemble(double z, Collection<? extends Particle> particles)
+    {
+        this(z, Math.max(particles.size(), ParticleEnsemble.DEFAULT_CAPACITY));
+
+        for (Particle particle : particles)
+            add(particle);
+    }
+
+    /**
+     * Creates an ensemble from a 3D one, projected onto a plane. The z positions and velocities are
+     * dropped.
+     *
+     * @param z         height of the plane
+     * @param copy      the ensemble to copy
+     */
+    public PlanarEnsemble(double z, ParticleEnsemble copy)
+    {
+        this(z, Math.max(copy.size(), ParticleEnsemble.DEFAULT_CAPACITY));
+
+        int n = copy.size();
+        System.arraycopy(copy.getXArray(), 0, x, 0, n);
+        System.arraycopy(copy.getYArray(), 0, y, 0, n);
+        System.arraycopy(copy.getVelocityXArray(), 0, vx, 0, n);
+        System.arraycopy(copy.getVelocityYArray(), 0, vy, 0, n);
+        System.arraycopy(copy.getMassArray(), 0, mass, 0, n);
+        System.arraycopy(copy.getRadiusArray(), 0, radius, 0, n);
+        for (int i = 0; i < n; i++)
+            kind[i] = copy.getKind(i);
+        size = n;
+    }
+
+
+    /**
+     *
+     * @return  the number of particles in the ensemble
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     *
+     * @return  the height of the plane
+     */
+    public double getZ()
+    {
+        return z;
+    }
+
+    /**
+     * Makes sure the ensemble can hold a number of particles without growing again
+     *
+     * @param capacity  the number of particles to make room for
+     */
+    public void ensureCapacity(int capacity)
+    {
+        if (capacity <= x.length)
+            return;
+
+        int grown = Math.max(capacity, x.length + (x.length >> 1) + 1);
+        x = Arrays.copyOf(x, grown);
+        y = Arrays.copyOf(y, grown);
+        vx = Arrays.copyOf(vx, grown);
+        vy = Arrays.copyOf(vy, grown);
+        mass = Arrays.copyOf(mass, grown);
+        radius = Arrays.copyOf(radius, grown);
+        kind = Arrays.copyOf(kind, grown);
+    }
+
+    /**
+     * Adds a particle at rest
+     *
+     * @param x         x-coordinate
+     * @param y         y-coordinate
+     * @param mass      mass in kilograms
+     * @param radius    radius in meters
+     * @param kind      kind of particle, one of the ParticleEnsemble kinds
+     * @return          the index of the new particle
+     */
+    public int add(double x, double y, double mass, double radius, byte kind)
+    {
+        ensureCapacity(size + 1);
+
+        int i = size++;
+        this.x[i] = x;
+        this.y[i] = y;
+        vx[i] = 0;
+        vy[i] = 0;
+        this.mass[i] = mass;
+        this.radius[i] = radius;
+        this.kind[i] = kind;
+
+        return i;
+    }
+
+    /**
+     * Adds a copy of a particle, dropping its z-coordinate
+     *
+     * @param particle  the particle to copy into the ensemble
+     * @return          the index of the new particle
+     * @throws IllegalArgumentException     if no kind has the particle's dielectric model
+     */
+    public int add(Particle particle)
+    {
+        Vector pos = particle.getPosition();
+
+        return add(pos.getX(), pos.getY(), particle.getMass(), particle.getRadius(),
+                ParticleEnsemble.kindOf(particle));
+    }
+
+    /**
+     * Removes every particle
+     */
+    public void clear()
+    {
+        size = 0;
+    }
+
+    /**
+     * Creates a 3D ensemble with the same particles, all at the height of the plane and with no z
+     * velocity
+     *
+     * @return  a new ParticleEnsemble
+     */
+    public ParticleEnsemble toEnsemble()
+    {
+        ParticleEnsemble ensemble = new ParticleEnsemble(Math.max(size, ParticleEnsemble.DEFAULT_CAPACITY));
+        for (int i = 0; i < size; i++)
+        {
+            ensemble.add(x[i], y[i], z, mass[i], radius[i], kind[i]);
+            ensemble.setVelocity(i, vx[i], vy[i], 0);
+        }
+
+        return ensemble;
+    }
+
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the x-coordinate of the particle
+     */
+    public double getX(int index)
+    {
+        return x[index];
+    }
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the y-coordinate of the particle
+     */
+    public double getY(int index)
+    {
+        return y[index];
+    }
+
+    /**
+     * Moves a particle
+     *
+     * @param index     the index of the particle
+     * @param x         new x-coordinate
+     * @param y         new y-coordinate
+     */
+    public void setPosition(int index, double x, double y)
+    {
+        this.x[index] = x;
+        this.y[index] = y;
+    }
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the x velocity of the particle
+     */
+    public double getVelocityX(int index)
+    {
+        return vx[index];
+    }
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the y velocity of the particle
+     */
+    public double getVelocityY(int index)
+    {
+        return vy[index];
+    }
+
+    /**
+     * Sets the velocity of a particle
+     *
+     * @param index     the index of the particle
+     * @param vx        new x velocity
+     * @param vy        new y velocity
+     */
+    public void setVelocity(int index, double vx, double vy)
+    {
+        this.vx[index] = vx;
+        this.vy[index] = vy;
+    }
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the mass of the particle in kilograms
+     */
+    public double getMass(int index)
+    {
+        return mass[index];
+    }
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the radius of the particle in meters
+     */
+    public double getRadius(int index)
+    {
+        return radius[index];
+    }
+
+    /**
+     *
+     * @param index     the index of the particle
+     * @return          the kind of the particle, one of the ParticleEnsemble kinds
+     */
+    public byte getKind(int index)
+    {
+        return kind[index];
+    }
+
+
+    /*
+     * The backing arrays, for bulk kernels. Only the first size() entries are meaningful, and the arrays
+     * are replaced when the ensemble grows, so don't hold on to them across adds.
+     */
+
+    /**
+     *
+     * @return  the backing array of x-coordinates
+     */
+    public double[] getXArray()
+    {
+        return x;
+    }
+
+    /**
+     *
+     * @return  the backing array of y-coordinates
+     */
+    public double[] getYArray()
+    {
+        return y;
+    }
+
+    /**
+     *
+     * @return  the backing array of x velocity components
+     */
+    public double[] getVelocityXArray()
+    {
+        return vx;
+    }
+
+    /**
+     *
+     * @return  the backing array of y velocity components
+     */
+    public double[] getVelocityYArray()
+    {
+        return vy;
+    }
+
+    /**
+     *
+     * @return  the backing array of masses
+     */
+    public double[] getMassArray()
+    {
+        return mass;
+    }
+
+    /**
+     *
+     * @return  the backing array of radii
+     */
+    public double[] getRadiusArray()
+    {
+        return radius;
+    }
+}
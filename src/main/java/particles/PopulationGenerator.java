@@ -0,0 +1,192 @@
+package particles;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import vector.Vector;
+
+/**
+ * Creates large populations of particles scattered uniformly through a box, with masses and radii
+ * spread around the average for their kind the same way the Particle constructors do.
+ *
+ * Particles are generated in fixed-size blocks, each with its own random stream split off a seeded
+ * root stream before any work starts. Blocks are filled in parallel, but since the streams and the
+ * blocks they fill don't depend on the thread count, a given seed always gives the same particles.
+ * Successive calls on the same generator continue the sequence.
+ *
+ * @author Ronen Orland
+ */
+public class PopulationGenerator
+{
+    public final static int BLOCK_SIZE = 4096;     // Particles drawn from each stream
+
+    private final SplittableRandom root;            // Source of the per-block streams
+
+
+    /**
+     * Creates a generator whose output is fixed by a seed
+     *
+     * @param seed  the seed
+     */
+    public PopulationGenerator(long seed)
+    {
+        root = new SplittableRandom(seed);
+    }
+
+
+    /**
+     * Adds particles of one kind to an ensemble, scattered uniformly through a box
+     *
+     * @param ensemble  the ensemble to add to
+     * @param kind      kind of particle, one of OTHER, YEAST or TEST_PARTICLE
+     * @param count     the number of particles to add
+     * @param min       corner of the box with the smallest coordinates
+     * @param max       corner of the box with the largest coordinates
+     * @throws IllegalArgumentException     if count is negative or the box is inside out
+     */
+    public void generate(ParticleEnsemble ensemble, byte kind, int count, Vector min, Vector max)
+    {
+        if (count < 0)
+            throw new IllegalArgumentException("Count can't be negative");
+        if (max.getX() < min.getX() || max.getY() < min.getY() || max.getZ() < min.getZ())
+            throw new IllegalArgumentException("max must not be less than min on any axis");
+
+        int start = ensemble.size();
+        ensemble.ensureCapacity(start + count);
+        for (int i = 0; i < count; i++)
+            ensemble.add(0, 0, 0, 0, 0, kind);
+
+        // Streams are split off in order on this thread so they don't depend on scheduling
+        int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        SplittableRandom[] streams = new SplittableRandom[blocks];
+        for (int b = 0; b < blocks; b++)
+            streams[b] = root.split();
+
+        double[] x = ensemble.getXArray();
+        double[] y = ensemble.getYArray();
+        double[] z = ensemble.getZArray();
+        double[] mass = ensemble.getMassArray();
+        double[] radius = ensemble.getRadiusArray();
+        double avgMass = averageMass(kind);
+        double massTolerance = massTolerance(kind);
+        double avgRadius = averageRadius(kind);
+        double radiusTolerance = radiusTolerance(kind);
+
+        IntStream.range(0, blocks).parallel().forEach(b ->
+        {
+            SplittableRandom random = streams[b];
+            int from = start + b * BLOCK_SIZE;
+            int to = Math.min(start + count, from + BLOCK_SIZE);
+
+            for (int i = from; i < to; i++)
+            {
+                x[i] = min.getX() + random.nextDouble() * (max.getX() - min.getX());
+                y[i] = min.getY() + random.nextDouble() * (max.getY() - min.getY());
+                z[i] = min.getZ() + random.nextDouble() * (max.getZ() - min.getZ());
+
+                double tolerance = gaussian(random) % 1.0;
+                mass[i] = avgMass + (massTolerance * tolerance);
+                radius[i] = avgRadius + (radiusTolerance * tolerance);
+            }
+        });
+    }
+
+    /**
+     * Creates a new ensemble of particles of one kind, scattered uniformly through a box
+     *
+     * @param kind      kind of particle, one of OTHER, YEAST or TEST_PARTICLE
+     * @param count     the number of particles to create
+     * @param min       corner of the box with the smallest coordinates
+     * @param max       corner of the box with the largest coordinates
+     * @return          the new ensemble
+     */
+    public ParticleEnsemble generate(byte kind, int count, Vector min, Vector max)
+    {
+        ParticleEnsemble ensemble = new ParticleEnsemble(count);
+        generate(ensemble, kind, count, min, max);
+
+        return ensemble;
+    }
+
+    /**
+     * Creates yeast cells scattered uniformly through a box, as objects
+     *
+     * @param count     the number of cells to create
+     * @param min       corner of the box with the smallest coordinates
+     * @param max       corner of the box with the largest coordinates
+     * @return          the new cells
+     */
+    public List<Particle> generateYeast(int count, Vector min, Vector max)
+    {
+        return generate(ParticleEnsemble.YEAST, count, min, max).toParticles();
+    }
+
+    /**
+     * Draws a standard normal variate with the polar method
+     */
+    private static double gaussian(SplittableRandom random)
+    {
+        double v1, v2, s;
+        do
+        {
+            v1 = 2 * random.nextDouble() - 1;
+            v2 = 2 * random.nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+
+        return v1 * Math.sqrt(-2 * Math.log(s) / s);
+    }
+
+    private static double averageMass(byte kind)
+    {
+        switch (kind)
+        {
+            case ParticleEnsemble.YEAST:
+                return Yeast.avgMass;
+            case ParticleEnsemble.TEST_PARTICLE:
+                return TestParticle.avgMass;
+            default:
+                return Particle.avgMass;
+        }
+    }
+
+    private static double massTolerance(byte kind)
+    {
+        switch (kind)
+        {
+            case ParticleEnsemble.YEAST:
+                return Yeast.massTolerance;
+            case ParticleEnsemble.TEST_PARTICLE:
+                return TestParticle.massTolerance;
+            default:
+                return Particle.massTolerance;
+        }
+    }
+
+    private static double averageRadius(byte kind)
+    {
+        switch (kind)
+        {
+            case ParticleEnsemble.YEAST:
+                return Yeast.avgRadius;
+            case ParticleEnsemble.TEST_PARTICLE:
+                return TestParticle.avgRadius;
+            default:
+                return Particle.avgRadius;
+        }
+    }
+
+    private static double radiusTolerance(byte kind)
+    {
+        switch (kind)
+        {
+            case ParticleEnsemble.YEAST:
+                return Yeast.radiusTolerance;
+            case ParticleEnsemble.TEST_PARTICLE:
+                return TestParticle.radiusTolerance;
+            default:
+                return Particle.radiusTolerance;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package particles;
+
+import vector.Complex;
+
+/**
+ * A spherical particle made of a homogeneous core wrapped in any number of concentric shells, like a
+ * cell with a membrane and a wall. The shells are folded into the core one at a time, from the inside
+ * out, to get the permittivity of an equivalent homogeneous sphere:
+ *
+ *   e_eff = e_shell * (g^3 + 2K) / (g^3 - K),  g = outer/inner radius,  K = (e_in - e_shell) / (e_in + 2 e_shell)
+ *
+ * @author Ronen Orland
+ */
+public class ShelledDielectric implements DielectricModel
+{
+    private final Dielectric core;          // Material inside the innermost shell
+    private final Dielectric[] shells;      // Shell materials, innermost first
+    private final double[] radii;           // Outer radius of each shell, innermost first
+    private final double coreRadius;        // Radius of the core
+
+
+    /**
+     * Constructor that takes the core and shells
+     *
+     * @param outerRadius   radius of the whole particle in meters
+     * @param core          the material of the core
+     * @param shells        the materials of the shells, innermost first
+     * @param thicknesses   the thickness of each shell in meters, innermost first
+     * @throws IllegalArgumentException     if the shells don't match their thicknesses or don't fit in the radius
+     */
+    public ShelledDielectric(double outerRadius, Dielectric core, Dielectric[] shells, double[] thicknesses)
+    {
+        if (shells.length != thicknesses.length)
+            throw new IllegalArgumentException("Every shell needs a thickness");
+
+        this.core = core;
+        this.shells = shells.clone();
+        radii = new double[shells.length];
+
+        // Work inwards from the outer radius
+        double radius = outerRadius;
+        for (int s = shells.length - 1; s >= 0; s--)
+        {
+            if (thicknesses[s] <= 0)
+                throw new IllegalArgumentException("Shell thickness must be positive");
+
+            radii[s] = radius;
+            radius -= thicknesses[s];
+        }
+
+        if (radius <= 0)
+            throw new IllegalArgumentException("Shells are thicker than the particle");
+
+        coreRadius = radius;
+    }
+
+
+    @Override
+    public Complex getPermittivity(double omega)
+    {
+        Complex inner = core.getPermittivity(omega);
+        double innerRadius = coreRadius;
+
+        for (int s = 0; s < shells.length; s++)
+        {
+            Complex shell = shells[s].getPermittivity(omega);
+            double ratio = radii[s] / innerRadius;
+            double g3 = ratio * ratio * ratio;
+
+            Complex k = inner.sub(shell).div(inner.add(shell.mult(2)));
+            Complex g = new Complex(g3, 0);
+            inner = shell.mult(g.add(k.mult(2)).div(g.sub(k)));
+            innerRadius = radii[s];
+        }
+
+        return inner;
+    }
+
+    /**
+     *
+     * @return  the radius of the whole particle in meters
+     */
+    public double getOuterRadius()
+    {
+        return radii.length == 0 ? coreRadius : radii[radii.length - 1];
+    }
+
+    /**
+     *
+     * @return  the number of shells around the core
+     */
+    public int getShellCount()
+    {
+        return shells.length;
+    }
+}
@@ -1,36 +1,53 @@
-package particles;
-
-import vector.Vector;
-
-/**
- * Very basic particle with mass of 1kg and radius of 1m simply for testing purposes
- * 
- * @author Ronen Orland
- *
- */
-public class TestParticle extends Particle
-{
-    public final static double avgMass = 1;         // Typical mass of the particle in kilograms
-    public final static double massTolerance = 0;   // Tolerance of the particle's mass in kilograms
-    
-    public final static double avgRadius = 1;       // Typical radius of the particle in meters
-    public final static double radiusTolerance = 0; // Tolerance of the particle's radius in meters
-    
-    public TestParticle()
-    {
-        this(new Vector());
-    }
-
-    public TestParticle(double x, double y, double z)
-    {
-        this(new Vector(x, y, z));
-    }
-
-    public TestParticle(Vector pos)
-    {
-        position = pos;
-        mass = avgMass;
-        radius = avgRadius;
-    }
-
-}
+package particles;
+
+import vector.Vector;
+
+/**
+ * Very basic particle with mass of 1kg and radius of 1m simply for testing purposes
+ * 
+ * @author Ronen Orland
+ *
+ */
+public class TestParticle extends Particle
+{
+    public final static double avgMass = 1;         // Typical mass of the particle in kilograms
+    public final static double massTolerance = 0;   // Tolerance of the particle's mass in kilograms
+    
+    public final static double avgRadius = 1;       // Typical radius of the particle in meters
+    public final static double radiusTolerance = 0; // Tolerance of the particle's radius in meters
+    
+    public final static DielectricModel dielectric = Particle.dielectric;  // Polystyrene, like Particle
+    
+    public TestParticle()
+    {
+        this(new Vector());
+    }
+
+    public TestParticle(double x, double y, double z)
+    {
+        this(new Vector(x, y, z));
+    }
+
+    /**
+     * Constructor that takes a vector as the initial position. The vector is copied, as in Particle,
+     * so moving the particle doesn't change the caller's vector.
+     * 
+     * @param pos   the Vector to use as the initial position
+     */
+    public TestParticle(Vector pos)
+    {
+        super(pos, avgMass, avgRadius);
+    }
+
+    /**
+     * Returns the same polystyrene model as a generic Particle
+     * 
+     * @return dielectric model of the particle
+     */
+    @Override
+    public DielectricModel getDielectric()
+    {
+        return dielectric;
+    }
+
+}
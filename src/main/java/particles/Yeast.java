@@ -1,61 +1,101 @@
-/*
- * Info found at https://web.archive.org/web/20110808031933/http://www.weizmann.ac.il/plants/Milo/images/YeastSize-Feb2010.pdf 
- */
-
-package particles;
-
-import java.util.Random;
-
-import vector.Vector;
-
-/**
- * Represents a typical yeast cell
- * 
- * @author Ronen Orland
- */
-public class Yeast extends Particle 
-{
-    public final static double avgMass = 0.00000000000006;
-    public final static double massTolerance = 0.00000000000001;       // TODO get a number
-	
-    public final static double avgRadius = 0.000005;
-    public final static double radiusTolerance = 0.000001;     // TODO get a number
-	
-	
-    /**
-     * Default constructor, initializes position
-     */
-    public Yeast()
-    {
-        this(new Vector());
-    }
-    
-    /**
-     * Constructor that takes the initial position vector components
-     * 
-     * @param x     the initial x position
-     * @param y     the initial y position
-     * @param z     the initial z position
-     */
-    public Yeast(double x, double y, double z)
-    {
-        this(new Vector(x, y, z));
-    }
-    
-    /**
-     * Constructor that takes a vector as the initial position
-     * 
-     * @param pos   the Vector to use as the initial position
-     */
-    public Yeast(Vector pos)
-    {
-        position = new Vector(pos);
-        
-        Random rand = new Random();
-        double tolerance = rand.nextGaussian();
-        tolerance %= 1.0;
-        
-        mass = avgMass + (massTolerance * tolerance);
-        radius = avgRadius + (radiusTolerance * tolerance);
-    }
-}
+/*
+ * Info found at https://web.archive.org/web/20110808031933/http://www.weizmann.ac.il/plants/Milo/images/YeastSize-Feb2010.pdf 
+ */
+
+package particles;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import vector.Vector;
+
+/**
+ * Represents a typical yeast cell
+ * 
+ * @author Ronen Orland
+ */
+public class Yeast extends Particle 
+{
+    public final static double avgMass = 0.00000000000006;
+    public final static double massTolerance = 0.00000000000001;       // TODO get a number
+	
+    public final static double avgRadius = 0.000005;
+    public final static double radiusTolerance = 0.000001;     // TODO get a number
+    
+    /*
+     * Double shell model: cytoplasm inside a membrane inside a cell wall
+     * Values from Huang et al., "Differences in the AC electrodynamics of viable and non-viable yeast 
+     * cells determined through combined dielectrophoresis and electrorotation studies", 1992
+     */
+    public final static Dielectric cytoplasm = new Dielectric(50, 0.2);
+    public final static Dielectric membrane = new Dielectric(6, 0.00000025);
+    public final static Dielectric wall = new Dielectric(60, 0.014);
+    public final static double membraneThickness = 0.000000008;
+    public final static double wallThickness = 0.00000022;
+    public final static DielectricModel dielectric = new ShelledDielectric(avgRadius, cytoplasm, 
+            new Dielectric[] {membrane, wall}, new double[] {membraneThickness, wallThickness});
+	
+	
+    /**
+     * Default constructor, initializes position
+     */
+    public Yeast()
+    {
+        this(new Vector());
+    }
+    
+    /**
+     * Constructor that takes the initial position vector components
+     * 
+     * @param x     the initial x position
+     * @param y     the initial y position
+     * @param z     the initial z position
+     */
+    public Yeast(double x, double y, double z)
+    {
+        this(new Vector(x, y, z));
+    }
+    
+    /**
+     * Constructor that takes a vector as the initial position
+     * 
+     * @param pos   the Vector to use as the initial position
+     */
+    public Yeast(Vector pos)
+    {
+        this(pos, ThreadLocalRandom.current().nextGaussian() % 1.0);
+    }
+    
+    /**
+     * Constructor that takes the position, mass and radius
+     * 
+     * @param pos       the Vector to use as the initial position
+     * @param mass      mass of the cell in kilograms
+     * @param radius    radius of the cell in meters
+     */
+    public Yeast(Vector pos, double mass, double radius)
+    {
+        super(pos, mass, radius);
+    }
+    
+    /**
+     * Constructor that sizes the cell a number of tolerances away from the average
+     * 
+     * @param pos           the Vector to use as the initial position
+     * @param tolerance     how many tolerances the mass and radius are from average, in (-1, 1)
+     */
+    private Yeast(Vector pos, double tolerance)
+    {
+        this(pos, avgMass + (massTolerance * tolerance), avgRadius + (radiusTolerance * tolerance));
+    }
+    
+    /**
+     * Returns the double shell model shared by every yeast cell
+     * 
+     * @return dielectric model of the cell
+     */
+    @Override
+    public DielectricModel getDielectric()
+    {
+        return dielectric;
+    }
+}
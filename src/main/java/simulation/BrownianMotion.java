@@ -0,0 +1,100 @@
+package simulation;
+
+import java.util.SplittableRandom;
+
+import particles.Medium;
+import particles.ParticleEnsemble;
+
+/**
+ * Thermal jostling of the particles by the molecules of the medium. Each step every particle is
+ * displaced by a normally distributed amount with standard deviation sqrt(2 D dt) along each axis,
+ * where D = kT / (6 pi eta r) is its Stokes-Einstein diffusion coefficient.
+ *
+ * The noise is applied as a displacement rather than a force: it has no smooth value to integrate,
+ * and at the scale of a cell the velocity it imparts is lost to drag long before the next step.
+ *
+ * Normal variates are drawn with the ziggurat method, a whole range of particles at a time, from a
+ * stream owned by the calling thread. Streams are split off a seeded root, so sequential runs repeat
+ * exactly for a given seed; parallel runs don't, since which thread steps which particle varies.
+ *
+ * @author Ronen Orland
+ */
+public class BrownianMotion implements Perturbation
+{
+    private final Medium medium;                        // Medium the particles are in
+    private final SplittableRandom root;                // Source of the per-thread streams
+    private final ThreadLocal<SplittableRandom> stream; // Each thread's own stream
+    private final ThreadLocal<double[]> noise;          // Each thread's buffer of variates
+
+
+    /**
+     * Constructor for noise that differs from run to run
+     *
+     * @param medium    the medium the particles are in
+     */
+    public BrownianMotion(Medium medium)
+    {
+        this(medium, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Constructor for noise fixed by a seed
+     *
+     * @param medium    the medium the particles are in
+     * @param seed      the seed
+     */
+    public BrownianMotion(Medium medium, long seed)
+    {
+        this.medium = medium;
+        this.root = new SplittableRandom(seed);
+        this.stream = ThreadLocal.withInitial(this::split);
+        this.noise = ThreadLocal.withInitial(() -> new double[0]);
+    }
+
+
+    @Override
+    public void perturb(ParticleEnsemble particles, double dt, int from, int to)
+    {
+        int count = to - from;
+        double[] g = noise.get();
+        if (g.length < 3 * count)
+        {
+            g = new double[3 * count];
+            noise.set(g);
+        }
+
+        Ziggurat.fill(stream.get(), g, 0, 3 * count);
+
+        double[] x = particles.getXArray();
+        double[] y = particles.getYArray();
+        double[] z = particles.getZArray();
+        double[] radius = particles.getRadiusArray();
+        for (int i = from, j = 0; i < to; i++, j += 3)
+        {
+            double amplitude = Math.sqrt(2 * medium.getDiffusivity(radius[i]) * dt);
+            x[i] += amplitude * g[j];
+            y[i] += amplitude * g[j + 1];
+            z[i] += amplitude * g[j + 2];
+        }
+    }
+
+    /**
+     *
+     * @return  the medium the particles are in
+     */
+    public Medium getMedium()
+    {
+        return medium;
+    }
+
+    /**
+     * Splits a stream off the root for a new thread
+     */
+    private SplittableRandom split()
+    {
+        synchronized (root)
+        {
+            return root.split();
+        }
+    }
+}
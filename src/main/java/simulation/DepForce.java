@@ -0,0 +1,179 @@
+package simulation;
+
+import field.CachedField;
+import field.Electrode;
+import field.FieldGradient;
+import particles.ClausiusMossottiTable;
+import particles.DielectricModel;
+import particles.Medium;
+import particles.ParticleEnsemble;
+
+/**
+ * The time-averaged dielectrophoretic force on a spherical particle,
+ *
+ *   F = 2 pi e_m r^3 Re[K(f)] grad |E|^2
+ *
+ * where the electrode's field is taken as the RMS value of an AC field at frequency f. The
+ * Clausius-Mossotti factor of each kind of particle is looked up once when the force is created.
+ *
+ * With a cache tolerance the field gradient at each particle is kept in a CachedField and only
+ * recomputed when the electrodes change or the particle has moved further than the tolerance. The
+ * cache is sized in prepare(), which Simulation calls before every step; call it yourself before
+ * computing forces outside of a Simulation.
+ *
+ * @author Ronen Orland
+ */
+public class DepForce implements ForceModel
+{
+    private final Electrode electrode;      // Source of the field
+    private final Medium medium;            // Medium the particles are in
+    private final double frequency;         // Frequency of the field in Hz
+    private final double[] prefactor;       // 2 pi e_m Re[K] for each kind of particle
+    private final CachedField cache;        // Field gradient at each particle, null to always recompute
+
+
+    /**
+     * Constructor that takes the field source, medium and frequency
+     *
+     * @param electrode     the electrode creating the field, use an ElectrodeSet for several
+     * @param medium        the medium the particles are in
+     * @param frequency     frequency of the field in Hz
+     */
+    public DepForce(Electrode electrode, Medium medium, double frequency)
+    {
+        this(electrode, medium, frequency, -1);
+    }
+
+    /**
+     * Constructor that also caches the field gradient at each particle
+     *
+     * @param electrode     the electrode creating the field, use an ElectrodeSet for several
+     * @param medium        the medium the particles are in
+     * @param frequency     frequency of the field in Hz
+     * @param tolerance     distance in meters a particle can move before its field is recomputed, or
+     *                      negative to recompute every time
+     */
+    public DepForce(Electrode electrode, Medium medium, double frequency, double tolerance)
+    {
+        this.electrode = electrode;
+        this.medium = medium;
+        this.frequency = frequency;
+        prefactor = prefactors(medium, frequency);
+        cache = tolerance >= 0 ? new CachedField(electrode, tolerance) : null;
+    }
+
+
+    /**
+     * Computes the DEP force on a range of particles. Disjoint ranges can be computed at the same time.
+     *
+     * @throws IllegalStateException    if there is a cache and prepare() hasn't sized it for the ensemble
+     */
+    @Override
+    public void computeForces(ParticleEnsemble particles, double[] x, double[] y, double[] z,
+            double[] vx, double[] vy, double[] vz, double[] fx, double[] fy, double[] fz, int from, int to)
+    {
+        double[] radius = particles.getRadiusArray();
+        double[] gradient = new double[FieldGradient.LENGTH];
+
+        // Growing the cache here would race with other ranges computed at the same time
+        if (cache != null && cache.capacity() < to)
+            throw new IllegalStateException("prepare() not called");
+
+        for (int i = from; i < to; i++)
+        {
+            if (cache != null)
+                cache.getFieldGradient(i, x[i], y[i], z[i], gradient);
+            else
+            {
+                for (int c = 0; c < FieldGradient.LENGTH; c++)
+                    gradient[c] = 0;
+
+                electrode.addFieldGradient(x[i], y[i], z[i], gradient);
+            }
+
+            double ex = gradient[FieldGradient.EX];
+            double ey = gradient[FieldGradient.EY];
+            double ez = gradient[FieldGradient.EZ];
+            double r = radius[i];
+            double scale = 2 * prefactor[particles.getKind(i)] * r * r * r;   // grad |E|^2 = 2 J E
+
+            fx[i] = scale * (gradient[FieldGradient.XX] * ex + gradient[FieldGradient.XY] * ey
+                    + gradient[FieldGradient.XZ] * ez);
+            fy[i] = scale * (gradient[FieldGradient.XY] * ex + gradient[FieldGradient.YY] * ey
+                    + gradient[FieldGradient.YZ] * ez);
+            fz[i] = scale * (gradient[FieldGradient.XZ] * ex + gradient[FieldGradient.YZ] * ey
+                    + gradient[FieldGradient.ZZ] * ez);
+        }
+    }
+
+    @Override
+    public void prepare(ParticleEnsemble particles)
+    {
+        if (cache == null)
+            return;
+
+        cache.ensureCapacity(particles.size());
+        cache.update();
+    }
+
+    /**
+     *
+     * @return  the electrode creating the field
+     */
+    public Electrode getElectrode()
+    {
+        return electrode;
+    }
+
+    /**
+     *
+     * @return  the medium the particles are in
+     */
+    public Medium getMedium()
+    {
+        return medium;
+    }
+
+    /**
+     *
+     * @return  frequency of the field in Hz
+     */
+    public double getFrequency()
+    {
+        return frequency;
+    }
+
+    /**
+     *
+     * @return  the cache of field gradients at the particles, null if there is none
+     */
+    public CachedField getCache()
+    {
+        return cache;
+    }
+
+    /**
+     * Works out 2 pi e_m Re[K] for each kind of particle
+     *
+     * @param medium        the medium the particles are in
+     * @param frequency     frequency of the field in Hz
+     * @return              the prefactors, indexed by ParticleEnsemble kind
+     */
+    static double[] prefactors(Medium medium, double frequency)
+    {
+        double em = DielectricModel.EPSILON_0 * medium.getRelativePermittivity();
+        double[] prefactor = new double[3];
+        for (byte kind = 0; kind < prefactor.length; kind++)     // OTHER, YEAST and TEST_PARTICLE
+            prefactor[kind] = 2 * Math.PI * em * realFactor(ParticleEnsemble.getDielectric(kind), medium, frequency);
+
+        return prefactor;
+    }
+
+    /**
+     * Looks up Re[K] for a particle model in a medium at a frequency
+     */
+    private static double realFactor(DielectricModel model, Medium medium, double frequency)
+    {
+        return ClausiusMossottiTable.get(model, medium).getReal(frequency);
+    }
+}
@@ -0,0 +1,46 @@
+package simulation;
+
+import particles.ParticleEnsemble;
+
+/**
+ * Calculates the force on each particle of an ensemble. Integrators evaluate forces at trial positions
+ * and velocities as well as the ensemble's own, so the state to use is passed in separately; the
+ * ensemble is only used for each particle's mass, radius and kind.
+ *
+ * Only indices in [from, to) are read or written, so ranges can be computed on different threads at
+ * the same time.
+ *
+ * @author Ronen Orland
+ */
+public interface ForceModel
+{
+    /**
+     * Writes the force on particles from through to - 1 into fx, fy and fz
+     *
+     * @param particles     the ensemble the particles belong to
+     * @param x             x-coordinates to evaluate at
+     * @param y             y-coordinates to evaluate at
+     * @param z             z-coordinates to evaluate at
+     * @param vx            x velocities to evaluate at
+     * @param vy            y velocities to evaluate at
+     * @param vz            z velocities to evaluate at
+     * @param fx            output x components of the force
+     * @param fy            output y components of the force
+     * @param fz            output z components of the force
+     * @param from          first particle to calculate
+     * @param to            one past the last particle to calculate
+     */
+    public void computeForces(ParticleEnsemble particles, double[] x, double[] y, double[] z,
+            double[] vx, double[] vy, double[] vz, double[] fx, double[] fy, double[] fz, int from, int to);
+
+    /**
+     * Called by Simulation once at the start of every step, on the stepping thread and before any
+     * forces are computed, so models can size or refresh shared state that computeForces then only
+     * reads. The default does nothing.
+     *
+     * @param particles     the ensemble about to be stepped
+     */
+    public default void prepare(ParticleEnsemble particles)
+    {
+    }
+}
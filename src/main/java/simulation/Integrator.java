@@ -0,0 +1,66 @@
+package simulation;
+
+import java.util.List;
+
+import particles.ParticleEnsemble;
+
+/**
+ * Advances the positions and velocities of an ensemble through one time step.
+ *
+ * Particles don't interact, so a step is split into ranges of particles that can be advanced
+ * independently, possibly on different threads. Before each step prepare() is called once, then step()
+ * is called for ranges covering every particle exactly once.
+ *
+ * @author Ronen Orland
+ */
+public interface Integrator
+{
+    /**
+     * Gets ready for the next step, sizing any working space to the ensemble. Called once per step
+     * before any ranges are stepped.
+     *
+     * @param particles     the ensemble about to be stepped
+     * @param forces        the forces acting on the particles
+     */
+    public void prepare(ParticleEnsemble particles, ForceModel forces);
+
+    /**
+     * Advances particles from through to - 1 by one time step
+     *
+     * @param particles     the ensemble to advance
+     * @param forces        the forces acting on the particles
+     * @param dt            the time step in seconds
+     * @param from          first particle to advance
+     * @param to            one past the last particle to advance
+     */
+    public void step(ParticleEnsemble particles, ForceModel forces, double dt, int from, int to);
+
+    /**
+     * Advances particles from through to - 1 by one time step and applies perturbations to them within
+     * the step. The default steps and then applies the perturbations, which is right for integrators
+     * that keep nothing between steps. Integrators that carry state to the next step, like the
+     * accelerations of VelocityVerlet, must override this to apply the perturbations before that state
+     * is computed, so it stays valid without a reset.
+     *
+     * @param particles         the ensemble to advance
+     * @param forces            the forces acting on the particles
+     * @param dt                the time step in seconds
+     * @param from              first particle to advance
+     * @param to                one past the last particle to advance
+     * @param perturbations     the perturbations to apply, in order
+     */
+    public default void step(ParticleEnsemble particles, ForceModel forces, double dt, int from, int to,
+            List<Perturbation> perturbations)
+    {
+        step(particles, forces, dt, from, to);
+
+        for (Perturbation perturbation : perturbations)
+            perturbation.perturb(particles, dt, from, to);
+    }
+
+    /**
+     * Forgets anything remembered from previous steps. Call this after the ensemble's positions,
+     * velocities or population are changed outside of the integrator.
+     */
+    public void reset();
+}
@@ -0,0 +1,159 @@
+package simulation;
+
+import particles.Medium;
+import particles.ParticleEnsemble;
+
+/**
+ * Integration for particles small enough that inertia doesn't matter. A micron sized cell in water
+ * reaches its terminal velocity within microseconds, so instead of integrating acceleration each
+ * particle simply moves at the velocity where drag balances the other forces,
+ *
+ *   v = F / (6 pi eta r)
+ *
+ * The time step then only has to resolve how quickly the forces change along the path, not the
+ * inertial relaxation time m / (6 pi eta r), which allows steps several orders of magnitude larger
+ * than the inertial integrators. Masses are ignored. The velocities left in the ensemble are the drift
+ * velocities used for the step.
+ *
+ * @author Ronen Orland
+ */
+public class Overdamped implements Integrator
+{
+    /**
+     * How each step is taken
+     */
+    public static enum Method
+    {
+        EULER,      // Move at the velocity at the start of the step, one force evaluation
+        HEUN        // Average the velocities at the start and at an Euler trial end, two evaluations
+    }
+
+    private final Medium medium;            // Medium providing the drag
+    private final Method method;            // How each step is taken
+    private double[] tx = new double[0];    // Trial positions
+    private double[] ty = new double[0];
+    private double[] tz = new double[0];
+    private double[] fx = new double[0];    // Working space for forces
+    private double[] fy = new double[0];
+    private double[] fz = new double[0];
+
+
+    /**
+     * Constructor for second order steps in a medium
+     *
+     * @param medium    the medium providing the drag
+     */
+    public Overdamped(Medium medium)
+    {
+        this(medium, Method.HEUN);
+    }
+
+    /**
+     * Constructor that takes the medium and how to take each step
+     *
+     * @param medium    the medium providing the drag
+     * @param method    how each step is taken
+     */
+    public Overdamped(Medium medium, Method method)
+    {
+        if (medium == null || method == null)
+            throw new IllegalArgumentException("medium and method must not be null");
+
+        this.medium = medium;
+        this.method = method;
+    }
+
+
+    @Override
+    public void prepare(ParticleEnsemble particles, ForceModel forces)
+    {
+        int n = particles.size();
+        if (fx.length >= n)
+            return;
+
+        int capacity = Math.max(n, 2 * fx.length);
+        tx = new double[capacity];
+        ty = new double[capacity];
+        tz = new double[capacity];
+        fx = new double[capacity];
+        fy = new double[capacity];
+        fz = new double[capacity];
+    }
+
+    @Override
+    public void step(ParticleEnsemble particles, ForceModel forces, double dt, int from, int to)
+    {
+        double[] x = particles.getXArray();
+        double[] y = particles.getYArray();
+        double[] z = particles.getZArray();
+        double[] vx = particles.getVelocityXArray();
+        double[] vy = particles.getVelocityYArray();
+        double[] vz = particles.getVelocityZArray();
+        double[] radius = particles.getRadiusArray();
+
+        // Drift velocity at the start of the step
+        forces.computeForces(particles, x, y, z, vx, vy, vz, fx, fy, fz, from, to);
+        for (int i = from; i < to; i++)
+        {
+            double mobility = 1 / medium.getDragCoefficient(radius[i]);
+            vx[i] = fx[i] * mobility;
+            vy[i] = fy[i] * mobility;
+            vz[i] = fz[i] * mobility;
+        }
+
+        if (method == Method.EULER)
+        {
+            for (int i = from; i < to; i++)
+            {
+                x[i] += dt * vx[i];
+                y[i] += dt * vy[i];
+                z[i] += dt * vz[i];
+            }
+            return;
+        }
+
+        // Drift velocity at the end of an Euler step, averaged with the first
+        for (int i = from; i < to; i++)
+        {
+            tx[i] = x[i] + dt * vx[i];
+            ty[i] = y[i] + dt * vy[i];
+            tz[i] = z[i] + dt * vz[i];
+        }
+
+        forces.computeForces(particles, tx, ty, tz, vx, vy, vz, fx, fy, fz, from, to);
+        for (int i = from; i < to; i++)
+        {
+            double mobility = 1 / medium.getDragCoefficient(radius[i]);
+            vx[i] = 0.5 * (vx[i] + fx[i] * mobility);
+            vy[i] = 0.5 * (vy[i] + fy[i] * mobility);
+            vz[i] = 0.5 * (vz[i] + fz[i] * mobility);
+            x[i] += dt * vx[i];
+            y[i] += dt * vy[i];
+            z[i] += dt * vz[i];
+        }
+    }
+
+    @Override
+    public void reset()
+    {
+        // Nothing is kept between steps
+    }
+
+    /**
+     *
+     * @return  the medium providing the drag
+     */
+    public Medium getMedium()
+    {
+        return medium;
+    }
+
+    /**
+     *
+     * @return  how each step is taken
+     */
+    public Method getMethod()
+    {
+        return method;
+    }
+}
@@ -0,0 +1,71 @@
+package simulation;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Steps a range of particles on a ForkJoinPool. Ranges are halved while the current worker has few
+ * queued tasks of its own, so idle workers always have something to steal. When particles bunch up
+ * somewhere expensive to evaluate, the workers stuck there keep splitting and the rest steal the
+ * pieces, instead of everyone waiting on a fixed chunk.
+ *
+ * @author Ronen Orland
+ */
+class ParallelStep extends RecursiveAction
+{
+    private static final long serialVersionUID = 1L;
+
+    final static int MIN_GRAIN = 16;        // Never split below this many particles
+    final static int MAX_SURPLUS = 3;       // Stop splitting once this many tasks are waiting locally
+
+    private final Simulation simulation;    // The simulation being stepped
+    private final double dt;                // The time step in seconds
+    private final int grain;                // Smallest range to split
+    private final int from;                 // First particle in the range
+    private final int to;                   // One past the last particle in the range
+
+
+    /**
+     * Creates a task stepping particles from through to - 1
+     *
+     * @param simulation    the simulation being stepped
+     * @param dt            the time step in seconds
+     * @param grain         smallest range to split
+     * @param from          first particle to advance
+     * @param to            one past the last particle to advance
+     */
+    ParallelStep(Simulation simulation, double dt, int grain, int from, int to)
+    {
+        this.simulation = simulation;
+        this.dt = dt;
+        this.grain = Math.max(MIN_GRAIN, grain);
+        this.from = from;
+        this.to = to;
+    }
+
+
+    @Override
+    protected void compute()
+    {
+        if (to - from <= grain || getSurplusQueuedTaskCount() > MAX_SURPLUS)
+        {
+            simulation.stepRange(dt, from, to);
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        invokeAll(new ParallelStep(simulation, dt, grain, from, mid),
+                new ParallelStep(simulation, dt, grain, mid, to));
+    }
+
+    /**
+     * Picks a grain that gives each worker many pieces to share out
+     *
+     * @param count         number of particles being stepped
+     * @param parallelism   number of workers in the pool
+     * @return              the smallest range worth splitting
+     */
+    static int grain(int count, int parallelism)
+    {
+        return Math.max(MIN_GRAIN, count / (32 * Math.max(1, parallelism)));
+    }
+}
@@ -0,0 +1,26 @@
+package simulation;
+
+import particles.ParticleEnsemble;
+
+/**
+ * A change applied directly to the particles once per step, after the integrator has moved them, for
+ * effects that aren't smooth forces and so can't be integrated, such as thermal noise. Integrators
+ * that carry state between steps apply it before computing that state, see
+ * Integrator.step(ParticleEnsemble, ForceModel, double, int, int, List).
+ *
+ * Like forces, only indices in [from, to) are touched so ranges can run on different threads.
+ *
+ * @author Ronen Orland
+ */
+public interface Perturbation
+{
+    /**
+     * Applies the change for one time step to particles from through to - 1
+     *
+     * @param particles     the ensemble to change
+     * @param dt            the time step in seconds
+     * @param from          first particle to change
+     * @param to            one past the last particle to change
+     */
+    public void perturb(ParticleEnsemble particles, double dt, int from, int to);
+}
@@ -0,0 +1,96 @@
+package simulation;
+
+import field.Electrode;
+import field.PlanarGradient;
+import particles.Medium;
+import particles.PlanarEnsemble;
+
+/**
+ * The dielectrophoretic force of DepForce restricted to a plane of constant z,
+ *
+ *   F = 4 pi e_m r^3 Re[K(f)] (Jxx Ex + Jxy Ey + Jxz Ez, Jxy Ex + Jyy Ey + Jyz Ez)
+ *
+ * which is the x and y part of the 3D force, field out of the plane included. The z part is dropped,
+ * since particles stay in their plane.
+ *
+ * @author Ronen Orland
+ */
+public class PlanarDepForce implements PlanarForceModel
+{
+    private final Electrode electrode;      // Source of the field
+    private final Medium medium;            // Medium the particles are in
+    private final double frequency;         // Frequency of the field in Hz
+    private final double[] prefactor;       // 2 pi e_m Re[K] for each kind of particle
+
+
+    /**
+     * Constructor that takes the field source, medium and frequency
+     *
+     * @param electrode     the electrode creating the field, use an ElectrodeSet for several
+     * @param medium        the medium the particles are in
+     * @param frequency     frequency of the field in Hz
+     */
+    public PlanarDepForce(Electrode electrode, Medium medium, double frequency)
+    {
+        this.electrode = electrode;
+        this.medium = medium;
+        this.frequency = frequency;
+        prefactor = DepForce.prefactors(medium, frequency);
+    }
+
+
+    @Override
+    public void computeForces(PlanarEnsemble particles, double[] x, double[] y, double[] vx, double[] vy,
+            double[] fx, double[] fy, int from, int to)
+    {
+        double[] radius = particles.getRadiusArray();
+        double[] gradient = new double[PlanarGradient.LENGTH];
+        double z = particles.getZ();
+
+        for (int i = from; i < to; i++)
+        {
+            for (int c = 0; c < PlanarGradient.LENGTH; c++)
+                gradient[c] = 0;
+
+            electrode.addPlanarFieldGradient(x[i], y[i], z, gradient);
+
+            double ex = gradient[PlanarGradient.EX];
+            double ey = gradient[PlanarGradient.EY];
+            double ez = gradient[PlanarGradient.EZ];
+            double r = radius[i];
+            double scale = 2 * prefactor[particles.getKind(i)] * r * r * r;   // grad |E|^2 = 2 J E
+
+            fx[i] = scale * (gradient[PlanarGradient.XX] * ex + gradient[PlanarGradient.XY] * ey
+                    + gradient[PlanarGradient.XZ] * ez);
+            fy[i] = scale * (gradient[PlanarGradient.XY] * ex + gradient[PlanarGradient.YY] * ey
+                    + gradient[PlanarGradient.YZ] * ez);
+        }
+    }
+
+    /**
+     *
+     * @return  the electrode creating the field
+     */
+    public Electrode getElectrode()
+    {
+        return electrode;
+    }
+
+    /**
+     *
+     * @return  the medium the particles are in
+     */
+    public Medium getMedium()
+    {
+        return medium;
+    }
+
+    /**
+     *
+     * @return  frequency of the field in Hz
+     */
+    public double getFrequency()
+    {
+        return frequency;
+    }
+}
@@ -0,0 +1,27 @@
+package simulation;
+
+import particles.PlanarEnsemble;
+
+/**
+ * Calculates the in-plane forces on the particles of a 2D simulation. The 2D counterpart of ForceModel.
+ *
+ * @author Ronen Orland
+ */
+public interface PlanarForceModel
+{
+    /**
+     * Writes the force on particles from through to - 1 into fx and fy
+     *
+     * @param particles     the ensemble the particles belong to
+     * @param x             x-coordinates to evaluate at
+     * @param y             y-coordinates to evaluate at
+     * @param vx            x velocities to evaluate at
+     * @param vy            y velocities to evaluate at
+     * @param fx            output x components of the force
+     * @param fy            output y components of the force
+     * @param from          first particle to calculate
+     * @param to            one past the last particle to calculate
+     */
+    public void computeForces(PlanarEnsemble particles, double[] x, double[] y, double[] vx, double[] vy,
+            double[] fx, double[] fy, int from, int to);
+}
@@ -0,0 +1,287 @@
+package simulation;
+
+import java.util.Collection;
+
+import field.Electrode;
+import field.ElectrodeSet;
+import particles.Medium;
+import particles.PlanarEnsemble;
+
+/**
+ * Drives a PlanarEnsemble through time, the 2D counterpart of Simulation for channels that are
+ * effectively planar. Positions, velocities and forces only ever have x and y components, so the
+ * integration does about two thirds of the work of a 3D step and the ensemble takes two thirds of the
+ * memory. Particles stay in their plane, though the field out of the plane still acts on them.
+ *
+ * The same integration methods as the 3D integrators are built in: velocity-Verlet for particles with
+ * inertia, and Euler or Heun steps at the drift velocity for overdamped particles, as in Overdamped.
+ *
+ * @author Ronen Orland
+ */
+public class PlanarSimulation
+{
+    /**
+     * How each step is taken
+     */
+    public static enum Method
+    {
+        VELOCITY_VERLET,    // Inertial, as in VelocityVerlet
+        OVERDAMPED_EULER,   // Drift velocity at the start of the step, as in Overdamped.Method.EULER
+        OVERDAMPED_HEUN     // Averaged drift velocity, as in Overdamped.Method.HEUN
+    }
+
+    private final PlanarEnsemble particles;     // The particles being simulated
+    private final PlanarForceModel forces;      // Forces acting on the particles
+    private final Method method;                // How each step is taken
+    private final Medium medium;                // Medium providing the drag for overdamped steps
+    private double time;                        // Simulated time in seconds
+    private long steps;                         // Number of steps taken
+
+    private double[] ax = new double[0];        // Acceleration at the start of the next Verlet step
+    private double[] ay = new double[0];
+    private double[] tx = new double[0];        // Trial positions for Heun steps
+    private double[] ty = new double[0];
+    private double[] fx = new double[0];        // Working space for forces
+    private double[] fy = new double[0];
+    private int primed = -1;                    // Number of particles with valid accelerations, -1 if none
+
+
+    /**
+     * Constructor that takes the particles, the forces on them and how to step them
+     *
+     * @param particles     the particles to simulate
+     * @param forces        the forces acting on the particles
+     * @param method        how each step is taken
+     * @param medium        the medium providing the drag, only needed for the overdamped methods
+     * @throws IllegalArgumentException     if an argument is null, or medium is null for an overdamped method
+     */
+    public PlanarSimulation(PlanarEnsemble particles, PlanarForceModel forces, Method method, Medium medium)
+    {
+        if (particles == null || forces == null || method == null)
+            throw new IllegalArgumentException("particles, forces and method must not be null");
+        if (method != Method.VELOCITY_VERLET && medium == null)
+            throw new IllegalArgumentException("Overdamped steps need a medium");
+
+        this.particles = particles;
+        this.forces = forces;
+        this.method = method;
+        this.medium = medium;
+    }
+
+    /**
+     * Constructor for particles moved by dielectrophoresis in the field of a set of electrodes
+     *
+     * @param particles     the particles to simulate
+     * @param electrodes    the electrodes creating the field
+     * @param medium        the medium the particles are in
+     * @param frequency     frequency of the field in Hz
+     * @param method        how each step is taken
+     */
+    public PlanarSimulation(PlanarEnsemble particles, Collection<? extends Electrode> electrodes, Medium medium,
+            double frequency, Method method)
+    {
+        this(particles, new PlanarDepForce(new ElectrodeSet(electrodes), medium, frequency), method, medium);
+    }
+
+
+    /**
+     * Advances every particle by one time step
+     *
+     * @param dt    the time step in seconds
+     */
+    public void step(double dt)
+    {
+        if (!(dt > 0))
+            throw new IllegalArgumentException("Time step must be positive");
+
+        int n = particles.size();
+        if (fx.length < n)
+        {
+            int capacity = Math.max(n, 2 * fx.length);
+            ax = new double[capacity];
+            ay = new double[capacity];
+            tx = new double[capacity];
+            ty = new double[capacity];
+            fx = new double[capacity];
+            fy = new double[capacity];
+            primed = -1;
+        }
+
+        if (method == Method.VELOCITY_VERLET)
+            verlet(dt, n);
+        else
+            overdamped(dt, n);
+
+        time += dt;
+        steps++;
+    }
+
+    /**
+     * Takes a number of equal time steps
+     *
+     * @param count     the number of steps to take
+     * @param dt        the time step in seconds
+     */
+    public void run(int count, double dt)
+    {
+        if (count < 0)
+            throw new IllegalArgumentException("Step count must not be negative");
+
+        for (int i = 0; i < count; i++)
+            step(dt);
+    }
+
+    /**
+     * Forgets the accelerations kept between Verlet steps. Call this after the ensemble's positions,
+     * velocities or population are changed outside of the simulation.
+     */
+    public void reset()
+    {
+        primed = -1;
+    }
+
+    /**
+     *
+     * @return  the particles being simulated
+     */
+    public PlanarEnsemble getParticles()
+    {
+        return particles;
+    }
+
+    /**
+     *
+     * @return  the forces acting on the particles
+     */
+    public PlanarForceModel getForces()
+    {
+        return forces;
+    }
+
+    /**
+     *
+     * @return  how each step is taken
+     */
+    public Method getMethod()
+    {
+        return method;
+    }
+
+    /**
+     *
+     * @return  the simulated time in seconds
+     */
+    public double getTime()
+    {
+        return time;
+    }
+
+    /**
+     *
+     * @return  the number of steps taken
+     */
+    public long getStepCount()
+    {
+        return steps;
+    }
+
+    /**
+     * One velocity-Verlet step
+     */
+    private void verlet(double dt, int n)
+    {
+        double[] x = particles.getXArray();
+        double[] y = particles.getYArray();
+        double[] vx = particles.getVelocityXArray();
+        double[] vy = particles.getVelocityYArray();
+        double half = 0.5 * dt;
+
+        // Accelerations at the starting positions are needed before the first step
+        if (primed != n)
+        {
+            accelerate(vx, vy, n);
+            primed = n;
+        }
+
+        // Half kick and drift
+        for (int i = 0; i < n; i++)
+        {
+            vx[i] += half * ax[i];
+            vy[i] += half * ay[i];
+            x[i] += dt * vx[i];
+            y[i] += dt * vy[i];
+        }
+
+        accelerate(vx, vy, n);
+
+        // Second half kick with the new accelerations
+        for (int i = 0; i < n; i++)
+        {
+            vx[i] += half * ax[i];
+            vy[i] += half * ay[i];
+        }
+    }
+
+    /**
+     * Stores the accelerations of every particle at its current position
+     */
+    private void accelerate(double[] vx, double[] vy, int n)
+    {
+        forces.computeForces(particles, particles.getXArray(), particles.getYArray(), vx, vy, fx, fy, 0, n);
+
+        double[] mass = particles.getMassArray();
+        for (int i = 0; i < n; i++)
+        {
+            ax[i] = fx[i] / mass[i];
+            ay[i] = fy[i] / mass[i];
+        }
+    }
+
+    /**
+     * One step at the drift velocity, Euler or Heun
+     */
+    private void overdamped(double dt, int n)
+    {
+        double[] x = particles.getXArray();
+        double[] y = particles.getYArray();
+        double[] vx = particles.getVelocityXArray();
+        double[] vy = particles.getVelocityYArray();
+        double[] radius = particles.getRadiusArray();
+
+        // Drift velocity at the start of the step
+        forces.computeForces(particles, x, y, vx, vy, fx, fy, 0, n);
+        for (int i = 0; i < n; i++)
+        {
+            double mobility = 1 / medium.getDragCoefficient(radius[i]);
+            vx[i] = fx[i] * mobility;
+            vy[i] = fy[i] * mobility;
+        }
+
+        if (method == Method.OVERDAMPED_EULER)
+        {
+            for (int i = 0; i < n; i++)
+            {
+                x[i] += dt * vx[i];
+                y[i] += dt * vy[i];
+            }
+            return;
+        }
+
+        // Drift velocity at the end of an Euler step, averaged with the first
+        for (int i = 0; i < n; i++)
+        {
+            tx[i] = x[i] + dt * vx[i];
+            ty[i] = y[i] + dt * vy[i];
+        }
+
+        forces.computeForces(particles, tx, ty, vx, vy, fx, fy, 0, n);
+        for (int i = 0; i < n; i++)
+        {
+            double mobility = 1 / medium.getDragCoefficient(radius[i]);
+            vx[i] = 0.5 * (vx[i] + fx[i] * mobility);
+            vy[i] = 0.5 * (vy[i] + fy[i] * mobility);
+            x[i] += dt * vx[i];
+            y[i] += dt * vy[i];
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package simulation;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs a simulation either headless, as fast as the machine allows, or in real time for display.
+ *
+ * In real time mode the simulation and the display run on one scheduler thread at independent rates.
+ * The step task works out from the wall clock how many steps are due and takes them all, so a slow
+ * frame or a busy host is caught up on the next tick instead of slowing simulated time down. Catching
+ * up is limited per tick; beyond that the backlog is dropped and counted, so an overloaded host falls
+ * behind real time rather than spiraling. The display callback runs between steps, so it always sees
+ * a consistent state, but it should be quick since steps wait for it.
+ *
+ * A paced run keeps the same accounting without the background thread: the caller decides when to
+ * call tick(), and the clock can be swapped for a fake one to step through time deterministically.
+ *
+ * @author Ronen Orland
+ */
+public class RunScheduler
+{
+    public final static int DEFAULT_MAX_CATCH_UP = 100;    // Most steps taken in one tick
+
+    private final Simulation simulation;    // The simulation to run
+    private final double dt;                // Time step in seconds
+    private final LongSupplier clock;       // Wall clock in nanoseconds
+    private volatile boolean stopRequested; // Set to end the current run
+    private volatile boolean paced;         // True while a real time or paced run is in progress
+    private ScheduledExecutorService scheduler;     // Real time scheduler, null when not running
+
+    private double stepsPerNano;            // Steps due per nanosecond of wall clock
+    private int maxCatchUp;                 // Most steps taken in one tick
+    private long startNanos;                // Wall clock at the start of the run
+    private long startStep;                 // Step count at the start of the run
+    private volatile long dropped;          // Steps skipped because the host fell too far behind
+    private volatile Throwable failure;     // Error that stopped the run
+
+
+    /**
+     * Creates a scheduler
+     *
+     * @param simulation    the simulation to run
+     * @param dt            the time step in seconds
+     * @throws IllegalArgumentException     if dt isn't positive
+     */
+    public RunScheduler(Simulation simulation, double dt)
+    {
+        this(simulation, dt, System::nanoTime);
+    }
+
+    /**
+     * Creates a scheduler that reads the wall clock from a given source
+     *
+     * @param simulation    the simulation to run
+     * @param dt            the time step in seconds
+     * @param clock         source of the wall clock in nanoseconds, such as System::nanoTime
+     * @throws IllegalArgumentException     if dt isn't positive or clock is null
+     */
+    public RunScheduler(Simulation simulation, double dt, LongSupplier clock)
+    {
+        if (!(dt > 0))
+            throw new IllegalArgumentException("Time step must be positive");
+        if (clock == null)
+            throw new IllegalArgumentException("clock must not be null");
+
+        this.simulation = simulation;
+        this.dt = dt;
+        this.clock = clock;
+    }
+
+
+    /**
+     * Takes steps back to back on the calling thread, until the count is reached or stop() is called
+     *
+     * @param steps     the number of steps to take
+     * @return          the number of steps taken
+     */
+    public long runHeadless(long steps)
+    {
+        stopRequested = false;
+
+        long taken = 0;
+        while (taken < steps && !stopRequested)
+        {
+            simulation.step(dt);
+            taken++;
+        }
+
+        return taken;
+    }
+
+    /**
+     * Takes steps back to back on the calling thread, until the simulated time is reached or stop() is
+     * called
+     *
+     * @param time  the simulated time in seconds to run until
+     * @return      the number of steps taken
+     */
+    public long runHeadlessUntil(double time)
+    {
+        stopRequested = false;
+
+        long taken = 0;
+        while (simulation.getTime() + 0.5 * dt < time && !stopRequested)
+        {
+            simulation.step(dt);
+            taken++;
+        }
+
+        return taken;
+    }
+
+    /**
+     * Starts running in real time on a background thread. Returns at once. Don't touch the simulation
+     * from other threads until stop() returns.
+     *
+     * @param speed         simulated seconds per wall clock second, 1 for real time
+     * @param tickRate      how many times a second to wake up and take the steps that are due
+     * @param displayRate   how many times a second to call display
+     * @param display       called with the simulation between steps, may be null
+     * @throws IllegalArgumentException     if speed or a rate isn't positive
+     * @throws IllegalStateException        if already running
+     */
+    public void startRealTime(double speed, double tickRate, double displayRate,
+            Consumer<Simulation> display)
+    {
+        startRealTime(speed, tickRate, displayRate, display, DEFAULT_MAX_CATCH_UP);
+    }
+
+    /**
+     * Starts running in real time on a background thread. Returns at once. Don't touch the simulation
+     * from other threads until stop() returns.
+     *
+     * @param speed         simulated seconds per wall clock second, 1 for real time
+     * @param tickRate      how many times a second to wake up and take the steps that are due
+     * @param displayRate   how many times a second to call display
+     * @param display       called with the simulation between steps, may be null
+     * @param maxCatchUp    most steps to take in one tick
+     * @throws IllegalArgumentException     if speed, a rate or maxCatchUp isn't positive
+     * @throws IllegalStateException        if already running
+     */
+    public synchronized void startRealTime(double speed, double tickRate, double displayRate,
+            Consumer<Simulation> display, int maxCatchUp)
+    {
+        if (!(tickRate > 0) || !(displayRate > 0))
+            throw new IllegalArgumentException("Speed, rates and catch up limit must be positive");
+        startPaced(speed, maxCatchUp);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r ->
+        {
+            Thread thread = new Thread(r, "simulation-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::advance, 0, period(tickRate), TimeUnit.NANOSECONDS);
+        if (display != null)
+            scheduler.scheduleAtFixedRate(() -> guard(() -> display.accept(simulation)), 0, period(displayRate),
+                    TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Starts a real time run without a background thread. Nothing happens until the caller calls
+     * tick(), which takes the steps due by the clock since the start, as in startRealTime.
+     *
+     * @param speed         simulated seconds per wall clock second, 1 for real time
+     * @param maxCatchUp    most steps to take in one tick
+     * @throws IllegalArgumentException     if speed or maxCatchUp isn't positive
+     * @throws IllegalStateException        if already running
+     */
+    public synchronized void startPaced(double speed, int maxCatchUp)
+    {
+        if (!(speed > 0) || maxCatchUp < 1)
+            throw new IllegalArgumentException("Speed, rates and catch up limit must be positive");
+        if (paced)
+            throw new IllegalStateException("Already running");
+
+        stopRequested = false;
+        dropped = 0;
+        failure = null;
+        stepsPerNano = speed / dt * 1e-9;
+        this.maxCatchUp = maxCatchUp;
+        startNanos = clock.getAsLong();
+        startStep = simulation.getStepCount();
+        paced = true;
+    }
+
+    /**
+     * Takes every step that is due by the clock, up to the catch up limit. Only call this for a paced
+     * run; a real time run already ticks on its own thread.
+     *
+     * @throws IllegalStateException    if no run is in progress
+     */
+    public void tick()
+    {
+        if (!paced)
+            throw new IllegalStateException("Not running");
+
+        advance();
+    }
+
+    /**
+     * Stops the current run, waiting for a real time run's current step or display to finish
+     */
+    public void stop()
+    {
+        stopRequested = true;
+
+        ExecutorService running;
+        synchronized (this)
+        {
+            running = scheduler;
+            scheduler = null;
+            paced = false;
+        }
+        if (running == null)
+            return;
+
+        running.shutdownNow();
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                running.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                break;
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     *
+     * @return  true if a real time or paced run is in progress
+     */
+    public synchronized boolean isRunning()
+    {
+        return paced && failure == null;
+    }
+
+    /**
+     *
+     * @return  the number of steps dropped in the current or last real time run because the host fell
+     *          too far behind
+     */
+    public long getDroppedSteps()
+    {
+        return dropped;
+    }
+
+    /**
+     *
+     * @return  the error that ended the last real time run, or null if there wasn't one
+     */
+    public Throwable getFailure()
+    {
+        return failure;
+    }
+
+    /**
+     *
+     * @return  the simulation being run
+     */
+    public Simulation getSimulation()
+    {
+        return simulation;
+    }
+
+    /**
+     *
+     * @return  the time step in seconds
+     */
+    public double getTimeStep()
+    {
+        return dt;
+    }
+
+    /**
+     * Takes every step that is due by the clock, up to the catch up limit
+     */
+    private void advance()
+    {
+        guard(() ->
+        {
+            long due = (long) ((clock.getAsLong() - startNanos) * stepsPerNano)
+                    - (simulation.getStepCount() - startStep) - dropped;
+
+            if (due > maxCatchUp)
+            {
+                dropped += due - maxCatchUp;
+                due = maxCatchUp;
+            }
+
+            for (long i = 0; i < due && !stopRequested; i++)
+                simulation.step(dt);
+        });
+    }
+
+    /**
+     * Runs a task, ending the run if it throws
+     */
+    private void guard(Runnable task)
+    {
+        if (stopRequested || failure != null)
+            return;
+
+        try
+        {
+            task.run();
+        }
+        catch (Throwable t)
+        {
+            failure = t;
+            stopRequested = true;
+            throw t;
+        }
+    }
+
+    /**
+     * Nanoseconds between calls at a rate
+     */
+    private static long period(double rate)
+    {
+        return Math.max(1, (long) (1e9 / rate));
+    }
+}
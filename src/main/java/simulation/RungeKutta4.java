@@ -0,0 +1,149 @@
+package simulation;
+
+import particles.ParticleEnsemble;
+
+/**
+ * Classic fourth order Runge-Kutta integration of positions and velocities. Four force evaluations
+ * per step, but much more accurate than Verlet for a given step size, and nothing is carried over
+ * between steps.
+ *
+ * @author Ronen Orland
+ */
+public class RungeKutta4 implements Integrator
+{
+    private double[] tx = new double[0];    // Trial positions
+    private double[] ty = new double[0];
+    private double[] tz = new double[0];
+    private double[] tvx = new double[0];   // Trial velocities
+    private double[] tvy = new double[0];
+    private double[] tvz = new double[0];
+    private double[] sx = new double[0];    // Weighted sums of the position derivatives
+    private double[] sy = new double[0];
+    private double[] sz = new double[0];
+    private double[] svx = new double[0];   // Weighted sums of the velocity derivatives
+    private double[] svy = new double[0];
+    private double[] svz = new double[0];
+    private double[] fx = new double[0];    // Working space for forces
+    private double[] fy = new double[0];
+    private double[] fz = new double[0];
+
+
+    @Override
+    public void prepare(ParticleEnsemble particles, ForceModel forces)
+    {
+        int n = particles.size();
+        if (tx.length >= n)
+            return;
+
+        int capacity = Math.max(n, 2 * tx.length);
+        tx = new double[capacity];
+        ty = new double[capacity];
+        tz = new double[capacity];
+        tvx = new double[capacity];
+        tvy = new double[capacity];
+        tvz = new double[capacity];
+        sx = new double[capacity];
+        sy = new double[capacity];
+        sz = new double[capacity];
+        svx = new double[capacity];
+        svy = new double[capacity];
+        svz = new double[capacity];
+        fx = new double[capacity];
+        fy = new double[capacity];
+        fz = new double[capacity];
+    }
+
+    @Override
+    public void step(ParticleEnsemble particles, ForceModel forces, double dt, int from, int to)
+    {
+        double[] x = particles.getXArray();
+        double[] y = particles.getYArray();
+        double[] z = particles.getZArray();
+        double[] vx = particles.getVelocityXArray();
+        double[] vy = particles.getVelocityYArray();
+        double[] vz = particles.getVelocityZArray();
+        double[] mass = particles.getMassArray();
+        double half = 0.5 * dt;
+
+        // k1, at the current state
+        forces.computeForces(particles, x, y, z, vx, vy, vz, fx, fy, fz, from, to);
+        for (int i = from; i < to; i++)
+        {
+            double ax = fx[i] / mass[i];
+            double ay = fy[i] / mass[i];
+            double az = fz[i] / mass[i];
+
+            sx[i] = vx[i];
+            sy[i] = vy[i];
+            sz[i] = vz[i];
+            svx[i] = ax;
+            svy[i] = ay;
+            svz[i] = az;
+
+            tx[i] = x[i] + half * vx[i];
+            ty[i] = y[i] + half * vy[i];
+            tz[i] = z[i] + half * vz[i];
+            tvx[i] = vx[i] + half * ax;
+            tvy[i] = vy[i] + half * ay;
+            tvz[i] = vz[i] + half * az;
+        }
+
+        // k2 and k3, at the midpoint
+        stage(particles, forces, x, y, z, vx, vy, vz, half, from, to);
+        stage(particles, forces, x, y, z, vx, vy, vz, dt, from, to);
+
+        // k4, at the end of the step
+        forces.computeForces(particles, tx, ty, tz, tvx, tvy, tvz, fx, fy, fz, from, to);
+        double sixth = dt / 6;
+        for (int i = from; i < to; i++)
+        {
+            x[i] += sixth * (sx[i] + tvx[i]);
+            y[i] += sixth * (sy[i] + tvy[i]);
+            z[i] += sixth * (sz[i] + tvz[i]);
+            vx[i] += sixth * (svx[i] + fx[i] / mass[i]);
+            vy[i] += sixth * (svy[i] + fy[i] / mass[i]);
+            vz[i] += sixth * (svz[i] + fz[i] / mass[i]);
+        }
+    }
+
+    @Override
+    public void reset()
+    {
+        // Nothing is kept between steps
+    }
+
+    /**
+     * Evaluates a midpoint stage at the current trial state, adds it to the sums with a weight of 2,
+     * then moves the trial state to the start of the step plus h times the stage's derivatives
+     */
+    private void stage(ParticleEnsemble particles, ForceModel forces, double[] x, double[] y, double[] z,
+            double[] vx, double[] vy, double[] vz, double h, int from, int to)
+    {
+        double[] mass = particles.getMassArray();
+
+        forces.computeForces(particles, tx, ty, tz, tvx, tvy, tvz, fx, fy, fz, from, to);
+        for (int i = from; i < to; i++)
+        {
+            double ax = fx[i] / mass[i];
+            double ay = fy[i] / mass[i];
+            double az = fz[i] / mass[i];
+            double dx = tvx[i];
+            double dy = tvy[i];
+            double dz = tvz[i];
+
+            sx[i] += 2 * dx;
+            sy[i] += 2 * dy;
+            sz[i] += 2 * dz;
+            svx[i] += 2 * ax;
+            svy[i] += 2 * ay;
+            svz[i] += 2 * az;
+
+            tx[i] = x[i] + h * dx;
+            ty[i] = y[i] + h * dy;
+            tz[i] = z[i] + h * dz;
+            tvx[i] = vx[i] + h * ax;
+            tvy[i] = vy[i] + h * ay;
+            tvz[i] = vz[i] + h * az;
+        }
+    }
+}
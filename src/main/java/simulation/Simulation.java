@@ -0,0 +1,285 @@
+package simulation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import field.Electrode;
+import field.ElectrodeSet;
+import particles.Medium;
+import particles.ParticleEnsemble;
+
+/**
+ * Drives an ensemble of particles through time under a force model, using a pluggable integrator.
+ *
+ * Perturbations, such as Brownian motion, are applied to each particle as part of the integrator's
+ * step, so integrators that carry state between steps can keep it valid without extra force
+ * evaluations.
+ *
+ * Steps run on the calling thread unless a ForkJoinPool is set, in which case the particles are split
+ * between the pool's workers.
+ *
+ * @author Ronen Orland
+ */
+public class Simulation
+{
+    private final ParticleEnsemble particles;   // The particles being simulated
+    private final ForceModel forces;            // Forces acting on the particles
+    private Integrator integrator;              // Method used to advance the particles
+    private double time;                        // Simulated time in seconds
+    private long steps;                         // Number of steps taken
+    private ForkJoinPool pool;                  // Pool for parallel steps, null to step sequentially
+    private final List<Perturbation> perturbations = new ArrayList<Perturbation>();
+    private final List<StepListener> listeners = new ArrayList<StepListener>();
+
+
+    /**
+     * Constructor that takes the particles, the forces on them and the integrator to use
+     *
+     * @param particles     the particles to simulate
+     * @param forces        the forces acting on the particles
+     * @param integrator    the method used to advance the particles
+     */
+    public Simulation(ParticleEnsemble particles, ForceModel forces, Integrator integrator)
+    {
+        if (particles == null || forces == null || integrator == null)
+            throw new IllegalArgumentException("particles, forces and integrator must not be null");
+
+        this.particles = particles;
+        this.forces = forces;
+        this.integrator = integrator;
+    }
+
+    /**
+     * Constructor for particles moved by dielectrophoresis in the field of a set of electrodes
+     *
+     * @param particles     the particles to simulate
+     * @param electrodes    the electrodes creating the field
+     * @param medium        the medium the particles are in
+     * @param frequency     frequency of the field in Hz
+     * @param integrator    the method used to advance the particles
+     */
+    public Simulation(ParticleEnsemble particles, Collection<? extends Electrode> electrodes, Medium medium,
+            double frequency, Integrator integrator)
+    {
+        this(particles, new DepForce(new ElectrodeSet(electrodes), medium, frequency), integrator);
+    }
+
+
+    /**
+     * Advances every particle by one time step
+     *
+     * @param dt    the time step in seconds
+     */
+    public void step(double dt)
+    {
+        if (!(dt > 0))
+            throw new IllegalArgumentException("Time step must be positive");
+
+        forces.prepare(particles);
+        integrator.prepare(particles, forces);
+
+        int count = particles.size();
+        if (pool == null || count <= ParallelStep.MIN_GRAIN)
+            stepRange(dt, 0, count);
+        else
+            pool.invoke(new ParallelStep(this, dt, ParallelStep.grain(count, pool.getParallelism()), 0, count));
+
+        time += dt;
+        steps++;
+
+        for (StepListener listener : listeners)
+            listener.stepped(this);
+    }
+
+    /**
+     * Advances particles from through to - 1 by one time step and applies the perturbations to them
+     *
+     * @param dt        the time step in seconds
+     * @param from      first particle to advance
+     * @param to        one past the last particle to advance
+     */
+    void stepRange(double dt, int from, int to)
+    {
+        integrator.step(particles, forces, dt, from, to, perturbations);
+    }
+
+    /**
+     * Takes a number of equal time steps
+     *
+     * @param count     the number of steps to take
+     * @param dt        the time step in seconds
+     */
+    public void run(int count, double dt)
+    {
+        if (count < 0)
+            throw new IllegalArgumentException("Step count must not be negative");
+
+        for (int i = 0; i < count; i++)
+            step(dt);
+    }
+
+    /**
+     *
+     * @return  the particles being simulated
+     */
+    public ParticleEnsemble getParticles()
+    {
+        return particles;
+    }
+
+    /**
+     *
+     * @return  the forces acting on the particles
+     */
+    public ForceModel getForces()
+    {
+        return forces;
+    }
+
+    /**
+     *
+     * @return  the method used to advance the particles
+     */
+    public Integrator getIntegrator()
+    {
+        return integrator;
+    }
+
+    /**
+     * Changes the method used to advance the particles
+     *
+     * @param integrator    the new integrator
+     */
+    public void setIntegrator(Integrator integrator)
+    {
+        if (integrator == null)
+            throw new IllegalArgumentException("integrator must not be null");
+
+        this.integrator = integrator;
+        integrator.reset();
+    }
+
+    /**
+     * Adds a perturbation applied within every step
+     *
+     * @param perturbation  the perturbation to add
+     */
+    public void addPerturbation(Perturbation perturbation)
+    {
+        if (perturbation == null)
+            throw new IllegalArgumentException("perturbation must not be null");
+
+        perturbations.add(perturbation);
+    }
+
+    /**
+     * Removes a perturbation
+     *
+     * @param perturbation  the perturbation to remove
+     * @return              true if it was being applied
+     */
+    public boolean removePerturbation(Perturbation perturbation)
+    {
+        return perturbations.remove(perturbation);
+    }
+
+    /**
+     *
+     * @return  an unmodifiable view of the perturbations applied after every step
+     */
+    public List<Perturbation> getPerturbations()
+    {
+        return Collections.unmodifiableList(perturbations);
+    }
+
+    /**
+     * Adds a listener notified after every step
+     *
+     * @param listener  the listener to add
+     */
+    public void addListener(StepListener listener)
+    {
+        if (listener == null)
+            throw new IllegalArgumentException("listener must not be null");
+
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener
+     *
+     * @param listener  the listener to remove
+     * @return          true if it was being notified
+     */
+    public boolean removeListener(StepListener listener)
+    {
+        return listeners.remove(listener);
+    }
+
+    /**
+     *
+     * @return  the pool used for parallel steps, or null if stepping sequentially
+     */
+    public ForkJoinPool getPool()
+    {
+        return pool;
+    }
+
+    /**
+     * Sets the pool to step particles in parallel on. The force model and any electrodes it uses must
+     * be safe to evaluate from several threads at once.
+     *
+     * @param pool  the pool to use, or null to step on the calling thread
+     */
+    public void setPool(ForkJoinPool pool)
+    {
+        this.pool = pool;
+    }
+
+    /**
+     * Steps particles in parallel on the common pool, or turns parallel stepping off
+     *
+     * @param parallel  true to step in parallel
+     */
+    public void setParallel(boolean parallel)
+    {
+        pool = parallel ? ForkJoinPool.commonPool() : null;
+    }
+
+    /**
+     *
+     * @return  the simulated time in seconds
+     */
+    public double getTime()
+    {
+        return time;
+    }
+
+    /**
+     *
+     * @return  the number of steps taken
+     */
+    public long getStepCount()
+    {
+        return steps;
+    }
+
+    /**
+     * Sets the clock, for resuming a run from a saved state
+     *
+     * @param time      the simulated time in seconds
+     * @param steps     the number of steps taken
+     * @throws IllegalArgumentException     if steps is negative
+     */
+    public void setClock(double time, long steps)
+    {
+        if (steps < 0)
+            throw new IllegalArgumentException("Step count must not be negative");
+
+        this.time = time;
+        this.steps = steps;
+    }
+}
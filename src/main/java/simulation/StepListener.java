@@ -0,0 +1,18 @@
+package simulation;
+
+/**
+ * Notified after each step of a simulation, on the thread that called step(). Listeners should return
+ * quickly since the simulation waits for them.
+ *
+ * @author Ronen Orland
+ */
+@FunctionalInterface
+public interface StepListener
+{
+    /**
+     * Called after a step has finished and the clock has advanced
+     *
+     * @param simulation    the simulation that stepped
+     */
+    public void stepped(Simulation simulation);
+}
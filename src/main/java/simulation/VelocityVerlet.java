@@ -0,0 +1,119 @@
+package simulation;
+
+import java.util.Collections;
+import java.util.List;
+
+import particles.ParticleEnsemble;
+
+/**
+ * Velocity-Verlet integration. Second order accurate and needs only one force evaluation per step,
+ * since the accelerations at the end of a step are kept for the start of the next.
+ *
+ * Velocity dependent forces are evaluated with the half step velocity. Perturbations are applied after
+ * the drift and before the forces are evaluated, so the kept accelerations match the perturbed
+ * positions and still only one force evaluation is needed per step.
+ *
+ * @author Ronen Orland
+ */
+public class VelocityVerlet implements Integrator
+{
+    private double[] ax = new double[0];    // Acceleration at the start of the next step
+    private double[] ay = new double[0];
+    private double[] az = new double[0];
+    private double[] fx = new double[0];    // Working space for forces
+    private double[] fy = new double[0];
+    private double[] fz = new double[0];
+    private int primed = -1;                // Number of particles with valid accelerations, -1 if none
+
+
+    @Override
+    public void prepare(ParticleEnsemble particles, ForceModel forces)
+    {
+        int n = particles.size();
+        if (ax.length < n)
+        {
+            int capacity = Math.max(n, 2 * ax.length);
+            ax = new double[capacity];
+            ay = new double[capacity];
+            az = new double[capacity];
+            fx = new double[capacity];
+            fy = new double[capacity];
+            fz = new double[capacity];
+        }
+
+        // Accelerations at the starting positions are needed before the first step
+        if (primed != n)
+        {
+            accelerate(particles, forces, particles.getVelocityXArray(), particles.getVelocityYArray(),
+                    particles.getVelocityZArray(), 0, n);
+            primed = n;
+        }
+    }
+
+    @Override
+    public void step(ParticleEnsemble particles, ForceModel forces, double dt, int from, int to)
+    {
+        step(particles, forces, dt, from, to, Collections.<Perturbation>emptyList());
+    }
+
+    @Override
+    public void step(ParticleEnsemble particles, ForceModel forces, double dt, int from, int to,
+            List<Perturbation> perturbations)
+    {
+        double[] x = particles.getXArray();
+        double[] y = particles.getYArray();
+        double[] z = particles.getZArray();
+        double[] vx = particles.getVelocityXArray();
+        double[] vy = particles.getVelocityYArray();
+        double[] vz = particles.getVelocityZArray();
+        double half = 0.5 * dt;
+
+        // Half kick and drift
+        for (int i = from; i < to; i++)
+        {
+            vx[i] += half * ax[i];
+            vy[i] += half * ay[i];
+            vz[i] += half * az[i];
+            x[i] += dt * vx[i];
+            y[i] += dt * vy[i];
+            z[i] += dt * vz[i];
+        }
+
+        for (Perturbation perturbation : perturbations)
+            perturbation.perturb(particles, dt, from, to);
+
+        accelerate(particles, forces, vx, vy, vz, from, to);
+
+        // Second half kick with the new accelerations
+        for (int i = from; i < to; i++)
+        {
+            vx[i] += half * ax[i];
+            vy[i] += half * ay[i];
+            vz[i] += half * az[i];
+        }
+    }
+
+    @Override
+    public void reset()
+    {
+        primed = -1;
+    }
+
+    /**
+     * Stores the accelerations of particles from through to - 1 at their current positions
+     */
+    private void accelerate(ParticleEnsemble particles, ForceModel forces, double[] vx, double[] vy,
+            double[] vz, int from, int to)
+    {
+        forces.computeForces(particles, particles.getXArray(), particles.getYArray(), particles.getZArray(),
+                vx, vy, vz, fx, fy, fz, from, to);
+
+        double[] mass = particles.getMassArray();
+        for (int i = from; i < to; i++)
+        {
+            ax[i] = fx[i] / mass[i];
+            ay[i] = fy[i] / mass[i];
+            az[i] = fz[i] / mass[i];
+        }
+    }
+}
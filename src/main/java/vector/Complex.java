@@ -0,0 +1,118 @@
+package vector;
+
+/**
+ * An immutable complex number
+ *
+ * @author Ronen Orland
+ */
+public class Complex
+{
+    private final double re;    // Real part
+    private final double im;    // Imaginary part
+
+
+    /**
+     * Constructor that takes the real and imaginary parts
+     *
+     * @param re    the real part
+     * @param im    the imaginary part
+     */
+    public Complex(double re, double im)
+    {
+        this.re = re;
+        this.im = im;
+    }
+
+
+    /**
+     * Returns the real part
+     */
+    public double getReal()
+    {
+        return re;
+    }
+
+    /**
+     * Returns the imaginary part
+     */
+    public double getImaginary()
+    {
+        return im;
+    }
+
+    /**
+     *
+     * @param c     the number to add
+     * @return      this + c
+     */
+    public Complex add(Complex c)
+    {
+        return new Complex(re + c.re, im + c.im);
+    }
+
+    /**
+     *
+     * @param c     the number to subtract
+     * @return      this - c
+     */
+    public Complex sub(Complex c)
+    {
+        return new Complex(re - c.re, im - c.im);
+    }
+
+    /**
+     *
+     * @param c     the number to multiply by
+     * @return      this * c
+     */
+    public Complex mult(Complex c)
+    {
+        return new Complex(re * c.re - im * c.im, re * c.im + im * c.re);
+    }
+
+    /**
+     *
+     * @param i     the real number to multiply by
+     * @return      this * i
+     */
+    public Complex mult(double i)
+    {
+        return new Complex(re * i, im * i);
+    }
+
+    /**
+     *
+     * @param c     the number to divide by
+     * @return      this / c
+     */
+    public Complex div(Complex c)
+    {
+        double denom = c.re * c.re + c.im * c.im;
+
+        return new Complex((re * c.re + im * c.im) / denom, (im * c.re - re * c.im) / denom);
+    }
+
+    /**
+     *
+     * @return  the magnitude of this number
+     */
+    public double magnitude()
+    {
+        return Math.hypot(re, im);
+    }
+
+    /**
+     * Checks if this number is equal to another
+     * @param c     the number to check equality against
+     * @return      true if equal, false if not
+     */
+    public boolean equals(Complex c)
+    {
+        return re == c.re && im == c.im;
+    }
+
+    public String toString()
+    {
+        return "(" + re + (im < 0 ? "-" : "+") + Math.abs(im) + "i)";
+    }
+}
@@ -1,282 +1,441 @@
-package vector;
-
-/**
- * A 3-dimensional vector with x, y, and z components
- * 
- * @author Ronen Orland
- */
-public class Vector
-{
-	// The x, y, and z components
-	private double x;
-	private double y;
-	private double z;
-	
-	
-	/**
-	 * Default constructor, initializes all fields to 0
-	 */
-	public Vector()
-	{
-		this(0.0, 0.0, 0.0);
-	}
-	
-	/**
-	 * Constructor that initializes all fields to the same value
-	 * 
-	 * @param i    value for all fields
-	 */
-	public Vector(double i)
-	{
-	    this(i,i,i);
-	}
-	
-	/**
-	 * Constructor that takes initial values for all components
-	 * 
-	 * @param x		the initial x value
-	 * @param y 	the initial y value
-	 * @param z		the initial z value
-	 */
-	public Vector(double x, double y, double z)
-	{
-		this.x = x;
-		this.y = y;
-		this.z = z;
-	}
-	
-	/**
-	 * Constructor that copies an input vector
-	 * 
-	 * @param vec	the vector to copy
-	 */
-	public Vector(Vector vec)
-	{
-		x = vec.getX();
-		y = vec.getY();
-		z = vec.getZ();
-	}
-	
-	
-	/**
-	 * Returns the x component
-	 */
-	public double getX()
-	{
-		return x;
-	}
-	
-	/**
-	 * Returns the y component
-	 */
-	public double getY()
-	{
-		return y;
-	}
-	
-	/**
-	 * Returns the z component
-	 */
-	public double getZ()
-	{
-		return z;
-	}
-	
-	/**
-	 * Sets the x component to a new value
-	 * @param x		the new value of the x component
-	 */
-	public void setX(double x)
-	{
-		this.x = x;
-	}
-	
-	/**
-	 * Sets the y component to a new value
-	 * @param y		the new value of the y component
-	 */
-	public void setY(double y)
-	{
-		this.y = y;
-	}
-	
-	/**
-	 * Sets the z component to a new value
-	 * @param z		the new value of the z component
-	 */
-	public void setZ(double z)
-	{
-		this.z = z;
-	}
-	
-	/**
-	 * Sets all three components to new values
-	 */
-	public void setAll(double x, double y, double z)
-	{
-		this.x = x;
-		this.y = y;
-		this.z = z;
-	}
-	
-	
-	/**
-	 * Checks if this vector is equal to another
-	 * @param vec  the vector to check equality against
-	 * @return     true if equal, false if not
-	 */
-	public boolean equals(Vector vec)
-	{
-	    if (x == vec.getX()) 
-	    {
-	        if (y == vec.getY())
-	        {
-	            if (z == vec.getZ())
-	                return true;
-	        }
-	    }
-	    
-        return false;
-	}
-	
-	
-	public String toString()
-	{
-	    return new String("(" + x + "," + y + "," + z + ")");
-	}
-	
-	
-	/**
-	 * Adds another vector to this vector
-	 * 
-	 * @param vec	the vector to add to this vector
-	 */
-	public void add(Vector vec)
-	{
-		x += vec.getX();
-		y += vec.getY();
-		z += vec.getZ();
-	}
-	
-	/**
-	 * Adds to each component of this vector
-	 * 
-	 * @param x    added to the x component
-	 * @param y    added to the y component
-	 * @param z    added to the z component
-	 */
-	public void add(double x, double y, double z)
-	{
-	    this.x += x;
-	    this.y += y;
-	    this.z += z;
-	}
-	
-	/**
-	 * Subtracts another vector from this vector
-	 * 
-	 * @param vec	the vector to subtract from this vector
-	 */
-	public void sub(Vector vec)
-	{
-		x -= vec.getX();
-		y -= vec.getY();
-		z -= vec.getZ();
-	}
-    
-    /**
-     * Subtracts from each component of this vector
-     * 
-     * @param x    subtracted from the x component
-     * @param y    subtracted from the y component
-     * @param z    subtracted from the z component
-     */
-    public void sub(double x, double y, double z)
-    {
-        this.x -= x;
-        this.y -= y;
-        this.z -= z;
-    }
-    
-    /**
-     * Multiplies each component by a double
-     * 
-     * @param i     value to multiply each component by
-     */
-    public void mult(double i)
-    {
-       x *= i;
-       y *= i;
-       z *= i;
-    }
-    
-    /**
-     * Multiplies each component to other component values
-     * 
-     * @param x     x multiplier
-     * @param y     y multiplier
-     * @param z     z mulitplier
-     */
-    public void mult(double x, double y, double z)
-    {
-        this.x *= x;
-        this.y *= y;
-        this.z *= z;
-    }
-    
-    /**
-     * Mulitiplies the components of this vector by the components of another
-     * 
-     * @param vec   the vector to multiply by component-wise
-     */
-    public void mult(Vector vec)
-    {
-        x *= vec.getX();
-        y *= vec.getY();
-        z *= vec.getZ();
-    }
-    
-    /**
-     * Returns the distance between this Vector and another 
-     * 
-     * @param vec   The Vector to measure the distance to
-     * @return      The distance between the Vectors
-     */
-    public double distance(Vector vec)
-    {
-        double xTerm = x - vec.getX();
-        xTerm *= xTerm;
-        
-        double yTerm = y - vec.getY();
-        yTerm *= yTerm;
-        
-        double zTerm = z - vec.getZ();
-        zTerm *= zTerm;
-        
-        return Math.sqrt(xTerm + yTerm + zTerm);
-    }
-    
-    /**
-     * Returns the unit Vector to this Vector
-     * 
-     * @return  the unit Vector for this Vector
-     */
-    public Vector unit()
-    {
-        double abs = Math.sqrt(x*x + y*y + z*z);
-        
-        if (abs == 0)
-            return null;
-        
-        return new Vector(x/abs, y/abs, z/abs);
-    }
-    
-    /**
-     * 
-     * @return  the magnitude of this Vector
-     */
-    public double magnitude()
-    {
-        return Math.sqrt( (x * x) + (y * y) + (z * z) );
-    }
-}
+package vector;
+
+/**
+ * A 3-dimensional vector with x, y, and z components
+ * 
+ * @author Ronen Orland
+ */
+public class Vector
+{
+	// The x, y, and z components
+	private double x;
+	private double y;
+	private double z;
+	
+	
+	/**
+	 * Default constructor, initializes all fields to 0
+	 */
+	public Vector()
+	{
+		this(0.0, 0.0, 0.0);
+	}
+	
+	/**
+	 * Constructor that initializes all fields to the same value
+	 * 
+	 * @param i    value for all fields
+	 */
+	public Vector(double i)
+	{
+	    this(i,i,i);
+	}
+	
+	/**
+	 * Constructor that takes initial values for all components
+	 * 
+	 * @param x		the initial x value
+	 * @param y 	the initial y value
+	 * @param z		the initial z value
+	 */
+	public Vector(double x, double y, double z)
+	{
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+	
+	/**
+	 * Constructor that copies an input vector
+	 * 
+	 * @param vec	the vector to copy
+	 */
+	public Vector(Vector vec)
+	{
+		x = vec.getX();
+		y = vec.getY();
+		z = vec.getZ();
+	}
+	
+	
+	/**
+	 * Returns the x component
+	 */
+	public double getX()
+	{
+		return x;
+	}
+	
+	/**
+	 * Returns the y component
+	 */
+	public double getY()
+	{
+		return y;
+	}
+	
+	/**
+	 * Returns the z component
+	 */
+	public double getZ()
+	{
+		return z;
+	}
+	
+	/**
+	 * Sets the x component to a new value
+	 * @param x		the new value of the x component
+	 */
+	public void setX(double x)
+	{
+		this.x = x;
+	}
+	
+	/**
+	 * Sets the y component to a new value
+	 * @param y		the new value of the y component
+	 */
+	public void setY(double y)
+	{
+		this.y = y;
+	}
+	
+	/**
+	 * Sets the z component to a new value
+	 * @param z		the new value of the z component
+	 */
+	public void setZ(double z)
+	{
+		this.z = z;
+	}
+	
+	/**
+	 * Sets all three components to new values
+	 */
+	public void setAll(double x, double y, double z)
+	{
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+	
+	
+	/**
+	 * Checks if this vector is equal to another
+	 * @param vec  the vector to check equality against
+	 * @return     true if equal, false if not
+	 */
+	public boolean equals(Vector vec)
+	{
+	    if (x == vec.getX()) 
+	    {
+	        if (y == vec.getY())
+	        {
+	            if (z == vec.getZ())
+	                return true;
+	        }
+	    }
+	    
+        return false;
+	}
+	
+	
+	public String toString()
+	{
+	    return new String("(" + x + "," + y + "," + z + ")");
+	}
+	
+	
+	/**
+	 * Adds another vector to this vector
+	 * 
+	 * @param vec	the vector to add to this vector
+	 */
+	public void add(Vector vec)
+	{
+		x += vec.getX();
+		y += vec.getY();
+		z += vec.getZ();
+	}
+	
+	/**
+	 * Adds to each component of this vector
+	 * 
+	 * @param x    added to the x component
+	 * @param y    added to the y component
+	 * @param z    added to the z component
+	 */
+	public void add(double x, double y, double z)
+	{
+	    this.x += x;
+	    this.y += y;
+	    this.z += z;
+	}
+	
+	/**
+	 * Subtracts another vector from this vector
+	 * 
+	 * @param vec	the vector to subtract from this vector
+	 */
+	public void sub(Vector vec)
+	{
+		x -= vec.getX();
+		y -= vec.getY();
+		z -= vec.getZ();
+	}
+    
+    /**
+     * Subtracts from each component of this vector
+     * 
+     * @param x    subtracted from the x component
+     * @param y    subtracted from the y component
+     * @param z    subtracted from the z component
+     */
+    public void sub(double x, double y, double z)
+    {
+        this.x -= x;
+        this.y -= y;
+        this.z -= z;
+    }
+    
+    /**
+     * Multiplies each component by a double
+     * 
+     * @param i     value to multiply each component by
+     */
+    public void mult(double i)
+    {
+       x *= i;
+       y *= i;
+       z *= i;
+    }
+    
+    /**
+     * Multiplies each component to other component values
+     * 
+     * @param x     x multiplier
+     * @param y     y multiplier
+     * @param z     z mulitplier
+     */
+    public void mult(double x, double y, double z)
+    {
+        this.x *= x;
+        this.y *= y;
+        this.z *= z;
+    }
+    
+    /**
+     * Mulitiplies the components of this vector by the components of another
+     * 
+     * @param vec   the vector to multiply by component-wise
+     */
+    public void mult(Vector vec)
+    {
+        x *= vec.getX();
+        y *= vec.getY();
+        z *= vec.getZ();
+    }
+    
+    /**
+     * Returns the distance between this Vector and another 
+     * 
+     * @param vec   The Vector to measure the distance to
+     * @return      The distance between the Vectors
+     */
+    public double distance(Vector vec)
+    {
+        double xTerm = x - vec.getX();
+        xTerm *= xTerm;
+        
+        double yTerm = y - vec.getY();
+        yTerm *= yTerm;
+        
+        double zTerm = z - vec.getZ();
+        zTerm *= zTerm;
+        
+        return Math.sqrt(xTerm + yTerm + zTerm);
+    }
+    
+    /**
+     * Returns the square of the distance between this Vector and another, without a square root
+     * 
+     * @param vec   The Vector to measure the distance to
+     * @return      The squared distance between the Vectors
+     */
+    public double distanceSquared(Vector vec)
+    {
+        return distanceSquared(x, y, z, vec.x, vec.y, vec.z);
+    }
+    
+    /**
+     * Returns the unit Vector to this Vector
+     * 
+     * @return  the unit Vector for this Vector
+     */
+    public Vector unit()
+    {
+        double abs = Math.sqrt(x*x + y*y + z*z);
+        
+        if (abs == 0)
+            return null;
+        
+        return new Vector(x/abs, y/abs, z/abs);
+    }
+    
+    /**
+     * 
+     * @return  the magnitude of this Vector
+     */
+    public double magnitude()
+    {
+        return Math.sqrt( (x * x) + (y * y) + (z * z) );
+    }
+    
+    /**
+     * 
+     * @return  the square of the magnitude of this Vector, without a square root
+     */
+    public double magnitudeSquared()
+    {
+        return magnitudeSquared(x, y, z);
+    }
+    
+    /**
+     * Scales this Vector to unit length in place. Unlike unit() nothing is allocated, and a zero 
+     * Vector is left as it is.
+     * 
+     * @return  the magnitude of this Vector before it was normalized
+     */
+    public double normalize()
+    {
+        double abs = Math.sqrt(x*x + y*y + z*z);
+        
+        if (abs != 0)
+        {
+            x /= abs;
+            y /= abs;
+            z /= abs;
+        }
+        
+        return abs;
+    }
+    
+    /**
+     * Returns the dot product of this Vector and another
+     * 
+     * @param vec   the other Vector
+     * @return      the dot product
+     */
+    public double dot(Vector vec)
+    {
+        return dot(x, y, z, vec.x, vec.y, vec.z);
+    }
+    
+    /**
+     * Returns the cross product of this Vector and another
+     * 
+     * @param vec   the Vector on the right of the product
+     * @return      a new Vector holding this x vec
+     */
+    public Vector cross(Vector vec)
+    {
+        Vector ret = new Vector();
+        ret.setCross(this, vec);
+        return ret;
+    }
+    
+    /**
+     * Sets this Vector to the cross product of two others. Either may be this Vector.
+     * 
+     * @param a     the Vector on the left of the product
+     * @param b     the Vector on the right of the product
+     */
+    public void setCross(Vector a, Vector b)
+    {
+        double cx = a.y * b.z - a.z * b.y;
+        double cy = a.z * b.x - a.x * b.z;
+        double cz = a.x * b.y - a.y * b.x;
+        
+        x = cx;
+        y = cy;
+        z = cz;
+    }
+    
+    /**
+     * Sets this Vector to the difference of two others, a - b, without allocating
+     * 
+     * @param a     the Vector to subtract from
+     * @param b     the Vector to subtract
+     */
+    public void setDifference(Vector a, Vector b)
+    {
+        x = a.x - b.x;
+        y = a.y - b.y;
+        z = a.z - b.z;
+    }
+    
+    /**
+     * Adds a multiple of another Vector to this one, this += s * vec
+     * 
+     * @param s     the multiplier
+     * @param vec   the Vector to scale and add
+     */
+    public void scaleAdd(double s, Vector vec)
+    {
+        x += s * vec.x;
+        y += s * vec.y;
+        z += s * vec.z;
+    }
+    
+    
+    /*
+     * Helpers on raw components, for hot loops that keep coordinates in primitive arrays
+     */
+    
+    /**
+     * Returns the dot product of two vectors given by their components
+     * 
+     * @return  ax*bx + ay*by + az*bz
+     */
+    public static double dot(double ax, double ay, double az, double bx, double by, double bz)
+    {
+        return ax*bx + ay*by + az*bz;
+    }
+    
+    /**
+     * Returns the squared magnitude of a vector given by its components
+     * 
+     * @return  x*x + y*y + z*z
+     */
+    public static double magnitudeSquared(double x, double y, double z)
+    {
+        return x*x + y*y + z*z;
+    }
+    
+    /**
+     * Returns the squared distance between two points given by their components
+     * 
+     * @return  the squared distance between (ax, ay, az) and (bx, by, bz)
+     */
+    public static double distanceSquared(double ax, double ay, double az, double bx, double by, double bz)
+    {
+        double dx = ax - bx;
+        double dy = ay - by;
+        double dz = az - bz;
+        
+        return dx*dx + dy*dy + dz*dz;
+    }
+    
+    /**
+     * Returns 1 / r^3 for the vector (x, y, z) of length r, the factor of inverse square laws written 
+     * as d / r^3, with one square root and one division
+     * 
+     * @return  1 / r^3, infinite for a zero vector
+     */
+    public static double inverseCube(double x, double y, double z)
+    {
+        double r2 = x*x + y*y + z*z;
+        
+        return 1 / (r2 * Math.sqrt(r2));
+    }
+}
@@ -0,0 +1,237 @@
+package field;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import vector.Vector;
+
+/**
+ * Sums point charge fields with the Java Vector API. Batches, including those of infinite line
+ * charges, are evaluated a full vector of points at a time, keeping each point's running sum in
+ * registers across all the charges; the points left over go through the scalar loop. The arithmetic
+ * is the same as the scalar kernel, without fused multiply-adds, so batches give exactly the same
+ * results. Only a single point against many charges is summed across lanes, which changes the order
+ * of the additions, so that's saved for arrays big enough to gain from it.
+ *
+ * Only ever loaded through FieldKernel, by name, when the jdk.incubator.vector module is present.
+ * Lives in the src/simd/java source root, compiled with --add-modules jdk.incubator.vector, so the
+ * main tree never links against the module.
+ *
+ * @author Ronen Orland
+ */
+class VectorFieldKernel extends FieldKernel
+{
+    private final static VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private final static int LANES = SPECIES.length();
+    private final static ScalarFieldKernel SCALAR = new ScalarFieldKernel();
+    private final static int MIN_CHARGES = 32;     // Fewer charges at a point are summed in scalar order
+
+
+    /**
+     * Creates the kernel
+     *
+     * @throws UnsupportedOperationException    if the platform has no vectors of more than one double
+     */
+    VectorFieldKernel()
+    {
+        if (LANES < 2)
+            throw new UnsupportedOperationException("No SIMD support for doubles");
+    }
+
+
+    @Override
+    void addCharge(double qx, double qy, double qz, double kq, double[] x, double[] y, double[] z,
+            double[] field, int count)
+    {
+        double onCharge = PointCharge.fieldOnCharge(kq);
+        int upper = SPECIES.loopBound(count);
+
+        for (int i = 0; i < upper; i += LANES)
+        {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, x, i).sub(qx);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, y, i).sub(qy);
+            DoubleVector dz = DoubleVector.fromArray(SPECIES, z, i).sub(qz);
+            DoubleVector r2 = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+            DoubleVector scale = DoubleVector.broadcast(SPECIES, kq).div(r2.mul(r2.sqrt()));
+            VectorMask<Double> on = r2.eq(0);
+
+            accumulate(field, i, scale.mul(dx).blend(onCharge, on));
+            accumulate(field, count + i, scale.mul(dy).blend(onCharge, on));
+            accumulate(field, 2*count + i, scale.mul(dz).blend(onCharge, on));
+        }
+
+        ScalarFieldKernel.addCharge(qx, qy, qz, kq, x, y, z, field, upper, count, count);
+    }
+
+    @Override
+    void addCharges(double[] qx, double[] qy, double[] qz, double[] kq, int charges,
+            double[] x, double[] y, double[] z, double[] field, int count)
+    {
+        if (count < LANES && charges >= MIN_CHARGES)
+        {
+            // Too few points to fill a vector, run across the charges instead
+            Vector sum = new Vector();
+            for (int i = 0; i < count; i++)
+            {
+                sum.setX(0);
+                sum.setY(0);
+                sum.setZ(0);
+                addCharges(qx, qy, qz, kq, charges, x[i], y[i], z[i], sum);
+                field[i] += sum.getX();
+                field[count + i] += sum.getY();
+                field[2*count + i] += sum.getZ();
+            }
+            return;
+        }
+
+        int upper = SPECIES.loopBound(count);
+        for (int i = 0; i < upper; i += LANES)
+        {
+            DoubleVector xi = DoubleVector.fromArray(SPECIES, x, i);
+            DoubleVector yi = DoubleVector.fromArray(SPECIES, y, i);
+            DoubleVector zi = DoubleVector.fromArray(SPECIES, z, i);
+            DoubleVector ex = DoubleVector.zero(SPECIES);
+            DoubleVector ey = DoubleVector.zero(SPECIES);
+            DoubleVector ez = DoubleVector.zero(SPECIES);
+
+            for (int j = 0; j < charges; j++)
+            {
+                DoubleVector dx = xi.sub(qx[j]);
+                DoubleVector dy = yi.sub(qy[j]);
+                DoubleVector dz = zi.sub(qz[j]);
+                DoubleVector r2 = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+                DoubleVector scale = DoubleVector.broadcast(SPECIES, kq[j]).div(r2.mul(r2.sqrt()));
+                VectorMask<Double> on = r2.eq(0);
+                double onCharge = PointCharge.fieldOnCharge(kq[j]);
+
+                ex = ex.add(scale.mul(dx).blend(onCharge, on));
+                ey = ey.add(scale.mul(dy).blend(onCharge, on));
+                ez = ez.add(scale.mul(dz).blend(onCharge, on));
+            }
+
+            accumulate(field, i, ex);
+            accumulate(field, count + i, ey);
+            accumulate(field, 2*count + i, ez);
+        }
+
+        ScalarFieldKernel.addCharges(qx, qy, qz, kq, charges, x, y, z, field, upper, count, count);
+    }
+
+    @Override
+    void addCharges(double[] qx, double[] qy, double[] qz, double[] kq, int charges,
+            double px, double py, double pz, Vector field)
+    {
+        if (charges < MIN_CHARGES)
+        {
+            SCALAR.addCharges(qx, qy, qz, kq, charges, px, py, pz, field);
+            return;
+        }
+
+        DoubleVector ex = DoubleVector.zero(SPECIES);
+        DoubleVector ey = DoubleVector.zero(SPECIES);
+        DoubleVector ez = DoubleVector.zero(SPECIES);
+        int upper = SPECIES.loopBound(charges);
+
+        for (int j = 0; j < upper; j += LANES)
+        {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, qx, j).neg().add(px);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, qy, j).neg().add(py);
+            DoubleVector dz = DoubleVector.fromArray(SPECIES, qz, j).neg().add(pz);
+            DoubleVector r2 = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+            DoubleVector k = DoubleVector.fromArray(SPECIES, kq, j);
+            DoubleVector scale = k.div(r2.mul(r2.sqrt()));
+
+            // Infinity with the sign of each charge, or 0 for no charge, as in PointCharge.fieldOnCharge
+            VectorMask<Double> on = r2.eq(0);
+            DoubleVector onCharge = DoubleVector.zero(SPECIES)
+                    .blend(Double.POSITIVE_INFINITY, k.compare(VectorOperators.GT, 0))
+                    .blend(Double.NEGATIVE_INFINITY, k.compare(VectorOperators.LT, 0));
+
+            ex = ex.add(scale.mul(dx).blend(onCharge, on));
+            ey = ey.add(scale.mul(dy).blend(onCharge, on));
+            ez = ez.add(scale.mul(dz).blend(onCharge, on));
+        }
+
+        field.add(ex.reduceLanes(VectorOperators.ADD), ey.reduceLanes(VectorOperators.ADD),
+                ez.reduceLanes(VectorOperators.ADD));
+
+        // Charges left over after the last full vector
+        for (int j = upper; j < charges; j++)
+        {
+            double dx = px - qx[j];
+            double dy = py - qy[j];
+            double dz = pz - qz[j];
+            double r2 = dx*dx + dy*dy + dz*dz;
+
+            if (r2 == 0)
+            {
+                double onCharge = PointCharge.fieldOnCharge(kq[j]);
+                field.add(onCharge, onCharge, onCharge);
+                continue;
+            }
+
+            double scale = kq[j] / (r2 * Math.sqrt(r2));
+            field.add(scale * dx, scale * dy, scale * dz);
+        }
+    }
+
+    @Override
+    void addChargePlanar(double qx, double qy, double dz, double kq, double[] x, double[] y,
+            double[] field, int count)
+    {
+        double onCharge = PointCharge.fieldOnCharge(kq);
+        double dz2 = dz * dz;
+        int upper = SPECIES.loopBound(count);
+
+        for (int i = 0; i < upper; i += LANES)
+        {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, x, i).sub(qx);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, y, i).sub(qy);
+            DoubleVector r2 = dx.mul(dx).add(dy.mul(dy)).add(dz2);
+            DoubleVector scale = DoubleVector.broadcast(SPECIES, kq).div(r2.mul(r2.sqrt()));
+            VectorMask<Double> on = r2.eq(0);
+
+            accumulate(field, i, scale.mul(dx).blend(onCharge, on));
+            accumulate(field, count + i, scale.mul(dy).blend(onCharge, on));
+        }
+
+        ScalarFieldKernel.addChargePlanar(qx, qy, dz, kq, x, y, field, upper, count, count);
+    }
+
+    @Override
+    void addLine(double[] u, double[] v, double u0, double v0, double scale, double[] field,
+            int uOffset, int vOffset, int count)
+    {
+        double onLine = PointCharge.fieldOnCharge(scale);
+        int upper = SPECIES.loopBound(count);
+
+        for (int i = 0; i < upper; i += LANES)
+        {
+            DoubleVector du = DoubleVector.fromArray(SPECIES, u, i).sub(u0);
+            DoubleVector dv = DoubleVector.fromArray(SPECIES, v, i).sub(v0);
+            DoubleVector rho2 = du.mul(du).add(dv.mul(dv));
+            DoubleVector s = DoubleVector.broadcast(SPECIES, scale).div(rho2);
+            VectorMask<Double> on = rho2.eq(0);
+
+            accumulate(field, uOffset + i, s.mul(du).blend(onLine, on));
+            accumulate(field, vOffset + i, s.mul(dv).blend(onLine, on));
+        }
+
+        ScalarFieldKernel.addLine(u, v, u0, v0, scale, field, uOffset, vOffset, upper, count);
+    }
+
+    @Override
+    boolean vectorized()
+    {
+        return true;
+    }
+
+    /**
+     * Adds a vector of values to the array starting at offset
+     */
+    private static void accumulate(double[] field, int offset, DoubleVector values)
+    {
+        DoubleVector.fromArray(SPECIES, field, offset).add(values).intoArray(field, offset);
+    }
+}
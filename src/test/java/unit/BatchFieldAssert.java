@@ -0,0 +1,48 @@
+package unit;
+
+import static org.junit.Assert.*;
+import vector.Vector;
+import field.Electrode;
+
+/**
+ * Shared check that an electrode's batch getField agrees with its single point getField, and that
+ * its batch addField accumulates
+ *
+ * @author Ronen Orland
+ */
+class BatchFieldAssert
+{
+    private final static double[] X = {-1, 2, 0.25, 0.5, 3};
+    private final static double[] Y = {0, 0, 0.04, 0.5, -2};
+    private final static double[] Z = {0, 0, 1, 0, 0.5};
+
+    /**
+     * Evaluates the electrode at a few points in one batch and checks every component matches the
+     * single point result to a relative 1e-9, then adds the batch a second time
+     *
+     * @param electrode     the electrode to check
+     */
+    static void assertBatchMatchesSingle(Electrode electrode)
+    {
+        int count = X.length;
+        double[] field = new double[3*count];
+        Vector single;
+
+        electrode.getField(X, Y, Z, field, count);
+
+        // Batch results should match the single point results
+        for (int i = 0; i < count; i++)
+        {
+            single = electrode.getField(new Vector(X[i], Y[i], Z[i]));
+            assertTrue(Math.abs(field[i] - single.getX()) <= 1e-9 * Math.abs(single.getX()));
+            assertTrue(Math.abs(field[count + i] - single.getY()) <= 1e-9 * Math.abs(single.getY()));
+            assertTrue(Math.abs(field[2*count + i] - single.getZ()) <= 1e-9 * Math.abs(single.getZ()));
+        }
+
+        // Adding the batch again on top of it doubles every component
+        double[] twice = field.clone();
+        electrode.addField(X, Y, Z, twice, count);
+        for (int i = 0; i < 3*count; i++)
+            assertTrue(Math.abs(twice[i] - 2*field[i]) <= 1e-9 * Math.abs(field[i]));
+    }
+}
@@ -0,0 +1,164 @@
+package unit;
+
+import static org.junit.Assert.*;
+import java.util.Arrays;
+import org.junit.Test;
+import vector.Vector;
+import field.*;
+import particles.*;
+import simulation.*;
+
+/**
+ * Unit testing for electrode versions and CachedField
+ *
+ * @author Ronen Orland
+ */
+public class CachedFieldTest
+{
+
+    @Test
+    public void versionTest()
+    {
+        // Every setter moves the version
+        PointCharge point = new PointCharge(1e-9, new Vector());
+        long version = point.getVersion();
+        point.setCharge(2e-9);
+        assertTrue(point.getVersion() != version);
+        version = point.getVersion();
+        point.setPosition(new Vector(1, 0, 0));
+        assertTrue(point.getVersion() != version);
+
+        Dipole dipole = new Dipole();
+        version = dipole.getVersion();
+        dipole.setCharge(2e-6);
+        assertTrue(dipole.getVersion() != version);
+        version = dipole.getVersion();
+        dipole.setNegativePosition(0, 2, 0);
+        assertTrue(dipole.getVersion() != version);
+
+        Quadrupole quad = new Quadrupole();
+        version = quad.getVersion();
+        quad.setCharge(3e-6);
+        assertTrue(quad.getVersion() != version && quad.getCharge() == 3e-6);
+        version = quad.getVersion();
+        quad.getPointCharges()[2].setPosition(new Vector(5, 5, 5));
+        assertTrue(quad.getVersion() != version);
+
+        // Sets follow their electrodes, immutable electrodes never change
+        ElectrodeSet set = new ElectrodeSet(point, new LineCharge());
+        version = set.getVersion();
+        point.setCharge(1e-9);
+        assertTrue(set.getVersion() != version);
+        assertTrue(new LineCharge().getVersion() == 0);
+
+        FieldGrid grid = new FieldGrid(new Vector(), new Vector(1, 1, 1), 2, 2, 2);
+        version = grid.getVersion();
+        grid.fill(point);
+        assertTrue(grid.getVersion() != version);
+    }
+
+    @Test
+    public void cacheTest()
+    {
+        PointCharge point = new PointCharge(1e-9, new Vector());
+        CachedField cache = new CachedField(point, 1e-3);
+        cache.ensureCapacity(2);
+        assertTrue(cache.capacity() >= 2);
+
+        // The first lookup computes, and matches the electrode
+        double[] gradient = new double[FieldGradient.LENGTH];
+        double[] expected = new double[FieldGradient.LENGTH];
+        point.addFieldGradient(1, 0, 0, expected);
+        assertTrue(!cache.getFieldGradient(0, 1, 0, 0, gradient));
+        assertTrue(Arrays.equals(gradient, expected));
+
+        // Within the tolerance the same values come back, other slots are separate
+        assertTrue(cache.getFieldGradient(0, 1 + 5e-4, 0, 0, gradient));
+        assertTrue(Arrays.equals(gradient, expected));
+        assertTrue(!cache.getFieldGradient(1, 1 + 5e-4, 0, 0, gradient));
+
+        // Moving beyond the tolerance recomputes
+        assertTrue(!cache.getFieldGradient(0, 1.01, 0, 0, gradient));
+        assertTrue(cache.getFieldGradient(0, 1.01, 0, 0, gradient));
+
+        // A changed electrode is noticed on the next update
+        point.setCharge(2e-9);
+        assertTrue(cache.getFieldGradient(0, 1.01, 0, 0, gradient));
+        assertTrue(cache.update());
+        assertTrue(!cache.update());
+        assertTrue(!cache.getFieldGradient(0, 1.01, 0, 0, gradient));
+        double[] doubled = new double[FieldGradient.LENGTH];
+        point.addFieldGradient(1.01, 0, 0, doubled);
+        assertTrue(Arrays.equals(gradient, doubled));
+
+        // Emptied slots recompute
+        cache.invalidate();
+        assertTrue(!cache.getFieldGradient(0, 1.01, 0, 0, gradient));
+
+        // Moving along the invariant axis of a line charge never leaves the slot
+        LineCharge line = new LineCharge(1e-9, new Vector(), Axis.Z);
+        CachedField lineCache = new CachedField(line, 1e-3);
+        lineCache.ensureCapacity(1);
+        assertTrue(!lineCache.getFieldGradient(0, 1, 0, 0, gradient));
+        assertTrue(lineCache.getFieldGradient(0, 1, 0, 5, gradient));
+        assertTrue(!lineCache.getFieldGradient(0, 1.01, 0, 5, gradient));
+
+        try
+        {
+            new CachedField(point, -1);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+    }
+
+    @Test
+    public void depForceTest()
+    {
+        // With no tolerance only unmoved particles reuse values, so the run is unchanged
+        Dipole dipole = new Dipole(1e-12, new Vector(-1e-4, 0, 0), new Vector(1e-4, 0, 0));
+        ParticleEnsemble plain = new ParticleEnsemble();
+        for (int i = 0; i < 20; i++)
+            plain.add(new Yeast(Math.cos(i) * 5e-4, Math.sin(i) * 5e-4, (i % 3) * 1e-5));
+        ParticleEnsemble cached = new ParticleEnsemble(plain);
+
+        Simulation one = new Simulation(plain, new DepForce(dipole, Medium.DEP_BUFFER, 1e6),
+                new Overdamped(Medium.DEP_BUFFER));
+        DepForce force = new DepForce(dipole, Medium.DEP_BUFFER, 1e6, 0);
+        Simulation two = new Simulation(cached, force, new Overdamped(Medium.DEP_BUFFER));
+        assertTrue(force.getCache() != null && force.getCache().getTolerance() == 0);
+
+        one.run(20, 1e-3);
+        two.run(20, 1e-3);
+
+        // Changing the charge part way through is picked up
+        dipole.setCharge(2e-12);
+        one.run(20, 1e-3);
+        two.run(20, 1e-3);
+
+        for (int i = 0; i < plain.size(); i++)
+        {
+            assertTrue(plain.getX(i) == cached.getX(i));
+            assertTrue(plain.getY(i) == cached.getY(i));
+            assertTrue(plain.getZ(i) == cached.getZ(i));
+        }
+
+        // Outside of a Simulation the cache has to be sized first, computeForces won't grow it
+        ParticleEnsemble more = new ParticleEnsemble(plain);
+        more.add(new Yeast(0, 0, 1e-5));
+        double[] f = new double[more.size()];
+        try
+        {
+            force.computeForces(more, more.getXArray(), more.getYArray(), more.getZArray(),
+                    f, f, f, f, f, f, 0, more.size());
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException e)
+        {
+        }
+        force.prepare(more);
+        force.computeForces(more, more.getXArray(), more.getYArray(), more.getZArray(),
+                f, f, f, f, f, f, 0, more.size());
+    }
+}
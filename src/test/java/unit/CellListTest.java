@@ -0,0 +1,138 @@
+package unit;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import particles.*;
+
+/**
+ * Unit testing for CellList
+ *
+ * @author Ronen Orland
+ */
+public class CellListTest
+{
+    /**
+     * Fills an ensemble with particles of varying size scattered through a small box
+     */
+    private ParticleEnsemble scatter(Random random, int count)
+    {
+        ParticleEnsemble ensemble = new ParticleEnsemble();
+        for (int i = 0; i < count; i++)
+            ensemble.add(random.nextDouble() * 1e-4 - 5e-5, random.nextDouble() * 1e-4,
+                    random.nextDouble() * 1e-4, 1, 2e-6 + random.nextDouble() * 3e-6, ParticleEnsemble.OTHER);
+
+        return ensemble;
+    }
+
+    /**
+     * Finds touching pairs by checking every pair
+     */
+    private Set<Long> bruteContacts(ParticleEnsemble e)
+    {
+        Set<Long> pairs = new HashSet<Long>();
+        for (int i = 0; i < e.size(); i++)
+            for (int j = i + 1; j < e.size(); j++)
+            {
+                double dx = e.getX(j) - e.getX(i);
+                double dy = e.getY(j) - e.getY(i);
+                double dz = e.getZ(j) - e.getZ(i);
+                double reach = e.getRadius(i) + e.getRadius(j);
+                if (dx * dx + dy * dy + dz * dz < reach * reach)
+                    pairs.add((long) i << 32 | j);
+            }
+
+        return pairs;
+    }
+
+    private Set<Long> cellContacts(CellList cells)
+    {
+        Set<Long> pairs = new HashSet<Long>();
+        cells.forEachContact((i, j) ->
+        {
+            assertTrue(i < j);
+            assertTrue(pairs.add((long) i << 32 | j));
+        });
+
+        return pairs;
+    }
+
+    @Test
+    public void contactTest()
+    {
+        Random random = new Random(12);
+        ParticleEnsemble ensemble = scatter(random, 800);
+        CellList cells = new CellList(ensemble);
+        assertTrue(cells.size() == 800);
+        assertTrue(cells.getCellSize() <= 1e-5 && cells.getCellSize() > 9e-6);
+
+        Set<Long> expected = bruteContacts(ensemble);
+        assertTrue(!expected.isEmpty());
+        assertTrue(cellContacts(cells).equals(expected));
+
+        // Move everything a little, some particles change cells
+        for (int step = 0; step < 5; step++)
+        {
+            for (int i = 0; i < ensemble.size(); i++)
+                ensemble.setPosition(i, ensemble.getX(i) + (random.nextDouble() - 0.5) * 4e-6,
+                        ensemble.getY(i) + (random.nextDouble() - 0.5) * 4e-6,
+                        ensemble.getZ(i) + (random.nextDouble() - 0.5) * 4e-6);
+            cells.update();
+            assertTrue(cellContacts(cells).equals(bruteContacts(ensemble)));
+        }
+
+        // Removing particles is picked up as a change in size
+        ensemble.removeIf(i -> i % 3 == 0);
+        cells.update();
+        assertTrue(cells.size() == ensemble.size());
+        assertTrue(cellContacts(cells).equals(bruteContacts(ensemble)));
+    }
+
+    @Test
+    public void neighborTest()
+    {
+        Random random = new Random(5);
+        ParticleEnsemble ensemble = scatter(random, 300);
+        CellList cells = new CellList(ensemble, 4e-6);
+
+        // Ranges larger than a cell search further out
+        for (double range : new double[] {3e-6, 1e-5, 3e-5})
+            for (int i = 0; i < ensemble.size(); i += 37)
+            {
+                Set<Integer> expected = new HashSet<Integer>();
+                for (int j = 0; j < ensemble.size(); j++)
+                {
+                    double dx = ensemble.getX(j) - ensemble.getX(i);
+                    double dy = ensemble.getY(j) - ensemble.getY(i);
+                    double dz = ensemble.getZ(j) - ensemble.getZ(i);
+                    if (j != i && dx * dx + dy * dy + dz * dz <= range * range)
+                        expected.add(j);
+                }
+
+                Set<Integer> found = new HashSet<Integer>();
+                final int index = i;
+                cells.forEachNeighbor(i, range, j ->
+                {
+                    assertTrue(j != index);
+                    assertTrue(found.add(j));
+                });
+                assertTrue(found.equals(expected));
+            }
+
+        // Empty ensembles and bad sizes
+        assertTrue(new CellList(new ParticleEnsemble()).size() == 0);
+        try
+        {
+            new CellList(ensemble, 0);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+
+        }
+    }
+}
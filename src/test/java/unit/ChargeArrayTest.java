@@ -0,0 +1,128 @@
+package unit;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import vector.Vector;
+import field.*;
+
+/**
+ * Unit testing for ChargeArray
+ *
+ * @author Ronen Orland
+ */
+public class ChargeArrayTest
+{
+
+    @Test
+    public void builderTest()
+    {
+        Dipole dipole = new Dipole(2e-6, new Vector(0,0,1), new Vector(1,0,1));
+        Quadrupole quad = new Quadrupole();
+        PointCharge point = new PointCharge(-3e-6, new Vector(5,5,5));
+
+        ChargeArray array = new ChargeArray.Builder().add(dipole).add(quad).add(point).build();
+        assertTrue(array.size() == 7);
+        assertTrue(array.getCharge(0) == 2e-6);
+        assertTrue(array.getCharge(1) == -2e-6);
+        assertTrue(array.getPointCharge(6).equals(point));
+
+        // Changing the source after building doesn't change the array
+        point.setCharge(1);
+        assertTrue(array.getCharge(6) == -3e-6);
+
+        // Arrays can be combined
+        ChargeArray combined = new ChargeArray.Builder().add(array).add(array).build();
+        assertTrue(combined.size() == 14);
+    }
+
+    @Test
+    public void fieldTest()
+    {
+        Dipole dipole = new Dipole(2e-6, new Vector(0,0,1), new Vector(1,0,1));
+        Quadrupole quad = new Quadrupole();
+        ChargeArray array = new ChargeArray.Builder().add(dipole).add(quad).build();
+        Vector coord, field, expected;
+
+        // Field is the superposition of the electrodes it was built from
+        coord = new Vector(0.25, 0.04, 1.5);
+        field = array.getField(coord);
+        expected = dipole.getField(coord);
+        expected.add(quad.getField(coord));
+        assertTrue(Math.abs(field.getX() - expected.getX()) <= 1e-9 * Math.abs(expected.getX()));
+        assertTrue(Math.abs(field.getY() - expected.getY()) <= 1e-9 * Math.abs(expected.getY()));
+        assertTrue(Math.abs(field.getZ() - expected.getZ()) <= 1e-9 * Math.abs(expected.getZ()));
+
+        // Batch evaluation matches single points
+        double[] x = {0.25, -1, 3};
+        double[] y = {0.04, 2, 0};
+        double[] z = {1.5, 0, -1};
+        double[] batch = new double[9];
+        array.getField(x, y, z, batch, 3);
+        for (int i = 0; i < 3; i++)
+        {
+            field = array.getField(new Vector(x[i], y[i], z[i]));
+            assertTrue(batch[i] == field.getX());
+            assertTrue(batch[3 + i] == field.getY());
+            assertTrue(batch[6 + i] == field.getZ());
+        }
+    }
+
+    @Test
+    public void kernelTest()
+    {
+        // Runs through the Vector API kernel when jdk.incubator.vector is present, scalar otherwise
+        if (!Boolean.parseBoolean(System.getProperty(FieldKernel.PROPERTY, "true")))
+            assertTrue(!FieldKernel.isVectorized());
+
+        ChargeArray.Builder builder = new ChargeArray.Builder();
+        PointCharge[] points = new PointCharge[100];
+        for (int j = 0; j < points.length; j++)
+        {
+            points[j] = new PointCharge((j % 3 - 1) * 1e-9 + 1e-10, new Vector(Math.sin(j), Math.cos(3*j), -0.5 - j % 5));
+            builder.add(points[j]);
+        }
+        ChargeArray array = builder.build();
+
+        // Odd number of points so the vector loop leaves a tail, one of them right on a charge
+        int count = 37;
+        double[] x = new double[count], y = new double[count], z = new double[count];
+        for (int i = 0; i < count; i++)
+        {
+            x[i] = Math.cos(7*i);
+            y[i] = Math.sin(5*i);
+            z[i] = 0.1 * i;
+        }
+        x[11] = points[20].getPosition().getX();
+        y[11] = points[20].getPosition().getY();
+        z[11] = points[20].getPosition().getZ();
+
+        double[] batch = new double[3 * count];
+        double[] single = new double[3 * count];
+        array.getField(x, y, z, batch, count);
+        for (int i = 0; i < count; i++)
+        {
+            Vector expected = new Vector();
+            for (PointCharge point : points)
+                expected.add(point.getField(new Vector(x[i], y[i], z[i])));
+            Vector field = array.getField(new Vector(x[i], y[i], z[i]));
+
+            double[] want = {expected.getX(), expected.getY(), expected.getZ()};
+            double[] got = {field.getX(), field.getY(), field.getZ()};
+            for (int c = 0; c < 3; c++)
+            {
+                double tolerance = 1e-9 * Math.abs(want[c]);
+                assertTrue(batch[c*count + i] == want[c] || Math.abs(batch[c*count + i] - want[c]) <= tolerance);
+                assertTrue(got[c] == want[c] || Math.abs(got[c] - want[c]) <= tolerance);
+            }
+
+            // A single charge's batch matches its single points exactly
+            points[i].getField(x, y, z, single, count);
+            Vector one = new Vector();
+            points[i].addField(x[i], y[i], z[i], one);
+            assertTrue(single[i] == one.getX());
+            assertTrue(single[count + i] == one.getY());
+            assertTrue(single[2*count + i] == one.getZ());
+        }
+        assertTrue(batch[11] == Double.POSITIVE_INFINITY);
+    }
+}
@@ -0,0 +1,57 @@
+package unit;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+import vector.Vector;
+import field.*;
+
+/**
+ * Unit testing for ChargeTree
+ *
+ * @author Ronen Orland
+ */
+public class ChargeTreeTest
+{
+
+    @Test
+    public void fieldTest()
+    {
+        // Mix of positive and negative charges on a plate
+        Random rand = new Random(42);
+        ChargeArray.Builder builder = new ChargeArray.Builder();
+        for (int i = 0; i < 2000; i++)
+            builder.add(rand.nextBoolean() ? 1e-9 : -2e-9, rand.nextDouble(), rand.nextDouble(), 0.1 * rand.nextDouble());
+        ChargeArray direct = builder.build();
+
+        ChargeTree exact = new ChargeTree(direct, 0);
+        ChargeTree tree = new ChargeTree(direct, 0.5);
+        assertTrue(tree.size() == 2000);
+        assertTrue(tree.getNodeCount() > 1);
+
+        for (int i = 0; i < 20; i++)
+        {
+            Vector coord = new Vector(3 * rand.nextDouble() - 1, 3 * rand.nextDouble() - 1, 0.5 + rand.nextDouble());
+            Vector expected = direct.getField(coord);
+
+            // No opening angle sums every charge
+            assertTrue(exact.getField(coord).distance(expected) <= 1e-9 * expected.magnitude());
+
+            // Otherwise the summaries are close
+            assertTrue(tree.getField(coord).distance(expected) <= 1e-2 * expected.magnitude());
+        }
+    }
+
+    @Test
+    public void singleChargeTest()
+    {
+        PointCharge point = new PointCharge(1, new Vector(1, 2, 3));
+        ChargeTree tree = new ChargeTree(java.util.Collections.singletonList(point), 0.5);
+        Vector coord = new Vector(4, 5, 6);
+
+        assertTrue(tree.getField(coord).distance(point.getField(coord)) <= 1e-9 * point.getField(coord).magnitude());
+        assertTrue(tree.getField(new Vector(1, 2, 3)).getX() == Double.POSITIVE_INFINITY);
+    }
+}
@@ -0,0 +1,158 @@
+package unit;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import field.*;
+import io.*;
+import particles.*;
+import simulation.*;
+import vector.Vector;
+
+/**
+ * Unit testing for Checkpoint and CheckpointWriter
+ *
+ * @author Ronen Orland
+ */
+public class CheckpointTest
+{
+
+    @Test
+    public void restartTest() throws IOException
+    {
+        Path dir = Files.createTempDirectory("checkpoint");
+        Path path = dir.resolve("run.ckpt");
+        try
+        {
+            Dipole dipole = new Dipole(1e-12, new Vector(-2e-4, 0, 0), new Vector(2e-4, 0, 0));
+            Quadrupole quadrupole = new Quadrupole(
+                    new Dipole(1e-12, new Vector(0, 3e-4, 0), new Vector(0, -3e-4, 0)),
+                    new Dipole(1e-12, new Vector(0, -3e-4, 1e-4), new Vector(0, 3e-4, 1e-4)));
+            ChargeArray array = new ChargeArray.Builder().add(2e-12, 1e-4, 1e-4, -1e-4)
+                    .add(-2e-12, -1e-4, 1e-4, -1e-4).build();
+            List<Electrode> electrodes = Arrays.asList(dipole, new ElectrodeSet(quadrupole, array),
+                    new PointCharge(5e-13, new Vector(0, 0, -5e-4)));
+
+            ParticleEnsemble ensemble = new PopulationGenerator(9).generate(ParticleEnsemble.YEAST, 300,
+                    new Vector(-5e-4, -5e-4, 0), new Vector(5e-4, 5e-4, 2e-4));
+            Simulation sim = new Simulation(ensemble, electrodes, Medium.DEP_BUFFER, 1e6, new RungeKutta4());
+
+            CheckpointWriter writer = new CheckpointWriter(path, 10, electrodes);
+            sim.addListener(writer);
+            sim.run(10, 1e-5);
+            writer.close();
+            assertTrue(sim.removeListener(writer));
+            assertTrue(writer.getWrittenCount() == 1);
+            assertTrue(Files.exists(path));
+            assertTrue(!Files.exists(dir.resolve("run.ckpt.tmp")));
+
+            sim.run(10, 1e-5);
+
+            // Resume from the checkpoint in a fresh simulation and take the same steps
+            Checkpoint checkpoint = Checkpoint.read(path);
+            assertTrue(checkpoint.getStepCount() == 10);
+            assertTrue(Math.abs(checkpoint.getTime() - 1e-4) < 1e-15);
+
+            List<Electrode> restored = checkpoint.getElectrodes();
+            assertTrue(restored.size() == 3);
+            assertTrue(restored.get(0) instanceof Dipole);
+            assertTrue(restored.get(1) instanceof ElectrodeSet);
+            assertTrue(((ElectrodeSet) restored.get(1)).size() == 2);
+            assertTrue(restored.get(2) instanceof PointCharge);
+
+            ParticleEnsemble resumed = new ParticleEnsemble();
+            Simulation again = new Simulation(resumed, restored, Medium.DEP_BUFFER, 1e6, new RungeKutta4());
+            checkpoint.restore(again);
+            assertTrue(again.getStepCount() == 10);
+            again.run(10, 1e-5);
+
+            assertTrue(resumed.size() == ensemble.size());
+            for (int i = 0; i < ensemble.size(); i++)
+            {
+                assertTrue(resumed.getX(i) == ensemble.getX(i));
+                assertTrue(resumed.getY(i) == ensemble.getY(i));
+                assertTrue(resumed.getZ(i) == ensemble.getZ(i));
+                assertTrue(resumed.getVelocityZ(i) == ensemble.getVelocityZ(i));
+                assertTrue(resumed.getRadius(i) == ensemble.getRadius(i));
+                assertTrue(resumed.getKind(i) == ParticleEnsemble.YEAST);
+            }
+
+            // A damaged file is rejected
+            byte[] bytes = Files.readAllBytes(path);
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(path, bytes);
+            try
+            {
+                Checkpoint.read(path);
+                fail("Expected IOException");
+            }
+            catch (IOException e)
+            {
+
+            }
+
+            // Quadrupoles of either sign read back
+            Quadrupole negative = new Quadrupole(
+                    new Dipole(-1e-12, new Vector(0, 3e-4, 0), new Vector(0, -3e-4, 0)),
+                    new Dipole(-1e-12, new Vector(0, -3e-4, 1e-4), new Vector(0, 3e-4, 1e-4)));
+            Checkpoint.capture(sim, Arrays.asList(negative)).write(path);
+            Quadrupole read = (Quadrupole) Checkpoint.read(path).getElectrodes().get(0);
+            assertTrue(read.getCharge() == negative.getCharge());
+            for (int i = 0; i < 4; i++)
+                assertTrue(read.getPositions()[i].equals(negative.getPositions()[i]));
+
+            // Line electrodes read back with their densities, positions and axes
+            LineCharge line = new LineCharge(-2e-9, new Vector(1e-4, 0, 2e-4), Axis.Y);
+            DipoleLine dipoleLine = new DipoleLine(1e-9, new Vector(-1e-4, 1e-4, 0), new Vector(1e-4, 1e-4, 0),
+                    Axis.Z);
+            QuadrupoleLine quadrupoleLine = new QuadrupoleLine(
+                    new DipoleLine(3e-9, new Vector(0, 0, 0), new Vector(0, 1e-4, 1e-4), Axis.X),
+                    new DipoleLine(3e-9, new Vector(0, 1e-4, 0), new Vector(0, 0, 1e-4), Axis.X));
+            List<Electrode> lines = Arrays.asList(line, new ElectrodeSet(dipoleLine, quadrupoleLine));
+            Checkpoint.capture(sim, lines).write(path);
+            List<Electrode> readLines = Checkpoint.read(path).getElectrodes();
+            assertTrue(readLines.size() == 2);
+            assertTrue(readLines.get(0) instanceof LineCharge);
+            assertTrue(((LineCharge) readLines.get(0)).getAxis() == Axis.Y);
+
+            // Same electrodes, same field
+            double[] expected = new double[FieldGradient.LENGTH];
+            double[] actual = new double[FieldGradient.LENGTH];
+            new ElectrodeSet(lines).addFieldGradient(3e-4, -2e-4, 5e-5, expected);
+            new ElectrodeSet(readLines).addFieldGradient(3e-4, -2e-4, 5e-5, actual);
+            assertTrue(Arrays.equals(expected, actual));
+
+            // Electrodes that can't be stored
+            try
+            {
+                Checkpoint.capture(sim, Arrays.asList(new FieldGrid(new Vector(), new Vector(1, 1, 1), 0.5)));
+                fail("Expected IllegalArgumentException");
+            }
+            catch (IllegalArgumentException e)
+            {
+
+            }
+            try
+            {
+                new CheckpointWriter(path, 10, Arrays.asList(new FieldGrid(new Vector(), new Vector(1, 1, 1), 0.5)));
+                fail("Expected IllegalArgumentException");
+            }
+            catch (IllegalArgumentException e)
+            {
+
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(dir.resolve("run.ckpt.tmp"));
+            Files.deleteIfExists(dir);
+        }
+    }
+}
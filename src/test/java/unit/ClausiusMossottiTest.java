@@ -0,0 +1,82 @@
+package unit;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import particles.*;
+import vector.Complex;
+import vector.Vector;
+
+/**
+ * Unit testing for the dielectric models and Clausius-Mossotti tables
+ *
+ * @author Ronen Orland
+ */
+public class ClausiusMossottiTest
+{
+
+    @Test
+    public void limitTest()
+    {
+        Dielectric bead = new Dielectric(2.55, 0.01);
+        Medium medium = new Medium(78, 0.001);
+
+        // Low frequency is set by conductivities, high frequency by permittivities
+        Complex low = ClausiusMossottiTable.factor(bead, medium, 1);
+        Complex high = ClausiusMossottiTable.factor(bead, medium, 1e12);
+        assertTrue(Math.abs(low.getReal() - (0.01 - 0.001) / (0.01 + 2 * 0.001)) < 1e-6);
+        assertTrue(Math.abs(high.getReal() - (2.55 - 78) / (2.55 + 2 * 78)) < 1e-6);
+
+        // No shells is the same as the core
+        ShelledDielectric plain = new ShelledDielectric(1e-6, bead, new Dielectric[0], new double[0]);
+        Complex k = ClausiusMossottiTable.factor(plain, medium, 1e5);
+        assertTrue(k.equals(ClausiusMossottiTable.factor(bead, medium, 1e5)));
+    }
+
+    @Test
+    public void yeastTest()
+    {
+        Particle yeast = new Yeast();
+        Medium medium = new Medium(78, 0.001);
+
+        // Yeast in a low conductivity medium: positive DEP around 1MHz, negative at very high frequency
+        ClausiusMossottiTable table = ClausiusMossottiTable.get(yeast.getDielectric(), medium);
+        assertTrue(table.getReal(1e6) > 0.5);
+        assertTrue(table.getReal(1e6) <= 1);
+        assertTrue(table.getReal(1e9) < 0);
+        assertTrue(table.getReal(1e9) >= -0.5);
+
+        // Table agrees with direct calculation
+        for (double f = 1.3e3; f < 1e9; f *= 7.7)
+        {
+            double exact = ClausiusMossottiTable.factor(yeast.getDielectric(), medium, f).getReal();
+            assertTrue(Math.abs(table.getReal(f) - exact) < 1e-3);
+        }
+
+        // Tables are shared per type and medium
+        assertTrue(ClausiusMossottiTable.get(new Yeast().getDielectric(), new Medium(78, 0.001)) == table);
+        assertTrue(ClausiusMossottiTable.get(new TestParticle().getDielectric(), medium) != table);
+
+        // Particles report the same per-kind models the DEP force is built from
+        assertTrue(new Yeast().getDielectric() == ParticleEnsemble.getDielectric(ParticleEnsemble.YEAST));
+        assertTrue(new TestParticle().getDielectric() == ParticleEnsemble.getDielectric(ParticleEnsemble.TEST_PARTICLE));
+        assertTrue(new TestParticle().getDielectric() == Particle.dielectric);
+
+        // A particle with a model no kind has can't be added, since the arrays would lose it
+        Particle glass = new Particle(new Vector(), 1e-13, 1e-6)
+        {
+            @Override
+            public DielectricModel getDielectric()
+            {
+                return new Dielectric(6, 1e-12);
+            }
+        };
+        try
+        {
+            new ParticleEnsemble().add(glass);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+    }
+}
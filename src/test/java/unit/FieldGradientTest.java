@@ -0,0 +1,89 @@
+package unit;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import vector.Vector;
+import field.*;
+
+/**
+ * Unit testing for the closed form field gradients
+ *
+ * @author Ronen Orland
+ */
+public class FieldGradientTest
+{
+
+    @Test
+    public void closedFormTest()
+    {
+        Electrode[] electrodes = {
+            new PointCharge(1e-6, new Vector(0.1, -0.2, 0.3)),
+            new Dipole(),
+            new Quadrupole(),
+            new ChargeArray.Builder().add(new Dipole()).add(new Quadrupole()).build()
+        };
+        Vector coord = new Vector(0.37, 1.21, 0.52);
+
+        for (Electrode electrode : electrodes)
+        {
+            double[] exact = new double[FieldGradient.LENGTH];
+            double[] approx = new double[FieldGradient.LENGTH];
+            electrode.addFieldGradient(coord.getX(), coord.getY(), coord.getZ(), exact);
+            FieldGradient.addFiniteDifference(electrode, coord.getX(), coord.getY(), coord.getZ(), approx, 0);
+
+            // Field part matches getField
+            Vector field = electrode.getField(coord);
+            assertTrue(Math.abs(exact[FieldGradient.EX] - field.getX()) <= 1e-9 * field.magnitude());
+            assertTrue(Math.abs(exact[FieldGradient.EY] - field.getY()) <= 1e-9 * field.magnitude());
+            assertTrue(Math.abs(exact[FieldGradient.EZ] - field.getZ()) <= 1e-9 * field.magnitude());
+
+            // Jacobian matches finite differences
+            double scale = 0;
+            for (int c = FieldGradient.XX; c < FieldGradient.LENGTH; c++)
+                scale = Math.max(scale, Math.abs(exact[c]));
+            for (int c = 0; c < FieldGradient.LENGTH; c++)
+                assertTrue(Math.abs(exact[c] - approx[c]) <= 1e-5 * scale);
+        }
+    }
+
+    @Test
+    public void fieldSquaredTest()
+    {
+        Dipole dipole = new Dipole();
+        Vector coord = new Vector(0.37, 1.21, 0.52);
+        double h = 1e-6;
+
+        // Compare against finite differences of |E|^2
+        Vector gradient = dipole.getFieldSquaredGradient(coord);
+        double dx = squared(dipole, coord.getX() + h, coord.getY(), coord.getZ())
+                - squared(dipole, coord.getX() - h, coord.getY(), coord.getZ());
+        double dy = squared(dipole, coord.getX(), coord.getY() + h, coord.getZ())
+                - squared(dipole, coord.getX(), coord.getY() - h, coord.getZ());
+        double dz = squared(dipole, coord.getX(), coord.getY(), coord.getZ() + h)
+                - squared(dipole, coord.getX(), coord.getY(), coord.getZ() - h);
+        Vector approx = new Vector(dx / (2*h), dy / (2*h), dz / (2*h));
+
+        assertTrue(gradient.distance(approx) <= 1e-5 * gradient.magnitude());
+
+        // Batch matches single points
+        double[] x = {0.37, -1};
+        double[] y = {1.21, 0.5};
+        double[] z = {0.52, 2};
+        double[] batch = new double[2 * FieldGradient.LENGTH];
+        dipole.getFieldGradient(x, y, z, batch, 2);
+        for (int i = 0; i < 2; i++)
+        {
+            double[] single = new double[FieldGradient.LENGTH];
+            dipole.addFieldGradient(x[i], y[i], z[i], single);
+            for (int c = 0; c < FieldGradient.LENGTH; c++)
+                assertTrue(batch[c*2 + i] == single[c]);
+        }
+    }
+
+    private static double squared(Electrode electrode, double x, double y, double z)
+    {
+        Vector field = electrode.getField(new Vector(x, y, z));
+
+        return field.magnitude() * field.magnitude();
+    }
+}
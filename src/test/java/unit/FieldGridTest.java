@@ -0,0 +1,194 @@
+package unit;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+import vector.Vector;
+import field.*;
+
+/**
+ * Unit testing for FieldGrid
+ *
+ * @author Ronen Orland
+ */
+public class FieldGridTest
+{
+
+    @Test
+    public void constructorTest()
+    {
+        FieldGrid grid = new FieldGrid(new Vector(0,0,0), new Vector(1,2,3), 0.5);
+        assertTrue(grid.getNodesX() == 3);
+        assertTrue(grid.getNodesY() == 5);
+        assertTrue(grid.getNodesZ() == 7);
+        assertTrue(grid.getMax().equals(new Vector(1,2,3)));
+        assertTrue(grid.getData().length == 3 * 3 * 5 * 7);
+        assertTrue(grid.getNode(2, 4, 6).equals(new Vector()));
+
+        // Bad spacing
+        try
+        {
+            grid = new FieldGrid(new Vector(0,0,0), new Vector(1,1,1), 0);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+
+        }
+    }
+
+    @Test
+    public void interpolationTest()
+    {
+        // Field that is linear in position, both interpolations reproduce it exactly inside the grid
+        FieldGrid grid = new FieldGrid(new Vector(0,0,0), new Vector(1,1,1), 5, 5, 5);
+        for (int i = 0; i < 5; i++)
+        {
+            for (int j = 0; j < 5; j++)
+            {
+                for (int k = 0; k < 5; k++)
+                    grid.setNode(i, j, k, new Vector(i, 2*j, i + j + k));
+            }
+        }
+
+        Vector coord = new Vector(1.25, 2.5, 1.75);
+        Vector field = grid.getField(coord);
+        assertTrue(Math.abs(field.getX() - 1.25) < 1e-12);
+        assertTrue(Math.abs(field.getY() - 5.0) < 1e-12);
+        assertTrue(Math.abs(field.getZ() - 5.5) < 1e-12);
+
+        grid.setInterpolation(FieldGrid.Interpolation.TRICUBIC);
+        field = grid.getField(coord);
+        assertTrue(Math.abs(field.getX() - 1.25) < 1e-12);
+        assertTrue(Math.abs(field.getY() - 5.0) < 1e-12);
+        assertTrue(Math.abs(field.getZ() - 5.5) < 1e-12);
+
+        // Outside the grid is clamped to the edge
+        field = grid.getField(new Vector(-10, 0, 0));
+        assertTrue(field.equals(new Vector(0, 0, 0)));
+        field = grid.getField(new Vector(10, 10, 10));
+        assertTrue(field.equals(new Vector(4, 8, 12)));
+    }
+
+    @Test
+    public void sampleTest()
+    {
+        PointCharge charge = new PointCharge(1e-9, new Vector(-1, -1, -1));
+        FieldGrid grid = FieldGrid.sample(charge, new Vector(0,0,0), new Vector(1,1,1), 0.05);
+
+        // Nodes hold the exact field
+        Vector node = grid.getNode(4, 7, 12);
+        Vector exact = charge.getField(new Vector(0.2, 0.35, 0.6));
+        assertTrue(node.distance(exact) <= 1e-9 * exact.magnitude());
+
+        // Between nodes the interpolated field is close, and tricubic is closer
+        Vector coord = new Vector(0.512, 0.333, 0.271);
+        exact = charge.getField(coord);
+        double linearError = grid.getField(coord).distance(exact);
+        grid.setInterpolation(FieldGrid.Interpolation.TRICUBIC);
+        double cubicError = grid.getField(coord).distance(exact);
+        assertTrue(linearError < 1e-2 * exact.magnitude());
+        assertTrue(cubicError < linearError);
+    }
+
+    @Test
+    public void fileTest() throws IOException
+    {
+        PointCharge charge = new PointCharge(1e-9, new Vector(-1, -1, -1));
+        FieldGrid grid = FieldGrid.sample(charge, new Vector(0,0,0), new Vector(1,1,1), 0.1);
+        grid.setInterpolation(FieldGrid.Interpolation.TRICUBIC);
+        Vector coord = new Vector(0.512, 0.333, 0.271);
+        Path path = Files.createTempFile("grid", ".bin");
+
+        try
+        {
+            // Doubles read back exactly
+            FieldGridFile.write(grid, path, FieldGridFile.Precision.DOUBLE);
+            FieldGrid mapped = FieldGridFile.open(path);
+            mapped.setInterpolation(FieldGrid.Interpolation.TRICUBIC);
+            assertTrue(mapped.getNodesX() == grid.getNodesX());
+            assertTrue(mapped.getMin().equals(grid.getMin()));
+            assertTrue(mapped.getSpacing().equals(grid.getSpacing()));
+            assertTrue(mapped.getNode(3, 4, 5).equals(grid.getNode(3, 4, 5)));
+            assertTrue(mapped.getField(coord).equals(grid.getField(coord)));
+
+            // Floats read back to single precision
+            FieldGridFile.write(grid, path, FieldGridFile.Precision.SINGLE);
+            mapped = FieldGridFile.open(path);
+            mapped.setInterpolation(FieldGrid.Interpolation.TRICUBIC);
+            Vector expected = grid.getField(coord);
+            assertTrue(mapped.getField(coord).distance(expected) < 1e-6 * expected.magnitude());
+
+            // Sampling straight into a file
+            FieldGrid created = FieldGridFile.create(path, new Vector(0,0,0), new Vector(0.1), 11, 11, 11,
+                    FieldGridFile.Precision.DOUBLE);
+            created.fill(charge);
+            created.force();
+            mapped = FieldGridFile.open(path);
+            assertTrue(mapped.getNode(7, 2, 9).equals(grid.getNode(7, 2, 9)));
+
+            // Opened grids are read-only
+            try
+            {
+                mapped.setNode(7, 2, 9, new Vector());
+                fail("Expected IllegalStateException");
+            }
+            catch (IllegalStateException e)
+            {
+            }
+            try
+            {
+                mapped.fill(charge);
+                fail("Expected IllegalStateException");
+            }
+            catch (IllegalStateException e)
+            {
+            }
+            assertTrue(mapped.getNode(7, 2, 9).equals(grid.getNode(7, 2, 9)));
+        }
+        finally
+        {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void damagedFileTest() throws IOException
+    {
+        FieldGrid grid = new FieldGrid(new Vector(0,0,0), new Vector(1,1,1), 0.5);
+        Path path = Files.createTempFile("grid", ".bin");
+
+        try
+        {
+            FieldGridFile.write(grid, path, FieldGridFile.Precision.SINGLE);
+
+            // Negative y spacing in the header
+            ByteBuffer spacing = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putDouble(0, -0.5);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE))
+            {
+                channel.write(spacing, 72);
+            }
+
+            try
+            {
+                FieldGridFile.open(path);
+                fail("Expected IOException");
+            }
+            catch (IOException e)
+            {
+            }
+        }
+        finally
+        {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package unit;
+
+import static org.junit.Assert.*;
+import org.junit.Assume;
+import org.junit.Test;
+import vector.Vector;
+import field.*;
+
+/**
+ * Unit testing for the Vector API field kernel against the scalar field code. Only runs when the
+ * vector kernel is in use, so run with --add-modules jdk.incubator.vector to cover it.
+ *
+ * @author Ronen Orland
+ */
+public class FieldKernelTest
+{
+    private final static double TOLERANCE = 1e-11;  // Relative difference allowed from reordered sums
+    private final static int COUNT = 37;            // Odd, so the vector loops leave a tail
+
+    private final double[] x = new double[COUNT];
+    private final double[] y = new double[COUNT];
+    private final double[] z = new double[COUNT];
+    private final double plane = 0.3;               // z of the plane for the planar batches
+
+
+    public FieldKernelTest()
+    {
+        for (int i = 0; i < COUNT; i++)
+        {
+            x[i] = Math.cos(7*i);
+            y[i] = Math.sin(5*i);
+            z[i] = 0.1 * i;
+        }
+    }
+
+    /**
+     * Checks a batch matches fields added one point at a time by the scalar code, to a small fraction
+     * of the field's magnitude at each point
+     */
+    private static void assertMatches(double[] batch, int components, Vector[] expected)
+    {
+        for (int i = 0; i < COUNT; i++)
+        {
+            double[] want = {expected[i].getX(), expected[i].getY(), expected[i].getZ()};
+            double tolerance = TOLERANCE * expected[i].magnitude();
+
+            for (int c = 0; c < components; c++)
+                assertTrue(Math.abs(batch[c*COUNT + i] - want[c]) <= tolerance);
+        }
+    }
+
+    /**
+     * Sums the fields of point charges at a point with PointCharge's own scalar code
+     */
+    private static Vector scalarField(PointCharge[] charges, double px, double py, double pz)
+    {
+        Vector field = new Vector();
+        for (PointCharge charge : charges)
+            charge.addField(px, py, pz, field);
+
+        return field;
+    }
+
+    private static PointCharge[] charges(int n)
+    {
+        PointCharge[] charges = new PointCharge[n];
+        for (int j = 0; j < n; j++)
+            charges[j] = new PointCharge((j % 3 - 1) * 1e-9 + 1e-10,
+                    new Vector(Math.sin(j), Math.cos(3*j), -0.5 - j % 5));
+
+        return charges;
+    }
+
+    @Test
+    public void pointChargeTest()
+    {
+        Assume.assumeTrue(FieldKernel.isVectorized());
+
+        PointCharge[] charge = charges(1);
+        double[] batch = new double[3 * COUNT];
+        charge[0].getField(x, y, z, batch, COUNT);
+
+        Vector[] expected = new Vector[COUNT];
+        for (int i = 0; i < COUNT; i++)
+            expected[i] = scalarField(charge, x[i], y[i], z[i]);
+        assertMatches(batch, 3, expected);
+    }
+
+    @Test
+    public void chargeArrayTest()
+    {
+        Assume.assumeTrue(FieldKernel.isVectorized());
+
+        PointCharge[] charges = charges(100);
+        ChargeArray.Builder builder = new ChargeArray.Builder();
+        for (PointCharge charge : charges)
+            builder.add(charge);
+        ChargeArray array = builder.build();
+
+        double[] batch = new double[3 * COUNT];
+        double[] single = new double[3 * COUNT];
+        array.getField(x, y, z, batch, COUNT);
+
+        // Both the many points and the one point loops
+        Vector[] expected = new Vector[COUNT];
+        for (int i = 0; i < COUNT; i++)
+        {
+            expected[i] = scalarField(charges, x[i], y[i], z[i]);
+
+            Vector field = array.getField(new Vector(x[i], y[i], z[i]));
+            single[i] = field.getX();
+            single[COUNT + i] = field.getY();
+            single[2*COUNT + i] = field.getZ();
+        }
+        assertMatches(batch, 3, expected);
+        assertMatches(single, 3, expected);
+    }
+
+    @Test
+    public void planarTest()
+    {
+        Assume.assumeTrue(FieldKernel.isVectorized());
+
+        PointCharge[] charges = charges(20);
+        ChargeArray.Builder builder = new ChargeArray.Builder();
+        for (PointCharge charge : charges)
+            builder.add(charge);
+
+        double[] batch = new double[2 * COUNT];
+        Vector[] expected = new Vector[COUNT];
+        for (int i = 0; i < COUNT; i++)
+            expected[i] = scalarField(charges, x[i], y[i], plane);
+        builder.build().getPlanarField(x, y, plane, batch, COUNT);
+        assertMatches(batch, 2, expected);
+
+        // Lines along z go through the line loop
+        LineCharge line = new LineCharge(2e-9, new Vector(0.2, -0.1, 0), Axis.Z);
+        line.getPlanarField(x, y, plane, batch, COUNT);
+        for (int i = 0; i < COUNT; i++)
+        {
+            expected[i] = new Vector();
+            line.addField(x[i], y[i], plane, expected[i]);
+        }
+        assertMatches(batch, 2, expected);
+    }
+}
@@ -0,0 +1,192 @@
+package unit;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import vector.Vector;
+import field.*;
+
+/**
+ * Unit testing for LineCharge, DipoleLine and QuadrupoleLine
+ *
+ * @author Ronen Orland
+ */
+public class LineChargeTest
+{
+    private static final double lambda = 1e-9;     // Charge per length used in the tests
+
+
+    @Test
+    public void fieldTest()
+    {
+        // Offset (3, 4) from a line along z, so |E| = 2k lambda / 5 pointing along (3, 4) / 5
+        LineCharge line = new LineCharge(lambda, new Vector(1, 2, 7), Axis.Z);
+        double scale = 2 * PointCharge.k * lambda / 25;
+        for (double z : new double[] {0, -3, 1e4})
+        {
+            Vector field = line.getField(new Vector(4, 6, z));
+            assertTrue(Math.abs(field.getX() - 3 * scale) <= 1e-12 * scale);
+            assertTrue(Math.abs(field.getY() - 4 * scale) <= 1e-12 * scale);
+            assertTrue(field.getZ() == 0);
+        }
+        assertTrue(line.getInvariantAxis() == Axis.Z);
+        assertTrue(line.getPosition().equals(new Vector(1, 2, 0)));
+
+        // Lines along the other axes
+        Vector field = new LineCharge(lambda, new Vector(9, 1, 2), Axis.X).getField(new Vector(5, 1, 3));
+        assertTrue(field.getX() == 0 && field.getY() == 0);
+        assertTrue(Math.abs(field.getZ() - 2 * PointCharge.k * lambda) <= 1e-12 * PointCharge.k * lambda);
+        field = new LineCharge(-lambda, new Vector(1, 0, 0), Axis.Y).getField(new Vector(3, 7, 0));
+        assertTrue(Math.abs(field.getX() + PointCharge.k * lambda) <= 1e-12 * PointCharge.k * lambda);
+        assertTrue(field.getY() == 0 && field.getZ() == 0);
+
+        // On the line the field is infinite across it
+        field = line.getField(new Vector(1, 2, -5));
+        assertTrue(field.getX() == Double.POSITIVE_INFINITY && field.getY() == Double.POSITIVE_INFINITY);
+        assertTrue(field.getZ() == 0);
+
+        // A long row of point charges approaches the line, within the error from its finite length
+        ChargeArray.Builder builder = new ChargeArray.Builder();
+        double h = 0.01;
+        for (int i = -20000; i <= 20000; i++)
+            builder.add(lambda * h, 1, 2, i * h);
+        Vector approx = builder.build().getField(new Vector(4, 6, 0));
+        field = line.getField(new Vector(4, 6, 0));
+        assertTrue(Math.abs(approx.getX() - field.getX()) < 1e-3 * field.getX());
+        assertTrue(Math.abs(approx.getY() - field.getY()) < 1e-3 * field.getY());
+        assertTrue(Math.abs(approx.getZ()) < 1e-9 * field.getX());
+    }
+
+    @Test
+    public void batchAndGradientTest()
+    {
+        int count = 13;
+        double[] x = new double[count], y = new double[count], z = new double[count];
+        for (int i = 0; i < count; i++)
+        {
+            x[i] = Math.sin(i) * 3;
+            y[i] = Math.cos(2*i) * 3;
+            z[i] = i - 6.5;
+        }
+        x[4] = 0.5;
+        y[4] = -1;
+        z[4] = 2;
+
+        for (Axis axis : Axis.values())
+        {
+            // One of the points is on the line
+            LineCharge line = new LineCharge(lambda, new Vector(0.5, -1, 2), axis);
+            double[] batch = new double[3 * count];
+            line.getField(x, y, z, batch, count);
+
+            for (int i = 0; i < count; i++)
+            {
+                Vector single = line.getField(new Vector(x[i], y[i], z[i]));
+                assertTrue(batch[i] == single.getX());
+                assertTrue(batch[count + i] == single.getY());
+                assertTrue(batch[2*count + i] == single.getZ());
+
+                if (i == 4)
+                    continue;
+
+                // Closed form gradient matches finite differences
+                double[] exact = new double[FieldGradient.LENGTH];
+                double[] numeric = new double[FieldGradient.LENGTH];
+                line.addFieldGradient(x[i], y[i], z[i], exact);
+                FieldGradient.addFiniteDifference(line, x[i], y[i], z[i], numeric, 0);
+                double size = Math.abs(exact[FieldGradient.XX]) + Math.abs(exact[FieldGradient.YY])
+                        + Math.abs(exact[FieldGradient.ZZ]) + Math.abs(exact[FieldGradient.XY])
+                        + Math.abs(exact[FieldGradient.XZ]) + Math.abs(exact[FieldGradient.YZ]);
+                for (int c = 0; c < FieldGradient.LENGTH; c++)
+                    assertTrue(Math.abs(exact[c] - numeric[c]) <= 1e-5 * size);
+            }
+        }
+    }
+
+    @Test
+    public void arrangementTest()
+    {
+        DipoleLine dipole = new DipoleLine(lambda, new Vector(-1, 0, 0), new Vector(1, 0, 0), Axis.Z);
+        assertTrue(dipole.getDistance() == 2);
+        assertTrue(dipole.getNegative().getDensity() == -lambda);
+        assertTrue(new DipoleLine().getDensity() == LineCharge.DEFAULT_DENSITY);
+
+        // Field is the sum of the lines
+        Vector coord = new Vector(0.3, 0.8, 5);
+        Vector field = dipole.getField(coord);
+        Vector expected = dipole.getPositive().getField(coord);
+        expected.add(dipole.getNegative().getField(coord));
+        assertTrue(field.equals(expected));
+
+        // Along the axis between the lines the field points from positive to negative
+        field = dipole.getField(new Vector(0, 0, 0));
+        assertTrue(field.getX() > 0 && field.getY() == 0);
+
+        // Positive lines at (-1, 0) and (1, 0), negative at (0, 1) and (0, -1)
+        QuadrupoleLine quad = new QuadrupoleLine(
+                new DipoleLine(lambda, new Vector(-1, 0, 0), new Vector(0, 1, 0), Axis.Z),
+                new DipoleLine(lambda, new Vector(1, 0, 0), new Vector(0, -1, 0), Axis.Z));
+        assertTrue(quad.getLineCharges().length == 4);
+        assertTrue(quad.getInvariantAxis() == Axis.Z);
+
+        // The field at the center of a symmetric quadrupole cancels
+        field = quad.getField(new Vector(0, 0, 3));
+        assertTrue(Math.abs(field.getX()) < 1e-6 && Math.abs(field.getY()) < 1e-6);
+
+        double[] x = {0.2, 3, -1}, y = {0.1, 0, 2}, z = {0, 0, 0};
+        double[] batch = new double[9];
+        quad.getField(x, y, z, batch, 3);
+        for (int i = 0; i < 3; i++)
+        {
+            Vector single = new Vector();
+            for (LineCharge line : quad.getLineCharges())
+                single.add(line.getField(new Vector(x[i], y[i], z[i])));
+            assertTrue(Math.abs(batch[i] - single.getX()) <= 1e-12 * Math.abs(single.getX()));
+            assertTrue(Math.abs(batch[3 + i] - single.getY()) <= 1e-12 * Math.abs(single.getY()));
+        }
+
+        // Lines have to be parallel with matching densities
+        try
+        {
+            new DipoleLine(new LineCharge(lambda, new Vector(), Axis.Z), new LineCharge(-lambda, new Vector(), Axis.X));
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+
+        }
+        try
+        {
+            new QuadrupoleLine(dipole, new DipoleLine(2 * lambda, new Vector(0, 1, 0), new Vector(0, -1, 0), Axis.Z));
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+
+        }
+    }
+
+    @Test
+    public void invariantAxisTest()
+    {
+        QuadrupoleLine quad = new QuadrupoleLine();
+        LineCharge line = new LineCharge(lambda, new Vector(5, 5, 0), Axis.Z);
+        assertTrue(new ElectrodeSet(quad, line).getInvariantAxis() == Axis.Z);
+        assertTrue(new ElectrodeSet(quad, new LineCharge(lambda, new Vector(), Axis.X)).getInvariantAxis() == null);
+        assertTrue(new ElectrodeSet(quad, new PointCharge()).getInvariantAxis() == null);
+        assertTrue(new PointCharge().getInvariantAxis() == null);
+
+        // Sampling skips the invariant axis entirely
+        FieldGrid grid = FieldGrid.sample(quad, new Vector(-1, -1, -1), new Vector(2, 2, 1), 0.25);
+        assertTrue(grid.getNodesX() == 13 && grid.getNodesY() == 13 && grid.getNodesZ() == 1);
+        assertTrue(grid.getInvariantAxis() == Axis.Z);
+        for (double z : new double[] {-1, 0.3, 50})
+            assertTrue(grid.getField(new Vector(0.5, 1.5, z)).equals(quad.getField(new Vector(0.5, 1.5, 0))));
+
+        // Filling a full grid samples one plane and copies it along the axis
+        FieldGrid full = new FieldGrid(new Vector(-1, -1, -1), new Vector(2, 2, 1), 0.25);
+        full.fill(quad);
+        assertTrue(full.getNodesZ() == 9);
+        for (int k = 0; k < full.getNodesZ(); k++)
+            assertTrue(full.getNode(3, 7, k).equals(grid.getNode(3, 7, 0)));
+    }
+}
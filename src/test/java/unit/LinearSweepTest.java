@@ -0,0 +1,116 @@
+package unit;
+
+import static org.junit.Assert.*;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import vector.Vector;
+import field.*;
+
+/**
+ * Unit testing for LinearSweep
+ *
+ * @author Ronen Orland
+ */
+public class LinearSweepTest
+{
+
+    /**
+     * Checks two fields agree to within a small fraction of the largest component
+     */
+    private static void assertClose(double[] expected, double[] actual, int length)
+    {
+        double max = 0;
+        for (int i = 0; i < length; i++)
+            max = Math.max(max, Math.abs(expected[i]));
+
+        for (int i = 0; i < length; i++)
+            assertTrue(Math.abs(expected[i] - actual[i]) <= 1e-12 * max);
+    }
+
+    @Test
+    public void pointTest()
+    {
+        PointCharge point = new PointCharge(2e-9, new Vector(0, 0, 1e-3));
+        Dipole dipole = new Dipole(1e-9, new Vector(-1e-3, 0, 0), new Vector(1e-3, 0, 0));
+        Quadrupole quad = new Quadrupole(new PointCharge(3e-9, new Vector(0, 2e-3, 0)),
+                new PointCharge(3e-9, new Vector(0, -2e-3, 0)), new PointCharge(-3e-9, new Vector(2e-3, 0, 0)),
+                new PointCharge(-3e-9, new Vector(-2e-3, 0, 0)));
+        LineCharge line = new LineCharge(1e-9, new Vector(3e-3, 3e-3, 0), Axis.Z);
+        ChargeArray array = new ChargeArray.Builder().add(1e-9, 0, 1e-3, 2e-3).add(-1e-9, 0, -1e-3, 2e-3).build();
+        List<Electrode> electrodes = Arrays.asList(point, dipole, quad, line, array);
+
+        int count = 30;
+        double[] x = new double[count], y = new double[count], z = new double[count];
+        for (int i = 0; i < count; i++)
+        {
+            x[i] = Math.sin(i) * 4e-3;
+            y[i] = Math.cos(2*i) * 4e-3;
+            z[i] = (i % 4) * 5e-4;
+        }
+
+        LinearSweep sweep = new LinearSweep(electrodes, x, y, z, count);
+        assertTrue(sweep.size() == 5 && sweep.getCount() == count);
+
+        // The current weights reproduce the electrodes as they are
+        double[] weights = sweep.getWeights();
+        assertTrue(weights[0] == 2e-9 && weights[1] == 1e-9 && weights[2] == 3e-9 && weights[3] == 1e-9);
+        assertTrue(weights[4] == 1);
+
+        double[] expected = new double[3 * count];
+        double[] actual = new double[3 * count];
+        new ElectrodeSet(electrodes).getField(x, y, z, expected, count);
+        sweep.getField(weights, actual);
+        assertClose(expected, actual, 3 * count);
+
+        // Any other setting matches changing the charges and recomputing
+        for (double charge : new double[] {-4e-9, 0, 7.5e-9})
+        {
+            dipole.setCharge(charge);
+            quad.setCharge(Math.abs(charge));
+            point.setCharge(charge / 2);
+            new ElectrodeSet(electrodes).getField(x, y, z, expected, count);
+            sweep.getField(new double[] {charge / 2, charge, Math.abs(charge), 1e-9, 1}, actual);
+            assertClose(expected, actual, 3 * count);
+        }
+
+        try
+        {
+            sweep.getField(new double[] {1, 2}, actual);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+
+        try
+        {
+            sweep.getGrid(weights);
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException e)
+        {
+        }
+    }
+
+    @Test
+    public void gridTest()
+    {
+        DipoleLine left = new DipoleLine(1e-9, new Vector(-2e-3, 1e-3, 0), new Vector(-2e-3, -1e-3, 0), Axis.Z);
+        Dipole right = new Dipole(1e-9, new Vector(2e-3, 1e-3, 0), new Vector(2e-3, -1e-3, 0));
+        List<Electrode> electrodes = Arrays.asList(left, right);
+
+        FieldGrid shape = new FieldGrid(new Vector(-1e-3, -1e-3, -5e-4), new Vector(2.5e-4), 9, 9, 5);
+        LinearSweep sweep = new LinearSweep(electrodes, shape);
+        assertTrue(sweep.getCount() == 9 * 9 * 5);
+
+        // Doubling the dipole line matches a grid sampled from the changed electrodes
+        DipoleLine doubled = new DipoleLine(2e-9, new Vector(-2e-3, 1e-3, 0), new Vector(-2e-3, -1e-3, 0), Axis.Z);
+        FieldGrid expected = new FieldGrid(shape.getMin(), shape.getSpacing(), 9, 9, 5);
+        expected.fill(new ElectrodeSet(doubled, right));
+
+        FieldGrid actual = sweep.getGrid(new double[] {2e-9, 1e-9});
+        assertTrue(actual.getNodesX() == 9 && actual.getNodesY() == 9 && actual.getNodesZ() == 5);
+        assertClose(expected.getData(), actual.getData(), expected.getData().length);
+    }
+}
@@ -0,0 +1,154 @@
+package unit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import particles.*;
+import vector.Vector;
+
+/**
+ * Unit testing for ParticleEnsemble
+ *
+ * @author Ronen Orland
+ */
+public class ParticleEnsembleTest
+{
+
+    @Test
+    public void addRemoveTest()
+    {
+        ParticleEnsemble ensemble = new ParticleEnsemble(1);
+
+        // Adding past the capacity grows the arrays
+        for (int i = 0; i < 10; i++)
+            assertTrue(ensemble.add(i, 0, 0, 1, 1, ParticleEnsemble.OTHER) == i);
+        assertTrue(ensemble.size() == 10);
+        assertTrue(ensemble.capacity() >= 10);
+
+        // Removing one shifts the rest down
+        ensemble.remove(0);
+        assertTrue(ensemble.size() == 9);
+        assertTrue(ensemble.getX(0) == 1);
+        assertTrue(ensemble.getX(8) == 9);
+
+        // Bulk removal keeps order
+        int removed = ensemble.removeIf(i -> i % 2 == 0);
+        assertTrue(removed == 5);
+        assertTrue(ensemble.size() == 4);
+        assertTrue(ensemble.getX(0) == 2);
+        assertTrue(ensemble.getX(1) == 4);
+        assertTrue(ensemble.getX(2) == 6);
+        assertTrue(ensemble.getX(3) == 8);
+
+        // Out of bounds
+        try
+        {
+            ensemble.remove(4);
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch (IndexOutOfBoundsException e)
+        {
+
+        }
+
+        ensemble.clear();
+        assertTrue(ensemble.size() == 0);
+    }
+
+    @Test
+    public void adapterTest()
+    {
+        List<Particle> particles = new ArrayList<Particle>();
+        particles.add(new Yeast(1, 2, 3));
+        particles.add(new TestParticle(4, 5, 6));
+
+        ParticleEnsemble ensemble = new ParticleEnsemble(particles);
+        assertTrue(ensemble.size() == 2);
+        assertTrue(ensemble.getKind(0) == ParticleEnsemble.YEAST);
+        assertTrue(ensemble.getKind(1) == ParticleEnsemble.TEST_PARTICLE);
+
+        // Reading back gives the same class, position, mass and radius
+        List<Particle> back = ensemble.toParticles();
+        for (int i = 0; i < particles.size(); i++)
+        {
+            Particle original = particles.get(i);
+            Particle copy = back.get(i);
+            assertTrue(copy.getClass() == original.getClass());
+            assertTrue(copy.getPosition().equals(original.getPosition()));
+            assertTrue(copy.getMass() == original.getMass());
+            assertTrue(copy.getRadius() == original.getRadius());
+        }
+    }
+
+    @Test
+    public void moveTest()
+    {
+        Particle particle = new Yeast();
+        Vector force = new Vector(1.0, 2.0, 3.0);
+        double time = 1.0;
+
+        ParticleEnsemble ensemble = new ParticleEnsemble();
+        ensemble.add(particle);
+        ensemble.add(particle);
+
+        // Bulk moves match Particle.move
+        particle.move(force, time);
+        ensemble.move(new double[] {1.0, 1.0, 2.0, 2.0, 3.0, 3.0}, time);
+        for (int i = 0; i < ensemble.size(); i++)
+        {
+            assertTrue(ensemble.getX(i) == particle.getPosition().getX());
+            assertTrue(ensemble.getY(i) == particle.getPosition().getY());
+            assertTrue(ensemble.getZ(i) == particle.getPosition().getZ());
+        }
+
+        particle.move(force, time);
+        ensemble.move(force, time);
+        assertTrue(ensemble.getX(0) == particle.getPosition().getX());
+        assertTrue(ensemble.getY(1) == particle.getPosition().getY());
+        assertTrue(ensemble.getZ(1) == particle.getPosition().getZ());
+    }
+
+    @Test
+    public void generatorTest()
+    {
+        Vector min = new Vector(-1e-3, -1e-3, 0);
+        Vector max = new Vector(1e-3, 1e-3, 5e-4);
+
+        // Same seed gives the same population, more than one block so it is filled in parallel
+        int count = 3 * PopulationGenerator.BLOCK_SIZE + 17;
+        ParticleEnsemble a = new PopulationGenerator(7).generate(ParticleEnsemble.YEAST, count, min, max);
+        ParticleEnsemble b = new PopulationGenerator(7).generate(ParticleEnsemble.YEAST, count, min, max);
+        ParticleEnsemble c = new PopulationGenerator(8).generate(ParticleEnsemble.YEAST, count, min, max);
+        assertTrue(a.size() == count);
+        assertTrue(c.getX(0) != a.getX(0));
+
+        for (int i = 0; i < count; i++)
+        {
+            assertTrue(a.getX(i) == b.getX(i) && a.getY(i) == b.getY(i) && a.getZ(i) == b.getZ(i));
+            assertTrue(a.getMass(i) == b.getMass(i) && a.getRadius(i) == b.getRadius(i));
+
+            assertTrue(a.getX(i) >= min.getX() && a.getX(i) <= max.getX());
+            assertTrue(a.getZ(i) >= min.getZ() && a.getZ(i) <= max.getZ());
+            assertTrue(Math.abs(a.getMass(i) - Yeast.avgMass) <= Yeast.massTolerance);
+            assertTrue(Math.abs(a.getRadius(i) - Yeast.avgRadius) <= Yeast.radiusTolerance);
+            assertTrue(a.getKind(i) == ParticleEnsemble.YEAST);
+        }
+
+        // Adding to an existing ensemble keeps what was there and continues the sequence
+        PopulationGenerator generator = new PopulationGenerator(7);
+        ParticleEnsemble grown = new ParticleEnsemble();
+        grown.add(new TestParticle(1, 2, 3));
+        generator.generate(grown, ParticleEnsemble.OTHER, 10, min, max);
+        assertTrue(grown.size() == 11);
+        assertTrue(grown.getX(0) == 1);
+        assertTrue(grown.getKind(10) == ParticleEnsemble.OTHER);
+
+        List<Particle> cells = generator.generateYeast(5, min, max);
+        assertTrue(cells.size() == 5);
+        assertTrue(cells.get(0) instanceof Yeast);
+        assertTrue(cells.get(0).getRadius() != grown.getRadius(1));
+    }
+}
@@ -0,0 +1,222 @@
+package unit;
+
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import vector.Vector;
+import field.*;
+import particles.*;
+import simulation.*;
+
+/**
+ * Unit testing for the planar field methods, PlanarEnsemble and PlanarSimulation
+ *
+ * @author Ronen Orland
+ */
+public class PlanarTest
+{
+    private static final double lambda = 1e-9;     // Charge per length used in the tests
+
+
+    /**
+     * A quadrupole of lines along z, invariant along z
+     */
+    private static QuadrupoleLine lineQuadrupole()
+    {
+        return new QuadrupoleLine(new LineCharge(lambda, new Vector(1e-3, 0, 0), Axis.Z),
+                new LineCharge(lambda, new Vector(-1e-3, 0, 0), Axis.Z),
+                new LineCharge(-lambda, new Vector(0, 1e-3, 0), Axis.Z),
+                new LineCharge(-lambda, new Vector(0, -1e-3, 0), Axis.Z));
+    }
+
+    @Test
+    public void fieldTest()
+    {
+        int count = 40;
+        double z = 2e-4;
+        double[] x = new double[count], y = new double[count], zs = new double[count];
+        for (int i = 0; i < count; i++)
+        {
+            x[i] = Math.sin(i) * 8e-4;
+            y[i] = Math.cos(3*i) * 8e-4;
+            zs[i] = z;
+        }
+
+        ChargeArray.Builder builder = new ChargeArray.Builder();
+        for (int i = 0; i < 50; i++)
+            builder.add((i % 2 == 0 ? 1e-9 : -1e-9), Math.cos(i) * 1e-3, Math.sin(i) * 1e-3, (i % 5) * 1e-4);
+
+        Electrode[] electrodes = {
+            new PointCharge(1e-9, new Vector(1e-4, -2e-4, 3e-4)),
+            new Dipole(1e-9, new Vector(1e-3, 0, 0), new Vector(-1e-3, 0, 1e-4)),
+            builder.build(),
+            lineQuadrupole(),
+            new LineCharge(lambda, new Vector(0, 2e-4, 0), Axis.X),
+            new ElectrodeSet(new PointCharge(-2e-9, new Vector(0, 5e-4, 1e-4)), lineQuadrupole())
+        };
+
+        for (Electrode electrode : electrodes)
+        {
+            double[] full = new double[3 * count];
+            double[] planar = new double[2 * count];
+            electrode.getField(x, y, zs, full, count);
+            electrode.getPlanarField(x, y, z, planar, count);
+
+            for (int i = 0; i < 2 * count; i++)
+            {
+                double scale = Math.abs(full[i]) + 1e-30;
+                assertTrue(Math.abs(planar[i] - full[i]) <= 1e-12 * scale);
+            }
+
+            // The gradient without dEz/dz
+            for (int i = 0; i < count; i++)
+            {
+                double[] gradient = new double[FieldGradient.LENGTH];
+                double[] inPlane = new double[PlanarGradient.LENGTH];
+                electrode.addFieldGradient(x[i], y[i], z, gradient);
+                electrode.addPlanarFieldGradient(x[i], y[i], z, inPlane);
+
+                int[] matching = {FieldGradient.EX, FieldGradient.EY, FieldGradient.EZ, FieldGradient.XX,
+                        FieldGradient.YY, FieldGradient.XY, FieldGradient.XZ, FieldGradient.YZ};
+                for (int c = 0; c < PlanarGradient.LENGTH; c++)
+                {
+                    double scale = Math.abs(gradient[matching[c]]) + 1e-30;
+                    assertTrue(Math.abs(inPlane[c] - gradient[matching[c]]) <= 1e-9 * scale);
+                }
+            }
+        }
+
+        // Lines along z are z-free end to end, so they match the 3D batch exactly
+        double[] full = new double[3 * count];
+        double[] planar = new double[2 * count];
+        QuadrupoleLine quad = lineQuadrupole();
+        quad.getField(x, y, zs, full, count);
+        quad.getPlanarField(x, y, z, planar, count);
+        for (int i = 0; i < 2 * count; i++)
+            assertTrue(planar[i] == full[i]);
+    }
+
+    @Test
+    public void depForceTest()
+    {
+        // A point charge above the plane, where Ez is the biggest part of the field
+        PointCharge charge = new PointCharge(1e-12, new Vector(1e-5, -2e-5, 2e-4));
+        double z = 0;
+        ParticleEnsemble full = new ParticleEnsemble();
+        for (int i = 0; i < 12; i++)
+            full.add(new Yeast(Math.cos(i) * 1e-4, Math.sin(i) * 1e-4, z));
+        PlanarEnsemble planar = new PlanarEnsemble(z, full);
+
+        int n = full.size();
+        double[] fx = new double[n], fy = new double[n], fz = new double[n], v = new double[n];
+        new DepForce(charge, Medium.DEP_BUFFER, 1e6).computeForces(full, full.getXArray(), full.getYArray(),
+                full.getZArray(), v, v, v, fx, fy, fz, 0, n);
+
+        double[] px = new double[n], py = new double[n];
+        new PlanarDepForce(charge, Medium.DEP_BUFFER, 1e6).computeForces(planar, planar.getXArray(),
+                planar.getYArray(), v, v, px, py, 0, n);
+
+        for (int i = 0; i < n; i++)
+        {
+            double scale = Math.hypot(fx[i], fy[i]);
+            assertTrue(scale > 0);
+            assertTrue(Math.abs(px[i] - fx[i]) <= 1e-12 * scale);
+            assertTrue(Math.abs(py[i] - fy[i]) <= 1e-12 * scale);
+        }
+    }
+
+    @Test
+    public void ensembleTest()
+    {
+        List<Particle> particles = new ArrayList<Particle>();
+        for (int i = 0; i < 20; i++)
+            particles.add(i % 2 == 0 ? new Yeast(i * 1e-5, -i * 1e-5, 3e-5) : new TestParticle(new Vector(i, 1, 2)));
+
+        PlanarEnsemble planar = new PlanarEnsemble(1e-4, particles);
+        assertTrue(planar.size() == 20);
+        assertTrue(planar.getZ() == 1e-4);
+        planar.setVelocity(3, 1, -2);
+
+        ParticleEnsemble full = planar.toEnsemble();
+        PlanarEnsemble back = new PlanarEnsemble(1e-4, full);
+        assertTrue(back.size() == planar.size());
+        for (int i = 0; i < planar.size(); i++)
+        {
+            assertTrue(full.getZ(i) == 1e-4 && full.getVelocityZ(i) == 0);
+            assertTrue(back.getX(i) == planar.getX(i) && back.getY(i) == planar.getY(i));
+            assertTrue(back.getVelocityX(i) == planar.getVelocityX(i));
+            assertTrue(back.getVelocityY(i) == planar.getVelocityY(i));
+            assertTrue(back.getMass(i) == planar.getMass(i) && back.getRadius(i) == planar.getRadius(i));
+            assertTrue(back.getKind(i) == planar.getKind(i));
+        }
+
+        // Growing past the initial capacity keeps what was there
+        PlanarEnsemble small = new PlanarEnsemble(0, 1);
+        for (int i = 0; i < 10; i++)
+            small.add(i, -i, 1, 1, (byte) 0);
+        assertTrue(small.size() == 10 && small.getX(9) == 9 && small.getY(9) == -9);
+
+        try
+        {
+            new PlanarEnsemble(0, -1);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+    }
+
+    @Test
+    public void simulationTest()
+    {
+        // Between lines along z nothing depends on z, so the planar and 3D runs should agree
+        List<Electrode> electrodes = Arrays.asList((Electrode) lineQuadrupole());
+        Medium medium = Medium.DEP_BUFFER;
+        double z = 3e-4;
+
+        List<Particle> cells = new ArrayList<Particle>();
+        for (int i = 0; i < 16; i++)
+            cells.add(new Yeast(Math.cos(i) * 5e-4, Math.sin(i) * 5e-4, z));
+
+        PlanarSimulation.Method[] methods = {PlanarSimulation.Method.VELOCITY_VERLET,
+                PlanarSimulation.Method.OVERDAMPED_EULER, PlanarSimulation.Method.OVERDAMPED_HEUN};
+        Integrator[] integrators = {new VelocityVerlet(), new Overdamped(medium, Overdamped.Method.EULER),
+                new Overdamped(medium, Overdamped.Method.HEUN)};
+        double[] steps = {1e-6, 1e-3, 1e-3};
+
+        for (int m = 0; m < methods.length; m++)
+        {
+            PlanarSimulation planar = new PlanarSimulation(new PlanarEnsemble(z, cells), electrodes, medium, 1e6,
+                    methods[m]);
+            Simulation full = new Simulation(new ParticleEnsemble(cells), electrodes, medium, 1e6, integrators[m]);
+            planar.run(50, steps[m]);
+            full.run(50, steps[m]);
+
+            PlanarEnsemble p = planar.getParticles();
+            ParticleEnsemble f = full.getParticles();
+            boolean moved = false;
+            for (int i = 0; i < p.size(); i++)
+            {
+                assertTrue(Math.abs(p.getX(i) - f.getX(i)) <= 1e-12 * 5e-4);
+                assertTrue(Math.abs(p.getY(i) - f.getY(i)) <= 1e-12 * 5e-4);
+                assertTrue(f.getZ(i) == z);
+                moved |= p.getX(i) != cells.get(i).getPosition().getX();
+            }
+            assertTrue(moved);
+            assertTrue(planar.getStepCount() == 50 && planar.getMethod() == methods[m]);
+        }
+
+        // Overdamped steps need the drag from a medium
+        try
+        {
+            new PlanarSimulation(new PlanarEnsemble(0), new PlanarDepForce(lineQuadrupole(), medium, 1e6),
+                    PlanarSimulation.Method.OVERDAMPED_HEUN, null);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package unit;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import field.*;
+import particles.*;
+import simulation.*;
+import vector.Vector;
+
+/**
+ * Unit testing for Simulation and its integrators
+ *
+ * @author Ronen Orland
+ */
+public class SimulationTest
+{
+    private static final double k = 4;      // Spring constant for the harmonic test force
+
+    /**
+     * Force pulling each particle back to the origin along x
+     */
+    private static final ForceModel spring = (p, x, y, z, vx, vy, vz, fx, fy, fz, from, to) ->
+    {
+        for (int i = from; i < to; i++)
+        {
+            fx[i] = -k * x[i];
+            fy[i] = 0;
+            fz[i] = 0;
+        }
+    };
+
+    /**
+     * Runs a unit mass on the spring for one period and returns how far it ends from where it started
+     */
+    private double periodError(Integrator integrator, int steps)
+    {
+        ParticleEnsemble ensemble = new ParticleEnsemble();
+        ensemble.add(1, 0, 0, 1, 1, ParticleEnsemble.OTHER);
+
+        Simulation sim = new Simulation(ensemble, spring, integrator);
+        double period = 2 * Math.PI / Math.sqrt(k);
+        sim.run(steps, period / steps);
+
+        assertTrue(sim.getStepCount() == steps);
+        assertTrue(Math.abs(sim.getTime() - period) < 1e-12);
+
+        return Math.abs(ensemble.getX(0) - 1) + Math.abs(ensemble.getVelocityX(0));
+    }
+
+    @Test
+    public void integratorTest()
+    {
+        double verlet100 = periodError(new VelocityVerlet(), 100);
+        double verlet200 = periodError(new VelocityVerlet(), 200);
+        double rk100 = periodError(new RungeKutta4(), 100);
+        double rk200 = periodError(new RungeKutta4(), 200);
+
+        assertTrue(verlet100 < 1e-2);
+        assertTrue(rk100 < 1e-5);
+
+        // Halving the step cuts the error by about 4 for Verlet and 16 for RK4
+        assertTrue(verlet100 / verlet200 > 3.5 && verlet100 / verlet200 < 4.5);
+        assertTrue(rk100 / rk200 > 14 && rk100 / rk200 < 18);
+    }
+
+    @Test
+    public void electrodeSetTest()
+    {
+        PointCharge a = new PointCharge(1e-9, new Vector(0, 0, 0));
+        Dipole b = new Dipole(1e-9, new Vector(0.01, 0, 0), new Vector(0.011, 0, 0));
+        ElectrodeSet set = new ElectrodeSet(a, b);
+        assertTrue(set.size() == 2);
+
+        Vector pos = new Vector(0.003, 0.004, -0.002);
+        Vector expected = a.getField(pos);
+        expected.add(b.getField(pos));
+        Vector field = set.getField(pos);
+        field.sub(expected);
+        assertTrue(field.magnitude() <= 1e-12 * expected.magnitude());
+
+        double[] x = {pos.getX()};
+        double[] y = {pos.getY()};
+        double[] z = {pos.getZ()};
+        double[] batch = new double[3];
+        set.getField(x, y, z, batch, 1);
+        assertTrue(Math.abs(batch[0] - expected.getX()) <= 1e-12 * expected.magnitude());
+        assertTrue(Math.abs(batch[1] - expected.getY()) <= 1e-12 * expected.magnitude());
+        assertTrue(Math.abs(batch[2] - expected.getZ()) <= 1e-12 * expected.magnitude());
+
+        double[] gradient = new double[FieldGradient.LENGTH];
+        set.addFieldGradient(pos.getX(), pos.getY(), pos.getZ(), gradient);
+        assertTrue(Math.abs(gradient[FieldGradient.EX] - expected.getX()) <= 1e-9 * expected.magnitude());
+    }
+
+    @Test
+    public void depForceTest()
+    {
+        // Yeast shows positive DEP at 1 MHz, so it is pulled toward a point charge
+        PointCharge charge = new PointCharge(1e-12, new Vector(0, 0, 0));
+        ParticleEnsemble ensemble = new ParticleEnsemble();
+        ensemble.add(new Yeast(1e-4, 0, 0));
+
+        DepForce force = new DepForce(charge, Medium.DEP_BUFFER, 1e6);
+        double[] fx = new double[1];
+        double[] fy = new double[1];
+        double[] fz = new double[1];
+        double[] v = new double[1];
+        force.computeForces(ensemble, ensemble.getXArray(), ensemble.getYArray(), ensemble.getZArray(),
+                v, v, v, fx, fy, fz, 0, 1);
+        assertTrue(fx[0] < 0);
+        assertTrue(Math.abs(fy[0]) <= 1e-9 * Math.abs(fx[0]));
+        assertTrue(Math.abs(fz[0]) <= 1e-9 * Math.abs(fx[0]));
+
+        // Matches 2 pi e_m r^3 Re[K] d|E|^2/dx with |E|^2 = (kq)^2 / x^4
+        double r = ensemble.getRadius(0);
+        double re = ClausiusMossottiTable.factor(Yeast.dielectric, Medium.DEP_BUFFER, 1e6).getReal();
+        double em = DielectricModel.EPSILON_0 * Medium.DEP_BUFFER.getRelativePermittivity();
+        double kq = charge.getField(new Vector(1, 0, 0)).magnitude();
+        double expected = 2 * Math.PI * em * r * r * r * re * (-4 * kq * kq / Math.pow(1e-4, 5));
+        assertTrue(Math.abs(fx[0] - expected) <= 1e-3 * Math.abs(expected));
+
+        // Moving under the force brings it closer
+        Simulation sim = new Simulation(ensemble, Arrays.asList(charge), Medium.DEP_BUFFER, 1e6,
+                new VelocityVerlet());
+        sim.run(10, 1e-6);
+        assertTrue(ensemble.getX(0) < 1e-4);
+        assertTrue(ensemble.getVelocityX(0) < 0);
+    }
+
+    @Test
+    public void parallelTest()
+    {
+        // Particles don't interact, so stepping in parallel gives exactly the sequential result
+        Electrode electrode = new Dipole(1e-12, new Vector(-1e-4, 0, 0), new Vector(1e-4, 0, 0));
+        ParticleEnsemble sequential = new ParticleEnsemble();
+        for (int i = 0; i < 2000; i++)
+            sequential.add(new Yeast(Math.cos(i) * 5e-4, Math.sin(i) * 5e-4, (i % 7) * 1e-5));
+        ParticleEnsemble parallel = new ParticleEnsemble(sequential.toParticles());
+
+        Simulation seq = new Simulation(sequential, Arrays.asList(electrode), Medium.DEP_BUFFER, 1e6,
+                new RungeKutta4());
+        Simulation par = new Simulation(parallel, Arrays.asList(electrode), Medium.DEP_BUFFER, 1e6,
+                new RungeKutta4());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        par.setPool(pool);
+        assertTrue(par.getPool() == pool);
+
+        seq.run(5, 1e-6);
+        par.run(5, 1e-6);
+        pool.shutdown();
+
+        for (int i = 0; i < sequential.size(); i++)
+        {
+            assertTrue(sequential.getX(i) == parallel.getX(i));
+            assertTrue(sequential.getY(i) == parallel.getY(i));
+            assertTrue(sequential.getZ(i) == parallel.getZ(i));
+            assertTrue(sequential.getVelocityX(i) == parallel.getVelocityX(i));
+        }
+
+        par.setParallel(false);
+        assertTrue(par.getPool() == null);
+    }
+
+    @Test
+    public void zigguratTest()
+    {
+        SplittableRandom random = new SplittableRandom(3);
+        int n = 2000000;
+        double[] g = new double[n];
+        Ziggurat.fill(random, g, 0, n / 2);
+        for (int i = n / 2; i < n; i++)
+            g[i] = Ziggurat.next(random);
+
+        double sum = 0, sum2 = 0, sum4 = 0;
+        int beyond1 = 0, beyond3 = 0;
+        for (double v : g)
+        {
+            sum += v;
+            sum2 += v * v;
+            sum4 += v * v * v * v;
+            if (Math.abs(v) > 1)
+                beyond1++;
+            if (Math.abs(v) > 3.5)
+                beyond3++;
+        }
+
+        // Moments of a standard normal: mean 0, variance 1, fourth moment 3
+        assertTrue(Math.abs(sum / n) < 0.003);
+        assertTrue(Math.abs(sum2 / n - 1) < 0.005);
+        assertTrue(Math.abs(sum4 / n - 3) < 0.03);
+
+        // Mass outside 1 and 3.5 standard deviations, the latter only reachable through the tail
+        assertTrue(Math.abs(beyond1 / (double) n - 0.317311) < 0.002);
+        assertTrue(Math.abs(beyond3 / (double) n - 4.6525e-4) < 0.6e-4);
+    }
+
+    @Test
+    public void brownianTest()
+    {
+        Medium medium = Medium.DEP_BUFFER;
+        double r = 1e-6;
+        double d = medium.getDiffusivity(r);
+        assertTrue(Math.abs(medium.getDragCoefficient(r) - 6 * Math.PI * Medium.WATER_VISCOSITY * r) < 1e-20);
+        assertTrue(Math.abs(d - 2.454e-13) < 0.01e-13);
+
+        ForceModel none = (p, x, y, z, vx, vy, vz, fx, fy, fz, from, to) ->
+        {
+            for (int i = from; i < to; i++)
+            {
+                fx[i] = 0;
+                fy[i] = 0;
+                fz[i] = 0;
+            }
+        };
+
+        ParticleEnsemble ensemble = new ParticleEnsemble();
+        for (int i = 0; i < 20000; i++)
+            ensemble.add(0, 0, 0, 1e-15, r, ParticleEnsemble.OTHER);
+
+        Simulation sim = new Simulation(ensemble, none, new VelocityVerlet());
+        BrownianMotion brownian = new BrownianMotion(medium, 11);
+        sim.addPerturbation(brownian);
+        assertTrue(sim.getPerturbations().size() == 1);
+        sim.run(20, 1e-3);
+
+        // Mean squared displacement grows as 6 D t
+        double msd = 0;
+        for (int i = 0; i < ensemble.size(); i++)
+            msd += ensemble.getX(i) * ensemble.getX(i) + ensemble.getY(i) * ensemble.getY(i)
+                    + ensemble.getZ(i) * ensemble.getZ(i);
+        msd /= ensemble.size();
+        double expected = 6 * d * sim.getTime();
+        assertTrue(Math.abs(msd - expected) < 0.03 * expected);
+
+        // The same seed run sequentially repeats exactly
+        ParticleEnsemble again = new ParticleEnsemble();
+        again.add(0, 0, 0, 1e-15, r, ParticleEnsemble.OTHER);
+        ParticleEnsemble twice = new ParticleEnsemble();
+        twice.add(0, 0, 0, 1e-15, r, ParticleEnsemble.OTHER);
+        new BrownianMotion(medium, 4).perturb(again, 1e-3, 0, 1);
+        new BrownianMotion(medium, 4).perturb(twice, 1e-3, 0, 1);
+        assertTrue(again.getX(0) == twice.getX(0) && again.getX(0) != 0);
+
+        assertTrue(sim.removePerturbation(brownian));
+        assertTrue(sim.getPerturbations().isEmpty());
+
+        // Perturbed velocity-Verlet steps keep one force evaluation per step, at the perturbed positions
+        int[] calls = new int[1];
+        double[] seen = new double[1];
+        ForceModel counting = (p, x, y, z, vx, vy, vz, fx, fy, fz, from, to) ->
+        {
+            calls[0]++;
+            seen[0] = x[0];
+            fx[0] = fy[0] = fz[0] = 0;
+        };
+        ParticleEnsemble one = new ParticleEnsemble();
+        one.add(0, 0, 0, 1, 1, ParticleEnsemble.OTHER);
+        Simulation shifted = new Simulation(one, counting, new VelocityVerlet());
+        shifted.addPerturbation((p, dt, from, to) -> p.getXArray()[0] += 1);
+        shifted.run(10, 1e-3);
+        assertTrue(calls[0] == 11);
+        assertTrue(seen[0] == one.getX(0) && one.getX(0) == 10);
+    }
+
+    @Test
+    public void overdampedTest()
+    {
+        // A yeast cell in a harmonic trap relaxes as x0 exp(-k t / gamma) once inertia is dropped
+        Medium medium = Medium.DEP_BUFFER;
+        Yeast cell = new Yeast(new Vector(1e-5, 0, 0), Yeast.avgMass, Yeast.avgRadius);
+        double gamma = cell.getDragCoefficient(medium);
+        double trap = gamma / 0.1;          // Relaxation time of 0.1 s
+        ForceModel force = (p, x, y, z, vx, vy, vz, fx, fy, fz, from, to) ->
+        {
+            for (int i = from; i < to; i++)
+            {
+                fx[i] = -trap * x[i];
+                fy[i] = 0;
+                fz[i] = 0;
+            }
+        };
+
+        // Steps thousands of times the inertial relaxation time m / gamma
+        double dt = 0.005;
+        assertTrue(dt > 5e3 * cell.getMass() / gamma);
+        double expected = 1e-5 * Math.exp(-1.0 / 0.1);
+
+        double[] errors = new double[2];
+        Overdamped.Method[] methods = {Overdamped.Method.EULER, Overdamped.Method.HEUN};
+        for (int m = 0; m < methods.length; m++)
+        {
+            ParticleEnsemble ensemble = new ParticleEnsemble();
+            ensemble.add(cell);
+            Simulation sim = new Simulation(ensemble, force, new Overdamped(medium, methods[m]));
+            sim.run(200, dt);
+
+            errors[m] = Math.abs(ensemble.getX(0) - expected) / expected;
+            assertTrue(ensemble.getVelocityX(0) < 0);
+        }
+
+        assertTrue(errors[0] < 0.3);
+        assertTrue(errors[1] < 0.01 && errors[1] < errors[0] / 20);
+        assertTrue(new Overdamped(medium).getMethod() == Overdamped.Method.HEUN);
+    }
+
+    @Test
+    public void schedulerTest()
+    {
+        ParticleEnsemble ensemble = new ParticleEnsemble();
+        ensemble.add(new TestParticle(new Vector(1, 0, 0)));
+        Simulation sim = new Simulation(ensemble, spring, new VelocityVerlet());
+        long[] now = new long[1];
+        RunScheduler scheduler = new RunScheduler(sim, 1e-3, () -> now[0]);
+
+        // Headless runs as fast as possible, by count or until a simulated time
+        assertTrue(scheduler.runHeadless(100) == 100);
+        assertTrue(scheduler.runHeadlessUntil(0.25) == 150);
+        assertTrue(Math.abs(sim.getTime() - 0.25) < 1e-12);
+
+        // 1000 steps a second of clock, ticked by hand
+        long start = sim.getStepCount();
+        scheduler.startPaced(1, 100);
+        assertTrue(scheduler.isRunning());
+        scheduler.tick();
+        assertTrue(sim.getStepCount() == start);
+
+        now[0] += 50_000_000;
+        scheduler.tick();
+        assertTrue(sim.getStepCount() - start == 50);
+
+        // Ticks that come late are caught up, so the step count keeps pace with the clock
+        now[0] += 80_000_000;
+        scheduler.tick();
+        scheduler.tick();
+        assertTrue(sim.getStepCount() - start == 130);
+        assertTrue(scheduler.getDroppedSteps() == 0);
+
+        // A stall longer than the catch up limit drops steps instead of falling ever further behind
+        now[0] += 1_000_000_000;
+        scheduler.tick();
+        assertTrue(sim.getStepCount() - start == 230);
+        assertTrue(scheduler.getDroppedSteps() == 900);
+        now[0] += 10_000_000;
+        scheduler.tick();
+        assertTrue(sim.getStepCount() - start == 240);
+        assertTrue(scheduler.getDroppedSteps() == 900);
+        assertTrue(Math.abs(sim.getTime() - 1e-3 * sim.getStepCount()) < 1e-9);
+
+        scheduler.stop();
+        assertTrue(!scheduler.isRunning());
+        assertTrue(scheduler.getFailure() == null);
+        try
+        {
+            scheduler.tick();
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException e)
+        {
+        }
+
+        // The background thread starts and stops the same way
+        scheduler.startRealTime(1, 50, 20, null);
+        assertTrue(scheduler.isRunning());
+        scheduler.stop();
+        assertTrue(!scheduler.isRunning());
+    }
+}
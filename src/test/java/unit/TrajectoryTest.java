@@ -0,0 +1,156 @@
+package unit;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import io.*;
+import particles.*;
+import simulation.*;
+import vector.Vector;
+
+/**
+ * Unit testing for TrajectoryRecorder, TrajectoryReader and SpscRingBuffer
+ *
+ * @author Ronen Orland
+ */
+public class TrajectoryTest
+{
+
+    @Test
+    public void ringBufferTest() throws InterruptedException
+    {
+        SpscRingBuffer<Integer> ring = new SpscRingBuffer<Integer>(5);
+        assertTrue(ring.capacity() == 8);
+        assertTrue(ring.poll() == null);
+
+        for (int i = 0; i < 8; i++)
+            assertTrue(ring.offer(i));
+        assertTrue(!ring.offer(8));
+        assertTrue(ring.size() == 8);
+        assertTrue(ring.poll() == 0);
+        assertTrue(ring.offer(8));
+
+        // Order is kept across threads
+        SpscRingBuffer<Integer> shared = new SpscRingBuffer<Integer>(16);
+        int total = 200000;
+        Thread producer = new Thread(() ->
+        {
+            for (int i = 0; i < total; i++)
+                while (!shared.offer(i))
+                    Thread.yield();
+        });
+        producer.start();
+
+        int expected = 0;
+        while (expected < total)
+        {
+            Integer next = shared.poll();
+            if (next == null)
+                Thread.yield();
+            else
+                assertTrue(next == expected++);
+        }
+        producer.join();
+        assertTrue(shared.poll() == null);
+    }
+
+    @Test
+    public void roundTripTest() throws IOException
+    {
+        Path path = Files.createTempFile("trajectory", ".bin");
+        try
+        {
+            ParticleEnsemble ensemble = new PopulationGenerator(3).generate(ParticleEnsemble.YEAST, 500,
+                    new Vector(-1e-3, -1e-3, 0), new Vector(1e-3, 1e-3, 1e-4));
+            ForceModel none = (p, x, y, z, vx, vy, vz, fx, fy, fz, from, to) ->
+            {
+                for (int i = from; i < to; i++)
+                {
+                    fx[i] = 0;
+                    fy[i] = 0;
+                    fz[i] = 0;
+                }
+            };
+
+            Simulation sim = new Simulation(ensemble, none, new Overdamped(Medium.DEP_BUFFER));
+            sim.addPerturbation(new BrownianMotion(Medium.DEP_BUFFER, 1));
+
+            // Keep a copy of the positions at every recorded step
+            List<double[]> expected = new ArrayList<double[]>();
+            sim.addListener(s ->
+            {
+                if (s.getStepCount() % 5 == 0)
+                {
+                    double[] copy = new double[3 * ensemble.size()];
+                    for (int i = 0; i < ensemble.size(); i++)
+                    {
+                        copy[3 * i] = ensemble.getX(i);
+                        copy[3 * i + 1] = ensemble.getY(i);
+                        copy[3 * i + 2] = ensemble.getZ(i);
+                    }
+                    expected.add(copy);
+                }
+            });
+
+            TrajectoryRecorder recorder = new TrajectoryRecorder(path, 5, 1e-9, 1000);
+            sim.addListener(recorder);
+            sim.run(50, 0.01);
+
+            // Particles leaving start a new key frame
+            ensemble.removeIf(i -> i < 100);
+            sim.run(5, 0.01);
+            recorder.close();
+            assertTrue(recorder.getRecordedFrames() == 11);
+            assertTrue(recorder.getDroppedFrames() == 0);
+
+            // Well under the 24 bytes per particle of raw doubles
+            assertTrue(Files.size(path) < 11 * 500 * 8);
+
+            try (TrajectoryReader reader = new TrajectoryReader(path))
+            {
+                assertTrue(reader.getInterval() == 5);
+                assertTrue(reader.getQuantum() == 1e-9);
+
+                for (int f = 0; f < 11; f++)
+                {
+                    Frame frame = reader.next();
+                    assertTrue(frame != null);
+                    assertTrue(frame.getStep() == 5 * (f + 1));
+                    assertTrue(Math.abs(frame.getTime() - 0.05 * (f + 1)) < 1e-12);
+                    assertTrue(frame.size() == (f < 10 ? 500 : 400));
+
+                    double[] positions = expected.get(f);
+                    for (int i = 0; i < frame.size(); i++)
+                    {
+                        assertTrue(Math.abs(frame.getXArray()[i] - positions[3 * i]) <= 0.51e-9);
+                        assertTrue(Math.abs(frame.getYArray()[i] - positions[3 * i + 1]) <= 0.51e-9);
+                        assertTrue(Math.abs(frame.getZArray()[i] - positions[3 * i + 2]) <= 0.51e-9);
+                    }
+                }
+                assertTrue(reader.next() == null);
+            }
+
+            // Not a trajectory
+            Files.write(path, new byte[40]);
+            try
+            {
+                new TrajectoryReader(path).close();
+                fail("Expected IOException");
+            }
+            catch (IOException e)
+            {
+
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(path);
+        }
+    }
+}